@@ -0,0 +1,21 @@
+package com.shopexperts.config;
+
+import com.shopexperts.util.LocalSmtpServer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MailConfig {
+
+  /**
+   * In-process SMTP stand-in for development; point spring.mail.host/port at it (localhost and
+   * app.mail.local-smtp.port) to send without a real mail server.
+   */
+  @Bean(initMethod = "start", destroyMethod = "stop")
+  @ConditionalOnProperty(name = "app.mail.local-smtp.enabled", havingValue = "true")
+  public LocalSmtpServer localSmtpServer(@Value("${app.mail.local-smtp.port:2525}") int port) {
+    return new LocalSmtpServer(port);
+  }
+}
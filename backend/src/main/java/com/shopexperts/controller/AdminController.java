@@ -3,6 +3,7 @@ package com.shopexperts.controller;
 import com.shopexperts.model.BookingStatus;
 import com.shopexperts.payload.*;
 import com.shopexperts.service.*;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import javax.validation.Valid;
@@ -29,6 +30,8 @@ public class AdminController {
 
   @Autowired private NotificationService notificationService;
 
+  @Autowired private EmailDispatcher emailDispatcher;
+
   // User Management
   @GetMapping("/users")
   public ResponseEntity<Object> getAllUsers(Pageable pageable) {
@@ -66,21 +69,36 @@ public class AdminController {
 
   // Review Management
   @GetMapping("/reviews")
-  public ResponseEntity<Page<ReviewResponse>> getAllReviews(Pageable pageable) {
-    // For now, return empty page - will implement proper service method later
-    return ResponseEntity.ok(Page.empty());
+  public ResponseEntity<CursorPage<ReviewResponse>> getAllReviews(
+      @RequestParam(required = false) Long afterId, @RequestParam(defaultValue = "50") int limit) {
+    CursorPage<ReviewResponse> queue =
+        reviewService.getModerationQueue(afterId, Math.max(1, Math.min(limit, 500)));
+    return ResponseEntity.ok(queue);
   }
 
   @PutMapping("/reviews/{reviewId}/approve")
-  public ResponseEntity<?> approveReview(@PathVariable Long reviewId) {
-    // Will implement later
-    return ResponseEntity.ok().build();
+  public ResponseEntity<Map<String, Object>> approveReview(@PathVariable Long reviewId) {
+    return ResponseEntity.ok(
+        moderationResult(reviewService.approveReviews(Collections.singletonList(reviewId))));
   }
 
   @PutMapping("/reviews/{reviewId}/reject")
-  public ResponseEntity<?> rejectReview(@PathVariable Long reviewId) {
-    // Will implement later
-    return ResponseEntity.ok().build();
+  public ResponseEntity<Map<String, Object>> rejectReview(@PathVariable Long reviewId) {
+    return ResponseEntity.ok(
+        moderationResult(reviewService.rejectReviews(Collections.singletonList(reviewId))));
+  }
+
+  @PostMapping("/reviews/approve")
+  public ResponseEntity<Map<String, Object>> approveReviews(
+      @Valid @RequestBody ReviewModerationRequest request) {
+    return ResponseEntity.ok(
+        moderationResult(reviewService.approveReviews(request.getReviewIds())));
+  }
+
+  @PostMapping("/reviews/reject")
+  public ResponseEntity<Map<String, Object>> rejectReviews(
+      @Valid @RequestBody ReviewModerationRequest request) {
+    return ResponseEntity.ok(moderationResult(reviewService.rejectReviews(request.getReviewIds())));
   }
 
   // Analytics
@@ -108,6 +126,11 @@ public class AdminController {
     return ResponseEntity.ok(new HashMap<>());
   }
 
+  @GetMapping("/analytics/email")
+  public ResponseEntity<Map<String, Object>> getEmailStats() {
+    return ResponseEntity.ok(emailDispatcher.getStats());
+  }
+
   // Support Tools
   @PostMapping("/support/notify-user")
   public ResponseEntity<?> notifyUser(@Valid @RequestBody NotificationRequest request) {
@@ -133,6 +156,12 @@ public class AdminController {
     return ResponseEntity.ok().build();
   }
 
+  private Map<String, Object> moderationResult(int updated) {
+    Map<String, Object> result = new HashMap<>();
+    result.put("updated", updated);
+    return result;
+  }
+
   private Map<String, Object> getAnalyticsDashboard() {
     Map<String, Object> dashboard = new HashMap<>();
     dashboard.put("totalUsers", 0);
@@ -1,17 +1,26 @@
 package com.shopexperts.controller;
 
+import com.shopexperts.payload.BulkNotificationRequest;
+import com.shopexperts.payload.NotificationPreferences;
 import com.shopexperts.payload.NotificationRequest;
 import com.shopexperts.payload.NotificationResponse;
 import com.shopexperts.security.CurrentUser;
 import com.shopexperts.security.UserPrincipal;
+import com.shopexperts.service.NotificationPreferenceService;
 import com.shopexperts.service.NotificationService;
+import com.shopexperts.service.NotificationStreamService;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import javax.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RestController
 @RequestMapping("/api/notifications")
@@ -20,6 +29,10 @@ public class NotificationController {
 
   @Autowired private NotificationService notificationService;
 
+  @Autowired private NotificationStreamService notificationStreamService;
+
+  @Autowired private NotificationPreferenceService notificationPreferenceService;
+
   @PostMapping
   @PreAuthorize("hasRole('ADMIN')")
   public ResponseEntity<NotificationResponse> createNotification(
@@ -46,6 +59,16 @@ public class NotificationController {
     return ResponseEntity.ok(notifications);
   }
 
+  /**
+   * Server-Sent Events stream of the caller's new notifications ("notification" events) and unread
+   * count ("unread-count" events), replacing polling of /my and /unread/count.
+   */
+  @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  @PreAuthorize("hasRole('USER') or hasRole('EXPERT') or hasRole('ADMIN')")
+  public SseEmitter streamNotifications(@CurrentUser UserPrincipal currentUser) {
+    return notificationStreamService.subscribe(currentUser.getId());
+  }
+
   @GetMapping("/unread/count")
   @PreAuthorize("hasRole('USER') or hasRole('EXPERT') or hasRole('ADMIN')")
   public ResponseEntity<Long> getUnreadNotificationCount(@CurrentUser UserPrincipal currentUser) {
@@ -60,6 +83,18 @@ public class NotificationController {
     return ResponseEntity.ok().build();
   }
 
+  /** Marks several of the caller's notifications read at once; returns {marked}. */
+  @PutMapping("/mark-read")
+  @PreAuthorize("hasRole('USER') or hasRole('EXPERT') or hasRole('ADMIN')")
+  public ResponseEntity<Map<String, Integer>> markNotificationsAsRead(
+      @CurrentUser UserPrincipal currentUser, @RequestBody List<Long> notificationIds) {
+    Map<String, Integer> response = new HashMap<>();
+    response.put(
+        "marked",
+        notificationService.markNotificationsAsRead(currentUser.getId(), notificationIds));
+    return ResponseEntity.ok(response);
+  }
+
   @PutMapping("/mark-all-read")
   @PreAuthorize("hasRole('USER') or hasRole('EXPERT') or hasRole('ADMIN')")
   public ResponseEntity<?> markAllNotificationsAsRead(@CurrentUser UserPrincipal currentUser) {
@@ -67,6 +102,22 @@ public class NotificationController {
     return ResponseEntity.ok().build();
   }
 
+  @GetMapping("/preferences")
+  @PreAuthorize("hasRole('USER') or hasRole('EXPERT') or hasRole('ADMIN')")
+  public ResponseEntity<NotificationPreferences> getPreferences(
+      @CurrentUser UserPrincipal currentUser) {
+    return ResponseEntity.ok(notificationPreferenceService.getPreferences(currentUser.getId()));
+  }
+
+  /** Replaces the caller's muted notification types on every channel. */
+  @PutMapping("/preferences")
+  @PreAuthorize("hasRole('USER') or hasRole('EXPERT') or hasRole('ADMIN')")
+  public ResponseEntity<NotificationPreferences> updatePreferences(
+      @CurrentUser UserPrincipal currentUser, @RequestBody NotificationPreferences preferences) {
+    return ResponseEntity.ok(
+        notificationPreferenceService.updatePreferences(currentUser.getId(), preferences));
+  }
+
   @DeleteMapping("/{notificationId}")
   @PreAuthorize("hasRole('USER') or hasRole('EXPERT') or hasRole('ADMIN')")
   public ResponseEntity<?> deleteNotification(@PathVariable Long notificationId) {
@@ -74,10 +125,36 @@ public class NotificationController {
     return ResponseEntity.ok().build();
   }
 
+  @PutMapping("/broadcasts/{broadcastId}/read")
+  @PreAuthorize("hasRole('USER') or hasRole('EXPERT') or hasRole('ADMIN')")
+  public ResponseEntity<?> markBroadcastAsRead(
+      @CurrentUser UserPrincipal currentUser, @PathVariable Long broadcastId) {
+    notificationService.markBroadcastAsRead(currentUser.getId(), broadcastId);
+    return ResponseEntity.ok().build();
+  }
+
+  @DeleteMapping("/broadcasts/{broadcastId}")
+  @PreAuthorize("hasRole('USER') or hasRole('EXPERT') or hasRole('ADMIN')")
+  public ResponseEntity<?> deleteBroadcast(
+      @CurrentUser UserPrincipal currentUser, @PathVariable Long broadcastId) {
+    notificationService.deleteBroadcast(currentUser.getId(), broadcastId);
+    return ResponseEntity.ok().build();
+  }
+
   @PostMapping("/send-bulk")
   @PreAuthorize("hasRole('ADMIN')")
-  public ResponseEntity<?> sendBulkNotification(@Valid @RequestBody NotificationRequest request) {
-    notificationService.sendBulkNotification(request);
-    return ResponseEntity.ok().build();
+  public ResponseEntity<Map<String, Object>> sendBulkNotification(
+      @Valid @RequestBody BulkNotificationRequest request) {
+    Map<String, Object> response = new HashMap<>();
+    if (request.getUserIds() == null && request.getRole() == null) {
+      response.put(
+          "broadcastId",
+          notificationService
+              .broadcastNotification(request.getTitle(), request.getMessage(), request.getType())
+              .getId());
+    } else {
+      response.put("sent", notificationService.sendBulkNotification(request));
+    }
+    return ResponseEntity.ok(response);
   }
 }
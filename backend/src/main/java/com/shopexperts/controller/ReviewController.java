@@ -7,6 +7,7 @@ import com.shopexperts.security.UserPrincipal;
 import com.shopexperts.service.FileStorageService;
 import com.shopexperts.service.ReviewService;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import javax.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -124,6 +125,22 @@ public class ReviewController {
     return ResponseEntity.ok(reviews);
   }
 
+  @GetMapping("/recent")
+  public ResponseEntity<List<ReviewResponse>> getRecentReviews(
+      @RequestParam(defaultValue = "10") int limit,
+      @RequestParam(required = false) String category) {
+    return ResponseEntity.ok(reviewService.getRecentReviews(Math.max(1, limit), category));
+  }
+
+  @GetMapping("/search")
+  public ResponseEntity<List<ReviewResponse>> searchReviews(
+      @RequestParam("q") String query,
+      @RequestParam(required = false) Long expertId,
+      @RequestParam(defaultValue = "20") int limit) {
+    int boundedLimit = Math.max(1, Math.min(limit, 100));
+    return ResponseEntity.ok(reviewService.searchReviews(query, expertId, boundedLimit));
+  }
+
   @GetMapping("/{reviewId}")
   public ResponseEntity<ReviewResponse> getReview(@PathVariable Long reviewId) {
     // TODO: Implement single review retrieval
@@ -159,8 +176,18 @@ public class ReviewController {
 
   @PostMapping("/{reviewId}/helpful")
   @PreAuthorize("hasRole('USER') or hasRole('EXPERT')")
-  public ResponseEntity<?> markReviewHelpful(@PathVariable Long reviewId) {
-    // TODO: Implement helpful marking functionality
-    return ResponseEntity.ok().build();
+  public ResponseEntity<Map<String, Object>> markReviewHelpful(
+      @PathVariable Long reviewId, @CurrentUser UserPrincipal currentUser) {
+    Map<String, Object> response = new HashMap<>();
+
+    try {
+      long helpfulCount = reviewService.markReviewHelpful(reviewId, currentUser.getId());
+      response.put("helpfulCount", helpfulCount);
+      response.put("message", "Review marked as helpful");
+      return ResponseEntity.ok(response);
+    } catch (RuntimeException e) {
+      response.put("error", e.getMessage());
+      return ResponseEntity.badRequest().body(response);
+    }
   }
 }
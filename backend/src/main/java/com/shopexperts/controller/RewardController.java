@@ -1,20 +1,36 @@
 package com.shopexperts.controller;
 
+import com.shopexperts.payload.BulkRewardAwardRequest;
+import com.shopexperts.payload.CursorPage;
 import com.shopexperts.payload.RewardAccountResponse;
+import com.shopexperts.payload.RewardCampaignRequest;
+import com.shopexperts.payload.RewardCampaignResponse;
+import com.shopexperts.payload.RewardRankingResponse;
+import com.shopexperts.payload.RewardTransactionFilter;
 import com.shopexperts.payload.RewardTransactionRequest;
 import com.shopexperts.payload.RewardTransactionResponse;
 import com.shopexperts.security.CurrentUser;
 import com.shopexperts.security.UserPrincipal;
+import com.shopexperts.service.RewardCampaignService;
+import com.shopexperts.service.RewardLeaderboardService;
 import com.shopexperts.service.RewardService;
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import javax.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/api/rewards")
@@ -23,6 +39,10 @@ public class RewardController {
 
   @Autowired private RewardService rewardService;
 
+  @Autowired private RewardLeaderboardService rewardLeaderboardService;
+
+  @Autowired private RewardCampaignService rewardCampaignService;
+
   @GetMapping("/account")
   @PreAuthorize("hasRole('USER') or hasRole('EXPERT')")
   public ResponseEntity<RewardAccountResponse> getRewardAccount(
@@ -85,9 +105,30 @@ public class RewardController {
   }
 
   @GetMapping("/leaderboard")
-  public ResponseEntity<?> getRewardLeaderboard(@RequestParam(defaultValue = "10") int limit) {
-    // Will implement later
-    return ResponseEntity.ok(new HashMap<>());
+  public ResponseEntity<List<RewardRankingResponse>> getRewardLeaderboard(
+      @RequestParam(defaultValue = "10") int limit) {
+    return ResponseEntity.ok(
+        rewardLeaderboardService.getTopUsers(Math.max(1, Math.min(limit, 100))));
+  }
+
+  @GetMapping("/leaderboard/me")
+  @PreAuthorize("hasRole('USER') or hasRole('EXPERT')")
+  public ResponseEntity<RewardRankingResponse> getMyRewardRanking(
+      @CurrentUser UserPrincipal currentUser) {
+    RewardRankingResponse ranking = rewardLeaderboardService.getUserRanking(currentUser.getId());
+    if (ranking == null) {
+      return ResponseEntity.notFound().build();
+    }
+    return ResponseEntity.ok(ranking);
+  }
+
+  @GetMapping("/leaderboard/around")
+  @PreAuthorize("hasRole('USER') or hasRole('EXPERT')")
+  public ResponseEntity<List<RewardRankingResponse>> getRewardRankingsAroundMe(
+      @CurrentUser UserPrincipal currentUser, @RequestParam(defaultValue = "5") int radius) {
+    return ResponseEntity.ok(
+        rewardLeaderboardService.getUsersAround(
+            currentUser.getId(), Math.max(0, Math.min(radius, 50))));
   }
 
   @GetMapping("/referral/stats")
@@ -99,24 +140,104 @@ public class RewardController {
 
     stats.put("referralCode", account.getReferralCode());
     stats.put("totalReferrals", account.getTotalReferrals());
-    stats.put("referralBonus", account.getTotalReferrals() * 50); // 50 points per referral
+    stats.put("referralBonus", account.getReferralBonusPoints());
 
     return ResponseEntity.ok(stats);
   }
 
   @GetMapping("/admin/transactions")
   @PreAuthorize("hasRole('ADMIN')")
-  public ResponseEntity<Page<RewardTransactionResponse>> getAllRewardTransactions(
-      Pageable pageable) {
-    // Will implement later
-    return ResponseEntity.ok(Page.empty());
+  public ResponseEntity<CursorPage<RewardTransactionResponse>> getAllRewardTransactions(
+      RewardTransactionFilter filter,
+      @RequestParam(required = false) Long beforeId,
+      @RequestParam(defaultValue = "50") int limit) {
+    return ResponseEntity.ok(
+        rewardService.getAllRewardTransactions(
+            filter, beforeId, Math.max(1, Math.min(limit, 500))));
+  }
+
+  @GetMapping("/admin/transactions/export")
+  @PreAuthorize("hasRole('ADMIN')")
+  public ResponseEntity<StreamingResponseBody> exportRewardTransactions(
+      RewardTransactionFilter filter) {
+    StreamingResponseBody body =
+        out -> {
+          Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+          rewardService.exportRewardTransactions(filter, writer);
+          writer.flush();
+        };
+    return ResponseEntity.ok()
+        .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"reward-transactions.csv\"")
+        .body(body);
   }
 
   @PostMapping("/admin/award")
   @PreAuthorize("hasRole('ADMIN')")
   public ResponseEntity<RewardTransactionResponse> awardPoints(
       @Valid @RequestBody RewardTransactionRequest request) {
-    // Will implement later
-    return ResponseEntity.ok(new RewardTransactionResponse());
+    if (request.getUserId() == null || request.getAmount() == null) {
+      return ResponseEntity.badRequest().build();
+    }
+    try {
+      RewardTransactionResponse transaction =
+          rewardService.awardPointsByAdmin(
+              request.getUserId(), request.getAmount().intValue(), request.getDescription());
+      return ResponseEntity.ok(transaction);
+    } catch (RuntimeException e) {
+      return ResponseEntity.badRequest().build();
+    }
+  }
+
+  @PostMapping("/admin/award/bulk")
+  @PreAuthorize("hasRole('ADMIN')")
+  public ResponseEntity<Map<String, Object>> awardPointsToUsers(
+      @Valid @RequestBody BulkRewardAwardRequest request) {
+    int awarded =
+        rewardService.awardPointsToUsers(
+            request.getUserIds(), request.getPoints(), request.getDescription());
+    Map<String, Object> response = new HashMap<>();
+    response.put("awarded", awarded);
+    response.put("skipped", request.getUserIds().size() - awarded);
+    return ResponseEntity.ok(response);
+  }
+
+  @GetMapping("/admin/campaigns")
+  @PreAuthorize("hasRole('ADMIN')")
+  public ResponseEntity<List<RewardCampaignResponse>> getCampaigns() {
+    return ResponseEntity.ok(rewardCampaignService.getCampaigns());
+  }
+
+  @PostMapping("/admin/campaigns")
+  @PreAuthorize("hasRole('ADMIN')")
+  public ResponseEntity<RewardCampaignResponse> createCampaign(
+      @Valid @RequestBody RewardCampaignRequest request) {
+    try {
+      return ResponseEntity.ok(rewardCampaignService.createCampaign(request));
+    } catch (RuntimeException e) {
+      return ResponseEntity.badRequest().build();
+    }
+  }
+
+  @PutMapping("/admin/campaigns/{campaignId}")
+  @PreAuthorize("hasRole('ADMIN')")
+  public ResponseEntity<RewardCampaignResponse> updateCampaign(
+      @PathVariable Long campaignId, @Valid @RequestBody RewardCampaignRequest request) {
+    try {
+      return ResponseEntity.ok(rewardCampaignService.updateCampaign(campaignId, request));
+    } catch (RuntimeException e) {
+      return ResponseEntity.badRequest().build();
+    }
+  }
+
+  @DeleteMapping("/admin/campaigns/{campaignId}")
+  @PreAuthorize("hasRole('ADMIN')")
+  public ResponseEntity<Void> deleteCampaign(@PathVariable Long campaignId) {
+    try {
+      rewardCampaignService.deleteCampaign(campaignId);
+      return ResponseEntity.ok().build();
+    } catch (RuntimeException e) {
+      return ResponseEntity.notFound().build();
+    }
   }
 }
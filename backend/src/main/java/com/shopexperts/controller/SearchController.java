@@ -2,6 +2,8 @@ package com.shopexperts.controller;
 
 import com.shopexperts.model.User;
 import com.shopexperts.payload.ApiResponse;
+import com.shopexperts.payload.TalentRankingResponse;
+import com.shopexperts.service.TalentLeaderboardService;
 import com.shopexperts.service.UserService;
 import java.util.List;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,6 +17,8 @@ public class SearchController {
 
   @Autowired private UserService userService;
 
+  @Autowired private TalentLeaderboardService talentLeaderboardService;
+
   @GetMapping("/talents")
   public ResponseEntity<?> searchTalents(
       @RequestParam(required = false) String location,
@@ -55,4 +59,22 @@ public class SearchController {
           .body(new ApiResponse(false, "Failed to fetch talents: " + e.getMessage()));
     }
   }
+
+  @GetMapping("/talents/top")
+  public ResponseEntity<List<TalentRankingResponse>> getTopTalents(
+      @RequestParam(required = false) String category,
+      @RequestParam(defaultValue = "10") int limit) {
+    return ResponseEntity.ok(
+        talentLeaderboardService.getTopTalents(category, Math.max(1, Math.min(limit, 100))));
+  }
+
+  @GetMapping("/talents/{talentId}/rank")
+  public ResponseEntity<TalentRankingResponse> getTalentRank(
+      @PathVariable Long talentId, @RequestParam(required = false) String category) {
+    TalentRankingResponse ranking = talentLeaderboardService.getTalentRanking(talentId, category);
+    if (ranking == null) {
+      return ResponseEntity.notFound().build();
+    }
+    return ResponseEntity.ok(ranking);
+  }
 }
@@ -0,0 +1,31 @@
+package com.shopexperts.controller;
+
+import com.shopexperts.payload.SyncResponse;
+import com.shopexperts.security.CurrentUser;
+import com.shopexperts.security.UserPrincipal;
+import com.shopexperts.service.SyncService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/sync")
+@CrossOrigin(origins = "http://localhost:3000")
+public class SyncController {
+
+  @Autowired private SyncService syncService;
+
+  /**
+   * The caller's notifications, bookings and reward transactions created, changed or deleted since
+   * the token from their previous sync. Without a token (or with an expired one) the response only
+   * carries a fresh token and reset=true: take it, then load everything through the usual
+   * endpoints, then sync from it.
+   */
+  @GetMapping
+  @PreAuthorize("hasRole('USER') or hasRole('EXPERT') or hasRole('ADMIN')")
+  public ResponseEntity<SyncResponse> sync(
+      @CurrentUser UserPrincipal currentUser, @RequestParam(required = false) String since) {
+    return ResponseEntity.ok(syncService.sync(currentUser.getId(), since));
+  }
+}
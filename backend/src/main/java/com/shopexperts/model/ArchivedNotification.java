@@ -0,0 +1,111 @@
+package com.shopexperts.model;
+
+import java.time.LocalDateTime;
+import javax.persistence.*;
+
+/**
+ * A notification moved out of the notifications table by the retention job. It keeps its original
+ * id and plain user id, so archived rows outlive the users and notifications they came from.
+ */
+@Entity
+@Table(
+    name = "notifications_archive",
+    indexes = @Index(name = "idx_notifications_archive_user", columnList = "user_id"))
+public class ArchivedNotification {
+  @Id private Long id;
+
+  @Column(name = "user_id")
+  private Long userId;
+
+  private String title;
+
+  @Column(columnDefinition = "TEXT")
+  private String message;
+
+  @Enumerated(EnumType.STRING)
+  private NotificationType type;
+
+  private Boolean isRead;
+
+  @Column(name = "created_at")
+  private LocalDateTime createdAt;
+
+  @Column(name = "item_count")
+  private Integer itemCount;
+
+  @Column(name = "archived_at")
+  private LocalDateTime archivedAt;
+
+  // Getters and Setters
+  public Long getId() {
+    return id;
+  }
+
+  public void setId(Long id) {
+    this.id = id;
+  }
+
+  public Long getUserId() {
+    return userId;
+  }
+
+  public void setUserId(Long userId) {
+    this.userId = userId;
+  }
+
+  public String getTitle() {
+    return title;
+  }
+
+  public void setTitle(String title) {
+    this.title = title;
+  }
+
+  public String getMessage() {
+    return message;
+  }
+
+  public void setMessage(String message) {
+    this.message = message;
+  }
+
+  public NotificationType getType() {
+    return type;
+  }
+
+  public void setType(NotificationType type) {
+    this.type = type;
+  }
+
+  public Boolean getIsRead() {
+    return isRead;
+  }
+
+  public void setIsRead(Boolean isRead) {
+    this.isRead = isRead;
+  }
+
+  public LocalDateTime getCreatedAt() {
+    return createdAt;
+  }
+
+  public void setCreatedAt(LocalDateTime createdAt) {
+    this.createdAt = createdAt;
+  }
+
+  public Integer getItemCount() {
+    return itemCount;
+  }
+
+  public void setItemCount(Integer itemCount) {
+    this.itemCount = itemCount;
+  }
+
+  public LocalDateTime getArchivedAt() {
+    return archivedAt;
+  }
+
+  public void setArchivedAt(LocalDateTime archivedAt) {
+    this.archivedAt = archivedAt;
+  }
+}
@@ -0,0 +1,84 @@
+package com.shopexperts.model;
+
+import java.time.LocalDateTime;
+import javax.persistence.*;
+
+/**
+ * A notification addressed to every user, stored once and merged into each user's feed when it is
+ * read. Users who sign up later do not see broadcasts sent before they joined.
+ */
+@Entity
+@Table(
+    name = "broadcast_notifications",
+    indexes = @Index(name = "idx_broadcast_notifications_created", columnList = "created_at"))
+public class BroadcastNotification {
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  private String title;
+
+  @Column(columnDefinition = "TEXT")
+  private String message;
+
+  @Enumerated(EnumType.STRING)
+  private NotificationType type;
+
+  @Column(name = "created_at")
+  private LocalDateTime createdAt;
+
+  @PrePersist
+  protected void onCreate() {
+    createdAt = LocalDateTime.now();
+  }
+
+  // Constructors
+  public BroadcastNotification() {}
+
+  public BroadcastNotification(String title, String message, NotificationType type) {
+    this.title = title;
+    this.message = message;
+    this.type = type;
+  }
+
+  // Getters and Setters
+  public Long getId() {
+    return id;
+  }
+
+  public void setId(Long id) {
+    this.id = id;
+  }
+
+  public String getTitle() {
+    return title;
+  }
+
+  public void setTitle(String title) {
+    this.title = title;
+  }
+
+  public String getMessage() {
+    return message;
+  }
+
+  public void setMessage(String message) {
+    this.message = message;
+  }
+
+  public NotificationType getType() {
+    return type;
+  }
+
+  public void setType(NotificationType type) {
+    this.type = type;
+  }
+
+  public LocalDateTime getCreatedAt() {
+    return createdAt;
+  }
+
+  public void setCreatedAt(LocalDateTime createdAt) {
+    this.createdAt = createdAt;
+  }
+}
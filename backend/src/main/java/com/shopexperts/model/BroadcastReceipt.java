@@ -0,0 +1,71 @@
+package com.shopexperts.model;
+
+import javax.persistence.*;
+
+/**
+ * One user's read or dismissed state for a broadcast. Rows exist only for broadcasts the user has
+ * acted on; a broadcast without one is unread unless the user's mark-all-read watermark covers it.
+ */
+@Entity
+@Table(
+    name = "broadcast_receipts",
+    uniqueConstraints = @UniqueConstraint(columnNames = {"broadcast_id", "user_id"}),
+    indexes = @Index(name = "idx_broadcast_receipts_user", columnList = "user_id"))
+public class BroadcastReceipt {
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @ManyToOne(fetch = FetchType.LAZY)
+  @JoinColumn(name = "broadcast_id")
+  private BroadcastNotification broadcast;
+
+  @ManyToOne(fetch = FetchType.LAZY)
+  @JoinColumn(name = "user_id")
+  private User user;
+
+  private Boolean isRead = false;
+
+  private Boolean deleted = false;
+
+  // Getters and Setters
+  public Long getId() {
+    return id;
+  }
+
+  public void setId(Long id) {
+    this.id = id;
+  }
+
+  public BroadcastNotification getBroadcast() {
+    return broadcast;
+  }
+
+  public void setBroadcast(BroadcastNotification broadcast) {
+    this.broadcast = broadcast;
+  }
+
+  public User getUser() {
+    return user;
+  }
+
+  public void setUser(User user) {
+    this.user = user;
+  }
+
+  public Boolean getIsRead() {
+    return isRead;
+  }
+
+  public void setIsRead(Boolean isRead) {
+    this.isRead = isRead;
+  }
+
+  public Boolean getDeleted() {
+    return deleted;
+  }
+
+  public void setDeleted(Boolean deleted) {
+    this.deleted = deleted;
+  }
+}
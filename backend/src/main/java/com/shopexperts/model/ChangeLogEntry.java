@@ -0,0 +1,88 @@
+package com.shopexperts.model;
+
+import java.time.LocalDateTime;
+import javax.persistence.*;
+
+/**
+ * One change to an entity a user can see, written in the same transaction as the change. The id is
+ * the change sequence number clients sync from, handed out in commit order; a deleted entry is the
+ * tombstone of a removed entity. Entries for user 0 are changes every user syncs, such as a new
+ * broadcast. Only ever written and read by JDBC.
+ */
+@Entity
+@Table(
+    name = "change_log",
+    indexes = {
+      @Index(name = "idx_change_log_user_seq", columnList = "user_id, id"),
+      @Index(name = "idx_change_log_changed", columnList = "changed_at")
+    })
+public class ChangeLogEntry {
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Column(name = "user_id", nullable = false)
+  private Long userId;
+
+  @Enumerated(EnumType.STRING)
+  @Column(name = "entity_type", nullable = false, length = 32)
+  private SyncEntityType entityType;
+
+  @Column(name = "entity_id", nullable = false)
+  private Long entityId;
+
+  @Column(nullable = false)
+  private Boolean deleted = false;
+
+  @Column(name = "changed_at", nullable = false)
+  private LocalDateTime changedAt;
+
+  // Getters and Setters
+  public Long getId() {
+    return id;
+  }
+
+  public void setId(Long id) {
+    this.id = id;
+  }
+
+  public Long getUserId() {
+    return userId;
+  }
+
+  public void setUserId(Long userId) {
+    this.userId = userId;
+  }
+
+  public SyncEntityType getEntityType() {
+    return entityType;
+  }
+
+  public void setEntityType(SyncEntityType entityType) {
+    this.entityType = entityType;
+  }
+
+  public Long getEntityId() {
+    return entityId;
+  }
+
+  public void setEntityId(Long entityId) {
+    this.entityId = entityId;
+  }
+
+  public Boolean getDeleted() {
+    return deleted;
+  }
+
+  public void setDeleted(Boolean deleted) {
+    this.deleted = deleted;
+  }
+
+  public LocalDateTime getChangedAt() {
+    return changedAt;
+  }
+
+  public void setChangedAt(LocalDateTime changedAt) {
+    this.changedAt = changedAt;
+  }
+}
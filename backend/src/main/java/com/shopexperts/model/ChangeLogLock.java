@@ -0,0 +1,35 @@
+package com.shopexperts.model;
+
+import java.time.LocalDateTime;
+import javax.persistence.*;
+
+/**
+ * The single row change-log writers lock while they insert their entries and commit, so entries
+ * become visible in id order. Only ever written and read by JDBC.
+ */
+@Entity
+@Table(name = "change_log_lock")
+public class ChangeLogLock {
+  @Id private Integer id;
+
+  // When a writer last took the lock
+  @Column(name = "locked_at")
+  private LocalDateTime lockedAt;
+
+  // Getters and Setters
+  public Integer getId() {
+    return id;
+  }
+
+  public void setId(Integer id) {
+    this.id = id;
+  }
+
+  public LocalDateTime getLockedAt() {
+    return lockedAt;
+  }
+
+  public void setLockedAt(LocalDateTime lockedAt) {
+    this.lockedAt = lockedAt;
+  }
+}
@@ -0,0 +1,134 @@
+package com.shopexperts.model;
+
+import java.time.LocalDateTime;
+import javax.persistence.*;
+
+/**
+ * One email in the outbox. Rows are written in the same transaction as the change that triggers
+ * them, already rendered, and sent later by the email dispatcher; a row stays PENDING, with
+ * nextAttemptAt pushed back after each failed attempt, until it is SENT or gives up as FAILED.
+ */
+@Entity
+@Table(
+    name = "email_outbox",
+    indexes = @Index(name = "idx_email_outbox_status_next", columnList = "status, next_attempt_at"))
+public class EmailMessage {
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  private String recipient;
+
+  private String subject;
+
+  @Column(columnDefinition = "TEXT")
+  private String body;
+
+  private String template;
+
+  @Enumerated(EnumType.STRING)
+  private EmailStatus status = EmailStatus.PENDING;
+
+  private Integer attempts = 0;
+
+  @Column(name = "next_attempt_at")
+  private LocalDateTime nextAttemptAt;
+
+  @Column(name = "last_error", length = 1000)
+  private String lastError;
+
+  @Column(name = "created_at")
+  private LocalDateTime createdAt;
+
+  @Column(name = "sent_at")
+  private LocalDateTime sentAt;
+
+  // Getters and Setters
+  public Long getId() {
+    return id;
+  }
+
+  public void setId(Long id) {
+    this.id = id;
+  }
+
+  public String getRecipient() {
+    return recipient;
+  }
+
+  public void setRecipient(String recipient) {
+    this.recipient = recipient;
+  }
+
+  public String getSubject() {
+    return subject;
+  }
+
+  public void setSubject(String subject) {
+    this.subject = subject;
+  }
+
+  public String getBody() {
+    return body;
+  }
+
+  public void setBody(String body) {
+    this.body = body;
+  }
+
+  public String getTemplate() {
+    return template;
+  }
+
+  public void setTemplate(String template) {
+    this.template = template;
+  }
+
+  public EmailStatus getStatus() {
+    return status;
+  }
+
+  public void setStatus(EmailStatus status) {
+    this.status = status;
+  }
+
+  public Integer getAttempts() {
+    return attempts;
+  }
+
+  public void setAttempts(Integer attempts) {
+    this.attempts = attempts;
+  }
+
+  public LocalDateTime getNextAttemptAt() {
+    return nextAttemptAt;
+  }
+
+  public void setNextAttemptAt(LocalDateTime nextAttemptAt) {
+    this.nextAttemptAt = nextAttemptAt;
+  }
+
+  public String getLastError() {
+    return lastError;
+  }
+
+  public void setLastError(String lastError) {
+    this.lastError = lastError;
+  }
+
+  public LocalDateTime getCreatedAt() {
+    return createdAt;
+  }
+
+  public void setCreatedAt(LocalDateTime createdAt) {
+    this.createdAt = createdAt;
+  }
+
+  public LocalDateTime getSentAt() {
+    return sentAt;
+  }
+
+  public void setSentAt(LocalDateTime sentAt) {
+    this.sentAt = sentAt;
+  }
+}
@@ -0,0 +1,7 @@
+package com.shopexperts.model;
+
+public enum EmailStatus {
+  PENDING,
+  SENT,
+  FAILED
+}
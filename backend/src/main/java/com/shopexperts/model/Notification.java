@@ -4,7 +4,12 @@ import java.time.LocalDateTime;
 import javax.persistence.*;
 
 @Entity
-@Table(name = "notifications")
+@Table(
+    name = "notifications",
+    indexes = {
+      @Index(name = "idx_notifications_user_created", columnList = "user_id, created_at"),
+      @Index(name = "idx_notifications_created", columnList = "created_at")
+    })
 public class Notification {
   @Id
   @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -27,6 +32,10 @@ public class Notification {
   @Column(name = "created_at")
   private LocalDateTime createdAt;
 
+  // How many notifications this row summarizes; null for a single notification
+  @Column(name = "item_count")
+  private Integer itemCount;
+
   @PrePersist
   protected void onCreate() {
     createdAt = LocalDateTime.now();
@@ -88,4 +97,12 @@ public class Notification {
   public void setCreatedAt(LocalDateTime createdAt) {
     this.createdAt = createdAt;
   }
+
+  public Integer getItemCount() {
+    return itemCount;
+  }
+
+  public void setItemCount(Integer itemCount) {
+    this.itemCount = itemCount;
+  }
 }
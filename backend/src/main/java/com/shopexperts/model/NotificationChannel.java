@@ -0,0 +1,8 @@
+package com.shopexperts.model;
+
+/** Where a notification is delivered. New channels go at the end: preferences store ordinals. */
+public enum NotificationChannel {
+  IN_APP,
+  EMAIL,
+  PUSH
+}
@@ -0,0 +1,60 @@
+package com.shopexperts.model;
+
+import javax.persistence.*;
+
+/**
+ * Durable copy of a user's unread personal notification count and read watermarks: notifications
+ * with an id up to readUpToId, and broadcasts with an id up to broadcastReadUpToId, count as read
+ * whatever their own flag or receipt says. Only ever changed by JDBC updates next to the
+ * notification writes that move it, and recomputed from the notifications table by the periodic
+ * reconciliation.
+ */
+@Entity
+@Table(name = "notification_counters")
+public class NotificationCounter {
+  @Id
+  @Column(name = "user_id")
+  private Long userId;
+
+  @Column(name = "unread_count", nullable = false)
+  private Integer unreadCount = 0;
+
+  @Column(name = "read_up_to_id", nullable = false)
+  private Long readUpToId = 0L;
+
+  @Column(name = "broadcast_read_up_to_id", nullable = false, columnDefinition = "BIGINT DEFAULT 0")
+  private Long broadcastReadUpToId = 0L;
+
+  // Getters and Setters
+  public Long getUserId() {
+    return userId;
+  }
+
+  public void setUserId(Long userId) {
+    this.userId = userId;
+  }
+
+  public Integer getUnreadCount() {
+    return unreadCount;
+  }
+
+  public void setUnreadCount(Integer unreadCount) {
+    this.unreadCount = unreadCount;
+  }
+
+  public Long getReadUpToId() {
+    return readUpToId;
+  }
+
+  public void setReadUpToId(Long readUpToId) {
+    this.readUpToId = readUpToId;
+  }
+
+  public Long getBroadcastReadUpToId() {
+    return broadcastReadUpToId;
+  }
+
+  public void setBroadcastReadUpToId(Long broadcastReadUpToId) {
+    this.broadcastReadUpToId = broadcastReadUpToId;
+  }
+}
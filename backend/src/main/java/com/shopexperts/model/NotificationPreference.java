@@ -0,0 +1,48 @@
+package com.shopexperts.model;
+
+import java.time.LocalDateTime;
+import javax.persistence.*;
+
+/**
+ * The notification types a user has muted, per channel, as one bitmask: bit {@code channel * 16 +
+ * type} (by ordinal) is set when that type is muted on that channel. Users who have muted nothing
+ * have no row.
+ */
+@Entity
+@Table(name = "notification_preferences")
+public class NotificationPreference {
+  @Id
+  @Column(name = "user_id")
+  private Long userId;
+
+  @Column(nullable = false)
+  private Long muted = 0L;
+
+  @Column(name = "updated_at")
+  private LocalDateTime updatedAt;
+
+  // Getters and Setters
+  public Long getUserId() {
+    return userId;
+  }
+
+  public void setUserId(Long userId) {
+    this.userId = userId;
+  }
+
+  public Long getMuted() {
+    return muted;
+  }
+
+  public void setMuted(Long muted) {
+    this.muted = muted;
+  }
+
+  public LocalDateTime getUpdatedAt() {
+    return updatedAt;
+  }
+
+  public void setUpdatedAt(LocalDateTime updatedAt) {
+    this.updatedAt = updatedAt;
+  }
+}
@@ -8,5 +8,6 @@ public enum NotificationType {
   NEW_REVIEW,
   PROMOTION,
   SYSTEM_ALERT,
-  REFERRAL_BONUS
+  REFERRAL_BONUS,
+  POINTS_EXPIRED
 }
@@ -0,0 +1,76 @@
+package com.shopexperts.model;
+
+import java.time.LocalDateTime;
+import javax.persistence.*;
+
+@Entity
+@Table(
+    name = "referrals",
+    uniqueConstraints = @UniqueConstraint(columnNames = {"referred_id"}),
+    indexes = @Index(name = "idx_referrals_referrer", columnList = "referrer_id"))
+public class Referral {
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @ManyToOne(fetch = FetchType.LAZY)
+  @JoinColumn(name = "referrer_id", nullable = false)
+  private User referrer;
+
+  // A user can only ever be referred once
+  @ManyToOne(fetch = FetchType.LAZY)
+  @JoinColumn(name = "referred_id", nullable = false)
+  private User referred;
+
+  @Column(name = "referral_code", length = 16)
+  private String referralCode;
+
+  @Column(name = "created_at")
+  private LocalDateTime createdAt;
+
+  @PrePersist
+  protected void onCreate() {
+    createdAt = LocalDateTime.now();
+  }
+
+  // Getters and Setters
+  public Long getId() {
+    return id;
+  }
+
+  public void setId(Long id) {
+    this.id = id;
+  }
+
+  public User getReferrer() {
+    return referrer;
+  }
+
+  public void setReferrer(User referrer) {
+    this.referrer = referrer;
+  }
+
+  public User getReferred() {
+    return referred;
+  }
+
+  public void setReferred(User referred) {
+    this.referred = referred;
+  }
+
+  public String getReferralCode() {
+    return referralCode;
+  }
+
+  public void setReferralCode(String referralCode) {
+    this.referralCode = referralCode;
+  }
+
+  public LocalDateTime getCreatedAt() {
+    return createdAt;
+  }
+
+  public void setCreatedAt(LocalDateTime createdAt) {
+    this.createdAt = createdAt;
+  }
+}
@@ -7,7 +7,24 @@ import javax.persistence.*;
 
 @Entity
 @Table(name = "reviews")
+@NamedEntityGraph(
+    name = Review.WITH_PARTICIPANTS,
+    attributeNodes = {
+      @NamedAttributeNode(value = "reviewer", subgraph = "participant"),
+      @NamedAttributeNode(value = "talent", subgraph = "participant")
+    },
+    // User's one-to-one back references cannot be lazy, so they are joined instead of selected
+    // once per participant.
+    subgraphs =
+        @NamedSubgraph(
+            name = "participant",
+            attributeNodes = {
+              @NamedAttributeNode("profile"),
+              @NamedAttributeNode("rewardAccount")
+            }))
 public class Review {
+  public static final String WITH_PARTICIPANTS = "Review.withParticipants";
+
   @Id
   @GeneratedValue(strategy = GenerationType.IDENTITY)
   private Long id;
@@ -36,8 +53,11 @@ public class Review {
 
   private Boolean verified = false;
   private Boolean approved = true;
+  private Boolean rejected = false;
 
-  @Column(name = "helpful_votes")
+  // Only ReviewHelpfulVoteService changes it, with an SQL increment; saving a stale Review must not
+  // write its old value back
+  @Column(name = "helpful_votes", updatable = false)
   private Integer helpfulVotes = 0;
 
   @Column(name = "expert_reply")
@@ -142,6 +162,14 @@ public class Review {
     this.approved = approved;
   }
 
+  public Boolean getRejected() {
+    return rejected;
+  }
+
+  public void setRejected(Boolean rejected) {
+    this.rejected = rejected;
+  }
+
   public LocalDateTime getCreatedAt() {
     return createdAt;
   }
@@ -18,6 +18,17 @@ public class RewardAccount {
   private Integer availablePoints = 0;
   private Integer redeemedPoints = 0;
 
+  // Lifetime points lost to expiry; with redeemedPoints this is how much of the oldest credit lots
+  // has been used up, so expiry can work out what is left without per-lot bookkeeping
+  private Integer expiredPoints = 0;
+
+  @Column(name = "referral_code", unique = true, length = 16)
+  private String referralCode;
+
+  // Materialized when a referral is redeemed so stats never scan the transaction history
+  private Integer referralCount = 0;
+  private Integer referralBonusPoints = 0;
+
   @Column(name = "created_at")
   private LocalDateTime createdAt;
 
@@ -76,6 +87,38 @@ public class RewardAccount {
     this.redeemedPoints = redeemedPoints;
   }
 
+  public Integer getExpiredPoints() {
+    return expiredPoints;
+  }
+
+  public void setExpiredPoints(Integer expiredPoints) {
+    this.expiredPoints = expiredPoints;
+  }
+
+  public String getReferralCode() {
+    return referralCode;
+  }
+
+  public void setReferralCode(String referralCode) {
+    this.referralCode = referralCode;
+  }
+
+  public Integer getReferralCount() {
+    return referralCount;
+  }
+
+  public void setReferralCount(Integer referralCount) {
+    this.referralCount = referralCount;
+  }
+
+  public Integer getReferralBonusPoints() {
+    return referralBonusPoints;
+  }
+
+  public void setReferralBonusPoints(Integer referralBonusPoints) {
+    this.referralBonusPoints = referralBonusPoints;
+  }
+
   public LocalDateTime getCreatedAt() {
     return createdAt;
   }
@@ -0,0 +1,149 @@
+package com.shopexperts.model;
+
+import java.time.LocalDateTime;
+import javax.persistence.*;
+
+@Entity
+@Table(name = "reward_campaigns")
+public class RewardCampaign {
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Column(nullable = false, length = 100)
+  private String name;
+
+  @Enumerated(EnumType.STRING)
+  @Column(nullable = false)
+  private RewardEventType eventType;
+
+  // Talent business category the campaign is limited to; null applies to every category
+  private String category;
+
+  // Base points are multiplied, then bonusPoints is added
+  private Double multiplier = 1.0;
+  private Integer bonusPoints = 0;
+
+  // Optional window; either end may be open
+  private LocalDateTime startsAt;
+  private LocalDateTime endsAt;
+
+  // Bit (dayOfWeek - 1) set for each day the campaign runs; null runs every day
+  private Integer daysOfWeek;
+
+  private Boolean active = true;
+
+  @Column(name = "created_at")
+  private LocalDateTime createdAt;
+
+  @Column(name = "updated_at")
+  private LocalDateTime updatedAt;
+
+  @PrePersist
+  protected void onCreate() {
+    createdAt = LocalDateTime.now();
+    updatedAt = LocalDateTime.now();
+  }
+
+  @PreUpdate
+  protected void onUpdate() {
+    updatedAt = LocalDateTime.now();
+  }
+
+  // Getters and Setters
+  public Long getId() {
+    return id;
+  }
+
+  public void setId(Long id) {
+    this.id = id;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  public RewardEventType getEventType() {
+    return eventType;
+  }
+
+  public void setEventType(RewardEventType eventType) {
+    this.eventType = eventType;
+  }
+
+  public String getCategory() {
+    return category;
+  }
+
+  public void setCategory(String category) {
+    this.category = category;
+  }
+
+  public Double getMultiplier() {
+    return multiplier;
+  }
+
+  public void setMultiplier(Double multiplier) {
+    this.multiplier = multiplier;
+  }
+
+  public Integer getBonusPoints() {
+    return bonusPoints;
+  }
+
+  public void setBonusPoints(Integer bonusPoints) {
+    this.bonusPoints = bonusPoints;
+  }
+
+  public LocalDateTime getStartsAt() {
+    return startsAt;
+  }
+
+  public void setStartsAt(LocalDateTime startsAt) {
+    this.startsAt = startsAt;
+  }
+
+  public LocalDateTime getEndsAt() {
+    return endsAt;
+  }
+
+  public void setEndsAt(LocalDateTime endsAt) {
+    this.endsAt = endsAt;
+  }
+
+  public Integer getDaysOfWeek() {
+    return daysOfWeek;
+  }
+
+  public void setDaysOfWeek(Integer daysOfWeek) {
+    this.daysOfWeek = daysOfWeek;
+  }
+
+  public Boolean getActive() {
+    return active;
+  }
+
+  public void setActive(Boolean active) {
+    this.active = active;
+  }
+
+  public LocalDateTime getCreatedAt() {
+    return createdAt;
+  }
+
+  public void setCreatedAt(LocalDateTime createdAt) {
+    this.createdAt = createdAt;
+  }
+
+  public LocalDateTime getUpdatedAt() {
+    return updatedAt;
+  }
+
+  public void setUpdatedAt(LocalDateTime updatedAt) {
+    this.updatedAt = updatedAt;
+  }
+}
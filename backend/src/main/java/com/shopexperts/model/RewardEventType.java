@@ -0,0 +1,8 @@
+package com.shopexperts.model;
+
+public enum RewardEventType {
+  BOOKING_COMPLETED,
+  REVIEW_WRITTEN,
+  REFERRAL_REFERRER,
+  REFERRAL_REFERRED
+}
@@ -4,7 +4,12 @@ import java.time.LocalDateTime;
 import javax.persistence.*;
 
 @Entity
-@Table(name = "reward_transactions")
+@Table(
+    name = "reward_transactions",
+    indexes =
+        @Index(
+            name = "idx_reward_transactions_account_type_created",
+            columnList = "reward_account_id, type, created_at"))
 public class RewardTransaction {
   @Id
   @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -23,6 +28,11 @@ public class RewardTransaction {
   @Column(name = "created_at")
   private LocalDateTime createdAt;
 
+  // Set on credits written by the write-behind buffer; replaying its journal skips sequences
+  // that are already stored
+  @Column(name = "journal_seq", unique = true)
+  private Long journalSeq;
+
   @PrePersist
   protected void onCreate() {
     createdAt = LocalDateTime.now();
@@ -76,4 +86,12 @@ public class RewardTransaction {
   public void setCreatedAt(LocalDateTime createdAt) {
     this.createdAt = createdAt;
   }
+
+  public Long getJournalSeq() {
+    return journalSeq;
+  }
+
+  public void setJournalSeq(Long journalSeq) {
+    this.journalSeq = journalSeq;
+  }
 }
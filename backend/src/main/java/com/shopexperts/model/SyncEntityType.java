@@ -0,0 +1,12 @@
+package com.shopexperts.model;
+
+/**
+ * Entities whose changes are recorded in the change log for client sync. A broadcast's own changes
+ * are recorded once for everyone; a user's read, hide or mute of it is recorded for that user.
+ */
+public enum SyncEntityType {
+  NOTIFICATION,
+  BOOKING,
+  REWARD_TRANSACTION,
+  BROADCAST
+}
@@ -0,0 +1,77 @@
+package com.shopexperts.payload;
+
+import com.shopexperts.model.NotificationType;
+import com.shopexperts.model.RoleName;
+import java.util.List;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+
+/**
+ * A notification for many users. With neither userIds nor role it goes to everyone as a broadcast;
+ * otherwise it is delivered to the listed users or to every user holding the role.
+ */
+public class BulkNotificationRequest {
+  @NotBlank(message = "Title is required")
+  private String title;
+
+  @NotBlank(message = "Message is required")
+  private String message;
+
+  @NotNull private NotificationType type;
+
+  @Size(max = 100000)
+  private List<Long> userIds;
+
+  private RoleName role;
+
+  // Constructors
+  public BulkNotificationRequest() {}
+
+  public BulkNotificationRequest(String title, String message, NotificationType type) {
+    this.title = title;
+    this.message = message;
+    this.type = type;
+  }
+
+  // Getters and Setters
+  public String getTitle() {
+    return title;
+  }
+
+  public void setTitle(String title) {
+    this.title = title;
+  }
+
+  public String getMessage() {
+    return message;
+  }
+
+  public void setMessage(String message) {
+    this.message = message;
+  }
+
+  public NotificationType getType() {
+    return type;
+  }
+
+  public void setType(NotificationType type) {
+    this.type = type;
+  }
+
+  public List<Long> getUserIds() {
+    return userIds;
+  }
+
+  public void setUserIds(List<Long> userIds) {
+    this.userIds = userIds;
+  }
+
+  public RoleName getRole() {
+    return role;
+  }
+
+  public void setRole(RoleName role) {
+    this.role = role;
+  }
+}
@@ -0,0 +1,54 @@
+package com.shopexperts.payload;
+
+import java.util.List;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+
+public class BulkRewardAwardRequest {
+  @NotEmpty
+  @Size(max = 10000)
+  private List<Long> userIds;
+
+  @NotNull
+  @Min(1)
+  private Integer points;
+
+  @Size(max = 255)
+  private String description;
+
+  // Constructors
+  public BulkRewardAwardRequest() {}
+
+  public BulkRewardAwardRequest(List<Long> userIds, Integer points, String description) {
+    this.userIds = userIds;
+    this.points = points;
+    this.description = description;
+  }
+
+  // Getters and Setters
+  public List<Long> getUserIds() {
+    return userIds;
+  }
+
+  public void setUserIds(List<Long> userIds) {
+    this.userIds = userIds;
+  }
+
+  public Integer getPoints() {
+    return points;
+  }
+
+  public void setPoints(Integer points) {
+    this.points = points;
+  }
+
+  public String getDescription() {
+    return description;
+  }
+
+  public void setDescription(String description) {
+    this.description = description;
+  }
+}
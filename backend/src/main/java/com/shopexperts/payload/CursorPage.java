@@ -0,0 +1,43 @@
+package com.shopexperts.payload;
+
+import java.util.List;
+
+public class CursorPage<T> {
+  private List<T> content;
+  private Long nextCursor;
+  private boolean hasMore;
+
+  // Constructors
+  public CursorPage() {}
+
+  public CursorPage(List<T> content, Long nextCursor, boolean hasMore) {
+    this.content = content;
+    this.nextCursor = nextCursor;
+    this.hasMore = hasMore;
+  }
+
+  // Getters and Setters
+  public List<T> getContent() {
+    return content;
+  }
+
+  public void setContent(List<T> content) {
+    this.content = content;
+  }
+
+  public Long getNextCursor() {
+    return nextCursor;
+  }
+
+  public void setNextCursor(Long nextCursor) {
+    this.nextCursor = nextCursor;
+  }
+
+  public boolean isHasMore() {
+    return hasMore;
+  }
+
+  public void setHasMore(boolean hasMore) {
+    this.hasMore = hasMore;
+  }
+}
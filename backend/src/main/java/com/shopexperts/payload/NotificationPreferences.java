@@ -0,0 +1,51 @@
+package com.shopexperts.payload;
+
+import com.shopexperts.model.NotificationType;
+import java.util.EnumSet;
+import java.util.Set;
+
+/** The notification types a user has muted on each channel. */
+public class NotificationPreferences {
+  private Set<NotificationType> mutedInApp = EnumSet.noneOf(NotificationType.class);
+
+  private Set<NotificationType> mutedEmail = EnumSet.noneOf(NotificationType.class);
+
+  private Set<NotificationType> mutedPush = EnumSet.noneOf(NotificationType.class);
+
+  // Constructors
+  public NotificationPreferences() {}
+
+  public NotificationPreferences(
+      Set<NotificationType> mutedInApp,
+      Set<NotificationType> mutedEmail,
+      Set<NotificationType> mutedPush) {
+    this.mutedInApp = mutedInApp;
+    this.mutedEmail = mutedEmail;
+    this.mutedPush = mutedPush;
+  }
+
+  // Getters and Setters
+  public Set<NotificationType> getMutedInApp() {
+    return mutedInApp;
+  }
+
+  public void setMutedInApp(Set<NotificationType> mutedInApp) {
+    this.mutedInApp = mutedInApp;
+  }
+
+  public Set<NotificationType> getMutedEmail() {
+    return mutedEmail;
+  }
+
+  public void setMutedEmail(Set<NotificationType> mutedEmail) {
+    this.mutedEmail = mutedEmail;
+  }
+
+  public Set<NotificationType> getMutedPush() {
+    return mutedPush;
+  }
+
+  public void setMutedPush(Set<NotificationType> mutedPush) {
+    this.mutedPush = mutedPush;
+  }
+}
@@ -11,6 +11,10 @@ public class NotificationResponse {
   private String actionUrl;
   private Boolean isRead;
   private LocalDateTime createdAt;
+  // Broadcast ids come from their own sequence and are marked read through the broadcast endpoints
+  private Boolean broadcast = false;
+  // Set on digests: the number of notifications this one stands for
+  private Integer itemCount;
 
   // Constructors
   public NotificationResponse() {}
@@ -88,4 +92,20 @@ public class NotificationResponse {
   public void setCreatedAt(LocalDateTime createdAt) {
     this.createdAt = createdAt;
   }
+
+  public Boolean getBroadcast() {
+    return broadcast;
+  }
+
+  public void setBroadcast(Boolean broadcast) {
+    this.broadcast = broadcast;
+  }
+
+  public Integer getItemCount() {
+    return itemCount;
+  }
+
+  public void setItemCount(Integer itemCount) {
+    this.itemCount = itemCount;
+  }
 }
@@ -0,0 +1,27 @@
+package com.shopexperts.payload;
+
+import java.util.List;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
+
+public class ReviewModerationRequest {
+  @NotEmpty
+  @Size(max = 10000)
+  private List<Long> reviewIds;
+
+  // Constructors
+  public ReviewModerationRequest() {}
+
+  public ReviewModerationRequest(List<Long> reviewIds) {
+    this.reviewIds = reviewIds;
+  }
+
+  // Getters and Setters
+  public List<Long> getReviewIds() {
+    return reviewIds;
+  }
+
+  public void setReviewIds(List<Long> reviewIds) {
+    this.reviewIds = reviewIds;
+  }
+}
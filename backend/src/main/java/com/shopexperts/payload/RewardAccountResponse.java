@@ -12,6 +12,7 @@ public class RewardAccountResponse {
   private BigDecimal usedPoints;
   private String referralCode;
   private int totalReferrals;
+  private int referralBonusPoints;
   private LocalDateTime createdAt;
   private LocalDateTime lastUpdated;
 
@@ -106,6 +107,14 @@ public class RewardAccountResponse {
     this.totalReferrals = totalReferrals;
   }
 
+  public int getReferralBonusPoints() {
+    return referralBonusPoints;
+  }
+
+  public void setReferralBonusPoints(int referralBonusPoints) {
+    this.referralBonusPoints = referralBonusPoints;
+  }
+
   public LocalDateTime getCreatedAt() {
     return createdAt;
   }
@@ -0,0 +1,126 @@
+package com.shopexperts.payload;
+
+import com.shopexperts.model.RewardEventType;
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.util.Set;
+
+public class RewardCampaignResponse {
+  private Long id;
+  private String name;
+  private RewardEventType eventType;
+  private String category;
+  private Double multiplier;
+  private Integer bonusPoints;
+  private LocalDateTime startsAt;
+  private LocalDateTime endsAt;
+  private Set<DayOfWeek> daysOfWeek;
+  private Boolean active;
+
+  // Constructors
+  public RewardCampaignResponse() {}
+
+  public RewardCampaignResponse(
+      Long id,
+      String name,
+      RewardEventType eventType,
+      String category,
+      Double multiplier,
+      Integer bonusPoints,
+      LocalDateTime startsAt,
+      LocalDateTime endsAt,
+      Set<DayOfWeek> daysOfWeek,
+      Boolean active) {
+    this.id = id;
+    this.name = name;
+    this.eventType = eventType;
+    this.category = category;
+    this.multiplier = multiplier;
+    this.bonusPoints = bonusPoints;
+    this.startsAt = startsAt;
+    this.endsAt = endsAt;
+    this.daysOfWeek = daysOfWeek;
+    this.active = active;
+  }
+
+  // Getters and Setters
+  public Long getId() {
+    return id;
+  }
+
+  public void setId(Long id) {
+    this.id = id;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  public RewardEventType getEventType() {
+    return eventType;
+  }
+
+  public void setEventType(RewardEventType eventType) {
+    this.eventType = eventType;
+  }
+
+  public String getCategory() {
+    return category;
+  }
+
+  public void setCategory(String category) {
+    this.category = category;
+  }
+
+  public Double getMultiplier() {
+    return multiplier;
+  }
+
+  public void setMultiplier(Double multiplier) {
+    this.multiplier = multiplier;
+  }
+
+  public Integer getBonusPoints() {
+    return bonusPoints;
+  }
+
+  public void setBonusPoints(Integer bonusPoints) {
+    this.bonusPoints = bonusPoints;
+  }
+
+  public LocalDateTime getStartsAt() {
+    return startsAt;
+  }
+
+  public void setStartsAt(LocalDateTime startsAt) {
+    this.startsAt = startsAt;
+  }
+
+  public LocalDateTime getEndsAt() {
+    return endsAt;
+  }
+
+  public void setEndsAt(LocalDateTime endsAt) {
+    this.endsAt = endsAt;
+  }
+
+  public Set<DayOfWeek> getDaysOfWeek() {
+    return daysOfWeek;
+  }
+
+  public void setDaysOfWeek(Set<DayOfWeek> daysOfWeek) {
+    this.daysOfWeek = daysOfWeek;
+  }
+
+  public Boolean getActive() {
+    return active;
+  }
+
+  public void setActive(Boolean active) {
+    this.active = active;
+  }
+}
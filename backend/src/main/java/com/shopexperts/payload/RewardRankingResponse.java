@@ -0,0 +1,51 @@
+package com.shopexperts.payload;
+
+public class RewardRankingResponse {
+  private int rank;
+  private Long userId;
+  private String userName;
+  private Long totalPoints;
+
+  // Constructors
+  public RewardRankingResponse() {}
+
+  public RewardRankingResponse(int rank, Long userId, String userName, Long totalPoints) {
+    this.rank = rank;
+    this.userId = userId;
+    this.userName = userName;
+    this.totalPoints = totalPoints;
+  }
+
+  // Getters and Setters
+  public int getRank() {
+    return rank;
+  }
+
+  public void setRank(int rank) {
+    this.rank = rank;
+  }
+
+  public Long getUserId() {
+    return userId;
+  }
+
+  public void setUserId(Long userId) {
+    this.userId = userId;
+  }
+
+  public String getUserName() {
+    return userName;
+  }
+
+  public void setUserName(String userName) {
+    this.userName = userName;
+  }
+
+  public Long getTotalPoints() {
+    return totalPoints;
+  }
+
+  public void setTotalPoints(Long totalPoints) {
+    this.totalPoints = totalPoints;
+  }
+}
@@ -0,0 +1,61 @@
+package com.shopexperts.payload;
+
+import com.shopexperts.model.TransactionType;
+import java.time.LocalDateTime;
+import org.springframework.format.annotation.DateTimeFormat;
+
+/** Optional filters for the admin transaction feed; unset fields match every transaction. */
+public class RewardTransactionFilter {
+  private TransactionType type;
+  private Long userId;
+
+  @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+  private LocalDateTime from;
+
+  @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+  private LocalDateTime to;
+
+  // Constructors
+  public RewardTransactionFilter() {}
+
+  public RewardTransactionFilter(
+      TransactionType type, Long userId, LocalDateTime from, LocalDateTime to) {
+    this.type = type;
+    this.userId = userId;
+    this.from = from;
+    this.to = to;
+  }
+
+  // Getters and Setters
+  public TransactionType getType() {
+    return type;
+  }
+
+  public void setType(TransactionType type) {
+    this.type = type;
+  }
+
+  public Long getUserId() {
+    return userId;
+  }
+
+  public void setUserId(Long userId) {
+    this.userId = userId;
+  }
+
+  public LocalDateTime getFrom() {
+    return from;
+  }
+
+  public void setFrom(LocalDateTime from) {
+    this.from = from;
+  }
+
+  public LocalDateTime getTo() {
+    return to;
+  }
+
+  public void setTo(LocalDateTime to) {
+    this.to = to;
+  }
+}
@@ -0,0 +1,120 @@
+package com.shopexperts.payload;
+
+import com.shopexperts.model.SyncEntityType;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What changed for the caller since their last sync token: the current state of every entity
+ * created or changed, and the ids of those deleted. With reset set the client cannot be brought up
+ * to date from its token and must reload everything before syncing from the new one.
+ */
+public class SyncResponse {
+  private String token;
+  private Boolean reset = false;
+  // More changes are waiting; sync again with the new token straight away
+  private Boolean hasMore = false;
+  private List<NotificationResponse> notifications = new ArrayList<>();
+  private List<BookingResponse> bookings = new ArrayList<>();
+  private List<RewardTransactionResponse> rewardTransactions = new ArrayList<>();
+  // Broadcasts the caller can see, keyed by broadcast id; ids they can no longer see (hidden,
+  // muted) are listed under deleted
+  private List<NotificationResponse> broadcasts = new ArrayList<>();
+  private Map<SyncEntityType, List<Long>> deleted = new EnumMap<>(SyncEntityType.class);
+  // Personal notifications up to this id are read, whatever their own flag says
+  private Long notificationsReadUpTo;
+  // Broadcasts up to this id are read, whatever their own flag says
+  private Long broadcastsReadUpTo;
+
+  // Constructors
+  public SyncResponse() {}
+
+  public SyncResponse(String token, Boolean reset, Long notificationsReadUpTo) {
+    this.token = token;
+    this.reset = reset;
+    this.notificationsReadUpTo = notificationsReadUpTo;
+  }
+
+  // Getters and Setters
+  public String getToken() {
+    return token;
+  }
+
+  public void setToken(String token) {
+    this.token = token;
+  }
+
+  public Boolean getReset() {
+    return reset;
+  }
+
+  public void setReset(Boolean reset) {
+    this.reset = reset;
+  }
+
+  public Boolean getHasMore() {
+    return hasMore;
+  }
+
+  public void setHasMore(Boolean hasMore) {
+    this.hasMore = hasMore;
+  }
+
+  public List<NotificationResponse> getNotifications() {
+    return notifications;
+  }
+
+  public void setNotifications(List<NotificationResponse> notifications) {
+    this.notifications = notifications;
+  }
+
+  public List<BookingResponse> getBookings() {
+    return bookings;
+  }
+
+  public void setBookings(List<BookingResponse> bookings) {
+    this.bookings = bookings;
+  }
+
+  public List<RewardTransactionResponse> getRewardTransactions() {
+    return rewardTransactions;
+  }
+
+  public void setRewardTransactions(List<RewardTransactionResponse> rewardTransactions) {
+    this.rewardTransactions = rewardTransactions;
+  }
+
+  public List<NotificationResponse> getBroadcasts() {
+    return broadcasts;
+  }
+
+  public void setBroadcasts(List<NotificationResponse> broadcasts) {
+    this.broadcasts = broadcasts;
+  }
+
+  public Map<SyncEntityType, List<Long>> getDeleted() {
+    return deleted;
+  }
+
+  public void setDeleted(Map<SyncEntityType, List<Long>> deleted) {
+    this.deleted = deleted;
+  }
+
+  public Long getNotificationsReadUpTo() {
+    return notificationsReadUpTo;
+  }
+
+  public void setNotificationsReadUpTo(Long notificationsReadUpTo) {
+    this.notificationsReadUpTo = notificationsReadUpTo;
+  }
+
+  public Long getBroadcastsReadUpTo() {
+    return broadcastsReadUpTo;
+  }
+
+  public void setBroadcastsReadUpTo(Long broadcastsReadUpTo) {
+    this.broadcastsReadUpTo = broadcastsReadUpTo;
+  }
+}
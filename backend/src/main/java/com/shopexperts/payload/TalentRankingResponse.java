@@ -0,0 +1,88 @@
+package com.shopexperts.payload;
+
+public class TalentRankingResponse {
+  private int rank;
+  private Long talentId;
+  private String talentName;
+  private String businessCategory;
+  private Double averageRating;
+  private Long reviewCount;
+  private Double score;
+
+  // Constructors
+  public TalentRankingResponse() {}
+
+  public TalentRankingResponse(
+      int rank,
+      Long talentId,
+      String talentName,
+      String businessCategory,
+      Double averageRating,
+      Long reviewCount,
+      Double score) {
+    this.rank = rank;
+    this.talentId = talentId;
+    this.talentName = talentName;
+    this.businessCategory = businessCategory;
+    this.averageRating = averageRating;
+    this.reviewCount = reviewCount;
+    this.score = score;
+  }
+
+  // Getters and Setters
+  public int getRank() {
+    return rank;
+  }
+
+  public void setRank(int rank) {
+    this.rank = rank;
+  }
+
+  public Long getTalentId() {
+    return talentId;
+  }
+
+  public void setTalentId(Long talentId) {
+    this.talentId = talentId;
+  }
+
+  public String getTalentName() {
+    return talentName;
+  }
+
+  public void setTalentName(String talentName) {
+    this.talentName = talentName;
+  }
+
+  public String getBusinessCategory() {
+    return businessCategory;
+  }
+
+  public void setBusinessCategory(String businessCategory) {
+    this.businessCategory = businessCategory;
+  }
+
+  public Double getAverageRating() {
+    return averageRating;
+  }
+
+  public void setAverageRating(Double averageRating) {
+    this.averageRating = averageRating;
+  }
+
+  public Long getReviewCount() {
+    return reviewCount;
+  }
+
+  public void setReviewCount(Long reviewCount) {
+    this.reviewCount = reviewCount;
+  }
+
+  public Double getScore() {
+    return score;
+  }
+
+  public void setScore(Double score) {
+    this.score = score;
+  }
+}
@@ -4,6 +4,7 @@ import com.shopexperts.model.Booking;
 import com.shopexperts.model.BookingStatus;
 import com.shopexperts.model.User;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -29,6 +30,13 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
       @Param("startTime") LocalDateTime startTime,
       @Param("endTime") LocalDateTime endTime);
 
+  /** The listed bookings the user took part in, as customer or talent. */
+  @Query(
+      "SELECT b FROM Booking b JOIN FETCH b.user u JOIN FETCH b.talent t "
+          + "WHERE b.id IN :ids AND (u.id = :userId OR t.id = :userId)")
+  List<Booking> findByParticipantAndIdIn(
+      @Param("userId") Long userId, @Param("ids") Collection<Long> ids);
+
   @Query("SELECT COUNT(b) FROM Booking b WHERE b.talent = :talent AND b.status = 'COMPLETED'")
   Long countCompletedBookingsByTalent(@Param("talent") User talent);
 
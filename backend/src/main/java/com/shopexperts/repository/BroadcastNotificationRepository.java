@@ -0,0 +1,55 @@
+package com.shopexperts.repository;
+
+import com.shopexperts.model.BroadcastNotification;
+import com.shopexperts.model.NotificationType;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface BroadcastNotificationRepository
+    extends JpaRepository<BroadcastNotification, Long> {
+
+  // Broadcasts of the given (unmuted) types sent since the user signed up that they have not
+  // dismissed. The types are listed rather than excluded because an empty IN list is not valid SQL.
+  String VISIBLE =
+      "FROM BroadcastNotification b "
+          + "LEFT JOIN BroadcastReceipt r ON r.broadcast = b AND r.user.id = :userId "
+          + "WHERE b.createdAt >= (SELECT u.createdAt FROM User u WHERE u.id = :userId) "
+          + "AND b.type IN :types AND (r.id IS NULL OR r.deleted = false)";
+
+  /**
+   * Rows of [broadcast, isRead], where isRead is null if the user never opened it; broadcasts up to
+   * the user's broadcast read watermark are read whatever their receipt says.
+   */
+  @Query("SELECT b, r.isRead " + VISIBLE + " ORDER BY b.createdAt DESC, b.id DESC")
+  List<Object[]> findVisible(
+      @Param("userId") Long userId,
+      @Param("types") Collection<NotificationType> types,
+      Pageable pageable);
+
+  /** Rows of [broadcast, isRead] for the listed broadcasts the user can see; others are skipped. */
+  @Query("SELECT b, r.isRead " + VISIBLE + " AND b.id IN :ids")
+  List<Object[]> findVisibleByIds(
+      @Param("userId") Long userId,
+      @Param("types") Collection<NotificationType> types,
+      @Param("ids") Collection<Long> ids);
+
+  @Query("SELECT COUNT(b) " + VISIBLE)
+  long countVisible(
+      @Param("userId") Long userId, @Param("types") Collection<NotificationType> types);
+
+  @Query(
+      "SELECT COUNT(b) "
+          + VISIBLE
+          + " AND b.id > :readUpToId AND b.id <= :upToId AND (r.id IS NULL OR r.isRead = false)")
+  long countUnread(
+      @Param("userId") Long userId,
+      @Param("readUpToId") long readUpToId,
+      @Param("upToId") long upToId,
+      @Param("types") Collection<NotificationType> types);
+}
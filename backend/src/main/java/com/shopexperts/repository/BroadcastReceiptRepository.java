@@ -0,0 +1,11 @@
+package com.shopexperts.repository;
+
+import com.shopexperts.model.BroadcastReceipt;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface BroadcastReceiptRepository extends JpaRepository<BroadcastReceipt, Long> {
+  Optional<BroadcastReceipt> findByBroadcastIdAndUserId(Long broadcastId, Long userId);
+}
@@ -2,24 +2,39 @@ package com.shopexperts.repository;
 
 import com.shopexperts.model.Notification;
 import com.shopexperts.model.User;
+import java.util.Collection;
 import java.util.List;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface NotificationRepository extends JpaRepository<Notification, Long> {
   List<Notification> findByUserOrderByCreatedAtDesc(User user);
 
-  List<Notification> findByUserAndIsReadOrderByCreatedAtDesc(User user, Boolean isRead);
-
-  Long countByUserAndIsRead(User user, Boolean isRead);
+  /** Unread notifications: not read one by one and newer than the user's read watermark. */
+  List<Notification> findByUserAndIsReadFalseAndIdGreaterThanOrderByCreatedAtDesc(
+      User user, Long readUpToId);
 
   // New methods for user ID-based queries
+  @EntityGraph(attributePaths = {"user", "user.profile", "user.rewardAccount"})
   Page<Notification> findByUserIdOrderByCreatedAtDesc(Long userId, Pageable pageable);
 
-  Long countByUserIdAndIsRead(Long userId, Boolean isRead);
+  @EntityGraph(attributePaths = "user")
+  List<Notification> findByUserIdAndIdIn(Long userId, Collection<Long> ids);
 
-  List<Notification> findByUserIdAndIsRead(Long userId, Boolean isRead);
+  /** Marks some of a user's notifications read in one statement; returns how many were unread. */
+  @Modifying
+  @Query(
+      "UPDATE Notification n SET n.isRead = true WHERE n.user.id = :userId AND n.id IN :ids "
+          + "AND n.id > :readUpToId AND n.isRead = false")
+  int markRead(
+      @Param("userId") Long userId,
+      @Param("ids") Collection<Long> ids,
+      @Param("readUpToId") Long readUpToId);
 }
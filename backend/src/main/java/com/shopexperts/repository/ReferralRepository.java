@@ -0,0 +1,10 @@
+package com.shopexperts.repository;
+
+import com.shopexperts.model.Referral;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ReferralRepository extends JpaRepository<Referral, Long> {
+  boolean existsByReferredId(Long referredId);
+}
@@ -0,0 +1,17 @@
+package com.shopexperts.repository;
+
+import com.shopexperts.model.ReviewHelpfulVote;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ReviewHelpfulVoteRepository extends JpaRepository<ReviewHelpfulVote, Long> {
+  boolean existsByReviewIdAndUserId(Long reviewId, Long userId);
+
+  @Modifying
+  @Query("DELETE FROM ReviewHelpfulVote v WHERE v.review.id = :reviewId")
+  int deleteByReviewId(@Param("reviewId") Long reviewId);
+}
@@ -2,10 +2,14 @@ package com.shopexperts.repository;
 
 import com.shopexperts.model.Review;
 import com.shopexperts.model.User;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -27,8 +31,10 @@ public interface ReviewRepository extends JpaRepository<Review, Long> {
   List<Review> findByApproved(Boolean approved);
 
   // Additional methods for talent ID-based queries
+  @EntityGraph(Review.WITH_PARTICIPANTS)
   Page<Review> findByTalentIdOrderByCreatedAtDesc(Long talentId, Pageable pageable);
 
+  @EntityGraph(Review.WITH_PARTICIPANTS)
   Page<Review> findByReviewerIdOrderByCreatedAtDesc(Long reviewerId, Pageable pageable);
 
   @Query("SELECT AVG(r.rating) FROM Review r WHERE r.talent.id = :talentId AND r.approved = true")
@@ -36,7 +42,68 @@ public interface ReviewRepository extends JpaRepository<Review, Long> {
 
   Long countByTalentId(Long talentId);
 
-  List<Review> findTop10ByOrderByCreatedAtDesc();
+  @EntityGraph(Review.WITH_PARTICIPANTS)
+  List<Review> findByApprovedTrueOrderByCreatedAtDescIdDesc(Pageable pageable);
+
+  @EntityGraph(Review.WITH_PARTICIPANTS)
+  List<Review> findByIdIn(Collection<Long> ids);
+
+  // Approved reviews of talents in one business category, matched trimmed and lower-cased
+  @EntityGraph(Review.WITH_PARTICIPANTS)
+  @Query(
+      "SELECT r FROM Review r JOIN r.talent t JOIN t.profile p WHERE r.approved = true "
+          + "AND LOWER(TRIM(p.businessCategory)) = :category ORDER BY r.createdAt DESC, r.id DESC")
+  List<Review> findApprovedInCategory(@Param("category") String category, Pageable pageable);
+
+  @EntityGraph(Review.WITH_PARTICIPANTS)
+  @Query("SELECT r FROM Review r WHERE r.id IN :ids ORDER BY r.createdAt DESC, r.id DESC")
+  List<Review> findNewestByIdIn(@Param("ids") Collection<Long> ids, Pageable pageable);
 
   boolean existsByReviewerIdAndTalentId(Long reviewerId, Long talentId);
+
+  // Rows of [talentId, firstName, lastName, businessCategory, reviewCount, ratingSum]
+  @Query(
+      "SELECT t.id, t.firstName, t.lastName, p.businessCategory, COUNT(r), SUM(r.rating) "
+          + "FROM Review r JOIN r.talent t LEFT JOIN t.profile p WHERE r.approved = true "
+          + "GROUP BY t.id, t.firstName, t.lastName, p.businessCategory")
+  List<Object[]> aggregateApprovedRatingsByTalent();
+
+  // Moderation queue: unapproved, not yet rejected reviews in id order after the cursor
+  @Query(
+      "SELECT r FROM Review r JOIN FETCH r.reviewer JOIN FETCH r.talent "
+          + "WHERE r.approved = false AND r.rejected = false AND r.id > :afterId ORDER BY r.id")
+  List<Review> findModerationQueue(@Param("afterId") Long afterId, Pageable pageable);
+
+  // Rows of [reviewId, talentId, firstName, lastName, businessCategory, rating, approved]
+  @Query(
+      "SELECT r.id, t.id, t.firstName, t.lastName, p.businessCategory, r.rating, r.approved "
+          + "FROM Review r JOIN r.talent t LEFT JOIN t.profile p WHERE r.id IN :ids")
+  List<Object[]> findModerationSnapshots(@Param("ids") Collection<Long> ids);
+
+  @Modifying
+  @Query(
+      "UPDATE Review r SET r.approved = true, r.rejected = false, r.updatedAt = :now "
+          + "WHERE r.id IN :ids")
+  int approveAll(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+  @Modifying
+  @Query(
+      "UPDATE Review r SET r.approved = false, r.rejected = true, r.updatedAt = :now "
+          + "WHERE r.id IN :ids")
+  int rejectAll(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+  // Rows of [reviewId, talentId, comment] in id order after the cursor, for search indexing
+  @Query("SELECT r.id, r.talent.id, r.comment FROM Review r WHERE r.id > :afterId ORDER BY r.id")
+  List<Object[]> findSearchDocuments(@Param("afterId") Long afterId, Pageable pageable);
+
+  // Rows of [reviewId, talentId, comment] written since the given time, for search index catch-up
+  @Query("SELECT r.id, r.talent.id, r.comment FROM Review r WHERE r.updatedAt >= :since")
+  List<Object[]> findSearchDocumentsUpdatedSince(@Param("since") LocalDateTime since);
+
+  @Query("SELECT MAX(r.id) FROM Review r")
+  Long findMaxId();
+
+  // Rows of [reviewerId, comment], newest first, for seeding duplicate detection
+  @Query("SELECT r.reviewer.id, r.comment FROM Review r ORDER BY r.id DESC")
+  List<Object[]> findRecentComments(Pageable pageable);
 }
@@ -2,11 +2,71 @@ package com.shopexperts.repository;
 
 import com.shopexperts.model.RewardAccount;
 import com.shopexperts.model.User;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+import javax.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface RewardAccountRepository extends JpaRepository<RewardAccount, Long> {
   Optional<RewardAccount> findByUser(User user);
+
+  // Debits go through this single conditional UPDATE so concurrent redemptions cannot overdraw;
+  // it returns 0 without changing anything when the balance does not cover the redemption.
+  // Callers flush the account's buffered credits first (RewardLedgerBuffer.flushAccount), so the
+  // stored column alone covers the redemption and never goes negative.
+  @Modifying(flushAutomatically = true)
+  @Query(
+      "UPDATE RewardAccount a SET a.availablePoints = a.availablePoints - :points, "
+          + "a.redeemedPoints = a.redeemedPoints + :points, a.updatedAt = :now "
+          + "WHERE a.id = :accountId AND a.availablePoints >= :points")
+  int deductPoints(
+      @Param("accountId") Long accountId,
+      @Param("points") int points,
+      @Param("now") LocalDateTime now);
+
+  // Rows of [userId, firstName, lastName, totalPoints], streamed for the leaderboard rebuild
+  @QueryHints({
+    @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "1000"),
+    @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true")
+  })
+  @Query("SELECT u.id, u.firstName, u.lastName, a.totalPoints FROM RewardAccount a JOIN a.user u")
+  Stream<Object[]> streamLeaderboardRows();
+
+  // Rows of [accountId, userId, firstName, lastName] for those of the given users with an account
+  @Query(
+      "SELECT a.id, u.id, u.firstName, u.lastName FROM RewardAccount a JOIN a.user u "
+          + "WHERE u.id IN :userIds")
+  List<Object[]> findAwardTargets(@Param("userIds") Collection<Long> userIds);
+
+  @Modifying(flushAutomatically = true)
+  @Query(
+      "UPDATE RewardAccount a SET a.referralCount = a.referralCount + 1, "
+          + "a.referralBonusPoints = a.referralBonusPoints + :bonus, a.updatedAt = :now "
+          + "WHERE a.user.id = :userId")
+  int recordReferral(
+      @Param("userId") Long userId, @Param("bonus") int bonus, @Param("now") LocalDateTime now);
+
+  // Gives a legacy account its code; returns 0 if another request assigned one first
+  @Modifying
+  @Query(
+      "UPDATE RewardAccount a SET a.referralCode = :code "
+          + "WHERE a.id = :accountId AND a.referralCode IS NULL")
+  int assignReferralCode(@Param("accountId") Long accountId, @Param("code") String code);
+
+  @Query("SELECT a.referralCode FROM RewardAccount a WHERE a.id = :accountId")
+  String findReferralCodeById(@Param("accountId") Long accountId);
+
+  // Rows of [referralCode, userId] for every account that has been given a code
+  @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "1000"))
+  @Query("SELECT a.referralCode, a.user.id FROM RewardAccount a WHERE a.referralCode IS NOT NULL")
+  Stream<Object[]> streamReferralCodes();
 }
@@ -0,0 +1,13 @@
+package com.shopexperts.repository;
+
+import com.shopexperts.model.RewardCampaign;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface RewardCampaignRepository extends JpaRepository<RewardCampaign, Long> {
+  List<RewardCampaign> findByActiveTrue();
+
+  List<RewardCampaign> findAllByOrderByIdDesc();
+}
@@ -2,13 +2,61 @@ package com.shopexperts.repository;
 
 import com.shopexperts.model.RewardAccount;
 import com.shopexperts.model.RewardTransaction;
+import com.shopexperts.model.TransactionType;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+import javax.persistence.QueryHint;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface RewardTransactionRepository extends JpaRepository<RewardTransaction, Long> {
   Page<RewardTransaction> findByRewardAccountOrderByCreatedAtDesc(
       RewardAccount rewardAccount, Pageable pageable);
+
+  @Query(
+      "SELECT t FROM RewardTransaction t JOIN FETCH t.rewardAccount a JOIN FETCH a.user u "
+          + "WHERE u.id = :userId AND t.id IN :ids")
+  List<RewardTransaction> findByUserIdAndIdIn(
+      @Param("userId") Long userId, @Param("ids") Collection<Long> ids);
+
+  // Rows of [id, userId, firstName, lastName, type, points, description, createdAt], newest first.
+  // Null filters match everything.
+  String FEED_QUERY =
+      "SELECT t.id, u.id, u.firstName, u.lastName, t.type, t.points, t.description, t.createdAt "
+          + "FROM RewardTransaction t JOIN t.rewardAccount a JOIN a.user u "
+          + "WHERE t.id < :beforeId "
+          + "AND (:type IS NULL OR t.type = :type) "
+          + "AND (:userId IS NULL OR u.id = :userId) "
+          + "AND (:from IS NULL OR t.createdAt >= :from) "
+          + "AND (:to IS NULL OR t.createdAt < :to) "
+          + "ORDER BY t.id DESC";
+
+  @Query(FEED_QUERY)
+  List<Object[]> findFeedRows(
+      @Param("beforeId") Long beforeId,
+      @Param("type") TransactionType type,
+      @Param("userId") Long userId,
+      @Param("from") LocalDateTime from,
+      @Param("to") LocalDateTime to,
+      Pageable pageable);
+
+  @QueryHints({
+    @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "1000"),
+    @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true")
+  })
+  @Query(FEED_QUERY)
+  Stream<Object[]> streamFeedRows(
+      @Param("beforeId") Long beforeId,
+      @Param("type") TransactionType type,
+      @Param("userId") Long userId,
+      @Param("from") LocalDateTime from,
+      @Param("to") LocalDateTime to);
 }
@@ -23,6 +23,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
   private static final Logger logger = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
 
+  private static final String NOTIFICATION_STREAM_PATH = "/api/notifications/stream";
+
   @Override
   protected void doFilterInternal(
       HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
@@ -53,6 +55,11 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     if (StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")) {
       return bearerToken.substring(7);
     }
+    // Browsers cannot set headers on an EventSource, so the notification stream also accepts the
+    // token as a query parameter
+    if (NOTIFICATION_STREAM_PATH.equals(request.getRequestURI())) {
+      return request.getParameter("token");
+    }
     return null;
   }
 }
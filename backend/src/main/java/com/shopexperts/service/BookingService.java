@@ -1,14 +1,28 @@
 package com.shopexperts.service;
 
 import com.shopexperts.model.*;
+import com.shopexperts.payload.BookingResponse;
 import com.shopexperts.repository.BookingRepository;
 import com.shopexperts.repository.UserRepository;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+/**
+ * Booking writes run in one transaction each: the booking row, its change-log entries, the queued
+ * emails and any reward credit commit or roll back together, and notifications and pushes deferred
+ * to after-commit only go out once the booking is stored.
+ */
 @Service
 public class BookingService {
 
@@ -22,6 +36,16 @@ public class BookingService {
 
   @Autowired private RewardService rewardService;
 
+  @Autowired private EmailService emailService;
+
+  @Autowired private NotificationPreferenceService notificationPreferenceService;
+
+  @Autowired private ChangeLogService changeLogService;
+
+  private static final DateTimeFormatter EMAIL_TIME =
+      DateTimeFormatter.ofPattern("EEE d MMM yyyy, HH:mm", Locale.ENGLISH);
+
+  @Transactional
   public Booking createBooking(
       Long userId,
       Long talentId,
@@ -56,6 +80,7 @@ public class BookingService {
     booking.setStatus(BookingStatus.PENDING);
 
     Booking savedBooking = bookingRepository.save(booking);
+    recordChange(savedBooking);
 
     // Send notification to talent
     notificationService.createNotification(
@@ -63,10 +88,13 @@ public class BookingService {
         "New Booking Request",
         "You have a new booking request from " + user.getFirstName() + " " + user.getLastName(),
         NotificationType.BOOKING_CONFIRMED);
+    queueBookingEmail(
+        talent, "booking-requested", NotificationType.BOOKING_CONFIRMED, savedBooking);
 
     return savedBooking;
   }
 
+  @Transactional
   public Booking confirmBooking(Long bookingId, String paymentIntentId) {
     Booking booking =
         bookingRepository
@@ -83,6 +111,7 @@ public class BookingService {
     booking.setPaymentIntentId(paymentIntentId);
 
     Booking savedBooking = bookingRepository.save(booking);
+    recordChange(savedBooking);
 
     // Send confirmation notifications
     notificationService.createNotification(
@@ -96,13 +125,18 @@ public class BookingService {
         "Booking Confirmed",
         "A booking has been confirmed",
         NotificationType.BOOKING_CONFIRMED);
+    queueBookingEmail(
+        booking.getUser(), "booking-confirmed", NotificationType.BOOKING_CONFIRMED, savedBooking);
 
-    // Award points for booking
-    rewardService.awardPoints(booking.getUser(), 10, "Booking completed");
+    // Award points for booking; campaigns may target the talent's category
+    UserProfile talentProfile = booking.getTalent().getProfile();
+    rewardService.awardBookingBonus(
+        booking.getUser(), talentProfile != null ? talentProfile.getBusinessCategory() : null);
 
     return savedBooking;
   }
 
+  @Transactional
   public Booking updateBookingStatus(Long bookingId, BookingStatus status) {
     Booking booking =
         bookingRepository
@@ -110,7 +144,9 @@ public class BookingService {
             .orElseThrow(() -> new RuntimeException("Booking not found"));
 
     booking.setStatus(status);
-    return bookingRepository.save(booking);
+    Booking savedBooking = bookingRepository.save(booking);
+    recordChange(savedBooking);
+    return savedBooking;
   }
 
   public List<Booking> getUserBookings(Long userId) {
@@ -129,12 +165,22 @@ public class BookingService {
     return bookingRepository.findByTalent(talent);
   }
 
+  /** The listed bookings the user took part in, as customer or talent; others are skipped. */
+  public List<BookingResponse> getUserBookingsByIds(Long userId, Collection<Long> bookingIds) {
+    List<BookingResponse> responses = new ArrayList<>(bookingIds.size());
+    for (Booking booking : bookingRepository.findByParticipantAndIdIn(userId, bookingIds)) {
+      responses.add(convertToResponse(booking));
+    }
+    return responses;
+  }
+
   public Booking getBookingById(Long bookingId) {
     return bookingRepository
         .findById(bookingId)
         .orElseThrow(() -> new RuntimeException("Booking not found"));
   }
 
+  @Transactional
   public void cancelBooking(Long bookingId) {
     Booking booking =
         bookingRepository
@@ -155,6 +201,7 @@ public class BookingService {
     }
 
     bookingRepository.save(booking);
+    recordChange(booking);
 
     // Send cancellation notifications
     notificationService.createNotification(
@@ -168,5 +215,51 @@ public class BookingService {
         "Booking Cancelled",
         "A booking has been cancelled",
         NotificationType.BOOKING_CANCELLED);
+    queueBookingEmail(
+        booking.getUser(), "booking-cancelled", NotificationType.BOOKING_CANCELLED, booking);
+  }
+
+  private BookingResponse convertToResponse(Booking booking) {
+    return new BookingResponse(
+        booking.getId(),
+        booking.getUser().getId(),
+        booking.getUser().getName(),
+        booking.getTalent().getId(),
+        booking.getTalent().getName(),
+        booking.getServiceDescription(),
+        booking.getServiceDescription(),
+        booking.getAmount(),
+        booking.getStartTime(),
+        booking.getStatus(),
+        null,
+        booking.getNotes(),
+        booking.getCreatedAt(),
+        booking.getUpdatedAt());
+  }
+
+  // Both sides of a booking sync it
+  private void recordChange(Booking booking) {
+    Map<Long, List<Long>> ids = new HashMap<>();
+    ids.put(booking.getUser().getId(), Collections.singletonList(booking.getId()));
+    ids.put(booking.getTalent().getId(), Collections.singletonList(booking.getId()));
+    changeLogService.record(SyncEntityType.BOOKING, false, ids);
+  }
+
+  private void queueBookingEmail(
+      User recipient, String template, NotificationType type, Booking booking) {
+    if (notificationPreferenceService.isMuted(recipient.getId(), type, NotificationChannel.EMAIL)) {
+      return;
+    }
+    Map<String, Object> model = new HashMap<>();
+    model.put("customerName", booking.getUser().getName());
+    model.put("talentName", booking.getTalent().getName());
+    model.put("startTime", EMAIL_TIME.format(booking.getStartTime()));
+    model.put("endTime", EMAIL_TIME.format(booking.getEndTime()));
+    model.put(
+        "service",
+        booking.getServiceDescription() != null
+            ? booking.getServiceDescription()
+            : "Not specified");
+    emailService.queue(recipient.getEmail(), template, model);
   }
 }
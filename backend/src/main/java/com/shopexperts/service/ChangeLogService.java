@@ -0,0 +1,228 @@
+package com.shopexperts.service;
+
+import com.shopexperts.model.NotificationType;
+import com.shopexperts.model.SyncEntityType;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Records changes to synced entities in the change_log table, in the caller's transaction, for
+ * {@link SyncService}. Writers that know the ids they touched record them directly. Writers that
+ * insert JDBC batches without getting keys back take {@link #highWater} before the insert and
+ * record every row above it afterwards. Rows committed concurrently by other writers may be
+ * recorded twice, which clients cannot tell apart from a second change.
+ *
+ * <p>Entries are collected for the length of the transaction and inserted just before it commits,
+ * under a lock on the change_log_lock row that is held until the commit. Ids are therefore handed
+ * out in commit order, and a client that has seen an id has seen every committed entry below it,
+ * however long the writing transactions ran. The price is that committing writers queue on the lock
+ * for the time it takes to insert their entries.
+ */
+@Service
+@Transactional
+public class ChangeLogService {
+
+  /** The user id of entries every user syncs. */
+  public static final long EVERYONE = 0L;
+
+  private static final String INSERT_SQL =
+      "INSERT INTO change_log (user_id, entity_type, entity_id, deleted, changed_at) "
+          + "VALUES (?, ?, ?, ?, ?)";
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @Autowired private PlatformTransactionManager transactionManager;
+
+  private volatile boolean lockRowCreated;
+
+  /** Entries recorded in the current transaction; inserted when it is about to commit. */
+  private final class PendingEntries implements TransactionSynchronization {
+    // [user id, entity type, entity id, deleted]
+    final List<Object[]> rows = new ArrayList<>();
+
+    @Override
+    public void beforeCommit(boolean readOnly) {
+      if (rows.isEmpty()) {
+        return;
+      }
+      Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+      lock(now);
+      List<Object[]> params = new ArrayList<>(rows.size());
+      for (Object[] row : rows) {
+        params.add(new Object[] {row[0], row[1], row[2], row[3], now});
+      }
+      jdbcTemplate.batchUpdate(INSERT_SQL, params);
+    }
+  }
+
+  public void recordChanged(SyncEntityType type, Long userId, Long... entityIds) {
+    record(type, false, userId, Arrays.asList(entityIds));
+  }
+
+  public void recordChanged(SyncEntityType type, Long userId, Collection<Long> entityIds) {
+    record(type, false, userId, entityIds);
+  }
+
+  public void recordDeleted(SyncEntityType type, Long userId, Collection<Long> entityIds) {
+    record(type, true, userId, entityIds);
+  }
+
+  /** Several users' changes or deletions of one entity type in one batch. */
+  public void record(
+      SyncEntityType type, boolean deleted, Map<Long, ? extends Collection<Long>> idsByUser) {
+    List<Object[]> rows = new ArrayList<>();
+    idsByUser.forEach(
+        (userId, ids) -> {
+          for (Long id : ids) {
+            rows.add(new Object[] {userId, type.name(), id, deleted});
+          }
+        });
+    pending().addAll(rows);
+  }
+
+  /** Records a change to a broadcast for every user at once. */
+  public void recordBroadcastChanged(Long broadcastId) {
+    record(SyncEntityType.BROADCAST, false, EVERYONE, Collections.singletonList(broadcastId));
+  }
+
+  /**
+   * Records, for one user, every broadcast of the given types sent since they signed up; after a
+   * mute changes which of them the user sees.
+   */
+  public int recordBroadcastsOfTypes(Long userId, Collection<NotificationType> types) {
+    if (types.isEmpty()) {
+      return 0;
+    }
+    List<Object> args = new ArrayList<>(types.size() + 1);
+    types.forEach(type -> args.add(type.name()));
+    args.add(userId);
+    List<Long> ids =
+        jdbcTemplate.queryForList(
+            "SELECT id FROM broadcast_notifications WHERE type IN ("
+                + String.join(",", Collections.nCopies(types.size(), "?"))
+                + ") AND created_at >= (SELECT created_at FROM users WHERE id = ?)",
+            Long.class,
+            args.toArray());
+    record(SyncEntityType.BROADCAST, false, userId, ids);
+    return ids.size();
+  }
+
+  /** The newest id in the entity's table, to be passed to the matching recordInserted method. */
+  public long highWater(SyncEntityType type) {
+    Long id = jdbcTemplate.queryForObject("SELECT MAX(id) FROM " + table(type), Long.class);
+    return id != null ? id : 0;
+  }
+
+  /** Records every notification with an id above {@code afterId}. */
+  public int recordInsertedNotifications(long afterId) {
+    return recordNotificationsWhere(false, "id > ?", afterId);
+  }
+
+  /**
+   * Records the notifications matching {@code condition} as changed or deleted; call it before
+   * deleting them.
+   */
+  public int recordNotificationsWhere(boolean deleted, String condition, Object... args) {
+    return recordSelected(
+        "SELECT user_id, 'NOTIFICATION', id, " + deleted + " FROM notifications WHERE " + condition,
+        args);
+  }
+
+  /** Records every reward transaction with an id above {@code afterId}. */
+  public int recordInsertedRewardTransactions(long afterId) {
+    return recordSelected(
+        "SELECT a.user_id, 'REWARD_TRANSACTION', t.id, FALSE FROM reward_transactions t "
+            + "JOIN reward_accounts a ON a.id = t.reward_account_id WHERE t.id > ?",
+        afterId);
+  }
+
+  private int recordSelected(String sql, Object... args) {
+    List<Object[]> rows =
+        jdbcTemplate.query(
+            sql,
+            (rs, rowNum) ->
+                new Object[] {rs.getLong(1), rs.getString(2), rs.getLong(3), rs.getBoolean(4)},
+            args);
+    pending().addAll(rows);
+    return rows.size();
+  }
+
+  private void record(
+      SyncEntityType type, boolean deleted, Long userId, Collection<Long> entityIds) {
+    record(type, deleted, Collections.singletonMap(userId, entityIds));
+  }
+
+  // Looked up among the synchronizations rather than bound as a resource, so a nested
+  // REQUIRES_NEW transaction gets entries of its own
+  private List<Object[]> pending() {
+    for (TransactionSynchronization synchronization :
+        TransactionSynchronizationManager.getSynchronizations()) {
+      if (synchronization instanceof PendingEntries) {
+        return ((PendingEntries) synchronization).rows;
+      }
+    }
+    PendingEntries entries = new PendingEntries();
+    TransactionSynchronizationManager.registerSynchronization(entries);
+    return entries.rows;
+  }
+
+  private void lock(Timestamp now) {
+    if (!lockRowCreated) {
+      createLockRow(now);
+    }
+    if (jdbcTemplate.update("UPDATE change_log_lock SET locked_at = ? WHERE id = 1", now) != 1) {
+      throw new IllegalStateException("The change log lock row is missing");
+    }
+  }
+
+  // In its own transaction, so losing the race to another instance fails nothing
+  private synchronized void createLockRow(Timestamp now) {
+    if (lockRowCreated) {
+      return;
+    }
+    TransactionTemplate template = new TransactionTemplate(transactionManager);
+    template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    try {
+      template.executeWithoutResult(
+          status ->
+              jdbcTemplate.update(
+                  "INSERT INTO change_log_lock (id, locked_at) SELECT 1, ? "
+                      + "WHERE NOT EXISTS (SELECT 1 FROM change_log_lock WHERE id = 1)",
+                  now));
+    } catch (DuplicateKeyException e) {
+      // Created by another instance first
+    }
+    lockRowCreated = true;
+  }
+
+  private static String table(SyncEntityType type) {
+    switch (type) {
+      case NOTIFICATION:
+        return "notifications";
+      case BOOKING:
+        return "bookings";
+      case REWARD_TRANSACTION:
+        return "reward_transactions";
+      case BROADCAST:
+        return "broadcast_notifications";
+      default:
+        throw new IllegalArgumentException("Unknown entity type " + type);
+    }
+  }
+}
@@ -0,0 +1,298 @@
+package com.shopexperts.service;
+
+import com.sun.mail.smtp.SMTPAddressFailedException;
+import com.sun.mail.smtp.SMTPSendFailedException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Sends the email outbox. Every poll-interval-ms it takes up to batch-size due PENDING rows, splits
+ * them across connections workers and has each worker send its share over a single SMTP connection,
+ * so a batch costs a handful of connections rather than one per email.
+ *
+ * <p>A failed email is retried with exponential backoff (backoff-ms doubled per attempt, capped at
+ * max-backoff-ms, with some jitter) until max-attempts; a permanent rejection from the server (5xx)
+ * fails it at once. Sending is at-least-once: a crash between sending and recording it sends the
+ * email again.
+ */
+@Service
+public class EmailDispatcher {
+
+  private static final Logger logger = LoggerFactory.getLogger(EmailDispatcher.class);
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @Autowired private JavaMailSender mailSender;
+
+  @Value("${app.mail.from:no-reply@shopexperts.com}")
+  private String from;
+
+  @Value("${app.mail.dispatcher.batch-size:100}")
+  private int batchSize;
+
+  @Value("${app.mail.dispatcher.connections:2}")
+  private int connections;
+
+  @Value("${app.mail.dispatcher.max-attempts:5}")
+  private int maxAttempts;
+
+  @Value("${app.mail.dispatcher.backoff-ms:30000}")
+  private long backoffMs;
+
+  @Value("${app.mail.dispatcher.max-backoff-ms:3600000}")
+  private long maxBackoffMs;
+
+  private final AtomicLong sent = new AtomicLong();
+  private final AtomicLong retried = new AtomicLong();
+  private final AtomicLong failed = new AtomicLong();
+  private final AtomicLong batches = new AtomicLong();
+  private final AtomicLong sendNanos = new AtomicLong();
+
+  private ExecutorService workers;
+
+  private static final class Outgoing {
+    final long id;
+    final int attempts;
+    final String recipient;
+    final String subject;
+    final String body;
+
+    Outgoing(long id, int attempts, String recipient, String subject, String body) {
+      this.id = id;
+      this.attempts = attempts;
+      this.recipient = recipient;
+      this.subject = subject;
+      this.body = body;
+    }
+  }
+
+  @PostConstruct
+  public void start() {
+    workers = Executors.newFixedThreadPool(Math.max(1, connections));
+  }
+
+  @PreDestroy
+  public void stop() {
+    workers.shutdownNow();
+  }
+
+  @Scheduled(fixedDelayString = "${app.mail.dispatcher.poll-interval-ms:1000}")
+  public int dispatch() {
+    return dispatch(LocalDateTime.now());
+  }
+
+  /** Sends due emails, batch after batch, until none are due at {@code now}; returns how many. */
+  public synchronized int dispatch(LocalDateTime now) {
+    int delivered = 0;
+    while (true) {
+      List<Outgoing> batch =
+          jdbcTemplate.query(
+              "SELECT id, attempts, recipient, subject, body FROM email_outbox "
+                  + "WHERE status = 'PENDING' AND next_attempt_at <= ? "
+                  + "ORDER BY next_attempt_at, id LIMIT ?",
+              (rs, rowNum) ->
+                  new Outgoing(
+                      rs.getLong(1),
+                      rs.getInt(2),
+                      rs.getString(3),
+                      rs.getString(4),
+                      rs.getString(5)),
+              Timestamp.valueOf(now),
+              batchSize);
+      if (batch.isEmpty()) {
+        return delivered;
+      }
+      delivered += sendBatch(batch, now);
+      if (batch.size() < batchSize) {
+        return delivered;
+      }
+    }
+  }
+
+  /** Delivery counters since startup plus the current backlog. */
+  public Map<String, Object> getStats() {
+    Map<String, Object> stats = new LinkedHashMap<>();
+    for (Map<String, Object> row :
+        jdbcTemplate.queryForList(
+            "SELECT status, COUNT(*) AS emails FROM email_outbox GROUP BY status")) {
+      stats.put(((String) row.get("status")).toLowerCase(), row.get("emails"));
+    }
+    stats.put("sentSinceStartup", sent.get());
+    stats.put("retriesScheduled", retried.get());
+    stats.put("failedSinceStartup", failed.get());
+    stats.put("batches", batches.get());
+    long batchCount = batches.get();
+    stats.put(
+        "averageBatchMillis",
+        batchCount == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(sendNanos.get()) / batchCount);
+    return stats;
+  }
+
+  private int sendBatch(List<Outgoing> batch, LocalDateTime now) {
+    long started = System.nanoTime();
+    int slices = Math.max(1, Math.min(connections, batch.size()));
+    List<Future<Map<Outgoing, Exception>>> results = new ArrayList<>(slices);
+    for (int i = 0; i < slices; i++) {
+      List<Outgoing> slice = new ArrayList<>();
+      for (int j = i; j < batch.size(); j += slices) {
+        slice.add(batch.get(j));
+      }
+      results.add(workers.submit(() -> send(slice)));
+    }
+
+    Map<Outgoing, Exception> failures = new IdentityHashMap<>();
+    for (int i = 0; i < slices; i++) {
+      try {
+        failures.putAll(results.get(i).get());
+      } catch (ExecutionException e) {
+        // Not expected from send(); treat the whole slice as failed
+        for (int j = i; j < batch.size(); j += slices) {
+          failures.put(batch.get(j), (Exception) e.getCause());
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return 0;
+      }
+    }
+    record(batch, failures, now);
+    batches.incrementAndGet();
+    sendNanos.addAndGet(System.nanoTime() - started);
+    return batch.size() - failures.size();
+  }
+
+  // Sends a slice over one connection; returns the emails that failed and why
+  private Map<Outgoing, Exception> send(List<Outgoing> slice) {
+    Map<Outgoing, Exception> failures = new IdentityHashMap<>();
+    Map<Object, Outgoing> byMessage = new IdentityHashMap<>();
+    List<MimeMessage> messages = new ArrayList<>(slice.size());
+    for (Outgoing email : slice) {
+      try {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, "UTF-8");
+        helper.setFrom(from);
+        helper.setTo(email.recipient);
+        helper.setSubject(email.subject);
+        helper.setText(email.body);
+        messages.add(message);
+        byMessage.put(message, email);
+      } catch (MessagingException | RuntimeException e) {
+        failures.put(email, e);
+      }
+    }
+    if (messages.isEmpty()) {
+      return failures;
+    }
+    try {
+      mailSender.send(messages.toArray(new MimeMessage[0]));
+    } catch (MailSendException e) {
+      e.getFailedMessages()
+          .forEach((message, error) -> failures.put(byMessage.get(message), error));
+      if (e.getFailedMessages().isEmpty()) {
+        messages.forEach(message -> failures.put(byMessage.get(message), e));
+      }
+    } catch (MailException e) {
+      // e.g. authentication: nothing in the slice was sent
+      messages.forEach(message -> failures.put(byMessage.get(message), e));
+    }
+    return failures;
+  }
+
+  private void record(List<Outgoing> batch, Map<Outgoing, Exception> failures, LocalDateTime now) {
+    Timestamp timestamp = Timestamp.valueOf(now);
+    List<Object[]> delivered = new ArrayList<>(batch.size());
+    List<Object[]> retries = new ArrayList<>();
+    for (Outgoing email : batch) {
+      Exception error = failures.get(email);
+      int attempts = email.attempts + 1;
+      if (error == null) {
+        delivered.add(new Object[] {attempts, timestamp, email.id});
+        continue;
+      }
+      boolean giveUp = attempts >= maxAttempts || isPermanent(error);
+      retries.add(
+          new Object[] {
+            giveUp ? "FAILED" : "PENDING",
+            attempts,
+            giveUp ? timestamp : Timestamp.valueOf(now.plusNanos(backoff(attempts) * 1_000_000)),
+            truncate(String.valueOf(error.getMessage())),
+            email.id
+          });
+      if (giveUp) {
+        failed.incrementAndGet();
+        logger.warn(
+            "Giving up on email {} to {}: {}", email.id, email.recipient, error.getMessage());
+      } else {
+        retried.incrementAndGet();
+      }
+    }
+    if (!delivered.isEmpty()) {
+      jdbcTemplate.batchUpdate(
+          "UPDATE email_outbox SET status = 'SENT', attempts = ?, sent_at = ?, last_error = NULL "
+              + "WHERE id = ?",
+          delivered);
+      sent.addAndGet(delivered.size());
+    }
+    if (!retries.isEmpty()) {
+      jdbcTemplate.batchUpdate(
+          "UPDATE email_outbox SET status = ?, attempts = ?, next_attempt_at = ?, last_error = ? "
+              + "WHERE id = ?",
+          retries);
+    }
+  }
+
+  private long backoff(int attempts) {
+    long delay = backoffMs << Math.min(attempts - 1, 30);
+    delay = delay <= 0 ? maxBackoffMs : Math.min(delay, maxBackoffMs);
+    // Up to 10% jitter so emails that failed together do not all retry together
+    return delay + ThreadLocalRandom.current().nextLong(delay / 10 + 1);
+  }
+
+  // The server refused the message or recipient outright (5xx), so retrying cannot help
+  private static boolean isPermanent(Throwable error) {
+    for (Throwable cause = error; cause != null; ) {
+      if (cause instanceof SMTPAddressFailedException) {
+        return ((SMTPAddressFailedException) cause).getReturnCode() / 100 == 5;
+      }
+      if (cause instanceof SMTPSendFailedException) {
+        return ((SMTPSendFailedException) cause).getReturnCode() / 100 == 5;
+      }
+      Throwable next =
+          cause instanceof MessagingException
+              ? ((MessagingException) cause).getNextException()
+              : cause.getCause();
+      cause = next != cause ? next : null;
+    }
+    return false;
+  }
+
+  private static String truncate(String message) {
+    return message.length() <= 1000 ? message : message.substring(0, 1000);
+  }
+}
@@ -0,0 +1,37 @@
+package com.shopexperts.service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+/**
+ * Queues emails for the {@link EmailDispatcher}. The email is rendered immediately and written to
+ * the email_outbox table in the caller's transaction, so it is sent only if that transaction
+ * commits and survives a restart; nothing here talks to the mail server. Callers must be
+ * transactional themselves: without a transaction the row commits on its own.
+ */
+@Service
+public class EmailService {
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @Autowired private EmailTemplates emailTemplates;
+
+  public void queue(String recipient, String template, Map<String, ?> model) {
+    EmailTemplates.Email email = emailTemplates.render(template, model);
+    Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+    jdbcTemplate.update(
+        "INSERT INTO email_outbox "
+            + "(recipient, subject, body, template, status, attempts, next_attempt_at, created_at) "
+            + "VALUES (?, ?, ?, ?, 'PENDING', 0, ?, ?)",
+        recipient,
+        email.getSubject(),
+        email.getBody(),
+        template,
+        now,
+        now);
+  }
+}
@@ -0,0 +1,141 @@
+package com.shopexperts.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.PostConstruct;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StreamUtils;
+
+/**
+ * Email templates under classpath:email-templates/, compiled once at startup. A template is a
+ * "Subject:" line, a blank line and the body; both may use {{name}} placeholders. Compiling splits
+ * each part into its literal text and placeholder names, so rendering is a single pass that appends
+ * the pieces, and a malformed template stops the application from starting rather than failing a
+ * send later.
+ */
+@Service
+public class EmailTemplates {
+
+  private static final String LOCATION = "classpath*:email-templates/*.txt";
+
+  /** A rendered email. */
+  public static final class Email {
+    private final String subject;
+    private final String body;
+
+    Email(String subject, String body) {
+      this.subject = subject;
+      this.body = body;
+    }
+
+    public String getSubject() {
+      return subject;
+    }
+
+    public String getBody() {
+      return body;
+    }
+  }
+
+  // literals[i] is followed by the value of names[i]; the last literal ends the text
+  private static final class Compiled {
+    final String[] literals;
+    final String[] names;
+    final int length;
+
+    Compiled(List<String> literals, List<String> names) {
+      this.literals = literals.toArray(new String[0]);
+      this.names = names.toArray(new String[0]);
+      this.length = literals.stream().mapToInt(String::length).sum();
+    }
+
+    String render(String template, Map<String, ?> model) {
+      StringBuilder text = new StringBuilder(length + names.length * 16);
+      for (int i = 0; i < names.length; i++) {
+        text.append(literals[i]);
+        if (!model.containsKey(names[i])) {
+          throw new IllegalArgumentException(
+              "Email template " + template + " needs a value for " + names[i]);
+        }
+        text.append(model.get(names[i]));
+      }
+      return text.append(literals[names.length]).toString();
+    }
+  }
+
+  private static final class Template {
+    final Compiled subject;
+    final Compiled body;
+
+    Template(Compiled subject, Compiled body) {
+      this.subject = subject;
+      this.body = body;
+    }
+  }
+
+  private final Map<String, Template> templates = new ConcurrentHashMap<>();
+
+  @PostConstruct
+  public void load() throws IOException {
+    for (Resource resource : new PathMatchingResourcePatternResolver().getResources(LOCATION)) {
+      String name = resource.getFilename().substring(0, resource.getFilename().length() - 4);
+      try (InputStream in = resource.getInputStream()) {
+        register(name, StreamUtils.copyToString(in, StandardCharsets.UTF_8));
+      }
+    }
+  }
+
+  /** Compiles a template from its source text, replacing any template with the same name. */
+  public void register(String name, String source) {
+    String text = source.replace("\r\n", "\n");
+    int headerEnd = text.indexOf("\n\n");
+    if (!text.startsWith("Subject:") || headerEnd < 0) {
+      throw new IllegalArgumentException(
+          "Email template " + name + " must start with a Subject: line and a blank line");
+    }
+    templates.put(
+        name,
+        new Template(
+            compile(name, text.substring("Subject:".length(), headerEnd).trim()),
+            compile(name, text.substring(headerEnd + 2))));
+  }
+
+  public Email render(String name, Map<String, ?> model) {
+    Template template = templates.get(name);
+    if (template == null) {
+      throw new IllegalArgumentException("Unknown email template " + name);
+    }
+    return new Email(template.subject.render(name, model), template.body.render(name, model));
+  }
+
+  private static Compiled compile(String template, String text) {
+    List<String> literals = new ArrayList<>();
+    List<String> names = new ArrayList<>();
+    int from = 0;
+    while (true) {
+      int open = text.indexOf("{{", from);
+      if (open < 0) {
+        literals.add(text.substring(from));
+        return new Compiled(literals, names);
+      }
+      int close = text.indexOf("}}", open + 2);
+      if (close < 0) {
+        throw new IllegalArgumentException("Unclosed placeholder in email template " + template);
+      }
+      String name = text.substring(open + 2, close).trim();
+      if (name.isEmpty()) {
+        throw new IllegalArgumentException("Empty placeholder in email template " + template);
+      }
+      literals.add(text.substring(from, open));
+      names.add(name);
+      from = close + 2;
+    }
+  }
+}
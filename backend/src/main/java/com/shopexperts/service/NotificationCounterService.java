@@ -0,0 +1,278 @@
+package com.shopexperts.service;
+
+import com.shopexperts.model.NotificationChannel;
+import com.shopexperts.model.NotificationType;
+import com.shopexperts.repository.BroadcastNotificationRepository;
+import com.shopexperts.util.TransactionCallbacks;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Per-user unread notification counts and read watermarks, served from memory.
+ *
+ * <p>A personal notification is unread while its is_read flag is false and its id is above the
+ * user's read_up_to_id watermark, so marking everything read only moves the watermark. Unread
+ * personal notifications are counted in the notification_counters table, which is moved by the same
+ * transaction that creates, reads or deletes notifications; the in-memory copy follows once that
+ * transaction commits. Broadcasts are not counted per user when they are sent: a user's unread
+ * broadcast count is computed the first time it is asked for, and after a change to that user's
+ * receipts or mutes. A new broadcast is then added to every cached count in memory, so pushing
+ * counts to every connected user after a broadcast costs no queries. Broadcasts of types the user
+ * muted in the app are not counted. Broadcasts have their own watermark, broadcast_read_up_to_id,
+ * so marking everything read writes no receipts either.
+ *
+ * <p>A periodic reconciliation recomputes the stored counts from the notifications table and drops
+ * the in-memory copies, so any drift from races or missed updates does not outlive it.
+ */
+@Service
+public class NotificationCounterService {
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @Autowired private BroadcastNotificationRepository broadcastNotificationRepository;
+
+  @Autowired private NotificationPreferenceService notificationPreferenceService;
+
+  // The broadcast fields are guarded by the counter's lock, which is held while the count is
+  // taken, so a broadcast sent meanwhile is applied to the finished count rather than lost
+  private static final class Counter {
+    final AtomicInteger personal;
+    volatile long readUpTo;
+    volatile long broadcastReadUpTo;
+    boolean broadcastCounted;
+    int broadcastUnread;
+    // Newest broadcast id the count covers, and the unmuted types it was taken for
+    long broadcastCountedUpTo;
+    List<NotificationType> broadcastTypes;
+
+    Counter(int personal, long readUpTo, long broadcastReadUpTo) {
+      this.personal = new AtomicInteger(personal);
+      this.readUpTo = readUpTo;
+      this.broadcastReadUpTo = broadcastReadUpTo;
+    }
+  }
+
+  private final ConcurrentMap<Long, Counter> counters = new ConcurrentHashMap<>();
+
+  public long getUnreadCount(Long userId) {
+    Counter counter = counter(userId);
+    List<NotificationType> types =
+        notificationPreferenceService.unmutedTypes(userId, NotificationChannel.IN_APP);
+    int broadcastUnread;
+    synchronized (counter) {
+      if (!counter.broadcastCounted || !types.equals(counter.broadcastTypes)) {
+        // Counting only up to the newest id seen here leaves later broadcasts to broadcastSent
+        Long newest =
+            jdbcTemplate.queryForObject("SELECT MAX(id) FROM broadcast_notifications", Long.class);
+        counter.broadcastCountedUpTo = newest != null ? newest : 0;
+        counter.broadcastUnread =
+            types.isEmpty() || counter.broadcastCountedUpTo <= counter.broadcastReadUpTo
+                ? 0
+                : (int)
+                    broadcastNotificationRepository.countUnread(
+                        userId, counter.broadcastReadUpTo, counter.broadcastCountedUpTo, types);
+        counter.broadcastTypes = types;
+        counter.broadcastCounted = true;
+      }
+      broadcastUnread = counter.broadcastUnread;
+    }
+    return Math.max(0, counter.personal.get()) + broadcastUnread;
+  }
+
+  /** Id of the newest personal notification covered by the user's last mark-all-read, or 0. */
+  public long getReadUpTo(Long userId) {
+    return counter(userId).readUpTo;
+  }
+
+  /** Id of the newest broadcast covered by the user's last mark-all-read, or 0. */
+  public long getBroadcastReadUpTo(Long userId) {
+    return counter(userId).broadcastReadUpTo;
+  }
+
+  public void adjust(Long userId, int delta) {
+    adjust(Collections.singletonMap(userId, delta));
+  }
+
+  /**
+   * Moves the stored counts of several users in one batch, in the caller's transaction. Users who
+   * have no stored count yet are skipped; theirs is computed from the table when first read.
+   */
+  public void adjust(Map<Long, Integer> deltas) {
+    if (deltas.isEmpty()) {
+      return;
+    }
+    List<Object[]> rows = new ArrayList<>(deltas.size());
+    deltas.forEach((userId, delta) -> rows.add(new Object[] {delta, userId}));
+    jdbcTemplate.batchUpdate(
+        "UPDATE notification_counters SET unread_count = unread_count + ? WHERE user_id = ?", rows);
+    TransactionCallbacks.afterCommit(
+        () ->
+            deltas.forEach(
+                (userId, delta) -> {
+                  Counter counter = counters.get(userId);
+                  if (counter != null) {
+                    counter.personal.addAndGet(delta);
+                  }
+                }));
+  }
+
+  /**
+   * Marks every personal notification and broadcast the user has so far as read by moving their
+   * watermarks up to the newest of each: one row update, however many there are.
+   */
+  public void markAllRead(Long userId) {
+    Long newest =
+        jdbcTemplate.queryForObject(
+            "SELECT MAX(id) FROM notifications WHERE user_id = ?", Long.class, userId);
+    Long newestBroadcast =
+        jdbcTemplate.queryForObject("SELECT MAX(id) FROM broadcast_notifications", Long.class);
+    long readUpTo = newest != null ? newest : 0;
+    long broadcastReadUpTo = newestBroadcast != null ? newestBroadcast : 0;
+    if (moveWatermarks(userId, readUpTo, broadcastReadUpTo) == 0) {
+      try {
+        jdbcTemplate.update(
+            "INSERT INTO notification_counters "
+                + "(user_id, unread_count, read_up_to_id, broadcast_read_up_to_id) "
+                + "VALUES (?, 0, ?, ?)",
+            userId,
+            readUpTo,
+            broadcastReadUpTo);
+      } catch (DuplicateKeyException e) {
+        moveWatermarks(userId, readUpTo, broadcastReadUpTo);
+      }
+    }
+    TransactionCallbacks.afterCommit(
+        () -> {
+          Counter counter = counters.get(userId);
+          if (counter != null) {
+            counter.personal.set(0);
+            counter.readUpTo = Math.max(counter.readUpTo, readUpTo);
+            synchronized (counter) {
+              counter.broadcastReadUpTo = Math.max(counter.broadcastReadUpTo, broadcastReadUpTo);
+              counter.broadcastCounted = false;
+            }
+          }
+        });
+  }
+
+  /** The user read or dismissed a broadcast. */
+  public void invalidateBroadcasts(Long userId) {
+    TransactionCallbacks.afterCommit(
+        () -> {
+          Counter counter = counters.get(userId);
+          if (counter != null) {
+            synchronized (counter) {
+              counter.broadcastCounted = false;
+            }
+          }
+        });
+  }
+
+  /**
+   * A broadcast was sent: once it commits it is added to every cached count of a user who has not
+   * muted its type. A count taken after an even newer broadcast may or may not include it, so that
+   * count is dropped and taken again instead.
+   */
+  public void broadcastSent(long broadcastId, NotificationType type) {
+    TransactionCallbacks.afterCommit(
+        () ->
+            counters
+                .values()
+                .forEach(
+                    counter -> {
+                      synchronized (counter) {
+                        if (!counter.broadcastCounted
+                            || broadcastId == counter.broadcastCountedUpTo) {
+                          return;
+                        }
+                        if (broadcastId < counter.broadcastCountedUpTo) {
+                          counter.broadcastCounted = false;
+                          return;
+                        }
+                        counter.broadcastCountedUpTo = broadcastId;
+                        if (broadcastId > counter.broadcastReadUpTo
+                            && counter.broadcastTypes.contains(type)) {
+                          counter.broadcastUnread++;
+                        }
+                      }
+                    }));
+  }
+
+  @Scheduled(
+      fixedDelayString = "${app.notifications.counters.reconcile-ms:3600000}",
+      initialDelayString = "${app.notifications.counters.reconcile-ms:3600000}")
+  public int reconcile() {
+    String unread =
+        "(SELECT COUNT(*) FROM notifications n WHERE n.user_id = c.user_id "
+            + "AND n.is_read = FALSE AND n.id > c.read_up_to_id)";
+    int corrected =
+        jdbcTemplate.update(
+            "UPDATE notification_counters c SET unread_count = "
+                + unread
+                + " WHERE unread_count <> "
+                + unread);
+    counters.clear();
+    return corrected;
+  }
+
+  private Counter counter(Long userId) {
+    Counter counter = counters.get(userId);
+    if (counter == null) {
+      counter = load(userId);
+      Counter existing = counters.putIfAbsent(userId, counter);
+      if (existing != null) {
+        counter = existing;
+      }
+    }
+    return counter;
+  }
+
+  private int moveWatermarks(Long userId, long readUpTo, long broadcastReadUpTo) {
+    return jdbcTemplate.update(
+        "UPDATE notification_counters SET unread_count = 0, "
+            + "read_up_to_id = GREATEST(read_up_to_id, ?), "
+            + "broadcast_read_up_to_id = GREATEST(broadcast_read_up_to_id, ?) WHERE user_id = ?",
+        readUpTo,
+        broadcastReadUpTo,
+        userId);
+  }
+
+  private Counter load(Long userId) {
+    List<Counter> stored =
+        jdbcTemplate.query(
+            "SELECT unread_count, read_up_to_id, broadcast_read_up_to_id "
+                + "FROM notification_counters WHERE user_id = ?",
+            (rs, rowNum) -> new Counter(rs.getInt(1), rs.getLong(2), rs.getLong(3)),
+            userId);
+    if (!stored.isEmpty()) {
+      return stored.get(0);
+    }
+    Integer unread =
+        jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM notifications WHERE user_id = ? AND is_read = FALSE",
+            Integer.class,
+            userId);
+    int count = unread != null ? unread : 0;
+    try {
+      jdbcTemplate.update(
+          "INSERT INTO notification_counters "
+              + "(user_id, unread_count, read_up_to_id, broadcast_read_up_to_id) "
+              + "VALUES (?, ?, 0, 0)",
+          userId,
+          count);
+    } catch (DuplicateKeyException e) {
+      // Another request loaded the same user first; both counted the same table
+    }
+    return new Counter(count, 0, 0);
+  }
+}
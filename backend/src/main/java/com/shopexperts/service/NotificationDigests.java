@@ -0,0 +1,26 @@
+package com.shopexperts.service;
+
+import com.shopexperts.model.NotificationType;
+import java.util.Locale;
+
+/**
+ * Wording for notification rows that stand for several notifications of one type (item_count set),
+ * whether coalesced as they are written or compacted later by the retention job.
+ */
+final class NotificationDigests {
+
+  private NotificationDigests() {}
+
+  static String title(NotificationType type) {
+    String label = label(type);
+    return Character.toUpperCase(label.charAt(0)) + label.substring(1) + " summary";
+  }
+
+  static String message(NotificationType type, int items) {
+    return items + " " + label(type) + " notifications";
+  }
+
+  private static String label(NotificationType type) {
+    return type.name().toLowerCase(Locale.ROOT).replace('_', ' ');
+  }
+}
@@ -0,0 +1,174 @@
+package com.shopexperts.service;
+
+import com.shopexperts.model.NotificationChannel;
+import com.shopexperts.model.NotificationType;
+import com.shopexperts.payload.NotificationPreferences;
+import com.shopexperts.util.TransactionCallbacks;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Per-user notification mutes, one bitmask per user with bit {@code channel * 16 + type}.
+ *
+ * <p>Every non-empty mask is loaded at startup and kept in memory, and users who muted nothing have
+ * no entry at all, so deciding whether to build a notification is a map lookup and a bit test
+ * rather than a database read. Changes are written through to notification_preferences and reach
+ * the in-memory copy once their transaction commits.
+ */
+@Service
+public class NotificationPreferenceService {
+
+  private static final int TYPES_PER_CHANNEL = 16;
+
+  static {
+    if (NotificationType.values().length > TYPES_PER_CHANNEL
+        || NotificationChannel.values().length * TYPES_PER_CHANNEL > Long.SIZE) {
+      throw new IllegalStateException("Notification preferences no longer fit in one bitmask");
+    }
+  }
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @Autowired private ChangeLogService changeLogService;
+
+  private final ConcurrentMap<Long, Long> masks = new ConcurrentHashMap<>();
+
+  @PostConstruct
+  public void load() {
+    jdbcTemplate.query(
+        "SELECT user_id, muted FROM notification_preferences WHERE muted <> 0",
+        rs -> {
+          masks.put(rs.getLong(1), rs.getLong(2));
+        });
+  }
+
+  public boolean isMuted(Long userId, NotificationType type, NotificationChannel channel) {
+    Long mask = masks.get(userId);
+    return mask != null && (mask & bit(type, channel)) != 0;
+  }
+
+  /** The users, in order, who have not muted {@code type} on {@code channel}. */
+  public List<Long> withoutMuted(
+      Collection<Long> userIds, NotificationType type, NotificationChannel channel) {
+    List<Long> recipients = new ArrayList<>(userIds.size());
+    if (masks.isEmpty()) {
+      recipients.addAll(userIds);
+      return recipients;
+    }
+    long bit = bit(type, channel);
+    for (Long userId : userIds) {
+      Long mask = masks.get(userId);
+      if (mask == null || (mask & bit) == 0) {
+        recipients.add(userId);
+      }
+    }
+    return recipients;
+  }
+
+  /**
+   * The types the user has not muted on {@code channel}, for filtering shared rows such as
+   * broadcasts in a query; empty if every type is muted.
+   */
+  public List<NotificationType> unmutedTypes(Long userId, NotificationChannel channel) {
+    long mask = masks.getOrDefault(userId, 0L);
+    List<NotificationType> types = new ArrayList<>(NotificationType.values().length);
+    for (NotificationType type : NotificationType.values()) {
+      if ((mask & bit(type, channel)) == 0) {
+        types.add(type);
+      }
+    }
+    return types;
+  }
+
+  public NotificationPreferences getPreferences(Long userId) {
+    return preferences(masks.getOrDefault(userId, 0L));
+  }
+
+  @Transactional
+  public NotificationPreferences updatePreferences(
+      Long userId, NotificationPreferences preferences) {
+    long mask =
+        mask(preferences.getMutedInApp(), NotificationChannel.IN_APP)
+            | mask(preferences.getMutedEmail(), NotificationChannel.EMAIL)
+            | mask(preferences.getMutedPush(), NotificationChannel.PUSH);
+    long previous = masks.getOrDefault(userId, 0L);
+    Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+    if (!store(userId, mask, now)) {
+      try {
+        jdbcTemplate.update(
+            "INSERT INTO notification_preferences (user_id, muted, updated_at) VALUES (?, ?, ?)",
+            userId,
+            mask,
+            now);
+      } catch (DuplicateKeyException e) {
+        // Saved concurrently by another request; last write wins
+        store(userId, mask, now);
+      }
+    }
+    // Muting or unmuting a type in the app hides or shows its broadcasts, so clients resync them
+    changeLogService.recordBroadcastsOfTypes(
+        userId, types(previous ^ mask, NotificationChannel.IN_APP));
+    TransactionCallbacks.afterCommit(
+        () -> {
+          if (mask == 0) {
+            masks.remove(userId);
+          } else {
+            masks.put(userId, mask);
+          }
+        });
+    return preferences(mask);
+  }
+
+  private boolean store(Long userId, long mask, Timestamp now) {
+    return jdbcTemplate.update(
+            "UPDATE notification_preferences SET muted = ?, updated_at = ? WHERE user_id = ?",
+            mask,
+            now,
+            userId)
+        > 0;
+  }
+
+  private static NotificationPreferences preferences(long mask) {
+    return new NotificationPreferences(
+        types(mask, NotificationChannel.IN_APP),
+        types(mask, NotificationChannel.EMAIL),
+        types(mask, NotificationChannel.PUSH));
+  }
+
+  private static long bit(NotificationType type, NotificationChannel channel) {
+    return 1L << (channel.ordinal() * TYPES_PER_CHANNEL + type.ordinal());
+  }
+
+  private static long mask(Collection<NotificationType> types, NotificationChannel channel) {
+    long mask = 0;
+    if (types != null) {
+      for (NotificationType type : types) {
+        mask |= bit(type, channel);
+      }
+    }
+    return mask;
+  }
+
+  private static Set<NotificationType> types(long mask, NotificationChannel channel) {
+    Set<NotificationType> types = EnumSet.noneOf(NotificationType.class);
+    for (NotificationType type : NotificationType.values()) {
+      if ((mask & bit(type, channel)) != 0) {
+        types.add(type);
+      }
+    }
+    return types;
+  }
+}
@@ -0,0 +1,317 @@
+package com.shopexperts.service;
+
+import com.shopexperts.model.NotificationType;
+import com.shopexperts.model.SyncEntityType;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Keeps the notifications table from growing forever.
+ *
+ * <p>Runs of low-value notification types (compact-types) older than compact-after-days are folded
+ * into one summary row per user, whose item_count carries the number of notifications it stands
+ * for. Read notifications older than read-days, and any notification older than unread-days, are
+ * then copied to notifications_archive (unless archiving is off) and deleted.
+ *
+ * <p>Both passes walk the table by keyset a batch at a time, each batch in its own short
+ * transaction, so a run never holds long locks and a failed batch is simply retried by the next
+ * run. Unread counters are adjusted in the same transactions.
+ */
+@Service
+public class NotificationRetentionService {
+
+  private static final Logger logger = LoggerFactory.getLogger(NotificationRetentionService.class);
+
+  // Read either one by one or through the user's mark-all-read watermark
+  private static final String IS_READ =
+      "(n.is_read = TRUE OR n.id <= COALESCE(c.read_up_to_id, 0))";
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @Autowired private PlatformTransactionManager transactionManager;
+
+  @Autowired private NotificationCounterService notificationCounterService;
+
+  @Autowired private ChangeLogService changeLogService;
+
+  @Value("${app.notifications.retention.read-days:90}")
+  private int readDays;
+
+  @Value("${app.notifications.retention.unread-days:365}")
+  private int unreadDays;
+
+  @Value("${app.notifications.retention.archive:true}")
+  private boolean archive;
+
+  @Value("${app.notifications.retention.batch-size:1000}")
+  private int batchSize;
+
+  @Value("${app.notifications.retention.compact-types:REFERRAL_BONUS}")
+  private String[] compactTypes;
+
+  @Value("${app.notifications.retention.compact-after-days:7}")
+  private int compactAfterDays;
+
+  @Value("${app.notifications.retention.compact-min-count:3}")
+  private int compactMinCount;
+
+  /** Totals for one retention run. */
+  public static final class RetentionRun {
+    private int removed;
+    private int compacted;
+    private int summaries;
+    private int failedBatches;
+
+    public int getRemoved() {
+      return removed;
+    }
+
+    public int getCompacted() {
+      return compacted;
+    }
+
+    public int getSummaries() {
+      return summaries;
+    }
+
+    public int getFailedBatches() {
+      return failedBatches;
+    }
+  }
+
+  private static final class Candidate {
+    final long id;
+    final long userId;
+    final boolean read;
+
+    Candidate(long id, long userId, boolean read) {
+      this.id = id;
+      this.userId = userId;
+      this.read = read;
+    }
+  }
+
+  private static final class Group {
+    final long userId;
+    final int rows;
+    final int items;
+    final int unread;
+    final Timestamp latest;
+
+    Group(long userId, int rows, int items, int unread, Timestamp latest) {
+      this.userId = userId;
+      this.rows = rows;
+      this.items = items;
+      this.unread = unread;
+      this.latest = latest;
+    }
+  }
+
+  @Scheduled(cron = "${app.notifications.retention.cron:0 30 4 * * *}")
+  public RetentionRun runRetention() {
+    return runRetention(LocalDateTime.now());
+  }
+
+  public synchronized RetentionRun runRetention(LocalDateTime now) {
+    RetentionRun run = new RetentionRun();
+    for (String name : compactTypes) {
+      if (!name.trim().isEmpty()) {
+        compact(NotificationType.valueOf(name.trim()), now.minusDays(compactAfterDays), run);
+      }
+    }
+    purge(now.minusDays(readDays), now.minusDays(unreadDays), now, run);
+    logger.info(
+        "Notification retention: {} removed, {} compacted into {} summaries, {} failed batches",
+        run.removed,
+        run.compacted,
+        run.summaries,
+        run.failedBatches);
+    return run;
+  }
+
+  private void compact(NotificationType type, LocalDateTime before, RetentionRun run) {
+    TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+    Timestamp cutoff = Timestamp.valueOf(before);
+    long afterUserId = 0;
+    while (true) {
+      List<Group> groups =
+          jdbcTemplate.query(
+              "SELECT n.user_id, COUNT(*), SUM(COALESCE(n.item_count, 1)), "
+                  + "SUM(CASE WHEN "
+                  + IS_READ
+                  + " THEN 0 ELSE 1 END), MAX(n.created_at) "
+                  + "FROM notifications n LEFT JOIN notification_counters c "
+                  + "ON c.user_id = n.user_id "
+                  + "WHERE n.type = ? AND n.created_at < ? AND n.user_id > ? "
+                  + "GROUP BY n.user_id HAVING COUNT(*) >= ? ORDER BY n.user_id LIMIT ?",
+              (rs, rowNum) ->
+                  new Group(
+                      rs.getLong(1), rs.getInt(2), rs.getInt(3), rs.getInt(4), rs.getTimestamp(5)),
+              type.name(),
+              cutoff,
+              afterUserId,
+              Math.max(2, compactMinCount),
+              batchSize);
+      if (groups.isEmpty()) {
+        return;
+      }
+      try {
+        transactionTemplate.executeWithoutResult(status -> compactBatch(type, cutoff, groups));
+        for (Group group : groups) {
+          run.compacted += group.rows;
+          run.summaries++;
+        }
+      } catch (RuntimeException e) {
+        logger.warn("Notification compaction batch failed: {}", e.getMessage());
+        run.failedBatches++;
+      }
+      afterUserId = groups.get(groups.size() - 1).userId;
+      if (groups.size() < batchSize) {
+        return;
+      }
+    }
+  }
+
+  private void compactBatch(NotificationType type, Timestamp cutoff, List<Group> groups) {
+    List<Object> args = new ArrayList<>(groups.size() + 2);
+    args.add(type.name());
+    args.add(cutoff);
+    groups.forEach(group -> args.add(group.userId));
+    String condition =
+        "type = ? AND created_at < ? AND user_id IN (" + placeholders(groups.size()) + ")";
+    changeLogService.recordNotificationsWhere(true, condition, args.toArray());
+    jdbcTemplate.update("DELETE FROM notifications WHERE " + condition, args.toArray());
+
+    List<Object[]> summaries = new ArrayList<>(groups.size());
+    Map<Long, Integer> unread = new HashMap<>();
+    for (Group group : groups) {
+      summaries.add(
+          new Object[] {
+            group.userId,
+            NotificationDigests.title(type),
+            NotificationDigests.message(type, group.items),
+            type.name(),
+            group.unread == 0,
+            group.latest,
+            group.items
+          });
+      // The summary is unread if any of the notifications it replaces were
+      int delta = (group.unread > 0 ? 1 : 0) - group.unread;
+      if (delta != 0) {
+        unread.put(group.userId, delta);
+      }
+    }
+    long highWater = changeLogService.highWater(SyncEntityType.NOTIFICATION);
+    jdbcTemplate.batchUpdate(
+        "INSERT INTO notifications "
+            + "(user_id, title, message, type, is_read, created_at, item_count) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?)",
+        summaries);
+    changeLogService.recordInsertedNotifications(highWater);
+    notificationCounterService.adjust(unread);
+  }
+
+  private void purge(
+      LocalDateTime readBefore, LocalDateTime unreadBefore, LocalDateTime now, RetentionRun run) {
+    TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+    Timestamp readCutoff = Timestamp.valueOf(readBefore);
+    Timestamp unreadCutoff = Timestamp.valueOf(unreadBefore);
+    Timestamp cutoff = readCutoff.after(unreadCutoff) ? readCutoff : unreadCutoff;
+    Timestamp afterCreatedAt = new Timestamp(0);
+    long afterId = 0;
+    while (true) {
+      List<Object[]> page =
+          jdbcTemplate.query(
+              "SELECT n.id, n.user_id, "
+                  + IS_READ
+                  + ", n.created_at FROM notifications n "
+                  + "LEFT JOIN notification_counters c ON c.user_id = n.user_id "
+                  + "WHERE n.created_at < ? "
+                  + "AND (n.created_at > ? OR (n.created_at = ? AND n.id > ?)) "
+                  + "ORDER BY n.created_at, n.id LIMIT ?",
+              (rs, rowNum) ->
+                  new Object[] {rs.getLong(1), rs.getLong(2), rs.getBoolean(3), rs.getTimestamp(4)},
+              cutoff,
+              afterCreatedAt,
+              afterCreatedAt,
+              afterId,
+              batchSize);
+      if (page.isEmpty()) {
+        return;
+      }
+      List<Candidate> batch = new ArrayList<>(page.size());
+      for (Object[] row : page) {
+        boolean read = (Boolean) row[2];
+        Timestamp createdAt = (Timestamp) row[3];
+        // Unread notifications are kept until the longer unread-days limit
+        if ((read && createdAt.before(readCutoff)) || createdAt.before(unreadCutoff)) {
+          batch.add(new Candidate((Long) row[0], (Long) row[1], read));
+        }
+      }
+      if (!batch.isEmpty()) {
+        try {
+          transactionTemplate.executeWithoutResult(status -> purgeBatch(batch, now));
+          run.removed += batch.size();
+        } catch (RuntimeException e) {
+          logger.warn("Notification purge batch failed: {}", e.getMessage());
+          run.failedBatches++;
+        }
+      }
+      Object[] last = page.get(page.size() - 1);
+      afterId = (Long) last[0];
+      afterCreatedAt = (Timestamp) last[3];
+      if (page.size() < batchSize) {
+        return;
+      }
+    }
+  }
+
+  private void purgeBatch(List<Candidate> batch, LocalDateTime now) {
+    List<Object> ids = new ArrayList<>(batch.size());
+    Map<Long, Integer> unread = new HashMap<>();
+    Map<Long, List<Long>> removed = new HashMap<>();
+    for (Candidate candidate : batch) {
+      ids.add(candidate.id);
+      removed.computeIfAbsent(candidate.userId, userId -> new ArrayList<>()).add(candidate.id);
+      if (!candidate.read) {
+        unread.merge(candidate.userId, -1, Integer::sum);
+      }
+    }
+    String in = "(" + placeholders(ids.size()) + ")";
+    if (archive) {
+      List<Object> args = new ArrayList<>(ids.size() + 1);
+      args.add(Timestamp.valueOf(now));
+      args.addAll(ids);
+      jdbcTemplate.update(
+          "INSERT INTO notifications_archive "
+              + "(id, user_id, title, message, type, is_read, created_at, item_count, archived_at) "
+              + "SELECT n.id, n.user_id, n.title, n.message, n.type, "
+              + IS_READ
+              + ", n.created_at, n.item_count, ? FROM notifications n "
+              + "LEFT JOIN notification_counters c ON c.user_id = n.user_id WHERE n.id IN "
+              + in,
+          args.toArray());
+    }
+    jdbcTemplate.update("DELETE FROM notifications WHERE id IN " + in, ids.toArray());
+    changeLogService.record(SyncEntityType.NOTIFICATION, true, removed);
+    notificationCounterService.adjust(unread);
+  }
+
+  private static String placeholders(int count) {
+    return String.join(",", Collections.nCopies(count, "?"));
+  }
+}
@@ -1,18 +1,40 @@
 package com.shopexperts.service;
 
+import com.shopexperts.model.BroadcastNotification;
+import com.shopexperts.model.BroadcastReceipt;
 import com.shopexperts.model.Notification;
+import com.shopexperts.model.NotificationChannel;
 import com.shopexperts.model.NotificationType;
+import com.shopexperts.model.SyncEntityType;
 import com.shopexperts.model.User;
+import com.shopexperts.payload.BulkNotificationRequest;
 import com.shopexperts.payload.NotificationRequest;
 import com.shopexperts.payload.NotificationResponse;
+import com.shopexperts.repository.BroadcastNotificationRepository;
+import com.shopexperts.repository.BroadcastReceiptRepository;
 import com.shopexperts.repository.NotificationRepository;
 import com.shopexperts.repository.UserRepository;
+import com.shopexperts.util.TransactionCallbacks;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
 public class NotificationService {
@@ -21,6 +43,26 @@ public class NotificationService {
 
   @Autowired private UserRepository userRepository;
 
+  @Autowired private NotificationWriter notificationWriter;
+
+  @Autowired private BroadcastNotificationRepository broadcastNotificationRepository;
+
+  @Autowired private BroadcastReceiptRepository broadcastReceiptRepository;
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @Autowired private ApplicationEventPublisher eventPublisher;
+
+  @Autowired private NotificationCounterService notificationCounterService;
+
+  @Autowired private NotificationPreferenceService notificationPreferenceService;
+
+  @Autowired private ChangeLogService changeLogService;
+
+  @Autowired private TransactionTemplate transactionTemplate;
+
+  private static final int BULK_CHUNK_SIZE = 1000;
+
   public NotificationResponse createNotification(NotificationRequest request) {
     User user =
         userRepository
@@ -36,11 +78,25 @@ public class NotificationService {
     notification.setCreatedAt(LocalDateTime.now());
 
     notification = notificationRepository.save(notification);
-    return convertToResponse(notification);
+    notificationCounterService.adjust(user.getId(), 1);
+    changeLogService.recordChanged(SyncEntityType.NOTIFICATION, user.getId(), notification.getId());
+    NotificationResponse response = convertToResponse(notification, 0);
+    publish(
+        NotificationsChangedEvent.created(
+            Collections.singletonMap(user.getId(), Collections.singletonList(response))));
+    return response;
   }
 
+  /**
+   * Queues a notification for the background writer once the surrounding transaction commits, so a
+   * rolled-back booking or reward never notifies anyone. The returned notification is not yet
+   * persisted and has no id; it is null when the user has muted the type in the app.
+   */
   public Notification createNotification(
       User user, String title, String message, NotificationType type) {
+    if (notificationPreferenceService.isMuted(user.getId(), type, NotificationChannel.IN_APP)) {
+      return null;
+    }
     Notification notification = new Notification();
     notification.setUser(user);
     notification.setTitle(title);
@@ -49,13 +105,105 @@ public class NotificationService {
     notification.setIsRead(false);
     notification.setCreatedAt(LocalDateTime.now());
 
-    return notificationRepository.save(notification);
+    TransactionCallbacks.afterCommit(
+        () ->
+            notificationWriter.enqueue(
+                user.getId(), title, message, type, notification.getCreatedAt()));
+    return notification;
+  }
+
+  /**
+   * The same notification for many users, queued once the surrounding transaction commits; returns
+   * the number of users who have not muted it.
+   */
+  public int createNotifications(
+      Collection<Long> userIds, String title, String message, NotificationType type) {
+    List<Long> recipients =
+        notificationPreferenceService.withoutMuted(userIds, type, NotificationChannel.IN_APP);
+    if (recipients.isEmpty()) {
+      return 0;
+    }
+    LocalDateTime now = LocalDateTime.now();
+    TransactionCallbacks.afterCommit(
+        () -> notificationWriter.enqueueAll(recipients, title, message, type, now));
+    return recipients.size();
   }
 
+  /**
+   * The user's own notifications merged with the broadcasts they can see, newest first. Both
+   * sources are already sorted, so a page is cut from the first offset + size rows of each.
+   */
   public Page<NotificationResponse> getUserNotifications(Long userId, Pageable pageable) {
-    Page<Notification> notifications =
-        notificationRepository.findByUserIdOrderByCreatedAtDesc(userId, pageable);
-    return notifications.map(this::convertToResponse);
+    long readUpTo = notificationCounterService.getReadUpTo(userId);
+    long broadcastReadUpTo = notificationCounterService.getBroadcastReadUpTo(userId);
+    int window = (int) pageable.getOffset() + pageable.getPageSize();
+    List<NotificationType> broadcastTypes =
+        notificationPreferenceService.unmutedTypes(userId, NotificationChannel.IN_APP);
+    List<Object[]> broadcasts =
+        broadcastTypes.isEmpty()
+            ? Collections.emptyList()
+            : broadcastNotificationRepository.findVisible(
+                userId, broadcastTypes, PageRequest.of(0, window));
+    if (broadcasts.isEmpty()) {
+      Page<Notification> notifications =
+          notificationRepository.findByUserIdOrderByCreatedAtDesc(userId, pageable);
+      return notifications.map(notification -> convertToResponse(notification, readUpTo));
+    }
+
+    long broadcastTotal =
+        broadcasts.size() < window
+            ? broadcasts.size()
+            : broadcastNotificationRepository.countVisible(userId, broadcastTypes);
+    Page<Notification> personal =
+        notificationRepository.findByUserIdOrderByCreatedAtDesc(userId, PageRequest.of(0, window));
+
+    List<NotificationResponse> merged = new ArrayList<>(window);
+    List<Notification> own = personal.getContent();
+    int i = 0;
+    int j = 0;
+    while (merged.size() < window && (i < own.size() || j < broadcasts.size())) {
+      if (j >= broadcasts.size()
+          || (i < own.size()
+              && !own.get(i).getCreatedAt().isBefore(broadcastCreatedAt(broadcasts.get(j))))) {
+        merged.add(convertToResponse(own.get(i++), readUpTo));
+      } else {
+        merged.add(convertBroadcastToResponse(broadcasts.get(j++), userId, broadcastReadUpTo));
+      }
+    }
+    int from = Math.min((int) pageable.getOffset(), merged.size());
+    return new PageImpl<>(
+        merged.subList(from, merged.size()),
+        pageable,
+        personal.getTotalElements() + broadcastTotal);
+  }
+
+  /** The listed notifications that belong to the user; others are skipped. */
+  public List<NotificationResponse> getUserNotificationsByIds(
+      Long userId, Collection<Long> notificationIds) {
+    long readUpTo = notificationCounterService.getReadUpTo(userId);
+    List<NotificationResponse> responses = new ArrayList<>(notificationIds.size());
+    for (Notification notification :
+        notificationRepository.findByUserIdAndIdIn(userId, notificationIds)) {
+      responses.add(convertToResponse(notification, readUpTo));
+    }
+    return responses;
+  }
+
+  /** The listed broadcasts the user can see; hidden, muted and unknown ids are skipped. */
+  public List<NotificationResponse> getUserBroadcastsByIds(
+      Long userId, Collection<Long> broadcastIds) {
+    List<NotificationType> types =
+        notificationPreferenceService.unmutedTypes(userId, NotificationChannel.IN_APP);
+    if (types.isEmpty()) {
+      return Collections.emptyList();
+    }
+    long broadcastReadUpTo = notificationCounterService.getBroadcastReadUpTo(userId);
+    List<NotificationResponse> responses = new ArrayList<>(broadcastIds.size());
+    for (Object[] row :
+        broadcastNotificationRepository.findVisibleByIds(userId, types, broadcastIds)) {
+      responses.add(convertBroadcastToResponse(row, userId, broadcastReadUpTo));
+    }
+    return responses;
   }
 
   public List<Notification> getUserNotifications(User user) {
@@ -63,68 +211,304 @@ public class NotificationService {
   }
 
   public List<Notification> getUnreadNotifications(User user) {
-    return notificationRepository.findByUserAndIsReadOrderByCreatedAtDesc(user, false);
+    return notificationRepository.findByUserAndIsReadFalseAndIdGreaterThanOrderByCreatedAtDesc(
+        user, notificationCounterService.getReadUpTo(user.getId()));
   }
 
   public Long getUnreadNotificationCount(Long userId) {
-    return notificationRepository.countByUserIdAndIsRead(userId, false);
+    return notificationCounterService.getUnreadCount(userId);
   }
 
   public Long getUnreadNotificationCount(User user) {
-    return notificationRepository.countByUserAndIsRead(user, false);
+    return notificationCounterService.getUnreadCount(user.getId());
   }
 
+  @Transactional
   public void markNotificationAsRead(Long notificationId) {
     Notification notification =
         notificationRepository
             .findById(notificationId)
             .orElseThrow(() -> new RuntimeException("Notification not found"));
 
-    notification.setIsRead(true);
-    notificationRepository.save(notification);
+    markNotificationsAsRead(
+        notification.getUser().getId(), Collections.singletonList(notificationId));
+  }
+
+  /**
+   * Marks the listed notifications of one user read with a single UPDATE; ids that belong to
+   * someone else or are already read are skipped. Returns how many were unread.
+   */
+  @Transactional
+  public int markNotificationsAsRead(Long userId, Collection<Long> notificationIds) {
+    if (notificationIds.isEmpty()) {
+      return 0;
+    }
+    int marked =
+        notificationRepository.markRead(
+            userId, notificationIds, notificationCounterService.getReadUpTo(userId));
+    if (marked > 0) {
+      notificationCounterService.adjust(userId, -marked);
+      changeLogService.recordChanged(SyncEntityType.NOTIFICATION, userId, notificationIds);
+      publish(NotificationsChangedEvent.readStateChanged(userId));
+    }
+    return marked;
   }
 
   public void markAsRead(Long notificationId) {
     markNotificationAsRead(notificationId);
   }
 
+  /**
+   * Moves the user's read watermarks rather than updating each of their notifications or writing a
+   * receipt for each broadcast.
+   */
+  @Transactional
   public void markAllNotificationsAsRead(Long userId) {
-    List<Notification> notifications = notificationRepository.findByUserIdAndIsRead(userId, false);
-    notifications.forEach(notification -> notification.setIsRead(true));
-    notificationRepository.saveAll(notifications);
+    notificationCounterService.markAllRead(userId);
+    publish(NotificationsChangedEvent.readStateChanged(userId));
   }
 
+  @Transactional
   public void markAllAsRead(User user) {
-    List<Notification> notifications =
-        notificationRepository.findByUserAndIsReadOrderByCreatedAtDesc(user, false);
-    notifications.forEach(notification -> notification.setIsRead(true));
-    notificationRepository.saveAll(notifications);
+    markAllNotificationsAsRead(user.getId());
   }
 
   public void deleteNotification(Long notificationId) {
+    Optional<Notification> notification = notificationRepository.findById(notificationId);
     notificationRepository.deleteById(notificationId);
+    notification.ifPresent(
+        deleted -> {
+          Long userId = deleted.getUser().getId();
+          changeLogService.recordDeleted(
+              SyncEntityType.NOTIFICATION, userId, Collections.singletonList(notificationId));
+          if (!isRead(deleted, notificationCounterService.getReadUpTo(userId))) {
+            notificationCounterService.adjust(userId, -1);
+          }
+        });
+  }
+
+  @Transactional
+  public void markBroadcastAsRead(Long userId, Long broadcastId) {
+    BroadcastReceipt receipt = receiptFor(userId, broadcastId);
+    receipt.setIsRead(true);
+    broadcastReceiptRepository.save(receipt);
+    changeLogService.recordChanged(SyncEntityType.BROADCAST, userId, broadcastId);
+    notificationCounterService.invalidateBroadcasts(userId);
+    publish(NotificationsChangedEvent.readStateChanged(userId));
+  }
+
+  /** Hides a broadcast from this user's feed; other users still see it. */
+  @Transactional
+  public void deleteBroadcast(Long userId, Long broadcastId) {
+    BroadcastReceipt receipt = receiptFor(userId, broadcastId);
+    receipt.setDeleted(true);
+    broadcastReceiptRepository.save(receipt);
+    changeLogService.recordDeleted(
+        SyncEntityType.BROADCAST, userId, Collections.singletonList(broadcastId));
+    notificationCounterService.invalidateBroadcasts(userId);
+    publish(NotificationsChangedEvent.readStateChanged(userId));
+  }
+
+  /** Stores a notification for every user once; each feed picks it up when it is read. */
+  @Transactional
+  public BroadcastNotification broadcastNotification(
+      String title, String message, NotificationType type) {
+    BroadcastNotification broadcast =
+        broadcastNotificationRepository.save(new BroadcastNotification(title, message, type));
+    changeLogService.recordBroadcastChanged(broadcast.getId());
+    NotificationResponse response =
+        new NotificationResponse(
+            broadcast.getId(), null, null, title, message, type, false, broadcast.getCreatedAt());
+    response.setBroadcast(true);
+    notificationCounterService.broadcastSent(broadcast.getId(), type);
+    publish(NotificationsChangedEvent.broadcast(response));
+    return broadcast;
+  }
+
+  /**
+   * Delivers a notification to the users listed in the request, or failing that to every user
+   * holding its role. Recipients are walked in id order a chunk at a time and each chunk is
+   * inserted as one statement, so memory use stays flat however many users match. Users who muted
+   * the type in the app are left out of each chunk. Each chunk commits in a transaction of its own,
+   * together with its change-log entries.
+   */
+  public int sendBulkNotification(BulkNotificationRequest request) {
+    Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+    String type = request.getType().name();
+    int sent = 0;
+
+    if (request.getUserIds() != null) {
+      List<Long> userIds =
+          notificationPreferenceService.withoutMuted(
+              new LinkedHashSet<>(request.getUserIds()),
+              request.getType(),
+              NotificationChannel.IN_APP);
+      for (int from = 0; from < userIds.size(); from += BULK_CHUNK_SIZE) {
+        List<Long> chunk = userIds.subList(from, Math.min(from + BULK_CHUNK_SIZE, userIds.size()));
+        // Selecting from users skips ids that do not exist
+        List<Object> args = new ArrayList<>(chunk.size() + 4);
+        args.add(request.getTitle());
+        args.add(request.getMessage());
+        args.add(type);
+        args.add(now);
+        args.addAll(chunk);
+        sent +=
+            transactionTemplate.execute(
+                status -> {
+                  long highWater = changeLogService.highWater(SyncEntityType.NOTIFICATION);
+                  int inserted =
+                      jdbcTemplate.update(
+                          "INSERT INTO notifications "
+                              + "(user_id, title, message, type, is_read, created_at) "
+                              + "SELECT id, ?, ?, ?, FALSE, ? FROM users WHERE id IN ("
+                              + String.join(",", Collections.nCopies(chunk.size(), "?"))
+                              + ")",
+                          args.toArray());
+                  changeLogService.recordInsertedNotifications(highWater);
+                  countCreated(chunk);
+                  publishCreated(chunk, request, now);
+                  return inserted;
+                });
+      }
+      return sent;
+    }
+
+    if (request.getRole() == null) {
+      throw new RuntimeException("Either userIds or role is required");
+    }
+    long afterUserId = 0;
+    while (true) {
+      List<Long> chunk =
+          jdbcTemplate.queryForList(
+              "SELECT ur.user_id FROM user_roles ur JOIN roles r ON r.id = ur.role_id "
+                  + "WHERE r.name = ? AND ur.user_id > ? ORDER BY ur.user_id LIMIT ?",
+              Long.class,
+              request.getRole().name(),
+              afterUserId,
+              BULK_CHUNK_SIZE);
+      if (chunk.isEmpty()) {
+        break;
+      }
+      List<Long> recipients =
+          notificationPreferenceService.withoutMuted(
+              chunk, request.getType(), NotificationChannel.IN_APP);
+      if (!recipients.isEmpty()) {
+        List<Object[]> rows = new ArrayList<>(recipients.size());
+        for (Long userId : recipients) {
+          rows.add(
+              new Object[] {userId, request.getTitle(), request.getMessage(), type, false, now});
+        }
+        transactionTemplate.executeWithoutResult(
+            status -> {
+              long highWater = changeLogService.highWater(SyncEntityType.NOTIFICATION);
+              jdbcTemplate.batchUpdate(
+                  "INSERT INTO notifications (user_id, title, message, type, is_read, created_at) "
+                      + "VALUES (?, ?, ?, ?, ?, ?)",
+                  rows);
+              changeLogService.recordInsertedNotifications(highWater);
+              countCreated(recipients);
+              publishCreated(recipients, request, now);
+            });
+        sent += recipients.size();
+      }
+      afterUserId = chunk.get(chunk.size() - 1);
+      if (chunk.size() < BULK_CHUNK_SIZE) {
+        break;
+      }
+    }
+    return sent;
+  }
+
+  // Pushes to open streams only once the change is visible to the unread count queries
+  private void publish(NotificationsChangedEvent event) {
+    TransactionCallbacks.afterCommit(() -> eventPublisher.publishEvent(event));
   }
 
-  public void sendBulkNotification(NotificationRequest request) {
-    // Implementation for bulk notification
-    // This would send notifications to multiple users
-    List<User> users = userRepository.findAll(); // Or filter based on criteria
+  private void countCreated(List<Long> userIds) {
+    Map<Long, Integer> deltas = new HashMap<>();
+    userIds.forEach(userId -> deltas.put(userId, 1));
+    notificationCounterService.adjust(deltas);
+  }
+
+  private void publishCreated(List<Long> userIds, BulkNotificationRequest request, Timestamp at) {
+    List<NotificationResponse> notification =
+        Collections.singletonList(
+            new NotificationResponse(
+                null,
+                null,
+                null,
+                request.getTitle(),
+                request.getMessage(),
+                request.getType(),
+                false,
+                at.toLocalDateTime()));
+    Map<Long, List<NotificationResponse>> created = new HashMap<>();
+    userIds.forEach(userId -> created.put(userId, notification));
+    publish(NotificationsChangedEvent.created(created));
+  }
 
-    for (User user : users) {
-      createNotification(user, request.getTitle(), request.getMessage(), request.getType());
+  // Only for a broadcast the user can see in their feed: sent since they signed up, of a type they
+  // have not muted, and not hidden by them
+  private BroadcastReceipt receiptFor(Long userId, Long broadcastId) {
+    List<NotificationType> types =
+        notificationPreferenceService.unmutedTypes(userId, NotificationChannel.IN_APP);
+    List<Object[]> visible =
+        types.isEmpty()
+            ? Collections.emptyList()
+            : broadcastNotificationRepository.findVisibleByIds(
+                userId, types, Collections.singletonList(broadcastId));
+    if (visible.isEmpty()) {
+      throw new RuntimeException("Notification not found");
     }
+    return broadcastReceiptRepository
+        .findByBroadcastIdAndUserId(broadcastId, userId)
+        .orElseGet(
+            () -> {
+              BroadcastReceipt receipt = new BroadcastReceipt();
+              receipt.setBroadcast((BroadcastNotification) visible.get(0)[0]);
+              receipt.setUser(userRepository.getReferenceById(userId));
+              return receipt;
+            });
+  }
+
+  private static LocalDateTime broadcastCreatedAt(Object[] row) {
+    return ((BroadcastNotification) row[0]).getCreatedAt();
+  }
+
+  private NotificationResponse convertBroadcastToResponse(
+      Object[] row, Long userId, long broadcastReadUpTo) {
+    BroadcastNotification broadcast = (BroadcastNotification) row[0];
+    NotificationResponse response =
+        new NotificationResponse(
+            broadcast.getId(),
+            userId,
+            null,
+            broadcast.getTitle(),
+            broadcast.getMessage(),
+            broadcast.getType(),
+            Boolean.TRUE.equals(row[1]) || broadcast.getId() <= broadcastReadUpTo,
+            broadcast.getCreatedAt());
+    response.setBroadcast(true);
+    return response;
+  }
+
+  private NotificationResponse convertToResponse(Notification notification, long readUpTo) {
+    NotificationResponse response =
+        new NotificationResponse(
+            notification.getId(),
+            notification.getUser().getId(),
+            notification.getUser().getName(),
+            notification.getTitle(),
+            notification.getMessage(),
+            notification.getType(),
+            isRead(notification, readUpTo),
+            notification.getCreatedAt());
+    response.setItemCount(notification.getItemCount());
+    return response;
   }
 
-  private NotificationResponse convertToResponse(Notification notification) {
-    return new NotificationResponse(
-        notification.getId(),
-        notification.getUser().getId(),
-        notification.getUser().getName(),
-        notification.getTitle(),
-        notification.getMessage(),
-        notification.getType(),
-        notification.getIsRead(),
-        notification.getCreatedAt());
+  private static boolean isRead(Notification notification, long readUpTo) {
+    return Boolean.TRUE.equals(notification.getIsRead()) || notification.getId() <= readUpTo;
   }
 
   public void sendPromotionNotification(User user, String promotionTitle, String promotionMessage) {
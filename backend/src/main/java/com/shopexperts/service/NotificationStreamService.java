@@ -0,0 +1,153 @@
+package com.shopexperts.service;
+
+import com.shopexperts.model.NotificationChannel;
+import com.shopexperts.model.NotificationType;
+import com.shopexperts.payload.NotificationResponse;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import javax.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Keeps the open notification streams (Server-Sent Events) of every signed-in user and pushes new
+ * notifications and unread counts down them as they change.
+ *
+ * <p>Streams are async servlet responses, so an idle connection holds no thread, only its emitter.
+ * A periodic heartbeat keeps proxies from closing quiet connections and is how connections whose
+ * client went away are found and dropped.
+ */
+@Service
+public class NotificationStreamService {
+
+  @Autowired private NotificationService notificationService;
+
+  @Autowired private NotificationPreferenceService notificationPreferenceService;
+
+  @Value("${app.notifications.stream.timeout-ms:1800000}")
+  private long timeoutMs;
+
+  @Value("${app.notifications.stream.max-per-user:5}")
+  private int maxPerUser;
+
+  private final ConcurrentMap<Long, List<SseEmitter>> emitters = new ConcurrentHashMap<>();
+
+  /** Opens a stream for the user, starting with their current unread count. */
+  public SseEmitter subscribe(Long userId) {
+    SseEmitter emitter = new SseEmitter(timeoutMs);
+    List<SseEmitter> userEmitters =
+        emitters.compute(
+            userId,
+            (id, list) -> {
+              List<SseEmitter> updated = list != null ? list : new CopyOnWriteArrayList<>();
+              updated.add(emitter);
+              return updated;
+            });
+    // Oldest tabs make way for new ones beyond the per-user limit
+    while (userEmitters.size() > maxPerUser) {
+      SseEmitter oldest = userEmitters.get(0);
+      unregister(userId, oldest);
+      oldest.complete();
+    }
+
+    emitter.onCompletion(() -> unregister(userId, emitter));
+    emitter.onTimeout(() -> unregister(userId, emitter));
+    emitter.onError(error -> unregister(userId, emitter));
+    send(
+        userId,
+        emitter,
+        Collections.emptyList(),
+        notificationService.getUnreadNotificationCount(userId));
+    return emitter;
+  }
+
+  @Async
+  @EventListener
+  public void onNotificationsChanged(NotificationsChangedEvent event) {
+    if (event.getBroadcast() != null) {
+      List<NotificationResponse> broadcast = Collections.singletonList(event.getBroadcast());
+      NotificationType type = event.getBroadcast().getType();
+      for (Long userId : emitters.keySet()) {
+        if (!notificationPreferenceService.isMuted(userId, type, NotificationChannel.IN_APP)) {
+          push(userId, broadcast);
+        }
+      }
+      return;
+    }
+    for (Map.Entry<Long, List<NotificationResponse>> entry : event.getCreated().entrySet()) {
+      if (emitters.containsKey(entry.getKey())) {
+        push(entry.getKey(), entry.getValue());
+      }
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${app.notifications.stream.heartbeat-ms:25000}")
+  public void heartbeat() {
+    emitters.forEach(
+        (userId, userEmitters) -> {
+          for (SseEmitter emitter : userEmitters) {
+            send(userId, emitter, Collections.emptyList(), null);
+          }
+        });
+  }
+
+  public int getConnectionCount() {
+    return emitters.values().stream().mapToInt(List::size).sum();
+  }
+
+  @PreDestroy
+  public void closeAll() {
+    emitters.values().forEach(userEmitters -> userEmitters.forEach(SseEmitter::complete));
+    emitters.clear();
+  }
+
+  private void push(Long userId, List<NotificationResponse> notifications) {
+    List<SseEmitter> userEmitters = emitters.get(userId);
+    if (userEmitters == null) {
+      return;
+    }
+    Long unreadCount = notificationService.getUnreadNotificationCount(userId);
+    for (SseEmitter emitter : userEmitters) {
+      send(userId, emitter, notifications, unreadCount);
+    }
+  }
+
+  // Event builders accumulate their output, so each emitter gets freshly built events; with no
+  // notifications and no count this sends a heartbeat comment
+  private void send(
+      Long userId, SseEmitter emitter, List<NotificationResponse> notifications, Long unreadCount) {
+    try {
+      for (NotificationResponse notification : notifications) {
+        emitter.send(SseEmitter.event().name("notification").data(notification));
+      }
+      if (unreadCount != null) {
+        emitter.send(SseEmitter.event().name("unread-count").data(unreadCount));
+      } else if (notifications.isEmpty()) {
+        emitter.send(SseEmitter.event().comment("heartbeat"));
+      }
+    } catch (IOException | IllegalStateException e) {
+      // Client gone or emitter already completed
+      unregister(userId, emitter);
+      emitter.completeWithError(e);
+    }
+  }
+
+  private void unregister(Long userId, SseEmitter emitter) {
+    emitters.computeIfPresent(
+        userId,
+        (id, list) -> {
+          list.remove(emitter);
+          return list.isEmpty() ? null : list;
+        });
+  }
+}
@@ -0,0 +1,393 @@
+package com.shopexperts.service;
+
+import com.shopexperts.model.NotificationType;
+import com.shopexperts.model.SyncEntityType;
+import com.shopexperts.payload.NotificationResponse;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Writes notifications off the request path. Callers put rows on a bounded queue and a single
+ * writer thread inserts them as JDBC batches, once batch-size rows are waiting or flush-interval-ms
+ * after the first of them arrived, whichever comes first.
+ *
+ * <p>When the queue is full the caller writes a batch itself instead of waiting or dropping the
+ * row, so producers slow down to the speed of the database rather than running out of memory.
+ *
+ * <p>Notifications of the digest types are coalesced per (user, type) before they are stored: if
+ * the user still has an unread one of that type from the last window-minutes, it becomes (or stays)
+ * a digest whose item_count grows and whose time moves to the newest notification; otherwise the
+ * batch's notifications for that user and type are stored as one row. A user who gets thirty
+ * referral bonuses in an hour sees one "30 referral bonus notifications" row and one unread.
+ */
+@Service
+public class NotificationWriter {
+
+  private static final Logger logger = LoggerFactory.getLogger(NotificationWriter.class);
+
+  private static final String INSERT_SQL =
+      "INSERT INTO notifications (user_id, title, message, type, is_read, created_at, item_count) "
+          + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+  // Still unread, by flag and by watermark, or the update misses and a new row is written instead
+  private static final String ABSORB_SQL =
+      "UPDATE notifications SET item_count = COALESCE(item_count, 1) + ?, title = ?, message = ?, "
+          + "created_at = ? WHERE id = ? AND is_read = FALSE AND id > COALESCE("
+          + "(SELECT read_up_to_id FROM notification_counters WHERE user_id = ?), 0)";
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @Autowired private PlatformTransactionManager transactionManager;
+
+  @Autowired private ApplicationEventPublisher eventPublisher;
+
+  @Autowired private NotificationCounterService notificationCounterService;
+
+  @Autowired private ChangeLogService changeLogService;
+
+  @Value("${app.notifications.writer.capacity:10000}")
+  private int capacity;
+
+  @Value("${app.notifications.writer.batch-size:500}")
+  private int batchSize;
+
+  @Value("${app.notifications.writer.flush-interval-ms:200}")
+  private long flushIntervalMs;
+
+  @Value("${app.notifications.digest.types:REFERRAL_BONUS,BOOKING_CONFIRMED}")
+  private String[] digestTypes;
+
+  @Value("${app.notifications.digest.window-minutes:60}")
+  private long digestWindowMinutes;
+
+  private Set<String> digestTypeNames;
+
+  private BlockingQueue<Object[]> queue;
+  private TransactionTemplate transactionTemplate;
+  private Thread writer;
+  private volatile boolean running;
+
+  @PostConstruct
+  public void start() {
+    queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+    digestTypeNames = new HashSet<>();
+    if (digestTypes != null) {
+      for (String name : digestTypes) {
+        if (!name.trim().isEmpty()) {
+          digestTypeNames.add(NotificationType.valueOf(name.trim()).name());
+        }
+      }
+    }
+    // Enqueues normally come from after-commit callbacks; a caller-run batch must not join the
+    // finished transaction that is still bound to the thread.
+    transactionTemplate = new TransactionTemplate(transactionManager);
+    transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    running = true;
+    writer = new Thread(this::drainLoop, "notification-writer");
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  /** Stops the writer thread and writes whatever is still queued. */
+  @PreDestroy
+  public void stop() throws InterruptedException {
+    running = false;
+    if (writer != null) {
+      writer.join(TimeUnit.SECONDS.toMillis(10));
+    }
+    flush();
+  }
+
+  public void enqueue(
+      Long userId, String title, String message, NotificationType type, LocalDateTime createdAt) {
+    enqueue(row(userId, title, message, type, createdAt));
+  }
+
+  /** The same notification for many users. */
+  public void enqueueAll(
+      Collection<Long> userIds,
+      String title,
+      String message,
+      NotificationType type,
+      LocalDateTime createdAt) {
+    for (Long userId : userIds) {
+      enqueue(row(userId, title, message, type, createdAt));
+    }
+  }
+
+  /** Writes everything currently queued on the calling thread; returns the number of rows. */
+  public int flush() {
+    int written = 0;
+    List<Object[]> batch = new ArrayList<>(batchSize);
+    while (queue.drainTo(batch, batchSize) > 0) {
+      written += write(batch);
+      batch = new ArrayList<>(batchSize);
+    }
+    return written;
+  }
+
+  public int getQueuedCount() {
+    return queue.size();
+  }
+
+  private void enqueue(Object[] row) {
+    if (running && queue.offer(row)) {
+      return;
+    }
+    // Queue full (or shutting down): write a batch on the caller's thread, oldest rows first
+    List<Object[]> batch = new ArrayList<>(batchSize);
+    queue.drainTo(batch, batchSize - 1);
+    batch.add(row);
+    write(batch);
+  }
+
+  private void drainLoop() {
+    while (running || !queue.isEmpty()) {
+      List<Object[]> batch = new ArrayList<>(batchSize);
+      try {
+        Object[] first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          continue;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        while (batch.size() < batchSize) {
+          queue.drainTo(batch, batchSize - batch.size());
+          long remaining = deadline - System.nanoTime();
+          if (batch.size() >= batchSize || remaining <= 0) {
+            break;
+          }
+          Object[] next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+          if (next == null) {
+            break;
+          }
+          batch.add(next);
+        }
+        write(batch);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        write(batch);
+        return;
+      } catch (RuntimeException e) {
+        logger.error("Notification writer failed", e);
+      }
+    }
+  }
+
+  private int write(List<Object[]> batch) {
+    if (batch.isEmpty()) {
+      return 0;
+    }
+    int written;
+    Map<Long, List<NotificationResponse>> stored = new HashMap<>();
+    try {
+      stored.putAll(transactionTemplate.execute(status -> store(batch)));
+      written = batch.size();
+    } catch (RuntimeException e) {
+      // One bad row (e.g. a user deleted in the meantime) must not take the rest of the batch
+      // with it
+      written = 0;
+      for (Object[] row : batch) {
+        try {
+          Map<Long, List<NotificationResponse>> one =
+              transactionTemplate.execute(status -> store(Collections.singletonList(row)));
+          one.forEach(
+              (userId, responses) ->
+                  stored.computeIfAbsent(userId, id -> new ArrayList<>()).addAll(responses));
+          written++;
+        } catch (RuntimeException rowError) {
+          logger.warn("Dropping notification for user {}: {}", row[0], rowError.getMessage());
+        }
+      }
+    }
+    if (!stored.isEmpty()) {
+      eventPublisher.publishEvent(NotificationsChangedEvent.created(stored));
+    }
+    return written;
+  }
+
+  // Stores a batch in the current transaction; returns what each user will now see
+  private Map<Long, List<NotificationResponse>> store(List<Object[]> rows) {
+    List<Object[]> inserts = new ArrayList<>(rows.size());
+    Map<List<Object>, List<Object[]>> groups = new LinkedHashMap<>();
+    for (Object[] row : rows) {
+      if (digestTypeNames.contains(row[3])) {
+        groups.computeIfAbsent(Arrays.asList(row[0], row[3]), key -> new ArrayList<>()).add(row);
+      } else {
+        inserts.add(row);
+      }
+    }
+    Map<Long, List<NotificationResponse>> stored = new HashMap<>();
+    if (!groups.isEmpty()) {
+      coalesce(groups, inserts, stored);
+    }
+    if (!inserts.isEmpty()) {
+      long highWater = changeLogService.highWater(SyncEntityType.NOTIFICATION);
+      jdbcTemplate.batchUpdate(INSERT_SQL, inserts);
+      changeLogService.recordInsertedNotifications(highWater);
+      notificationCounterService.adjust(unreadByUser(inserts));
+      for (Object[] row : inserts) {
+        add(stored, row, null);
+      }
+    }
+    return stored;
+  }
+
+  // Folds each (user, type) group into the user's open digest, or else queues it as one new row
+  private void coalesce(
+      Map<List<Object>, List<Object[]>> groups,
+      List<Object[]> inserts,
+      Map<Long, List<NotificationResponse>> stored) {
+    Map<List<Object>, long[]> open = openDigests(groups.keySet());
+    List<Long> digestIds = new ArrayList<>();
+    List<List<Object[]>> absorbed = new ArrayList<>();
+    List<Object[]> updates = new ArrayList<>();
+    for (Map.Entry<List<Object>, List<Object[]>> group : groups.entrySet()) {
+      List<Object[]> rows = group.getValue();
+      long[] digest = open.get(group.getKey());
+      if (digest == null) {
+        inserts.add(digest(rows, 0));
+        continue;
+      }
+      Object[] row = digest(rows, (int) digest[1]);
+      digestIds.add(digest[0]);
+      absorbed.add(rows);
+      updates.add(row);
+    }
+    if (updates.isEmpty()) {
+      return;
+    }
+    List<Object[]> args = new ArrayList<>(updates.size());
+    for (int i = 0; i < updates.size(); i++) {
+      Object[] row = updates.get(i);
+      args.add(
+          new Object[] {absorbed.get(i).size(), row[1], row[2], row[5], digestIds.get(i), row[0]});
+    }
+    int[] updated = jdbcTemplate.batchUpdate(ABSORB_SQL, args);
+    Map<Long, List<Long>> changed = new HashMap<>();
+    for (int i = 0; i < updates.size(); i++) {
+      if (updated[i] == 0) {
+        // Read or deleted since it was looked up
+        inserts.add(digest(absorbed.get(i), 0));
+      } else {
+        add(stored, updates.get(i), digestIds.get(i));
+        changed
+            .computeIfAbsent((Long) updates.get(i)[0], userId -> new ArrayList<>())
+            .add(digestIds.get(i));
+      }
+    }
+    changeLogService.record(SyncEntityType.NOTIFICATION, false, changed);
+  }
+
+  // The newest unread notification per (user, type) within the window: id and item count
+  private Map<List<Object>, long[]> openDigests(Set<List<Object>> keys) {
+    Set<Object> userIds = new LinkedHashSet<>();
+    Set<Object> types = new LinkedHashSet<>();
+    for (List<Object> key : keys) {
+      userIds.add(key.get(0));
+      types.add(key.get(1));
+    }
+    List<Object> args = new ArrayList<>(userIds.size() + types.size() + 1);
+    args.addAll(userIds);
+    args.addAll(types);
+    args.add(Timestamp.valueOf(LocalDateTime.now().minusMinutes(digestWindowMinutes)));
+    Map<List<Object>, long[]> open = new HashMap<>();
+    jdbcTemplate.query(
+        "SELECT n.user_id, n.type, n.id, COALESCE(n.item_count, 1) FROM notifications n "
+            + "LEFT JOIN notification_counters c ON c.user_id = n.user_id "
+            + "WHERE n.user_id IN ("
+            + placeholders(userIds.size())
+            + ") AND n.type IN ("
+            + placeholders(types.size())
+            + ") AND n.is_read = FALSE AND n.id > COALESCE(c.read_up_to_id, 0) "
+            + "AND n.created_at >= ? ORDER BY n.id",
+        rs -> {
+          // Ordered by id, so the newest one wins
+          open.put(
+              Arrays.asList(rs.getLong(1), rs.getString(2)),
+              new long[] {rs.getLong(3), rs.getLong(4)});
+        },
+        args.toArray());
+    return open;
+  }
+
+  // One row for a group: the notification itself, or a digest of it and {@code existing} more
+  private static Object[] digest(List<Object[]> rows, int existing) {
+    Object[] latest = rows.get(rows.size() - 1);
+    int items = existing + rows.size();
+    if (items == 1) {
+      return latest;
+    }
+    NotificationType type = NotificationType.valueOf((String) latest[3]);
+    return new Object[] {
+      latest[0],
+      NotificationDigests.title(type),
+      NotificationDigests.message(type, items),
+      latest[3],
+      false,
+      latest[5],
+      items
+    };
+  }
+
+  private static Map<Long, Integer> unreadByUser(List<Object[]> rows) {
+    Map<Long, Integer> unread = new HashMap<>();
+    for (Object[] row : rows) {
+      unread.merge((Long) row[0], 1, Integer::sum);
+    }
+    return unread;
+  }
+
+  private static void add(Map<Long, List<NotificationResponse>> stored, Object[] row, Long id) {
+    Long userId = (Long) row[0];
+    NotificationResponse response =
+        new NotificationResponse(
+            id,
+            userId,
+            null,
+            (String) row[1],
+            (String) row[2],
+            NotificationType.valueOf((String) row[3]),
+            false,
+            ((Timestamp) row[5]).toLocalDateTime());
+    response.setItemCount((Integer) row[6]);
+    stored.computeIfAbsent(userId, key -> new ArrayList<>()).add(response);
+  }
+
+  private static String placeholders(int count) {
+    return String.join(",", Collections.nCopies(count, "?"));
+  }
+
+  private static Object[] row(
+      Long userId, String title, String message, NotificationType type, LocalDateTime createdAt) {
+    return new Object[] {
+      userId, title, message, type.name(), false, Timestamp.valueOf(createdAt), null
+    };
+  }
+}
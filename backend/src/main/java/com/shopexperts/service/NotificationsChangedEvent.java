@@ -0,0 +1,45 @@
+package com.shopexperts.service;
+
+import com.shopexperts.payload.NotificationResponse;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Published once notifications have been stored or a user's read state has changed, so open
+ * notification streams can be updated. Notifications written in JDBC batches carry no id; a digest
+ * that absorbed new notifications carries its id, so clients can replace the one they have.
+ */
+public class NotificationsChangedEvent {
+  // New notifications per user; an empty list means only the unread count changed
+  private final Map<Long, List<NotificationResponse>> created;
+  private final NotificationResponse broadcast;
+
+  private NotificationsChangedEvent(
+      Map<Long, List<NotificationResponse>> created, NotificationResponse broadcast) {
+    this.created = created;
+    this.broadcast = broadcast;
+  }
+
+  public static NotificationsChangedEvent created(Map<Long, List<NotificationResponse>> created) {
+    return new NotificationsChangedEvent(created, null);
+  }
+
+  public static NotificationsChangedEvent readStateChanged(Long userId) {
+    return new NotificationsChangedEvent(
+        Collections.singletonMap(userId, Collections.emptyList()), null);
+  }
+
+  /** A broadcast reaches every user, so every open stream gets it. */
+  public static NotificationsChangedEvent broadcast(NotificationResponse broadcast) {
+    return new NotificationsChangedEvent(Collections.emptyMap(), broadcast);
+  }
+
+  public Map<Long, List<NotificationResponse>> getCreated() {
+    return created;
+  }
+
+  public NotificationResponse getBroadcast() {
+    return broadcast;
+  }
+}
@@ -0,0 +1,198 @@
+package com.shopexperts.service;
+
+import com.shopexperts.payload.ReviewResponse;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Lock-free ring buffer of the latest approved reviews, held as ready-to-serve responses. Writers
+ * claim a sequence number and overwrite the oldest slot; readers walk back from the newest sequence
+ * without taking any lock.
+ *
+ * <p>Reviews are served newest first by creation time, then id, like the database query the buffer
+ * is warmed from, whatever order they were appended in. The buffer also remembers the newest review
+ * it has lost, whether overwritten or never appended; only entries newer than that are served, so a
+ * short snapshot means the caller should read the database unless {@link #holdsEveryReview}.
+ */
+@Service
+public class RecentReviewFeed {
+
+  private static final class Entry {
+    final long sequence;
+    final Long reviewId;
+    final LocalDateTime createdAt;
+    final String category;
+    final ReviewResponse response;
+
+    Entry(long sequence, Long reviewId, String category, ReviewResponse response) {
+      this(sequence, reviewId, response.getCreatedAt(), category, response);
+    }
+
+    Entry(
+        long sequence,
+        Long reviewId,
+        LocalDateTime createdAt,
+        String category,
+        ReviewResponse response) {
+      this.sequence = sequence;
+      this.reviewId = reviewId;
+      this.createdAt = createdAt;
+      this.category = category;
+      this.response = response;
+    }
+  }
+
+  private static final Comparator<Entry> OLDEST_FIRST =
+      Comparator.comparing(
+              (Entry entry) -> entry.createdAt, Comparator.nullsFirst(Comparator.naturalOrder()))
+          .thenComparing(entry -> entry.reviewId);
+
+  private final int capacity;
+  private final AtomicReferenceArray<Entry> slots;
+  private final AtomicLong nextSequence = new AtomicLong();
+  // The newest review known to be missing from the buffer; null while it holds every review
+  private final AtomicReference<Entry> newestMissing = new AtomicReference<>();
+
+  public RecentReviewFeed(@Value("${app.reviews.recent.capacity:100}") int capacity) {
+    this.capacity = Math.max(1, capacity);
+    this.slots = new AtomicReferenceArray<>(this.capacity);
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Adds a review as the newest entry, evicting the oldest once the buffer is full. A review older
+   * than one the buffer already lost would never be served, so it is not added.
+   */
+  public void append(ReviewResponse response, String category) {
+    Entry missing = newestMissing.get();
+    Entry probe = new Entry(-1, response.getId(), null, response);
+    if (missing != null && OLDEST_FIRST.compare(probe, missing) <= 0) {
+      return;
+    }
+    long sequence = nextSequence.getAndIncrement();
+    Entry fresh = new Entry(sequence, response.getId(), categoryKey(category), response);
+    int slot = slot(sequence);
+    // A writer that stalled after claiming its sequence must not clobber a newer lap's entry
+    while (true) {
+      Entry current = slots.get(slot);
+      if (current != null && current.sequence > sequence) {
+        markMissing(fresh);
+        return;
+      }
+      if (slots.compareAndSet(slot, current, fresh)) {
+        if (current != null) {
+          markMissing(current);
+        }
+        return;
+      }
+    }
+  }
+
+  /** Records an approved review that was not appended, so nothing older than it is served. */
+  public void markMissing(Long reviewId, LocalDateTime createdAt) {
+    markMissing(new Entry(-1, reviewId, createdAt, null, null));
+  }
+
+  private void markMissing(Entry lost) {
+    newestMissing.accumulateAndGet(
+        lost,
+        (current, candidate) ->
+            current == null || OLDEST_FIRST.compare(candidate, current) > 0 ? candidate : current);
+  }
+
+  /** Whether every approved review is in the buffer, so a short snapshot is the whole answer. */
+  public boolean holdsEveryReview() {
+    return newestMissing.get() == null;
+  }
+
+  /** Swaps in a fresh response for a review that is still in the buffer, keeping its position. */
+  public void replace(ReviewResponse response, String category) {
+    for (int i = 0; i < capacity; i++) {
+      Entry entry = slots.get(i);
+      if (entry != null && entry.reviewId.equals(response.getId())) {
+        slots.compareAndSet(
+            i,
+            entry,
+            new Entry(
+                entry.sequence, entry.reviewId, entry.createdAt, categoryKey(category), response));
+        return;
+      }
+    }
+  }
+
+  public void evict(Long reviewId) {
+    evictAll(Collections.singleton(reviewId));
+  }
+
+  public void evictAll(Collection<Long> reviewIds) {
+    Set<Long> ids = new HashSet<>(reviewIds);
+    for (int i = 0; i < capacity; i++) {
+      Entry entry = slots.get(i);
+      if (entry != null && ids.contains(entry.reviewId)) {
+        slots.compareAndSet(i, entry, null);
+      }
+    }
+  }
+
+  public void clear() {
+    for (int i = 0; i < capacity; i++) {
+      slots.set(i, null);
+    }
+    newestMissing.set(null);
+  }
+
+  /**
+   * Up to {@code limit} of the newest reviews, optionally within one business category. Short when
+   * the buffer does not hold enough reviews newer than the newest one it lost.
+   */
+  public List<ReviewResponse> snapshot(int limit, String category) {
+    String key = categoryKey(category);
+    int wanted = Math.max(0, Math.min(limit, capacity));
+    Entry missing = newestMissing.get();
+    List<Entry> entries = new ArrayList<>(capacity);
+    long newest = nextSequence.get() - 1;
+    for (long sequence = newest; sequence >= 0 && sequence > newest - capacity; sequence--) {
+      Entry entry = slots.get(slot(sequence));
+      // A slot may already hold a newer entry, or none after an eviction
+      if (entry == null || entry.sequence != sequence) {
+        continue;
+      }
+      if ((key == null || key.equals(entry.category))
+          && (missing == null || OLDEST_FIRST.compare(entry, missing) > 0)) {
+        entries.add(entry);
+      }
+    }
+    entries.sort(OLDEST_FIRST.reversed());
+    List<ReviewResponse> result = new ArrayList<>(Math.min(wanted, entries.size()));
+    for (int i = 0; i < entries.size() && result.size() < wanted; i++) {
+      result.add(entries.get(i).response);
+    }
+    return result;
+  }
+
+  private int slot(long sequence) {
+    return (int) (sequence % capacity);
+  }
+
+  private static String categoryKey(String category) {
+    if (category == null || category.trim().isEmpty()) {
+      return null;
+    }
+    return category.trim().toLowerCase(Locale.ROOT);
+  }
+}
@@ -0,0 +1,73 @@
+package com.shopexperts.service;
+
+import com.shopexperts.repository.RewardAccountRepository;
+import java.security.SecureRandom;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * In-memory map from referral code to the owning user. Codes are persisted on the reward account
+ * under a unique index; this map is loaded from them at startup and extended as new codes are
+ * committed, so redeeming a code is a single hash lookup.
+ */
+@Service
+public class ReferralCodeRegistry {
+
+  @Autowired private RewardAccountRepository rewardAccountRepository;
+
+  private static final String PREFIX = "REF";
+  private static final String CHARACTERS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+  private static final int RANDOM_LENGTH = 6;
+
+  private final SecureRandom random = new SecureRandom();
+  private final Map<String, Long> userIdsByCode = new ConcurrentHashMap<>();
+
+  @EventListener(ApplicationReadyEvent.class)
+  @Transactional(readOnly = true)
+  public void load() {
+    userIdsByCode.clear();
+    try (Stream<Object[]> rows = rewardAccountRepository.streamReferralCodes()) {
+      rows.forEach(row -> userIdsByCode.put(normalize((String) row[0]), (Long) row[1]));
+    }
+  }
+
+  /** A random code not held by any known account; the unique index settles any remaining race. */
+  public String newCode() {
+    while (true) {
+      StringBuilder code = new StringBuilder(PREFIX);
+      for (int i = 0; i < RANDOM_LENGTH; i++) {
+        code.append(CHARACTERS.charAt(random.nextInt(CHARACTERS.length())));
+      }
+      if (!userIdsByCode.containsKey(code.toString())) {
+        return code.toString();
+      }
+    }
+  }
+
+  public void register(String code, Long userId) {
+    userIdsByCode.put(normalize(code), userId);
+  }
+
+  /** The user who owns {@code code}, or null if no account has it. */
+  public Long lookup(String code) {
+    if (code == null || code.trim().isEmpty()) {
+      return null;
+    }
+    return userIdsByCode.get(normalize(code));
+  }
+
+  public int size() {
+    return userIdsByCode.size();
+  }
+
+  private static String normalize(String code) {
+    return code.trim().toUpperCase(Locale.ROOT);
+  }
+}
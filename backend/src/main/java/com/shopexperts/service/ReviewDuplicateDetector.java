@@ -0,0 +1,200 @@
+package com.shopexperts.service;
+
+import com.shopexperts.repository.ReviewRepository;
+import com.shopexperts.util.TextAnalyzer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+/**
+ * Flags review comments that nearly repeat a recent comment from another account. Each comment is
+ * reduced to a MinHash signature over its word unigrams and bigrams; the signature is split into
+ * bands and filed under one bucket per band, so similar comments collide in at least one bucket
+ * with high probability. A lookup only compares against the few recent signatures in its own
+ * buckets.
+ *
+ * <p>MinHash is used rather than SimHash because review comments are short: changing one word moves
+ * a 64-bit SimHash by 6-10 bits, beyond what banding can guarantee, while the Jaccard estimate of a
+ * MinHash stays stable.
+ */
+@Service
+public class ReviewDuplicateDetector {
+
+  @Autowired private ReviewRepository reviewRepository;
+
+  @Value("${app.reviews.duplicates.capacity:50000}")
+  private int capacity;
+
+  @Value("${app.reviews.duplicates.min-similarity:0.7}")
+  private double minSimilarity;
+
+  @Value("${app.reviews.duplicates.min-terms:5}")
+  private int minTerms;
+
+  @Value("${app.reviews.duplicates.bucket-size:16}")
+  private int bucketSize;
+
+  private static final int BANDS = 8;
+  private static final int ROWS = 4;
+  private static final int HASHES = BANDS * ROWS;
+
+  private static final class Signature {
+    final int[] minHashes;
+    final Long reviewerId;
+
+    Signature(int[] minHashes, Long reviewerId) {
+      this.minHashes = minHashes;
+      this.reviewerId = reviewerId;
+    }
+  }
+
+  // Guarded by "this". Buckets are keyed by band index and the hash of that band's rows.
+  private final Map<Long, Deque<Signature>> buckets = new HashMap<>();
+  private final Deque<Signature> recent = new ArrayDeque<>();
+
+  /** Seeds the table with the most recent comments so detection survives a restart. */
+  @EventListener(ApplicationReadyEvent.class)
+  public void warmUp() {
+    List<Object[]> rows = reviewRepository.findRecentComments(PageRequest.of(0, capacity));
+    synchronized (this) {
+      buckets.clear();
+      recent.clear();
+      for (int i = rows.size() - 1; i >= 0; i--) {
+        Object[] row = rows.get(i);
+        int[] minHashes = signature((String) row[1]);
+        if (minHashes != null) {
+          record(new Signature(minHashes, (Long) row[0]));
+        }
+      }
+    }
+  }
+
+  /**
+   * Records the comment and returns true if it is a near-duplicate of a recent comment written by a
+   * different reviewer. Comments too short to fingerprint reliably are never flagged.
+   */
+  public boolean checkAndRecord(Long reviewerId, String comment) {
+    int[] minHashes = signature(comment);
+    if (minHashes == null) {
+      return false;
+    }
+    int required = (int) Math.ceil(minSimilarity * HASHES);
+    synchronized (this) {
+      boolean duplicate = false;
+      for (int band = 0; band < BANDS && !duplicate; band++) {
+        Deque<Signature> bucket = buckets.get(bucketKey(minHashes, band));
+        if (bucket == null) {
+          continue;
+        }
+        for (Signature other : bucket) {
+          if (!other.reviewerId.equals(reviewerId)
+              && matchingHashes(other.minHashes, minHashes) >= required) {
+            duplicate = true;
+            break;
+          }
+        }
+      }
+      record(new Signature(minHashes, reviewerId));
+      return duplicate;
+    }
+  }
+
+  // Caller holds the monitor
+  private void record(Signature signature) {
+    for (int band = 0; band < BANDS; band++) {
+      Deque<Signature> bucket =
+          buckets.computeIfAbsent(bucketKey(signature.minHashes, band), key -> new ArrayDeque<>());
+      if (bucket.size() >= bucketSize) {
+        bucket.pollFirst();
+      }
+      bucket.addLast(signature);
+    }
+    recent.addLast(signature);
+    if (recent.size() > capacity) {
+      Signature oldest = recent.pollFirst();
+      for (int band = 0; band < BANDS; band++) {
+        long key = bucketKey(oldest.minHashes, band);
+        Deque<Signature> bucket = buckets.get(key);
+        if (bucket != null && bucket.removeFirstOccurrence(oldest) && bucket.isEmpty()) {
+          buckets.remove(key);
+        }
+      }
+    }
+  }
+
+  /** MinHash over word unigrams and bigrams, or null if the comment is too short. */
+  int[] signature(String comment) {
+    List<String> terms = TextAnalyzer.analyze(comment);
+    if (terms.size() < minTerms) {
+      return null;
+    }
+    int[] minHashes = new int[HASHES];
+    Arrays.fill(minHashes, Integer.MAX_VALUE);
+    for (int i = 0; i < terms.size(); i++) {
+      addFeature(minHashes, hash(terms.get(i)));
+      if (i > 0) {
+        addFeature(minHashes, hash(terms.get(i - 1) + ' ' + terms.get(i)));
+      }
+    }
+    return minHashes;
+  }
+
+  // The k-th hash function is derived from two halves of one 64-bit hash (h1 + k * h2)
+  private static void addFeature(int[] minHashes, long featureHash) {
+    int h1 = (int) featureHash;
+    int h2 = (int) (featureHash >>> 32);
+    for (int k = 0; k < HASHES; k++) {
+      int value = h1 + k * h2;
+      if (value < minHashes[k]) {
+        minHashes[k] = value;
+      }
+    }
+  }
+
+  private static int matchingHashes(int[] a, int[] b) {
+    int matching = 0;
+    for (int k = 0; k < HASHES; k++) {
+      if (a[k] == b[k]) {
+        matching++;
+      }
+    }
+    return matching;
+  }
+
+  // FNV-1a followed by the MurmurHash3 finalizer so every input bit affects every output bit
+  private static long hash(String feature) {
+    long h = 0xcbf29ce484222325L;
+    for (byte b : feature.getBytes(StandardCharsets.UTF_8)) {
+      h ^= b;
+      h *= 0x100000001b3L;
+    }
+    return mix(h);
+  }
+
+  private static long mix(long h) {
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+
+  private static long bucketKey(int[] minHashes, int band) {
+    long key = band;
+    for (int row = band * ROWS; row < (band + 1) * ROWS; row++) {
+      key = mix(key * 31 + minHashes[row]);
+    }
+    return key;
+  }
+}
@@ -0,0 +1,225 @@
+package com.shopexperts.service;
+
+import com.shopexperts.repository.ReviewHelpfulVoteRepository;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Absorbs helpful votes in memory and writes them out in periodic batches, so a viral review costs
+ * one UPDATE per flush instead of one row lock per vote.
+ *
+ * <p>A flush writes every pending vote in one transaction. If that fails, each review's votes are
+ * retried in a transaction of their own, and the votes of a review that still fails one at a time;
+ * a vote that fails even alone is logged and dropped. Only when not a single vote can be written do
+ * the votes stay pending for the next flush.
+ */
+@Service
+public class ReviewHelpfulVoteService {
+
+  private static final Logger logger = LoggerFactory.getLogger(ReviewHelpfulVoteService.class);
+
+  @Autowired private ReviewHelpfulVoteRepository reviewHelpfulVoteRepository;
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @Autowired private TransactionTemplate transactionTemplate;
+
+  private static final String INSERT_VOTE_SQL =
+      "INSERT INTO review_helpful_votes (review_id, user_id, created_at) "
+          + "SELECT ?, ?, ? FROM reviews WHERE id = ?";
+
+  private static final String UPDATE_COUNTER_SQL =
+      "UPDATE reviews SET helpful_votes = COALESCE(helpful_votes, 0) + ? WHERE id = ?";
+
+  private static final class VoteKey {
+    final long reviewId;
+    final long userId;
+
+    VoteKey(long reviewId, long userId) {
+      this.reviewId = reviewId;
+      this.userId = userId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof VoteKey)) {
+        return false;
+      }
+      VoteKey other = (VoteKey) o;
+      return reviewId == other.reviewId && userId == other.userId;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(reviewId, userId);
+    }
+  }
+
+  // Votes not yet written, and votes written by the previous flush. Keeping the latter for one
+  // more cycle closes the gap between a flush committing and the key leaving the pending set.
+  private final Set<VoteKey> pendingVotes = ConcurrentHashMap.newKeySet();
+  private volatile Set<VoteKey> recentlyFlushed = new HashSet<>();
+
+  private final ConcurrentHashMap<Long, LongAdder> pendingCounts = new ConcurrentHashMap<>();
+  private final ReadWriteLock countsLock = new ReentrantReadWriteLock();
+
+  /** Records one vote; returns false if this user already voted for the review. */
+  public boolean vote(Long reviewId, Long userId) {
+    VoteKey key = new VoteKey(reviewId, userId);
+    if (pendingVotes.contains(key)
+        || recentlyFlushed.contains(key)
+        || reviewHelpfulVoteRepository.existsByReviewIdAndUserId(reviewId, userId)) {
+      return false;
+    }
+
+    // The key and its count are published together: flush() subtracts under the write lock, so it
+    // never sees a key whose count has not been added yet.
+    countsLock.readLock().lock();
+    try {
+      if (!pendingVotes.add(key)) {
+        return false;
+      }
+      pendingCounts.computeIfAbsent(reviewId, id -> new LongAdder()).increment();
+    } finally {
+      countsLock.readLock().unlock();
+    }
+    return true;
+  }
+
+  /** Votes accepted for the review but not yet reflected in {@code helpful_votes}. */
+  public long getPendingVotes(Long reviewId) {
+    LongAdder adder = pendingCounts.get(reviewId);
+    return adder != null ? adder.sum() : 0L;
+  }
+
+  /** Drops pending and stored votes of a review that is about to be deleted. */
+  public synchronized void discardReview(Long reviewId) {
+    pendingVotes.removeIf(key -> key.reviewId == reviewId);
+    pendingCounts.remove(reviewId);
+    reviewHelpfulVoteRepository.deleteByReviewId(reviewId);
+  }
+
+  @Scheduled(fixedDelayString = "${app.reviews.helpful-votes.flush-interval-ms:5000}")
+  @PreDestroy
+  public synchronized int flush() {
+    List<VoteKey> batch = new ArrayList<>(pendingVotes);
+    if (batch.isEmpty()) {
+      recentlyFlushed = new HashSet<>();
+      return 0;
+    }
+
+    Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+    try {
+      write(batch, now);
+    } catch (RuntimeException e) {
+      writeEachReview(batch, now, e);
+    }
+
+    recentlyFlushed = new HashSet<>(batch);
+    pendingVotes.removeAll(batch);
+
+    Map<Long, Integer> votesByReview = new HashMap<>();
+    batch.forEach(key -> votesByReview.merge(key.reviewId, 1, Integer::sum));
+    countsLock.writeLock().lock();
+    try {
+      votesByReview.forEach(
+          (reviewId, votes) -> {
+            LongAdder adder = pendingCounts.get(reviewId);
+            if (adder == null) {
+              return;
+            }
+            adder.add(-votes);
+            if (adder.sum() <= 0) {
+              pendingCounts.remove(reviewId);
+            }
+          });
+    } finally {
+      countsLock.writeLock().unlock();
+    }
+    return batch.size();
+  }
+
+  // The INSERT ... SELECT skips votes whose review was deleted while they were pending.
+  private void write(List<VoteKey> votes, Timestamp now) {
+    Map<Long, Integer> votesByReview = new HashMap<>();
+    List<Object[]> voteRows = new ArrayList<>(votes.size());
+    for (VoteKey key : votes) {
+      votesByReview.merge(key.reviewId, 1, Integer::sum);
+      voteRows.add(new Object[] {key.reviewId, key.userId, now, key.reviewId});
+    }
+    List<Object[]> counterRows = new ArrayList<>(votesByReview.size());
+    votesByReview.forEach((reviewId, count) -> counterRows.add(new Object[] {count, reviewId}));
+
+    transactionTemplate.execute(
+        status -> {
+          jdbcTemplate.batchUpdate(INSERT_VOTE_SQL, voteRows);
+          jdbcTemplate.batchUpdate(UPDATE_COUNTER_SQL, counterRows);
+          return null;
+        });
+  }
+
+  // Rethrows batchError, leaving the votes pending, when not a single vote could be written
+  private void writeEachReview(List<VoteKey> batch, Timestamp now, RuntimeException batchError) {
+    Map<Long, List<VoteKey>> byReview = new LinkedHashMap<>();
+    for (VoteKey key : batch) {
+      byReview.computeIfAbsent(key.reviewId, id -> new ArrayList<>()).add(key);
+    }
+    List<VoteKey> retryAlone = new ArrayList<>();
+    byReview.forEach(
+        (reviewId, votes) -> {
+          try {
+            write(votes, now);
+          } catch (RuntimeException e) {
+            retryAlone.addAll(votes);
+          }
+        });
+    Map<VoteKey, String> failed = new LinkedHashMap<>();
+    for (VoteKey key : retryAlone) {
+      try {
+        transactionTemplate.execute(
+            status -> {
+              if (jdbcTemplate.update(INSERT_VOTE_SQL, key.reviewId, key.userId, now, key.reviewId)
+                  > 0) {
+                jdbcTemplate.update(UPDATE_COUNTER_SQL, 1, key.reviewId);
+              }
+              return null;
+            });
+      } catch (RuntimeException e) {
+        failed.put(key, e.getMessage());
+      }
+    }
+    if (failed.size() == batch.size()) {
+      throw batchError;
+    }
+    failed.forEach(
+        (key, error) ->
+            logger.warn(
+                "Dropping helpful vote of user {} for review {}: {}",
+                key.userId,
+                key.reviewId,
+                error));
+  }
+}
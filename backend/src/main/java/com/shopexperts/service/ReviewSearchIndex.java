@@ -0,0 +1,460 @@
+package com.shopexperts.service;
+
+import com.shopexperts.repository.ReviewRepository;
+import com.shopexperts.util.TextAnalyzer;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import javax.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * In-memory inverted index over review comments, ranked with BM25. Changes are applied immediately
+ * and appended to disk as small segment files; segments are replayed at startup and compacted into
+ * a single snapshot once there are too many of them.
+ *
+ * <p>Each segment records when the changes it holds were taken. Changes made after the last segment
+ * are lost by a crash, so at startup every review updated since then (less a margin for
+ * transactions that committed late) is re-read from the database. Lost deletions show up as more
+ * indexed reviews than stored ones, which triggers a full rebuild.
+ */
+@Service
+public class ReviewSearchIndex {
+
+  @Autowired private ReviewRepository reviewRepository;
+
+  @Value("${app.reviews.search.index-dir:data/review-index}")
+  private String indexDir;
+
+  @Value("${app.reviews.search.max-segments:8}")
+  private int maxSegments;
+
+  @Value("${app.reviews.search.k1:1.2}")
+  private double k1;
+
+  @Value("${app.reviews.search.b:0.75}")
+  private double b;
+
+  private static final int SEGMENT_MAGIC = 0x52535832;
+  private static final String SEGMENT_PREFIX = "segment-";
+  private static final String SEGMENT_SUFFIX = ".seg";
+  private static final int REBUILD_CHUNK_SIZE = 1000;
+  // How long before a segment was written a change may have been stored yet reach the index after
+  // it
+  private static final long CATCH_UP_MARGIN_MINUTES = 5;
+
+  /** A matching review and its BM25 score. */
+  public static final class Hit {
+    private final Long reviewId;
+    private final double score;
+
+    Hit(Long reviewId, double score) {
+      this.reviewId = reviewId;
+      this.score = score;
+    }
+
+    public Long getReviewId() {
+      return reviewId;
+    }
+
+    public double getScore() {
+      return score;
+    }
+  }
+
+  private static final class Document {
+    final long talentId;
+    final Map<String, Integer> termFrequencies;
+    final int length;
+
+    Document(long talentId, Map<String, Integer> termFrequencies) {
+      this.talentId = talentId;
+      this.termFrequencies = termFrequencies;
+      this.length = termFrequencies.values().stream().mapToInt(Integer::intValue).sum();
+    }
+  }
+
+  // Guarded by lock. A null value in unsaved marks a deletion not yet written to a segment.
+  private final Map<Long, Document> documents = new HashMap<>();
+  private final Map<String, Map<Long, Integer>> postings = new HashMap<>();
+  private final Map<Long, Document> unsaved = new LinkedHashMap<>();
+  private long totalLength;
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  // Guarded by "this"
+  private long nextGeneration = 1;
+
+  public void index(Long reviewId, Long talentId, String comment) {
+    Document document = analyze(talentId, comment);
+    lock.writeLock().lock();
+    try {
+      apply(reviewId, document);
+      unsaved.put(reviewId, document);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public void remove(Long reviewId) {
+    lock.writeLock().lock();
+    try {
+      apply(reviewId, null);
+      unsaved.put(reviewId, null);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /** Best {@code limit} matches for {@code query}, optionally restricted to one talent. */
+  public List<Hit> search(String query, Long talentId, int limit) {
+    List<String> terms = new ArrayList<>(new LinkedHashSet<>(TextAnalyzer.analyze(query)));
+    if (terms.isEmpty() || limit <= 0) {
+      return new ArrayList<>();
+    }
+
+    Map<Long, Double> scores = new HashMap<>();
+    lock.readLock().lock();
+    try {
+      int documentCount = documents.size();
+      if (documentCount == 0) {
+        return new ArrayList<>();
+      }
+      double averageLength = (double) totalLength / documentCount;
+      for (String term : terms) {
+        Map<Long, Integer> posting = postings.get(term);
+        if (posting == null) {
+          continue;
+        }
+        int df = posting.size();
+        double idf = Math.log(1 + (documentCount - df + 0.5) / (df + 0.5));
+        for (Map.Entry<Long, Integer> entry : posting.entrySet()) {
+          Document document = documents.get(entry.getKey());
+          if (talentId != null && document.talentId != talentId) {
+            continue;
+          }
+          double tf = entry.getValue();
+          double norm = k1 * (1 - b + b * document.length / averageLength);
+          scores.merge(entry.getKey(), idf * tf * (k1 + 1) / (tf + norm), Double::sum);
+        }
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+
+    // Min-heap of the best hits so far; on equal scores the older (lower id) review wins.
+    Comparator<Hit> byRelevance =
+        Comparator.comparingDouble(Hit::getScore)
+            .thenComparing(Hit::getReviewId, Comparator.reverseOrder());
+    PriorityQueue<Hit> best = new PriorityQueue<>(limit + 1, byRelevance);
+    scores.forEach(
+        (reviewId, score) -> {
+          best.add(new Hit(reviewId, score));
+          if (best.size() > limit) {
+            best.poll();
+          }
+        });
+    List<Hit> hits = new ArrayList<>(best);
+    hits.sort(byRelevance.reversed());
+    return hits;
+  }
+
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return documents.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Replays the on-disk segments at startup and re-reads reviews updated since the last of them.
+   * Falls back to a full rebuild when there are none, they cannot be read, or they no longer match
+   * the reviews in the database.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public synchronized void load() {
+    List<Path> segments = segmentFiles();
+    if (!segments.isEmpty()) {
+      nextGeneration = generationOf(segments.get(segments.size() - 1)) + 1;
+      try {
+        Map<Long, Document> replayed = new HashMap<>();
+        LocalDateTime takenAt = null;
+        for (Path segment : segments) {
+          takenAt = readSegment(segment, replayed);
+        }
+        Map<Long, Document> caughtUp = new HashMap<>();
+        for (Object[] row :
+            reviewRepository.findSearchDocumentsUpdatedSince(
+                takenAt.minusMinutes(CATCH_UP_MARGIN_MINUTES))) {
+          caughtUp.put((Long) row[0], analyze((Long) row[1], (String) row[2]));
+        }
+        replayed.putAll(caughtUp);
+        install(replayed);
+        if (matchesDatabase()) {
+          lock.writeLock().lock();
+          try {
+            unsaved.putAll(caughtUp);
+          } finally {
+            lock.writeLock().unlock();
+          }
+          return;
+        }
+      } catch (IOException e) {
+        // Unreadable segment; rebuilt from the database below
+      }
+    }
+    rebuild();
+  }
+
+  /** Re-indexes every review from the database and replaces the segments with one snapshot. */
+  public synchronized void rebuild() {
+    LocalDateTime startedAt = LocalDateTime.now();
+    Map<Long, Document> fresh = new HashMap<>();
+    long afterId = 0L;
+    while (true) {
+      List<Object[]> rows =
+          reviewRepository.findSearchDocuments(afterId, PageRequest.of(0, REBUILD_CHUNK_SIZE));
+      for (Object[] row : rows) {
+        fresh.put((Long) row[0], analyze((Long) row[1], (String) row[2]));
+      }
+      if (rows.size() < REBUILD_CHUNK_SIZE) {
+        break;
+      }
+      afterId = (Long) rows.get(rows.size() - 1)[0];
+    }
+    install(fresh);
+    try {
+      compact(startedAt);
+    } catch (UncheckedIOException e) {
+      // The in-memory index is complete; without a snapshot the next startup rebuilds again
+    }
+  }
+
+  /** Appends changes made since the last flush as a new segment. */
+  @Scheduled(fixedDelayString = "${app.reviews.search.flush-interval-ms:10000}")
+  @PreDestroy
+  public synchronized void flush() {
+    Map<Long, Document> changes;
+    LocalDateTime takenAt;
+    lock.writeLock().lock();
+    try {
+      if (unsaved.isEmpty()) {
+        return;
+      }
+      takenAt = LocalDateTime.now();
+      changes = new LinkedHashMap<>(unsaved);
+      unsaved.clear();
+    } finally {
+      lock.writeLock().unlock();
+    }
+
+    try {
+      writeSegment(nextGeneration++, takenAt, changes);
+    } catch (IOException e) {
+      lock.writeLock().lock();
+      try {
+        changes.forEach(unsaved::putIfAbsent);
+      } finally {
+        lock.writeLock().unlock();
+      }
+      throw new UncheckedIOException("Failed to write review search segment", e);
+    }
+    if (segmentFiles().size() > maxSegments) {
+      compact(takenAt);
+    }
+  }
+
+  /**
+   * Writes the whole index as one segment and drops the segments it supersedes. {@code takenAt} is
+   * a time by which every change the index holds had been applied to it.
+   */
+  private void compact(LocalDateTime takenAt) {
+    Map<Long, Document> snapshot;
+    lock.readLock().lock();
+    try {
+      snapshot = new HashMap<>(documents);
+    } finally {
+      lock.readLock().unlock();
+    }
+
+    long generation = nextGeneration++;
+    try {
+      writeSegment(generation, takenAt, snapshot);
+      for (Path segment : segmentFiles()) {
+        if (generationOf(segment) < generation) {
+          Files.deleteIfExists(segment);
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to compact review search segments", e);
+    }
+  }
+
+  private boolean matchesDatabase() {
+    Long maxIndexedId;
+    int indexed;
+    lock.readLock().lock();
+    try {
+      indexed = documents.size();
+      maxIndexedId = documents.isEmpty() ? null : Collections.max(documents.keySet());
+    } finally {
+      lock.readLock().unlock();
+    }
+    return indexed == reviewRepository.count()
+        && Objects.equals(maxIndexedId, reviewRepository.findMaxId());
+  }
+
+  private void install(Map<Long, Document> fresh) {
+    lock.writeLock().lock();
+    try {
+      documents.clear();
+      postings.clear();
+      unsaved.clear();
+      totalLength = 0;
+      fresh.forEach(this::apply);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  // Caller holds the write lock
+  private void apply(Long reviewId, Document document) {
+    Document previous =
+        document == null ? documents.remove(reviewId) : documents.put(reviewId, document);
+    if (previous != null) {
+      for (String term : previous.termFrequencies.keySet()) {
+        Map<Long, Integer> posting = postings.get(term);
+        posting.remove(reviewId);
+        if (posting.isEmpty()) {
+          postings.remove(term);
+        }
+      }
+      totalLength -= previous.length;
+    }
+    if (document != null) {
+      document.termFrequencies.forEach(
+          (term, tf) -> postings.computeIfAbsent(term, key -> new HashMap<>()).put(reviewId, tf));
+      totalLength += document.length;
+    }
+  }
+
+  private static Document analyze(Long talentId, String comment) {
+    Map<String, Integer> termFrequencies = new HashMap<>();
+    for (String term : TextAnalyzer.analyze(comment)) {
+      termFrequencies.merge(term, 1, Integer::sum);
+    }
+    return new Document(talentId, termFrequencies);
+  }
+
+  private List<Path> segmentFiles() {
+    Path directory = Paths.get(indexDir);
+    List<Path> segments = new ArrayList<>();
+    if (!Files.isDirectory(directory)) {
+      return segments;
+    }
+    try (DirectoryStream<Path> stream =
+        Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+      stream.forEach(segments::add);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to list review search segments", e);
+    }
+    segments.sort(Comparator.comparingLong(ReviewSearchIndex::generationOf));
+    return segments;
+  }
+
+  private static long generationOf(Path segment) {
+    String name = segment.getFileName().toString();
+    return Long.parseLong(
+        name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+  }
+
+  // Written to a temporary file and moved into place, so readers never see a partial segment.
+  private void writeSegment(long generation, LocalDateTime takenAt, Map<Long, Document> entries)
+      throws IOException {
+    Path directory = Files.createDirectories(Paths.get(indexDir));
+    String name = String.format("%s%012d%s", SEGMENT_PREFIX, generation, SEGMENT_SUFFIX);
+    Path temporary = directory.resolve(name + ".tmp");
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+      out.writeInt(SEGMENT_MAGIC);
+      out.writeLong(Timestamp.valueOf(takenAt).getTime());
+      out.writeInt(entries.size());
+      for (Map.Entry<Long, Document> entry : entries.entrySet()) {
+        Document document = entry.getValue();
+        out.writeLong(entry.getKey());
+        out.writeBoolean(document != null);
+        if (document == null) {
+          continue;
+        }
+        out.writeLong(document.talentId);
+        out.writeInt(document.termFrequencies.size());
+        for (Map.Entry<String, Integer> term : document.termFrequencies.entrySet()) {
+          out.writeUTF(term.getKey());
+          out.writeInt(term.getValue());
+        }
+      }
+    }
+    Files.move(
+        temporary,
+        directory.resolve(name),
+        StandardCopyOption.ATOMIC_MOVE,
+        StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  // Returns when the segment's changes were taken
+  private static LocalDateTime readSegment(Path segment, Map<Long, Document> into)
+      throws IOException {
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(segment)))) {
+      if (in.readInt() != SEGMENT_MAGIC) {
+        throw new IOException("Not a review search segment: " + segment);
+      }
+      LocalDateTime takenAt = new Timestamp(in.readLong()).toLocalDateTime();
+      int count = in.readInt();
+      for (int i = 0; i < count; i++) {
+        long reviewId = in.readLong();
+        if (!in.readBoolean()) {
+          into.remove(reviewId);
+          continue;
+        }
+        long talentId = in.readLong();
+        int termCount = in.readInt();
+        Map<String, Integer> termFrequencies = new HashMap<>(termCount * 2);
+        for (int t = 0; t < termCount; t++) {
+          termFrequencies.put(in.readUTF(), in.readInt());
+        }
+        into.put(reviewId, new Document(talentId, termFrequencies));
+      }
+      return takenAt;
+    }
+  }
+}
@@ -2,18 +2,31 @@ package com.shopexperts.service;
 
 import com.shopexperts.model.Review;
 import com.shopexperts.model.User;
+import com.shopexperts.payload.CursorPage;
 import com.shopexperts.payload.ReviewRequest;
 import com.shopexperts.payload.ReviewResponse;
 import com.shopexperts.repository.ReviewRepository;
 import com.shopexperts.repository.UserRepository;
+import com.shopexperts.util.TransactionCallbacks;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.stream.Collectors;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
 @Transactional
@@ -23,6 +36,20 @@ public class ReviewService {
 
   @Autowired private UserRepository userRepository;
 
+  @Autowired private TalentLeaderboardService talentLeaderboardService;
+
+  @Autowired private ReviewHelpfulVoteService reviewHelpfulVoteService;
+
+  @Autowired private ReviewSearchIndex reviewSearchIndex;
+
+  @Autowired private RecentReviewFeed recentReviewFeed;
+
+  @Autowired private ReviewDuplicateDetector reviewDuplicateDetector;
+
+  @Autowired private TransactionTemplate transactionTemplate;
+
+  private static final int MODERATION_CHUNK_SIZE = 1000;
+
   public ReviewResponse createReview(ReviewRequest reviewRequest, Long reviewerId) {
     User reviewer =
         userRepository
@@ -42,8 +69,20 @@ public class ReviewService {
     review.setCreatedAt(LocalDateTime.now());
     review.setUpdatedAt(LocalDateTime.now());
 
+    // Near-copies of another account's recent review wait in the moderation queue
+    if (reviewDuplicateDetector.checkAndRecord(reviewerId, reviewRequest.getComment())) {
+      review.setApproved(false);
+    }
+
     review = reviewRepository.save(review);
-    return convertToResponse(review);
+    ReviewResponse response = convertToResponse(review);
+    if (Boolean.TRUE.equals(review.getApproved())) {
+      publishRatingChange(review, 1, review.getRating());
+      String category = categoryOf(review.getTalent());
+      TransactionCallbacks.afterCommit(() -> recentReviewFeed.append(response, category));
+    }
+    publishSearchUpdate(review);
+    return response;
   }
 
   public Page<ReviewResponse> getExpertReviews(Long expertId, Pageable pageable) {
@@ -65,8 +104,74 @@ public class ReviewService {
   }
 
   public List<ReviewResponse> getRecentReviews(int limit) {
-    List<Review> reviews = reviewRepository.findTop10ByOrderByCreatedAtDesc();
-    return reviews.stream().limit(limit).map(this::convertToResponse).collect(Collectors.toList());
+    return getRecentReviews(limit, null);
+  }
+
+  /**
+   * Served from the in-memory feed. When the feed cannot fill the request, as for a quiet category
+   * or after deletions, one page is read from the database in the same order instead.
+   */
+  @Transactional(propagation = Propagation.SUPPORTS)
+  public List<ReviewResponse> getRecentReviews(int limit, String category) {
+    List<ReviewResponse> recent = recentReviewFeed.snapshot(limit, category);
+    int wanted = Math.max(0, Math.min(limit, recentReviewFeed.getCapacity()));
+    if (recent.size() >= wanted || recentReviewFeed.holdsEveryReview()) {
+      return recent;
+    }
+    Pageable page = PageRequest.of(0, wanted);
+    return transactionTemplate.execute(
+        status -> {
+          List<Review> reviews =
+              category == null || category.trim().isEmpty()
+                  ? reviewRepository.findByApprovedTrueOrderByCreatedAtDescIdDesc(page)
+                  : reviewRepository.findApprovedInCategory(
+                      category.trim().toLowerCase(Locale.ROOT), page);
+          return reviews.stream().map(this::convertToResponse).collect(Collectors.toList());
+        });
+  }
+
+  /** Loads the newest approved reviews into the recent feed once the application is up. */
+  @EventListener(ApplicationReadyEvent.class)
+  @Transactional(readOnly = true)
+  public void warmRecentReviews() {
+    int capacity = recentReviewFeed.getCapacity();
+    // One more than fits, to tell the feed the newest review it is missing
+    List<Review> reviews =
+        reviewRepository.findByApprovedTrueOrderByCreatedAtDescIdDesc(
+            PageRequest.of(0, capacity + 1));
+    recentReviewFeed.clear();
+    if (reviews.size() > capacity) {
+      Review missing = reviews.get(capacity);
+      recentReviewFeed.markMissing(missing.getId(), missing.getCreatedAt());
+    }
+    for (int i = Math.min(reviews.size(), capacity) - 1; i >= 0; i--) {
+      Review review = reviews.get(i);
+      recentReviewFeed.append(convertToResponse(review), categoryOf(review.getTalent()));
+    }
+  }
+
+  /**
+   * Full-text search over review comments, best match first. Hits on reviews that are not approved
+   * are skipped, so a few extra are requested from the index to keep the page filled.
+   */
+  @Transactional(readOnly = true)
+  public List<ReviewResponse> searchReviews(String query, Long expertId, int limit) {
+    List<Long> ids =
+        reviewSearchIndex.search(query, expertId, limit * 2).stream()
+            .map(ReviewSearchIndex.Hit::getReviewId)
+            .collect(Collectors.toList());
+    if (ids.isEmpty()) {
+      return new ArrayList<>();
+    }
+    Map<Long, Review> reviews =
+        reviewRepository.findByIdIn(ids).stream()
+            .collect(Collectors.toMap(Review::getId, review -> review));
+    return ids.stream()
+        .map(reviews::get)
+        .filter(review -> review != null && Boolean.TRUE.equals(review.getApproved()))
+        .limit(limit)
+        .map(this::convertToResponse)
+        .collect(Collectors.toList());
   }
 
   public ReviewResponse updateReview(Long reviewId, ReviewRequest reviewRequest, Long reviewerId) {
@@ -79,12 +184,22 @@ public class ReviewService {
       throw new RuntimeException("You can only update your own reviews");
     }
 
+    int previousRating = review.getRating() != null ? review.getRating() : 0;
     review.setRating(reviewRequest.getRating());
     review.setComment(reviewRequest.getComment());
     review.setUpdatedAt(LocalDateTime.now());
 
     review = reviewRepository.save(review);
-    return convertToResponse(review);
+    ReviewResponse response = convertToResponse(review);
+    if (Boolean.TRUE.equals(review.getApproved())) {
+      if (review.getRating() != previousRating) {
+        publishRatingChange(review, 0, review.getRating() - previousRating);
+      }
+      String category = categoryOf(review.getTalent());
+      TransactionCallbacks.afterCommit(() -> recentReviewFeed.replace(response, category));
+    }
+    publishSearchUpdate(review);
+    return response;
   }
 
   public void deleteReview(Long reviewId, Long reviewerId) {
@@ -97,7 +212,134 @@ public class ReviewService {
       throw new RuntimeException("You can only delete your own reviews");
     }
 
+    reviewHelpfulVoteService.discardReview(reviewId);
     reviewRepository.delete(review);
+    if (Boolean.TRUE.equals(review.getApproved())) {
+      publishRatingChange(review, -1, -review.getRating());
+    }
+    TransactionCallbacks.afterCommit(
+        () -> {
+          reviewSearchIndex.remove(reviewId);
+          recentReviewFeed.evict(reviewId);
+        });
+  }
+
+  public long markReviewHelpful(Long reviewId, Long userId) {
+    Review review =
+        reviewRepository
+            .findById(reviewId)
+            .orElseThrow(() -> new RuntimeException("Review not found"));
+
+    if (review.getReviewer().getId().equals(userId)) {
+      throw new RuntimeException("You cannot mark your own review as helpful");
+    }
+
+    if (!reviewHelpfulVoteService.vote(reviewId, userId)) {
+      throw new RuntimeException("You have already marked this review as helpful");
+    }
+
+    return getHelpfulCount(review);
+  }
+
+  public CursorPage<ReviewResponse> getModerationQueue(Long afterId, int limit) {
+    List<Review> reviews =
+        reviewRepository.findModerationQueue(
+            afterId != null ? afterId : 0L, PageRequest.of(0, limit + 1));
+    boolean hasMore = reviews.size() > limit;
+    if (hasMore) {
+      reviews = reviews.subList(0, limit);
+    }
+    Long nextCursor = reviews.isEmpty() ? null : reviews.get(reviews.size() - 1).getId();
+    return new CursorPage<>(
+        reviews.stream().map(this::convertToResponse).collect(Collectors.toList()),
+        nextCursor,
+        hasMore);
+  }
+
+  public int approveReviews(List<Long> reviewIds) {
+    return moderateReviews(reviewIds, true);
+  }
+
+  public int rejectReviews(List<Long> reviewIds) {
+    return moderateReviews(reviewIds, false);
+  }
+
+  /**
+   * Approves or rejects reviews with one set-based UPDATE per chunk of ids. Rating aggregates are
+   * collected per talent across the whole batch and pushed to the leaderboard once.
+   */
+  private int moderateReviews(List<Long> reviewIds, boolean approve) {
+    List<Long> ids = new ArrayList<>(new LinkedHashSet<>(reviewIds));
+    Map<Long, TalentLeaderboardService.RatingChange> changes = new LinkedHashMap<>();
+    List<Long> changedIds = new ArrayList<>();
+    LocalDateTime now = LocalDateTime.now();
+    int updated = 0;
+
+    for (int from = 0; from < ids.size(); from += MODERATION_CHUNK_SIZE) {
+      List<Long> chunk = ids.subList(from, Math.min(from + MODERATION_CHUNK_SIZE, ids.size()));
+      for (Object[] row : reviewRepository.findModerationSnapshots(chunk)) {
+        if (Boolean.TRUE.equals(row[6]) == approve) {
+          continue;
+        }
+        changedIds.add((Long) row[0]);
+        int sign = approve ? 1 : -1;
+        int rating = row[5] != null ? ((Number) row[5]).intValue() : 0;
+        changes
+            .computeIfAbsent(
+                (Long) row[1],
+                talentId ->
+                    new TalentLeaderboardService.RatingChange(
+                        talentId, row[2] + " " + row[3], (String) row[4], 0, 0))
+            .add(sign, sign * rating);
+      }
+      updated +=
+          approve
+              ? reviewRepository.approveAll(chunk, now)
+              : reviewRepository.rejectAll(chunk, now);
+    }
+
+    if (!changes.isEmpty()) {
+      Collection<TalentLeaderboardService.RatingChange> batch = changes.values();
+      TransactionCallbacks.afterCommit(() -> talentLeaderboardService.recordRatingChanges(batch));
+    }
+    publishModerationToFeed(ids, changedIds, approve);
+    return updated;
+  }
+
+  /**
+   * Newly approved reviews join the recent feed; only the newest that still fit in it are loaded,
+   * and the next newest is reported to it as missing. Rejected reviews are evicted.
+   */
+  private void publishModerationToFeed(List<Long> ids, List<Long> changedIds, boolean approve) {
+    if (!approve) {
+      TransactionCallbacks.afterCommit(() -> recentReviewFeed.evictAll(ids));
+      return;
+    }
+    if (changedIds.isEmpty()) {
+      return;
+    }
+    int capacity = recentReviewFeed.getCapacity();
+    List<Review> newest =
+        reviewRepository.findNewestByIdIn(changedIds, PageRequest.of(0, capacity + 1));
+    Review missing = newest.size() > capacity ? newest.get(capacity) : null;
+    List<ReviewResponse> responses = new ArrayList<>(capacity);
+    List<String> categories = new ArrayList<>(capacity);
+    for (int i = Math.min(newest.size(), capacity) - 1; i >= 0; i--) {
+      Review review = newest.get(i);
+      responses.add(convertToResponse(review));
+      categories.add(categoryOf(review.getTalent()));
+    }
+    Long missingId = missing != null ? missing.getId() : null;
+    LocalDateTime missingCreatedAt = missing != null ? missing.getCreatedAt() : null;
+    TransactionCallbacks.afterCommit(
+        () -> {
+          if (missingId != null) {
+            recentReviewFeed.markMissing(missingId, missingCreatedAt);
+          }
+          for (int i = 0; i < responses.size(); i++) {
+            recentReviewFeed.append(responses.get(i), categories.get(i));
+          }
+        });
   }
 
   public boolean hasUserReviewedExpert(Long reviewerId, Long expertId) {
@@ -142,6 +384,28 @@ public class ReviewService {
     return removed;
   }
 
+  private void publishRatingChange(Review review, int countDelta, int ratingDelta) {
+    User talent = review.getTalent();
+    Long talentId = talent.getId();
+    String talentName = talent.getName();
+    String category = categoryOf(talent);
+    TransactionCallbacks.afterCommit(
+        () ->
+            talentLeaderboardService.recordRatingChange(
+                talentId, talentName, category, countDelta, ratingDelta));
+  }
+
+  private static String categoryOf(User talent) {
+    return talent.getProfile() != null ? talent.getProfile().getBusinessCategory() : null;
+  }
+
+  private void publishSearchUpdate(Review review) {
+    Long reviewId = review.getId();
+    Long talentId = review.getTalent().getId();
+    String comment = review.getComment();
+    TransactionCallbacks.afterCommit(() -> reviewSearchIndex.index(reviewId, talentId, comment));
+  }
+
   private ReviewResponse convertToResponse(Review review) {
     ReviewResponse response =
         new ReviewResponse(
@@ -155,6 +419,8 @@ public class ReviewService {
             review.getCreatedAt(),
             review.getUpdatedAt());
 
+    response.setHelpfulCount((int) getHelpfulCount(review));
+
     // Set photo URLs
     if (review.getPhotoUrls() != null && !review.getPhotoUrls().isEmpty()) {
       response.setPhotoUrls(new java.util.ArrayList<>(review.getPhotoUrls()));
@@ -162,4 +428,9 @@ public class ReviewService {
 
     return response;
   }
+
+  private long getHelpfulCount(Review review) {
+    long stored = review.getHelpfulVotes() != null ? review.getHelpfulVotes() : 0;
+    return stored + reviewHelpfulVoteService.getPendingVotes(review.getId());
+  }
 }
@@ -0,0 +1,286 @@
+package com.shopexperts.service;
+
+import com.shopexperts.model.RewardCampaign;
+import com.shopexperts.model.RewardEventType;
+import com.shopexperts.payload.RewardCampaignRequest;
+import com.shopexperts.payload.RewardCampaignResponse;
+import com.shopexperts.repository.RewardCampaignRepository;
+import com.shopexperts.util.TransactionCallbacks;
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Decides how many points a reward event is worth. Active campaigns are compiled into an index
+ * keyed by event type and then category, so evaluating an event only looks at the few rules that
+ * can match it. The index is immutable and replaced whole whenever a campaign changes; events read
+ * whichever index is current without locking.
+ *
+ * <p>Campaigns never stack: the one giving the most points wins, and an event is never worth less
+ * than its base points.
+ */
+@Service
+public class RewardCampaignService {
+
+  @Autowired private RewardCampaignRepository rewardCampaignRepository;
+
+  @Value("${app.rewards.points.booking:10}")
+  private int bookingPoints;
+
+  @Value("${app.rewards.points.review:5}")
+  private int reviewPoints;
+
+  @Value("${app.rewards.points.referrer:50}")
+  private int referrerPoints;
+
+  @Value("${app.rewards.points.referred:25}")
+  private int referredPoints;
+
+  private static final int EVERY_DAY = (1 << 7) - 1;
+
+  /** Points for one event and, when a campaign raised them, that campaign's name. */
+  public static final class Decision {
+    private final int points;
+    private final String campaignName;
+
+    Decision(int points, String campaignName) {
+      this.points = points;
+      this.campaignName = campaignName;
+    }
+
+    public int getPoints() {
+      return points;
+    }
+
+    public String getCampaignName() {
+      return campaignName;
+    }
+  }
+
+  private static final class Rule {
+    final String name;
+    final double multiplier;
+    final int bonusPoints;
+    final LocalDateTime startsAt;
+    final LocalDateTime endsAt;
+    final int days;
+
+    Rule(RewardCampaign campaign) {
+      this.name = campaign.getName();
+      this.multiplier = campaign.getMultiplier() != null ? campaign.getMultiplier() : 1.0;
+      this.bonusPoints = campaign.getBonusPoints() != null ? campaign.getBonusPoints() : 0;
+      this.startsAt = campaign.getStartsAt();
+      this.endsAt = campaign.getEndsAt();
+      this.days = campaign.getDaysOfWeek() != null ? campaign.getDaysOfWeek() : EVERY_DAY;
+    }
+
+    boolean appliesAt(LocalDateTime at) {
+      return (startsAt == null || !at.isBefore(startsAt))
+          && (endsAt == null || at.isBefore(endsAt))
+          && (days & dayBit(at.getDayOfWeek())) != 0;
+    }
+  }
+
+  private static final class RuleIndex {
+    final Map<RewardEventType, Rule[]> anyCategory = new EnumMap<>(RewardEventType.class);
+    final Map<RewardEventType, Map<String, Rule[]>> byCategory =
+        new EnumMap<>(RewardEventType.class);
+  }
+
+  private final AtomicReference<RuleIndex> index = new AtomicReference<>(new RuleIndex());
+
+  @EventListener(ApplicationReadyEvent.class)
+  @Transactional(readOnly = true)
+  public synchronized void reload() {
+    index.set(compile(rewardCampaignRepository.findByActiveTrue()));
+  }
+
+  public Decision evaluate(RewardEventType eventType, String category, LocalDateTime at) {
+    int base = basePoints(eventType);
+    RuleIndex rules = index.get();
+    Decision best = new Decision(base, null);
+    best = pick(rules.anyCategory.get(eventType), base, at, best);
+    if (category != null) {
+      Map<String, Rule[]> categories = rules.byCategory.get(eventType);
+      if (categories != null) {
+        best = pick(categories.get(normalize(category)), base, at, best);
+      }
+    }
+    return best;
+  }
+
+  public List<RewardCampaignResponse> getCampaigns() {
+    return rewardCampaignRepository.findAllByOrderByIdDesc().stream()
+        .map(this::convertToResponse)
+        .collect(Collectors.toList());
+  }
+
+  @Transactional
+  public RewardCampaignResponse createCampaign(RewardCampaignRequest request) {
+    RewardCampaign campaign = new RewardCampaign();
+    apply(campaign, request);
+    return saveAndRecompile(campaign);
+  }
+
+  @Transactional
+  public RewardCampaignResponse updateCampaign(Long campaignId, RewardCampaignRequest request) {
+    RewardCampaign campaign =
+        rewardCampaignRepository
+            .findById(campaignId)
+            .orElseThrow(() -> new RuntimeException("Campaign not found"));
+    apply(campaign, request);
+    return saveAndRecompile(campaign);
+  }
+
+  @Transactional
+  public void deleteCampaign(Long campaignId) {
+    if (!rewardCampaignRepository.existsById(campaignId)) {
+      throw new RuntimeException("Campaign not found");
+    }
+    rewardCampaignRepository.deleteById(campaignId);
+    TransactionCallbacks.afterCommit(this::reload);
+  }
+
+  private RewardCampaignResponse saveAndRecompile(RewardCampaign campaign) {
+    RewardCampaign saved = rewardCampaignRepository.save(campaign);
+    TransactionCallbacks.afterCommit(this::reload);
+    return convertToResponse(saved);
+  }
+
+  private void apply(RewardCampaign campaign, RewardCampaignRequest request) {
+    if (request.getStartsAt() != null
+        && request.getEndsAt() != null
+        && !request.getStartsAt().isBefore(request.getEndsAt())) {
+      throw new RuntimeException("Campaign must start before it ends");
+    }
+    campaign.setName(request.getName());
+    campaign.setEventType(request.getEventType());
+    String category = request.getCategory();
+    campaign.setCategory(category == null || category.trim().isEmpty() ? null : category.trim());
+    campaign.setMultiplier(request.getMultiplier() != null ? request.getMultiplier() : 1.0);
+    campaign.setBonusPoints(request.getBonusPoints() != null ? request.getBonusPoints() : 0);
+    campaign.setStartsAt(request.getStartsAt());
+    campaign.setEndsAt(request.getEndsAt());
+    campaign.setDaysOfWeek(toMask(request.getDaysOfWeek()));
+    campaign.setActive(request.getActive() == null || request.getActive());
+  }
+
+  private RewardCampaignResponse convertToResponse(RewardCampaign campaign) {
+    return new RewardCampaignResponse(
+        campaign.getId(),
+        campaign.getName(),
+        campaign.getEventType(),
+        campaign.getCategory(),
+        campaign.getMultiplier(),
+        campaign.getBonusPoints(),
+        campaign.getStartsAt(),
+        campaign.getEndsAt(),
+        fromMask(campaign.getDaysOfWeek()),
+        campaign.getActive());
+  }
+
+  private int basePoints(RewardEventType eventType) {
+    switch (eventType) {
+      case BOOKING_COMPLETED:
+        return bookingPoints;
+      case REVIEW_WRITTEN:
+        return reviewPoints;
+      case REFERRAL_REFERRER:
+        return referrerPoints;
+      case REFERRAL_REFERRED:
+        return referredPoints;
+      default:
+        throw new IllegalArgumentException("Unknown reward event " + eventType);
+    }
+  }
+
+  private static Decision pick(Rule[] rules, int base, LocalDateTime at, Decision best) {
+    if (rules == null) {
+      return best;
+    }
+    for (Rule rule : rules) {
+      if (!rule.appliesAt(at)) {
+        continue;
+      }
+      int points = Math.max(0, (int) Math.round(base * rule.multiplier) + rule.bonusPoints);
+      if (points > best.points) {
+        best = new Decision(points, rule.name);
+      }
+    }
+    return best;
+  }
+
+  private static RuleIndex compile(List<RewardCampaign> campaigns) {
+    Map<RewardEventType, List<Rule>> anyCategory = new EnumMap<>(RewardEventType.class);
+    Map<RewardEventType, Map<String, List<Rule>>> byCategory = new EnumMap<>(RewardEventType.class);
+    for (RewardCampaign campaign : campaigns) {
+      Rule rule = new Rule(campaign);
+      if (campaign.getCategory() == null) {
+        anyCategory.computeIfAbsent(campaign.getEventType(), type -> new ArrayList<>()).add(rule);
+      } else {
+        byCategory
+            .computeIfAbsent(campaign.getEventType(), type -> new HashMap<>())
+            .computeIfAbsent(normalize(campaign.getCategory()), category -> new ArrayList<>())
+            .add(rule);
+      }
+    }
+
+    RuleIndex index = new RuleIndex();
+    anyCategory.forEach((type, rules) -> index.anyCategory.put(type, rules.toArray(new Rule[0])));
+    byCategory.forEach(
+        (type, categories) -> {
+          Map<String, Rule[]> compiled = new HashMap<>();
+          categories.forEach(
+              (category, rules) -> compiled.put(category, rules.toArray(new Rule[0])));
+          index.byCategory.put(type, compiled);
+        });
+    return index;
+  }
+
+  private static int dayBit(DayOfWeek day) {
+    return 1 << (day.getValue() - 1);
+  }
+
+  private static Integer toMask(Set<DayOfWeek> days) {
+    if (days == null || days.isEmpty()) {
+      return null;
+    }
+    int mask = 0;
+    for (DayOfWeek day : days) {
+      mask |= dayBit(day);
+    }
+    return mask;
+  }
+
+  private static Set<DayOfWeek> fromMask(Integer mask) {
+    if (mask == null) {
+      return null;
+    }
+    Set<DayOfWeek> days = EnumSet.noneOf(DayOfWeek.class);
+    for (DayOfWeek day : DayOfWeek.values()) {
+      if ((mask & dayBit(day)) != 0) {
+        days.add(day);
+      }
+    }
+    return days;
+  }
+
+  private static String normalize(String category) {
+    return category.trim().toLowerCase(Locale.ROOT);
+  }
+}
@@ -0,0 +1,350 @@
+package com.shopexperts.service;
+
+import com.shopexperts.model.NotificationChannel;
+import com.shopexperts.model.NotificationType;
+import com.shopexperts.model.SyncEntityType;
+import com.shopexperts.model.TransactionType;
+import com.shopexperts.payload.NotificationResponse;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Expires reward points a fixed number of months after they were earned, oldest credits first.
+ *
+ * <p>Credits (EARNED and REFUNDED rows) are lots consumed in FIFO order by redemptions and earlier
+ * expiries. Because consumption always takes the oldest lots, what is still unused of the lots past
+ * the cutoff is simply their sum minus the account's redeemed and expired counters, so a run needs
+ * one grouped sum per account rather than walking individual lots.
+ *
+ * <p>The account id range is cut into chunks that run in parallel, each in its own transaction: one
+ * aggregate query finds the accounts with points due, then the balance updates, EXPIRED rows and
+ * notifications are each written as a single JDBC batch. A run is idempotent, so a failed chunk is
+ * simply picked up again by the next one.
+ */
+@Service
+public class RewardExpiryService {
+
+  private static final Logger logger = LoggerFactory.getLogger(RewardExpiryService.class);
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @Autowired private PlatformTransactionManager transactionManager;
+
+  @Autowired private ApplicationEventPublisher eventPublisher;
+
+  @Autowired private NotificationCounterService notificationCounterService;
+
+  @Autowired private NotificationPreferenceService notificationPreferenceService;
+
+  @Autowired private ChangeLogService changeLogService;
+
+  @Value("${app.rewards.expiry.months:12}")
+  private int expiryMonths;
+
+  @Value("${app.rewards.expiry.chunk-size:10000}")
+  private int chunkSize;
+
+  @Value("${app.rewards.expiry.parallelism:4}")
+  private int parallelism;
+
+  /** Totals for one expiry run. */
+  public static final class ExpiryRun {
+    private int accountsExpired;
+    private long pointsExpired;
+    private int failedChunks;
+
+    public int getAccountsExpired() {
+      return accountsExpired;
+    }
+
+    public long getPointsExpired() {
+      return pointsExpired;
+    }
+
+    public int getFailedChunks() {
+      return failedChunks;
+    }
+  }
+
+  private static final class Expiry {
+    final long accountId;
+    final long userId;
+    final int points;
+    final int redeemedPoints;
+    final int expiredPoints;
+
+    Expiry(long accountId, long userId, int points, int redeemedPoints, int expiredPoints) {
+      this.accountId = accountId;
+      this.userId = userId;
+      this.points = points;
+      this.redeemedPoints = redeemedPoints;
+      this.expiredPoints = expiredPoints;
+    }
+  }
+
+  @Scheduled(cron = "${app.rewards.expiry.cron:0 0 4 * * *}")
+  public ExpiryRun expirePoints() {
+    return expirePoints(LocalDateTime.now());
+  }
+
+  /** Expires every credit earned before {@code now} minus the configured number of months. */
+  public synchronized ExpiryRun expirePoints(LocalDateTime now) {
+    ExpiryRun run = new ExpiryRun();
+    Map<String, Object> bounds =
+        jdbcTemplate.queryForMap("SELECT MIN(id) AS lo, MAX(id) AS hi FROM reward_accounts");
+    if (bounds.get("lo") == null) {
+      return run;
+    }
+    long lo = ((Number) bounds.get("lo")).longValue();
+    long hi = ((Number) bounds.get("hi")).longValue();
+    LocalDateTime cutoff = now.minusMonths(expiryMonths);
+
+    ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, parallelism));
+    try {
+      List<Future<List<Expiry>>> chunks = new ArrayList<>();
+      List<long[]> ranges = new ArrayList<>();
+      for (long from = lo; from <= hi; from += chunkSize) {
+        long start = from;
+        long end = Math.min(from + chunkSize, hi + 1);
+        chunks.add(executor.submit(() -> expireChunk(start, end, cutoff, now)));
+        ranges.add(new long[] {start, end});
+      }
+      for (int i = 0; i < chunks.size(); i++) {
+        try {
+          for (Expiry expiry : chunks.get(i).get()) {
+            run.accountsExpired++;
+            run.pointsExpired += expiry.points;
+          }
+        } catch (ExecutionException e) {
+          logger.warn(
+              "Reward expiry chunk for accounts [{}, {}) failed",
+              ranges.get(i)[0],
+              ranges.get(i)[1],
+              e.getCause());
+          run.failedChunks++;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      executor.shutdownNow();
+    }
+    if (run.failedChunks > 0) {
+      // The next run picks the failed chunks up again, but points stay unexpired until one succeeds
+      logger.error(
+          "Reward expiry: {} points expired on {} accounts, {} of the chunks failed",
+          run.pointsExpired,
+          run.accountsExpired,
+          run.failedChunks);
+    } else {
+      logger.info(
+          "Reward expiry: {} points expired on {} accounts",
+          run.pointsExpired,
+          run.accountsExpired);
+    }
+    return run;
+  }
+
+  // Accounts with ids in [start, end); returns the expiries that were applied
+  private List<Expiry> expireChunk(long start, long end, LocalDateTime cutoff, LocalDateTime now) {
+    TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+    List<Expiry> expired =
+        transactionTemplate.execute(
+            status -> {
+              List<Expiry> due =
+                  jdbcTemplate.query(
+                      "SELECT a.id, a.user_id, a.available_points, a.redeemed_points, "
+                          + "a.expired_points, s.credits FROM reward_accounts a JOIN ("
+                          + "SELECT reward_account_id, SUM(points) AS credits FROM reward_transactions "
+                          + "WHERE reward_account_id >= ? AND reward_account_id < ? "
+                          + "AND type IN (?, ?) AND created_at < ? GROUP BY reward_account_id) s "
+                          + "ON s.reward_account_id = a.id "
+                          + "WHERE a.available_points > 0 "
+                          + "AND s.credits > a.redeemed_points + a.expired_points",
+                      (rs, rowNum) -> {
+                        int unused =
+                            rs.getInt("credits")
+                                - rs.getInt("redeemed_points")
+                                - rs.getInt("expired_points");
+                        return new Expiry(
+                            rs.getLong("id"),
+                            rs.getLong("user_id"),
+                            Math.min(unused, rs.getInt("available_points")),
+                            rs.getInt("redeemed_points"),
+                            rs.getInt("expired_points"));
+                      },
+                      start,
+                      end,
+                      TransactionType.EARNED.name(),
+                      TransactionType.REFUNDED.name(),
+                      Timestamp.valueOf(cutoff));
+              if (due.isEmpty()) {
+                return due;
+              }
+
+              // Guarded by the counters read above: an account that redeemed in the meantime is
+              // left
+              // alone and reconsidered on the next run
+              Timestamp timestamp = Timestamp.valueOf(now);
+              List<Object[]> balanceRows = new ArrayList<>(due.size());
+              for (Expiry expiry : due) {
+                balanceRows.add(
+                    new Object[] {
+                      expiry.points,
+                      expiry.points,
+                      timestamp,
+                      expiry.accountId,
+                      expiry.redeemedPoints,
+                      expiry.expiredPoints,
+                      expiry.points
+                    });
+              }
+              int[] updated =
+                  jdbcTemplate.batchUpdate(
+                      "UPDATE reward_accounts SET available_points = available_points - ?, "
+                          + "expired_points = expired_points + ?, updated_at = ? "
+                          + "WHERE id = ? AND redeemed_points = ? AND expired_points = ? "
+                          + "AND available_points >= ?",
+                      balanceRows);
+
+              List<Expiry> applied = new ArrayList<>(due.size());
+              List<Expiry> unknown = new ArrayList<>();
+              for (int i = 0; i < due.size(); i++) {
+                if (updated[i] > 0) {
+                  applied.add(due.get(i));
+                } else if (updated[i] == Statement.SUCCESS_NO_INFO) {
+                  unknown.add(due.get(i));
+                }
+              }
+              applied.addAll(appliedAmong(unknown));
+              List<Object[]> transactionRows = new ArrayList<>(applied.size());
+              List<Object[]> notificationRows = new ArrayList<>(applied.size());
+              for (Expiry expiry : applied) {
+                transactionRows.add(
+                    new Object[] {
+                      expiry.accountId,
+                      TransactionType.EXPIRED.name(),
+                      expiry.points,
+                      "Points expired after " + expiryMonths + " months",
+                      timestamp
+                    });
+                if (!notifies(expiry)) {
+                  continue;
+                }
+                notificationRows.add(
+                    new Object[] {
+                      expiry.userId,
+                      "Points Expired",
+                      expiryMessage(expiry.points),
+                      NotificationType.POINTS_EXPIRED.name(),
+                      false,
+                      timestamp
+                    });
+              }
+              long transactionHighWater =
+                  changeLogService.highWater(SyncEntityType.REWARD_TRANSACTION);
+              jdbcTemplate.batchUpdate(
+                  "INSERT INTO reward_transactions "
+                      + "(reward_account_id, type, points, description, created_at) "
+                      + "VALUES (?, ?, ?, ?, ?)",
+                  transactionRows);
+              changeLogService.recordInsertedRewardTransactions(transactionHighWater);
+              if (!notificationRows.isEmpty()) {
+                long notificationHighWater =
+                    changeLogService.highWater(SyncEntityType.NOTIFICATION);
+                jdbcTemplate.batchUpdate(
+                    "INSERT INTO notifications "
+                        + "(user_id, title, message, type, is_read, created_at) "
+                        + "VALUES (?, ?, ?, ?, ?, ?)",
+                    notificationRows);
+                changeLogService.recordInsertedNotifications(notificationHighWater);
+                Map<Long, Integer> unread = new HashMap<>();
+                notificationRows.forEach(row -> unread.merge((Long) row[0], 1, Integer::sum));
+                notificationCounterService.adjust(unread);
+              }
+              return applied;
+            });
+    // Open notification streams learn about the expiry once it has committed
+    if (!expired.isEmpty()) {
+      Map<Long, List<NotificationResponse>> created = new HashMap<>();
+      for (Expiry expiry : expired) {
+        if (!notifies(expiry)) {
+          continue;
+        }
+        created.put(
+            expiry.userId,
+            Collections.singletonList(
+                new NotificationResponse(
+                    null,
+                    expiry.userId,
+                    null,
+                    "Points Expired",
+                    expiryMessage(expiry.points),
+                    NotificationType.POINTS_EXPIRED,
+                    false,
+                    now)));
+      }
+      eventPublisher.publishEvent(NotificationsChangedEvent.created(created));
+    }
+    return expired;
+  }
+
+  /**
+   * Some drivers report batched updates without row counts. This transaction holds the row lock of
+   * every account it updated, so those accounts still show exactly the counters it wrote.
+   */
+  private List<Expiry> appliedAmong(List<Expiry> unknown) {
+    if (unknown.isEmpty()) {
+      return unknown;
+    }
+    Map<Long, Expiry> byAccount = new HashMap<>();
+    unknown.forEach(expiry -> byAccount.put(expiry.accountId, expiry));
+    List<Expiry> applied = new ArrayList<>(unknown.size());
+    jdbcTemplate.query(
+        "SELECT id, redeemed_points, expired_points FROM reward_accounts "
+            + "WHERE id IN ("
+            + String.join(",", Collections.nCopies(unknown.size(), "?"))
+            + ")",
+        rs -> {
+          Expiry expiry = byAccount.get(rs.getLong(1));
+          if (rs.getInt(2) == expiry.redeemedPoints
+              && rs.getInt(3) == expiry.expiredPoints + expiry.points) {
+            applied.add(expiry);
+          }
+        },
+        byAccount.keySet().toArray());
+    return applied;
+  }
+
+  private boolean notifies(Expiry expiry) {
+    return !notificationPreferenceService.isMuted(
+        expiry.userId, NotificationType.POINTS_EXPIRED, NotificationChannel.IN_APP);
+  }
+
+  private String expiryMessage(int points) {
+    return points
+        + " of your reward points expired because they were earned more than "
+        + expiryMonths
+        + " months ago.";
+  }
+}
@@ -0,0 +1,91 @@
+package com.shopexperts.service;
+
+import com.shopexperts.payload.RewardRankingResponse;
+import com.shopexperts.repository.RewardAccountRepository;
+import com.shopexperts.util.RankedIndex;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Ranks users by lifetime reward points. The ranked index is loaded once at startup and then kept
+ * current by the reward service after each committed award, so top-N, rank and neighbourhood reads
+ * never touch the database.
+ */
+@Service
+public class RewardLeaderboardService {
+
+  @Autowired private RewardAccountRepository rewardAccountRepository;
+
+  // Writers are serialized on "this" so a rebuild cannot interleave with an award; readers only
+  // touch the index, which is internally synchronized, and the concurrent name map.
+  private volatile RankedIndex index = new RankedIndex();
+  private volatile Map<Long, String> names = new ConcurrentHashMap<>();
+
+  /** Reloads every account's total from one streaming scan over the reward accounts. */
+  @EventListener(ApplicationReadyEvent.class)
+  @Transactional(readOnly = true)
+  public synchronized void rebuild() {
+    RankedIndex freshIndex = new RankedIndex();
+    Map<Long, String> freshNames = new ConcurrentHashMap<>();
+    try (Stream<Object[]> rows = rewardAccountRepository.streamLeaderboardRows()) {
+      rows.forEach(
+          row -> {
+            Long userId = (Long) row[0];
+            freshNames.put(userId, row[1] + " " + row[2]);
+            freshIndex.put(userId, row[3] == null ? 0 : ((Number) row[3]).longValue());
+          });
+    }
+    index = freshIndex;
+    names = freshNames;
+  }
+
+  /** Adds a new account to the board with its starting total. */
+  public synchronized void recordAccount(Long userId, String userName, long totalPoints) {
+    names.put(userId, userName);
+    index.put(userId, totalPoints);
+  }
+
+  /** Applies a committed change to a user's lifetime total. */
+  public synchronized void recordPoints(Long userId, String userName, long delta) {
+    names.put(userId, userName);
+    index.adjust(userId, delta);
+  }
+
+  public List<RewardRankingResponse> getTopUsers(int limit) {
+    return toResponses(index.top(limit));
+  }
+
+  /** The user's own position, or null if they have no reward account. */
+  public RewardRankingResponse getUserRanking(Long userId) {
+    RankedIndex current = index;
+    int rank = current.rank(userId);
+    Double score = current.score(userId);
+    if (rank < 0 || score == null) {
+      return null;
+    }
+    return toResponse(userId, rank, score);
+  }
+
+  /** The user and up to {@code radius} users ranked directly above and below them. */
+  public List<RewardRankingResponse> getUsersAround(Long userId, int radius) {
+    return toResponses(index.around(userId, radius));
+  }
+
+  private List<RewardRankingResponse> toResponses(List<RankedIndex.Entry> entries) {
+    return entries.stream()
+        .map(entry -> toResponse(entry.getId(), entry.getRank(), entry.getScore()))
+        .collect(Collectors.toList());
+  }
+
+  private RewardRankingResponse toResponse(long userId, int rank, double score) {
+    return new RewardRankingResponse(rank, userId, names.get(userId), (long) score);
+  }
+}
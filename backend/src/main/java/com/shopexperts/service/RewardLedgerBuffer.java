@@ -0,0 +1,653 @@
+package com.shopexperts.service;
+
+import com.shopexperts.model.SyncEntityType;
+import com.shopexperts.model.TransactionType;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Write-behind buffer for point credits. Each credit is appended to an on-disk journal and held in
+ * memory; the transaction rows and the per-account balance deltas (coalesced, one UPDATE per
+ * account) are written in JDBC batches once enough have accumulated or on a timer.
+ *
+ * <p>Credits appended inside a transaction are journaled just before it commits, so a journal
+ * failure rolls the caller back, and are only staged once it has committed; a rollback appends a
+ * cancelling record. Every credit carries a journal sequence number that is stored on its
+ * transaction row. On startup the journal is replayed, skipping cancelled credits and sequences
+ * already in the database, so a crash before, during or after a flush neither loses nor repeats a
+ * credit. Only a crash between journaling and a failed commit replays a credit that never happened.
+ */
+@Service
+public class RewardLedgerBuffer {
+
+  private static final Logger logger = LoggerFactory.getLogger(RewardLedgerBuffer.class);
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @Autowired private PlatformTransactionManager transactionManager;
+
+  @Autowired private ChangeLogService changeLogService;
+
+  @Value("${app.rewards.write-behind.journal-dir:data/reward-journal}")
+  private String journalDir;
+
+  @Value("${app.rewards.write-behind.batch-size:500}")
+  private int batchSize;
+
+  @Value("${app.rewards.write-behind.fsync:true}")
+  private boolean fsync;
+
+  private static final String JOURNAL_PREFIX = "journal-";
+  private static final String JOURNAL_SUFFIX = ".log";
+
+  // Type written in place of a transaction type for a record that cancels an earlier sequence
+  private static final String CANCELLED = "CANCELLED";
+
+  /** Credits accepted for an account but not yet reflected in its stored balances. */
+  public static final class PendingBalance {
+    private int totalPoints;
+    private int availablePoints;
+
+    PendingBalance() {}
+
+    PendingBalance(int totalPoints, int availablePoints) {
+      this.totalPoints = totalPoints;
+      this.availablePoints = availablePoints;
+    }
+
+    public int getTotalPoints() {
+      return totalPoints;
+    }
+
+    public int getAvailablePoints() {
+      return availablePoints;
+    }
+  }
+
+  private static final class Entry {
+    final long sequence;
+    final long accountId;
+    final TransactionType type;
+    final int points;
+    final String description;
+    final LocalDateTime createdAt;
+
+    // type is null for a cancelling record
+    Entry(
+        long sequence,
+        long accountId,
+        TransactionType type,
+        int points,
+        String description,
+        LocalDateTime createdAt) {
+      this.sequence = sequence;
+      this.accountId = accountId;
+      this.type = type;
+      this.points = points;
+      this.description = description;
+      this.createdAt = createdAt;
+    }
+  }
+
+  // Guarded by "this"
+  private List<Entry> pending = new ArrayList<>();
+  private Map<Long, PendingBalance> pendingBalances = new HashMap<>();
+  // Journaled before their transaction committed, not yet staged or cancelled
+  private final Map<Long, Entry> inFlight = new LinkedHashMap<>();
+  private long nextSequence = 1;
+  private long nextGeneration = 1;
+  private FileChannel journal;
+  private final List<Path> sealedJournals = new ArrayList<>();
+
+  // A flush holds the write lock from taking the batch until its transaction has committed, so a
+  // reader holding the read lock sees each credit either as pending or as stored, never both.
+  private final ReadWriteLock visibility = new ReentrantReadWriteLock();
+
+  private TransactionTemplate transactionTemplate;
+
+  /**
+   * Replays credits journaled before the last shutdown or crash that never reached the database.
+   */
+  @PostConstruct
+  public void recover() {
+    // Flushes may be triggered from after-commit callbacks, which must not join the finished
+    // transaction that is still bound to the thread.
+    transactionTemplate = new TransactionTemplate(transactionManager);
+    transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+    Long stored =
+        jdbcTemplate.queryForObject(
+            "SELECT COALESCE(MAX(journal_seq), 0) FROM reward_transactions", Long.class);
+
+    synchronized (this) {
+      nextSequence = (stored == null ? 0L : stored) + 1;
+      Map<Long, Entry> journaled = new LinkedHashMap<>();
+      Set<Long> cancelled = new HashSet<>();
+      for (Path file : journalFiles()) {
+        nextGeneration = Math.max(nextGeneration, generationOf(file) + 1);
+        for (Entry entry : readJournal(file)) {
+          nextSequence = Math.max(nextSequence, entry.sequence + 1);
+          if (entry.type == null) {
+            cancelled.add(entry.sequence);
+          } else {
+            journaled.put(entry.sequence, entry);
+          }
+        }
+        sealedJournals.add(file);
+      }
+      journaled.keySet().removeAll(cancelled);
+      if (!journaled.isEmpty()) {
+        // Credits committed out of sequence order may be stored below later ones, so every
+        // journaled sequence is checked rather than a single watermark
+        journaled
+            .keySet()
+            .removeAll(
+                jdbcTemplate.queryForList(
+                    "SELECT journal_seq FROM reward_transactions WHERE journal_seq >= ?",
+                    Long.class,
+                    Collections.min(journaled.keySet())));
+        journaled.values().forEach(this::stage);
+      }
+    }
+    flush();
+    deleteSealedJournals();
+  }
+
+  /**
+   * Journals a credit and queues it for the next batch. Inside a transaction that happens when it
+   * commits; otherwise, once this returns the credit survives a crash and is visible through {@link
+   * #getPendingBalance}.
+   */
+  public void append(Long accountId, TransactionType type, int points, String description) {
+    appendAll(Collections.singletonList(accountId), type, points, description);
+  }
+
+  /** Same credit for many accounts, journaled with a single write and sync. */
+  public void appendAll(
+      Collection<Long> accountIds, TransactionType type, int points, String description) {
+    if (type != TransactionType.EARNED && type != TransactionType.REFUNDED) {
+      throw new IllegalArgumentException("Only credits can be buffered, not " + type);
+    }
+    if (accountIds.isEmpty()) {
+      return;
+    }
+    List<Long> accounts = new ArrayList<>(accountIds);
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      stageAndMaybeFlush(journal(accounts, type, points, description));
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(
+        new TransactionSynchronization() {
+          private List<Entry> entries = Collections.emptyList();
+
+          @Override
+          public void beforeCommit(boolean readOnly) {
+            // Throwing here rolls the caller back rather than losing a committed credit
+            entries = journal(accounts, type, points, description);
+            synchronized (RewardLedgerBuffer.this) {
+              entries.forEach(entry -> inFlight.put(entry.sequence, entry));
+            }
+          }
+
+          @Override
+          public void afterCommit() {
+            synchronized (RewardLedgerBuffer.this) {
+              entries.forEach(entry -> inFlight.remove(entry.sequence));
+            }
+            try {
+              stageAndMaybeFlush(entries);
+            } catch (RuntimeException e) {
+              // The credits are staged and journaled; the scheduled flush retries the write
+              logger.warn("Reward credit flush failed, will retry: {}", e.getMessage());
+            }
+          }
+
+          @Override
+          public void afterCompletion(int status) {
+            if (status != STATUS_COMMITTED && !entries.isEmpty()) {
+              cancel(entries);
+            }
+          }
+        });
+  }
+
+  private List<Entry> journal(
+      List<Long> accountIds, TransactionType type, int points, String description) {
+    synchronized (this) {
+      LocalDateTime now = LocalDateTime.now();
+      List<Entry> entries = new ArrayList<>(accountIds.size());
+      for (Long accountId : accountIds) {
+        entries.add(new Entry(nextSequence++, accountId, type, points, description, now));
+      }
+      writeJournal(entries);
+      return entries;
+    }
+  }
+
+  private void stageAndMaybeFlush(List<Entry> entries) {
+    boolean full;
+    synchronized (this) {
+      entries.forEach(this::stage);
+      full = pending.size() >= batchSize;
+    }
+    if (full) {
+      flush();
+    }
+  }
+
+  // Journals that the credits of a rolled-back transaction never happened
+  private synchronized void cancel(List<Entry> entries) {
+    List<Entry> cancels = new ArrayList<>(entries.size());
+    for (Entry entry : entries) {
+      inFlight.remove(entry.sequence);
+      cancels.add(new Entry(entry.sequence, entry.accountId, null, 0, null, entry.createdAt));
+    }
+    try {
+      writeJournal(cancels);
+    } catch (UncheckedIOException e) {
+      logger.error(
+          "Could not cancel {} rolled-back reward credits from sequence {}; "
+              + "they will be replayed on restart",
+          cancels.size(),
+          cancels.get(0).sequence,
+          e);
+    }
+  }
+
+  public synchronized PendingBalance getPendingBalance(Long accountId) {
+    PendingBalance balance = pendingBalances.get(accountId);
+    return balance == null
+        ? new PendingBalance()
+        : new PendingBalance(balance.totalPoints, balance.availablePoints);
+  }
+
+  public synchronized int getPendingCount() {
+    return pending.size();
+  }
+
+  /**
+   * Runs a read of stored balances that is combined with {@link #getPendingBalance}; no flush can
+   * commit in between, so the two add up to the true balance.
+   */
+  public <T> T readConsistent(Supplier<T> read) {
+    visibility.readLock().lock();
+    try {
+      return read.get();
+    } finally {
+      visibility.readLock().unlock();
+    }
+  }
+
+  /**
+   * Writes every buffered credit in one transaction and drops the journals it covered. If that
+   * fails, each account's credits are retried in a transaction of their own; credits that still
+   * fail are logged in full and dropped, unless every account failed, in which case the whole batch
+   * waits for the next flush.
+   */
+  @Scheduled(fixedDelayString = "${app.rewards.write-behind.flush-interval-ms:1000}")
+  @PreDestroy
+  public int flush() {
+    visibility.writeLock().lock();
+    try {
+      List<Entry> batch;
+      Map<Long, PendingBalance> balances;
+      synchronized (this) {
+        if (pending.isEmpty()) {
+          return 0;
+        }
+        batch = pending;
+        balances = pendingBalances;
+        pending = new ArrayList<>();
+        pendingBalances = new HashMap<>();
+        sealJournal();
+      }
+
+      int written = batch.size();
+      try {
+        write(batch, balances);
+      } catch (RuntimeException e) {
+        List<Entry> failed = writeEachAccount(batch);
+        if (failed.size() == batch.size()) {
+          // Nothing could be written, so the database rather than a credit is at fault; its
+          // journal stays on disk
+          synchronized (this) {
+            restage(batch);
+          }
+          throw e;
+        }
+        for (Entry entry : failed) {
+          logger.error(
+              "Dropping reward credit {}: {} {} points for account {} at {} ({})",
+              entry.sequence,
+              entry.type,
+              entry.points,
+              entry.accountId,
+              entry.createdAt,
+              entry.description);
+        }
+        written -= failed.size();
+      }
+      deleteSealedJournals();
+      return written;
+    } finally {
+      visibility.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Writes the account's buffered credits now, so that its stored balance holds every credit
+   * accepted so far. Called before points are deducted, which only ever draw on the stored balance.
+   */
+  public void flushAccount(Long accountId) {
+    visibility.writeLock().lock();
+    try {
+      List<Entry> entries = new ArrayList<>();
+      synchronized (this) {
+        if (!pendingBalances.containsKey(accountId)) {
+          return;
+        }
+        List<Entry> rest = new ArrayList<>(pending.size());
+        for (Entry entry : pending) {
+          (entry.accountId == accountId ? entries : rest).add(entry);
+        }
+        pending = rest;
+        pendingBalances.remove(accountId);
+      }
+
+      // The journals stay until the next full flush; replay skips the credits written here
+      try {
+        write(entries, balancesOf(entries));
+      } catch (RuntimeException e) {
+        synchronized (this) {
+          restage(entries);
+        }
+        throw e;
+      }
+    } finally {
+      visibility.writeLock().unlock();
+    }
+  }
+
+  // Returns the credits whose account's transaction failed as well
+  private List<Entry> writeEachAccount(List<Entry> batch) {
+    Map<Long, List<Entry>> byAccount = new LinkedHashMap<>();
+    for (Entry entry : batch) {
+      byAccount.computeIfAbsent(entry.accountId, id -> new ArrayList<>()).add(entry);
+    }
+    List<Entry> failed = new ArrayList<>();
+    byAccount.forEach(
+        (accountId, entries) -> {
+          try {
+            write(entries, balancesOf(entries));
+          } catch (RuntimeException e) {
+            logger.warn(
+                "Reward credits for account {} failed to flush: {}", accountId, e.getMessage());
+            failed.addAll(entries);
+          }
+        });
+    return failed;
+  }
+
+  // Caller holds the monitor. Puts the entries back ahead of anything appended meanwhile.
+  private void restage(List<Entry> entries) {
+    List<Entry> retry = new ArrayList<>(entries);
+    retry.addAll(pending);
+    pending = new ArrayList<>();
+    pendingBalances = new HashMap<>();
+    retry.forEach(this::stage);
+  }
+
+  private void write(List<Entry> batch, Map<Long, PendingBalance> balances) {
+    List<Object[]> transactionRows = new ArrayList<>(batch.size());
+    for (Entry entry : batch) {
+      transactionRows.add(
+          new Object[] {
+            entry.accountId,
+            entry.type.name(),
+            entry.points,
+            entry.description,
+            Timestamp.valueOf(entry.createdAt),
+            entry.sequence,
+            entry.accountId
+          });
+    }
+    Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+    List<Object[]> balanceRows = new ArrayList<>(balances.size());
+    balances.forEach(
+        (accountId, balance) ->
+            balanceRows.add(
+                new Object[] {balance.totalPoints, balance.availablePoints, now, accountId}));
+
+    // The INSERT ... SELECT skips credits whose account no longer exists.
+    transactionTemplate.execute(
+        status -> {
+          long highWater = changeLogService.highWater(SyncEntityType.REWARD_TRANSACTION);
+          jdbcTemplate.batchUpdate(
+              "INSERT INTO reward_transactions "
+                  + "(reward_account_id, type, points, description, created_at, journal_seq) "
+                  + "SELECT ?, ?, ?, ?, ?, ? FROM reward_accounts WHERE id = ?",
+              transactionRows);
+          changeLogService.recordInsertedRewardTransactions(highWater);
+          jdbcTemplate.batchUpdate(
+              "UPDATE reward_accounts SET total_points = total_points + ?, "
+                  + "available_points = available_points + ?, updated_at = ? WHERE id = ?",
+              balanceRows);
+          return null;
+        });
+  }
+
+  // Caller holds the monitor
+  private void stage(Entry entry) {
+    pending.add(entry);
+    addTo(pendingBalances, entry);
+  }
+
+  private static Map<Long, PendingBalance> balancesOf(List<Entry> entries) {
+    Map<Long, PendingBalance> balances = new HashMap<>();
+    entries.forEach(entry -> addTo(balances, entry));
+    return balances;
+  }
+
+  private static void addTo(Map<Long, PendingBalance> balances, Entry entry) {
+    PendingBalance balance = balances.computeIfAbsent(entry.accountId, id -> new PendingBalance());
+    if (entry.type == TransactionType.EARNED) {
+      balance.totalPoints += entry.points;
+    }
+    balance.availablePoints += entry.points;
+  }
+
+  // Caller holds the monitor
+  private void writeJournal(List<Entry> entries) {
+    try {
+      if (journal == null) {
+        Path directory = Files.createDirectories(Paths.get(journalDir));
+        journal =
+            FileChannel.open(
+                directory.resolve(journalName(nextGeneration++)),
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+      }
+      ByteArrayOutputStream records = new ByteArrayOutputStream(entries.size() * 96);
+      for (Entry entry : entries) {
+        records.write(encode(entry));
+      }
+      ByteBuffer buffer = ByteBuffer.wrap(records.toByteArray());
+      while (buffer.hasRemaining()) {
+        journal.write(buffer);
+      }
+      if (fsync) {
+        journal.force(false);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to journal reward credits", e);
+    }
+  }
+
+  // Caller holds the monitor. Later appends go to a fresh journal file, which also gets a copy of
+  // the in-flight credits, since their transactions may commit after the sealed file is deleted.
+  private void sealJournal() {
+    if (journal == null) {
+      return;
+    }
+    try {
+      journal.close();
+    } catch (IOException e) {
+      // Everything written was already forced; the file is still replayable
+    }
+    Path sealed = Paths.get(journalDir).resolve(journalName(nextGeneration - 1));
+    journal = null;
+    if (!inFlight.isEmpty()) {
+      try {
+        writeJournal(new ArrayList<>(inFlight.values()));
+      } catch (UncheckedIOException e) {
+        // Keep the sealed file until a restart replays it, so the in-flight credits survive
+        logger.warn("Could not carry in-flight reward credits forward: {}", e.getMessage());
+        return;
+      }
+    }
+    sealedJournals.add(sealed);
+  }
+
+  private synchronized void deleteSealedJournals() {
+    try {
+      for (Path file : sealedJournals) {
+        Files.deleteIfExists(file);
+      }
+      sealedJournals.clear();
+    } catch (IOException e) {
+      // Left for the next flush; replay skips entries already in the database
+    }
+  }
+
+  // Record layout: length, payload, CRC32 of the payload. A torn final record fails the length or
+  // checksum test and ends the replay.
+  private static byte[] encode(Entry entry) throws IOException {
+    ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream(64);
+    try (DataOutputStream payload = new DataOutputStream(payloadBytes)) {
+      payload.writeLong(entry.sequence);
+      payload.writeLong(entry.accountId);
+      payload.writeUTF(entry.type != null ? entry.type.name() : CANCELLED);
+      payload.writeInt(entry.points);
+      payload.writeBoolean(entry.description != null);
+      if (entry.description != null) {
+        payload.writeUTF(entry.description);
+      }
+      payload.writeLong(Timestamp.valueOf(entry.createdAt).getTime());
+    }
+    byte[] body = payloadBytes.toByteArray();
+    CRC32 crc = new CRC32();
+    crc.update(body);
+    ByteBuffer record = ByteBuffer.allocate(Integer.BYTES + body.length + Long.BYTES);
+    record.putInt(body.length).put(body).putLong(crc.getValue());
+    return record.array();
+  }
+
+  private static List<Entry> readJournal(Path file) {
+    List<Entry> entries = new ArrayList<>();
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      while (true) {
+        byte[] body;
+        try {
+          int length = in.readInt();
+          if (length <= 0 || length > 1 << 20) {
+            break;
+          }
+          body = new byte[length];
+          in.readFully(body);
+          CRC32 crc = new CRC32();
+          crc.update(body);
+          if (in.readLong() != crc.getValue()) {
+            break;
+          }
+        } catch (EOFException e) {
+          break;
+        }
+        try (DataInputStream payload = new DataInputStream(new ByteArrayInputStream(body))) {
+          long sequence = payload.readLong();
+          long accountId = payload.readLong();
+          String typeName = payload.readUTF();
+          TransactionType type =
+              CANCELLED.equals(typeName) ? null : TransactionType.valueOf(typeName);
+          int points = payload.readInt();
+          String description = payload.readBoolean() ? payload.readUTF() : null;
+          LocalDateTime createdAt = new Timestamp(payload.readLong()).toLocalDateTime();
+          entries.add(new Entry(sequence, accountId, type, points, description, createdAt));
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to read reward journal " + file, e);
+    }
+    return entries;
+  }
+
+  private List<Path> journalFiles() {
+    Path directory = Paths.get(journalDir);
+    List<Path> files = new ArrayList<>();
+    if (!Files.isDirectory(directory)) {
+      return files;
+    }
+    try (DirectoryStream<Path> stream =
+        Files.newDirectoryStream(directory, JOURNAL_PREFIX + "*" + JOURNAL_SUFFIX)) {
+      stream.forEach(files::add);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to list reward journals", e);
+    }
+    files.sort(Comparator.comparingLong(RewardLedgerBuffer::generationOf));
+    return files;
+  }
+
+  private static String journalName(long generation) {
+    return String.format("%s%012d%s", JOURNAL_PREFIX, generation, JOURNAL_SUFFIX);
+  }
+
+  private static long generationOf(Path file) {
+    String name = file.getFileName().toString();
+    return Long.parseLong(
+        name.substring(JOURNAL_PREFIX.length(), name.length() - JOURNAL_SUFFIX.length()));
+  }
+}
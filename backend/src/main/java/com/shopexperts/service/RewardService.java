@@ -1,16 +1,36 @@
 package com.shopexperts.service;
 
 import com.shopexperts.model.*;
+import com.shopexperts.payload.CursorPage;
 import com.shopexperts.payload.RewardAccountResponse;
+import com.shopexperts.payload.RewardTransactionFilter;
 import com.shopexperts.payload.RewardTransactionResponse;
+import com.shopexperts.repository.ReferralRepository;
 import com.shopexperts.repository.RewardAccountRepository;
 import com.shopexperts.repository.RewardTransactionRepository;
 import com.shopexperts.repository.UserRepository;
-import java.security.SecureRandom;
+import com.shopexperts.util.TransactionCallbacks;
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
 public class RewardService {
@@ -23,9 +43,21 @@ public class RewardService {
 
   @Autowired private NotificationService notificationService;
 
-  private static final String REFERRAL_CODE_CHARACTERS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
-  private static final int REFERRAL_CODE_LENGTH = 8;
-  private final SecureRandom random = new SecureRandom();
+  @Autowired private RewardLeaderboardService rewardLeaderboardService;
+
+  @Autowired private RewardLedgerBuffer rewardLedgerBuffer;
+
+  @Autowired private RewardCampaignService rewardCampaignService;
+
+  @Autowired private ReferralRepository referralRepository;
+
+  @Autowired private ReferralCodeRegistry referralCodeRegistry;
+
+  @Autowired private TransactionTemplate transactionTemplate;
+
+  @Autowired private ChangeLogService changeLogService;
+
+  private static final int AWARD_CHUNK_SIZE = 1000;
 
   public RewardAccount createRewardAccount(User user) {
     RewardAccount rewardAccount = new RewardAccount();
@@ -33,8 +65,15 @@ public class RewardService {
     rewardAccount.setTotalPoints(0);
     rewardAccount.setAvailablePoints(0);
     rewardAccount.setRedeemedPoints(0);
-
-    return rewardAccountRepository.save(rewardAccount);
+    rewardAccount.setReferralCode(referralCodeRegistry.newCode());
+
+    RewardAccount savedAccount = rewardAccountRepository.save(rewardAccount);
+    TransactionCallbacks.afterCommit(
+        () -> {
+          referralCodeRegistry.register(savedAccount.getReferralCode(), user.getId());
+          rewardLeaderboardService.recordAccount(user.getId(), user.getName(), 0);
+        });
+    return savedAccount;
   }
 
   public RewardAccount getRewardAccountEntity(Long userId) {
@@ -46,37 +85,49 @@ public class RewardService {
         .orElseThrow(() -> new RuntimeException("Reward account not found"));
   }
 
+  @Transactional
   public RewardAccountResponse getRewardAccount(Long userId) {
-    RewardAccount account = getRewardAccountEntity(userId);
-    String referralCode = generateReferralCode(userId);
-    long totalReferrals = countUserReferrals(userId);
-
-    return new RewardAccountResponse(
-        account.getId(),
-        account.getUser().getId(),
-        account.getUser().getName(),
-        new java.math.BigDecimal(account.getTotalPoints()),
-        new java.math.BigDecimal(account.getAvailablePoints()),
-        new java.math.BigDecimal(account.getRedeemedPoints()),
-        referralCode,
-        (int) totalReferrals,
-        account.getCreatedAt(),
-        account.getUpdatedAt());
+    // Stored balances plus credits not yet flushed, read so that no flush lands in between
+    return rewardLedgerBuffer.readConsistent(
+        () -> {
+          RewardAccount account = getRewardAccountEntity(userId);
+          return toRewardAccountResponse(
+              account, rewardLedgerBuffer.getPendingBalance(account.getId()));
+        });
   }
 
+  private RewardAccountResponse toRewardAccountResponse(
+      RewardAccount account, RewardLedgerBuffer.PendingBalance pending) {
+    String referralCode = referralCodeFor(account);
+
+    RewardAccountResponse response =
+        new RewardAccountResponse(
+            account.getId(),
+            account.getUser().getId(),
+            account.getUser().getName(),
+            new java.math.BigDecimal(account.getTotalPoints() + pending.getTotalPoints()),
+            new java.math.BigDecimal(account.getAvailablePoints() + pending.getAvailablePoints()),
+            new java.math.BigDecimal(account.getRedeemedPoints()),
+            referralCode,
+            account.getReferralCount(),
+            account.getCreatedAt(),
+            account.getUpdatedAt());
+    response.setReferralBonusPoints(account.getReferralBonusPoints());
+    return response;
+  }
+
+  @Transactional
   public void awardPoints(User user, Integer points, String description) {
     RewardAccount account =
         rewardAccountRepository
             .findByUser(user)
             .orElseThrow(() -> new RuntimeException("Reward account not found"));
 
-    account.setTotalPoints(account.getTotalPoints() + points);
-    account.setAvailablePoints(account.getAvailablePoints() + points);
-
-    rewardAccountRepository.save(account);
-
-    // Create reward transaction record
-    createRewardTransaction(account, TransactionType.EARNED, points, description);
+    // The transaction row and balance change are written behind in batches; the buffer journals
+    // the credit as the caller's transaction commits and cancels it if it rolls back
+    rewardLedgerBuffer.append(account.getId(), TransactionType.EARNED, points, description);
+    TransactionCallbacks.afterCommit(
+        () -> rewardLeaderboardService.recordPoints(user.getId(), user.getName(), points));
 
     // Send notification
     notificationService.createNotification(
@@ -86,6 +137,7 @@ public class RewardService {
         NotificationType.REFERRAL_BONUS);
   }
 
+  @Transactional
   public boolean redeemPoints(Long userId, Integer points, String description) {
     User user =
         userRepository.findById(userId).orElseThrow(() -> new RuntimeException("User not found"));
@@ -95,35 +147,69 @@ public class RewardService {
             .findByUser(user)
             .orElseThrow(() -> new RuntimeException("Reward account not found"));
 
-    if (account.getAvailablePoints() < points) {
+    if (!deductPoints(account, points)) {
       return false; // Insufficient points
     }
 
-    account.setAvailablePoints(account.getAvailablePoints() - points);
-    account.setRedeemedPoints(account.getRedeemedPoints() + points);
-
-    rewardAccountRepository.save(account);
-
     // Create reward transaction record
     createRewardTransaction(account, TransactionType.REDEEMED, points, description);
 
     return true;
   }
 
-  public void awardReferralBonus(User referrer, User referred) {
+  /** Credits both sides of a referral; returns the points given to the referrer. */
+  @Transactional
+  public int awardReferralBonus(User referrer, User referred) {
     // Award points to referrer
-    awardPoints(referrer, 50, "Referral bonus for inviting " + referred.getFirstName());
+    int referrerPoints =
+        awardForEvent(
+            referrer,
+            RewardEventType.REFERRAL_REFERRER,
+            null,
+            "Referral bonus for inviting " + referred.getFirstName());
 
     // Award points to referred user
-    awardPoints(referred, 25, "Welcome bonus for joining through referral");
+    awardForEvent(
+        referred,
+        RewardEventType.REFERRAL_REFERRED,
+        null,
+        "Welcome bonus for joining through referral");
+    return referrerPoints;
   }
 
+  @Transactional
   public void awardReviewBonus(User reviewer) {
-    awardPoints(reviewer, 5, "Bonus for writing a review");
+    awardReviewBonus(reviewer, null);
   }
 
+  @Transactional
+  public void awardReviewBonus(User reviewer, String category) {
+    awardForEvent(reviewer, RewardEventType.REVIEW_WRITTEN, category, "Bonus for writing a review");
+  }
+
+  @Transactional
   public void awardBookingBonus(User user) {
-    awardPoints(user, 10, "Bonus for completing a booking");
+    awardBookingBonus(user, null);
+  }
+
+  /** {@code category} is the talent's business category, which campaigns may target. */
+  @Transactional
+  public void awardBookingBonus(User user, String category) {
+    awardForEvent(
+        user, RewardEventType.BOOKING_COMPLETED, category, "Bonus for completing a booking");
+  }
+
+  // Points come from the precompiled campaign rules; the description names the campaign, if any
+  private int awardForEvent(
+      User user, RewardEventType eventType, String category, String description) {
+    RewardCampaignService.Decision decision =
+        rewardCampaignService.evaluate(eventType, category, LocalDateTime.now());
+    String reason =
+        decision.getCampaignName() != null
+            ? description + " (" + decision.getCampaignName() + ")"
+            : description;
+    awardPoints(user, decision.getPoints(), reason);
+    return decision.getPoints();
   }
 
   // New methods for complete reward transaction handling
@@ -136,6 +222,16 @@ public class RewardService {
     transaction.setDescription(description);
 
     rewardTransactionRepository.save(transaction);
+    changeLogService.recordChanged(
+        SyncEntityType.REWARD_TRANSACTION, account.getUser().getId(), transaction.getId());
+  }
+
+  /** The listed transactions of the user's account; others are skipped. */
+  public List<RewardTransactionResponse> getRewardTransactionsByIds(
+      Long userId, Collection<Long> transactionIds) {
+    return rewardTransactionRepository.findByUserIdAndIdIn(userId, transactionIds).stream()
+        .map(this::convertToRewardTransactionResponse)
+        .collect(Collectors.toList());
   }
 
   public Page<RewardTransactionResponse> getRewardTransactions(Long userId, Pageable pageable) {
@@ -159,74 +255,200 @@ public class RewardService {
     return response;
   }
 
-  public String generateReferralCode(Long userId) {
-    // Create a unique referral code based on user ID and random characters
-    StringBuilder code = new StringBuilder();
-    code.append("REF");
+  /** Newest-first page of every account's transactions, continuing below {@code beforeId}. */
+  public CursorPage<RewardTransactionResponse> getAllRewardTransactions(
+      RewardTransactionFilter filter, Long beforeId, int limit) {
+    List<Object[]> rows =
+        rewardTransactionRepository.findFeedRows(
+            beforeId != null ? beforeId : Long.MAX_VALUE,
+            filter.getType(),
+            filter.getUserId(),
+            filter.getFrom(),
+            filter.getTo(),
+            PageRequest.of(0, limit + 1));
+    boolean hasMore = rows.size() > limit;
+    if (hasMore) {
+      rows = rows.subList(0, limit);
+    }
+    List<RewardTransactionResponse> content =
+        rows.stream().map(this::convertFeedRow).collect(Collectors.toList());
+    Long nextCursor = content.isEmpty() ? null : content.get(content.size() - 1).getId();
+    return new CursorPage<>(content, nextCursor, hasMore);
+  }
 
-    // Add user ID in base36 to keep it short
-    code.append(Long.toString(userId, 36).toUpperCase());
+  /**
+   * Writes every matching transaction to {@code out} as CSV, newest first. Rows come from a
+   * forward-only cursor as plain values, so memory use does not grow with the size of the export.
+   */
+  @Transactional(readOnly = true)
+  public long exportRewardTransactions(RewardTransactionFilter filter, Writer out)
+      throws IOException {
+    out.write("id,userId,userName,type,points,description,createdAt\n");
+    long count = 0;
+    try (Stream<Object[]> rows =
+        rewardTransactionRepository.streamFeedRows(
+            Long.MAX_VALUE,
+            filter.getType(),
+            filter.getUserId(),
+            filter.getFrom(),
+            filter.getTo())) {
+      Iterator<Object[]> iterator = rows.iterator();
+      while (iterator.hasNext()) {
+        RewardTransactionResponse transaction = convertFeedRow(iterator.next());
+        out.write(
+            String.join(
+                ",",
+                String.valueOf(transaction.getId()),
+                String.valueOf(transaction.getUserId()),
+                csv(transaction.getUserName()),
+                transaction.getType().name(),
+                transaction.getAmount().toPlainString(),
+                csv(transaction.getDescription()),
+                String.valueOf(transaction.getCreatedAt())));
+        out.write('\n');
+        count++;
+      }
+    }
+    return count;
+  }
 
-    // Add random characters to ensure uniqueness
-    for (int i = 0; i < REFERRAL_CODE_LENGTH - code.length(); i++) {
-      int index = random.nextInt(REFERRAL_CODE_CHARACTERS.length());
-      code.append(REFERRAL_CODE_CHARACTERS.charAt(index));
+  /** Credits {@code points} to one user on behalf of an admin. */
+  @Transactional
+  public RewardTransactionResponse awardPointsByAdmin(
+      Long userId, Integer points, String description) {
+    if (points == null || points <= 0) {
+      throw new RuntimeException("Points must be positive");
     }
+    User user =
+        userRepository.findById(userId).orElseThrow(() -> new RuntimeException("User not found"));
+    String reason = description != null ? description : "Awarded by admin";
+    awardPoints(user, points, reason);
 
-    return code.toString();
+    RewardTransactionResponse response = new RewardTransactionResponse();
+    response.setUserId(user.getId());
+    response.setUserName(user.getName());
+    response.setType(TransactionType.EARNED);
+    response.setAmount(new java.math.BigDecimal(points));
+    response.setDescription(reason);
+    response.setCreatedAt(LocalDateTime.now());
+    return response;
   }
 
-  public boolean redeemReferralCode(String referralCode, Long newUserId) {
-    try {
-      // Extract user ID from referral code (remove REF prefix and decode)
-      String userIdPart = referralCode.substring(3);
-
-      // Try different lengths to find the user ID part
-      // Start with length 1 and increase until we find a valid user that exists
-      for (int userIdLength = 1; userIdLength <= userIdPart.length(); userIdLength++) {
-        try {
-          String userIdStr = userIdPart.substring(0, userIdLength);
-          Long referrerId = Long.parseLong(userIdStr, 36);
-
-          // Check if this user exists
-          User referrer = userRepository.findById(referrerId).orElse(null);
-          if (referrer == null) {
-            continue; // Try next length
-          }
-
-          // Validate users exist and are different
-          User newUser = userRepository.findById(newUserId).orElse(null);
-
-          if (newUser == null || referrerId.equals(newUserId)) {
-            return false;
-          }
-
-          // Award referral bonus
-          awardReferralBonus(referrer, newUser);
-          return true;
-
-        } catch (NumberFormatException e) {
-          // Try next length
-          continue;
-        }
+  /**
+   * Credits the same points to many users. Accounts are resolved one query per chunk of ids, the
+   * notifications are inserted as a single batch, and the credits are journaled together as the
+   * transaction commits. Returns how many users were credited; ids without a reward account are
+   * skipped.
+   */
+  @Transactional
+  public int awardPointsToUsers(List<Long> userIds, int points, String description) {
+    if (points <= 0) {
+      throw new RuntimeException("Points must be positive");
+    }
+    String reason = description != null ? description : "Awarded by admin";
+    List<Long> ids = new ArrayList<>(new LinkedHashSet<>(userIds));
+    List<Long> accountIds = new ArrayList<>(ids.size());
+    List<Long> awardedUserIds = new ArrayList<>(ids.size());
+    Map<Long, String> names = new HashMap<>();
+
+    for (int from = 0; from < ids.size(); from += AWARD_CHUNK_SIZE) {
+      List<Long> chunk = ids.subList(from, Math.min(from + AWARD_CHUNK_SIZE, ids.size()));
+      for (Object[] row : rewardAccountRepository.findAwardTargets(chunk)) {
+        accountIds.add((Long) row[0]);
+        awardedUserIds.add((Long) row[1]);
+        names.put((Long) row[1], row[2] + " " + row[3]);
       }
+    }
+    if (accountIds.isEmpty()) {
+      return 0;
+    }
+
+    notificationService.createNotifications(
+        awardedUserIds,
+        "Points Earned!",
+        "You earned " + points + " points: " + reason,
+        NotificationType.REFERRAL_BONUS);
+    rewardLedgerBuffer.appendAll(accountIds, TransactionType.EARNED, points, reason);
+    TransactionCallbacks.afterCommit(
+        () ->
+            names.forEach(
+                (userId, name) -> rewardLeaderboardService.recordPoints(userId, name, points)));
+    return accountIds.size();
+  }
+
+  private RewardTransactionResponse convertFeedRow(Object[] row) {
+    RewardTransactionResponse response = new RewardTransactionResponse();
+    response.setId((Long) row[0]);
+    response.setUserId((Long) row[1]);
+    response.setUserName(row[2] + " " + row[3]);
+    response.setType((TransactionType) row[4]);
+    response.setAmount(new java.math.BigDecimal((Integer) row[5]));
+    response.setDescription((String) row[6]);
+    response.setCreatedAt((LocalDateTime) row[7]);
+    return response;
+  }
 
-      return false; // No valid user ID found
+  // Quotes fields that contain separators, and defuses values a spreadsheet would run as formulas
+  private static String csv(String value) {
+    if (value == null) {
+      return "";
+    }
+    if (!value.isEmpty() && "=+-@".indexOf(value.charAt(0)) >= 0) {
+      value = "'" + value;
+    }
+    if (value.contains(",")
+        || value.contains("\"")
+        || value.contains("\n")
+        || value.contains("\r")) {
+      return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+    return value;
+  }
 
-    } catch (Exception e) {
+  /** The user's permanent referral code, assigned on first use for accounts that predate codes. */
+  @Transactional
+  public String generateReferralCode(Long userId) {
+    return referralCodeFor(getRewardAccountEntity(userId));
+  }
+
+  /** Redeems a code for a newly joined user; each user can be referred at most once. */
+  public boolean redeemReferralCode(String referralCode, Long newUserId) {
+    Long referrerId = referralCodeRegistry.lookup(referralCode);
+    if (referrerId == null
+        || referrerId.equals(newUserId)
+        || referralRepository.existsByReferredId(newUserId)) {
       return false;
     }
+    User referrer = userRepository.findById(referrerId).orElse(null);
+    User newUser = userRepository.findById(newUserId).orElse(null);
+    if (referrer == null || newUser == null) {
+      return false;
+    }
+
+    try {
+      transactionTemplate.executeWithoutResult(
+          status -> {
+            Referral referral = new Referral();
+            referral.setReferrer(referrer);
+            referral.setReferred(newUser);
+            referral.setReferralCode(referralCode.trim().toUpperCase(Locale.ROOT));
+            referralRepository.saveAndFlush(referral);
+
+            int referrerPoints = awardReferralBonus(referrer, newUser);
+            rewardAccountRepository.recordReferral(
+                referrer.getId(), referrerPoints, LocalDateTime.now());
+          });
+      return true;
+    } catch (DataIntegrityViolationException e) {
+      return false; // Redeemed concurrently by another request
+    }
   }
 
   public long countUserReferrals(Long userId) {
-    // Count referral transactions for this user
-    RewardAccount account = getRewardAccountEntity(userId);
-    return rewardTransactionRepository
-        .findByRewardAccountOrderByCreatedAtDesc(account, Pageable.unpaged()).stream()
-        .filter(t -> t.getDescription().contains("Referral bonus"))
-        .count();
+    return getRewardAccountEntity(userId).getReferralCount();
   }
 
+  @Transactional
   public RewardTransactionResponse redeemPointsWithTransaction(
       Long userId, Integer points, String description) {
     User user =
@@ -236,14 +458,10 @@ public class RewardService {
             .findByUser(user)
             .orElseThrow(() -> new RuntimeException("Reward account not found"));
 
-    if (account.getAvailablePoints() < points) {
+    if (!deductPoints(account, points)) {
       throw new RuntimeException("Insufficient points");
     }
 
-    account.setAvailablePoints(account.getAvailablePoints() - points);
-    account.setRedeemedPoints(account.getRedeemedPoints() + points);
-    rewardAccountRepository.save(account);
-
     // Create reward transaction record
     createRewardTransaction(account, TransactionType.REDEEMED, points, description);
 
@@ -256,4 +474,28 @@ public class RewardService {
 
     return convertToRewardTransactionResponse(transaction);
   }
+
+  // The balance check and the deduction are one conditional UPDATE, so two concurrent
+  // redemptions cannot both pass the check and overdraw the account. Credits still waiting in the
+  // write-behind buffer count towards the balance.
+  // Buffered credits are written first, so the deduction only draws on stored points
+  private boolean deductPoints(RewardAccount account, Integer points) {
+    rewardLedgerBuffer.flushAccount(account.getId());
+    return rewardAccountRepository.deductPoints(account.getId(), points, LocalDateTime.now()) > 0;
+  }
+
+  // Codes are written with a targeted UPDATE rather than through the entity, so assigning one can
+  // never flush stale point balances over a concurrent award
+  private String referralCodeFor(RewardAccount account) {
+    if (account.getReferralCode() != null) {
+      return account.getReferralCode();
+    }
+    String code = referralCodeRegistry.newCode();
+    if (rewardAccountRepository.assignReferralCode(account.getId(), code) == 0) {
+      return rewardAccountRepository.findReferralCodeById(account.getId());
+    }
+    Long userId = account.getUser().getId();
+    TransactionCallbacks.afterCommit(() -> referralCodeRegistry.register(code, userId));
+    return code;
+  }
 }
@@ -0,0 +1,207 @@
+package com.shopexperts.service;
+
+import com.shopexperts.model.SyncEntityType;
+import com.shopexperts.payload.SyncResponse;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Delta sync for clients that keep a local copy of a user's notifications, broadcasts, bookings and
+ * reward transactions. The change_log is read by (user_id, id) from the sequence number in the
+ * client's token, together with the entries recorded for everyone, repeated changes to one entity
+ * are collapsed, and only the entities still changed are loaded.
+ *
+ * <p>{@link ChangeLogService} hands out sequence numbers in commit order, so a page never holds a
+ * change with a gap below it that a later commit could fill, and the token can move to the last
+ * change read. Entries older than retention-days are pruned, and a token issued before then gets a
+ * reset instead of a delta.
+ */
+@Service
+public class SyncService {
+
+  private static final Logger logger = LoggerFactory.getLogger(SyncService.class);
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @Autowired private NotificationService notificationService;
+
+  @Autowired private BookingService bookingService;
+
+  @Autowired private RewardService rewardService;
+
+  @Autowired private NotificationCounterService notificationCounterService;
+
+  @Value("${app.sync.page-size:500}")
+  private int pageSize;
+
+  @Value("${app.sync.retention-days:30}")
+  private int retentionDays;
+
+  @Value("${app.sync.prune-batch-size:10000}")
+  private int pruneBatchSize;
+
+  private static final class Change {
+    final long seq;
+    final SyncEntityType type;
+    final long entityId;
+    final boolean deleted;
+
+    Change(long seq, SyncEntityType type, long entityId, boolean deleted) {
+      this.seq = seq;
+      this.type = type;
+      this.entityId = entityId;
+      this.deleted = deleted;
+    }
+  }
+
+  /** Changes since {@code since}; with no token, or one that is invalid or too old, a reset. */
+  public SyncResponse sync(Long userId, String since) {
+    long readUpTo = notificationCounterService.getReadUpTo(userId);
+    long broadcastReadUpTo = notificationCounterService.getBroadcastReadUpTo(userId);
+    long[] token = parse(since);
+    if (token == null
+        || token[1] < System.currentTimeMillis() - TimeUnit.DAYS.toMillis(retentionDays)) {
+      Long head = jdbcTemplate.queryForObject("SELECT MAX(id) FROM change_log", Long.class);
+      SyncResponse reset = new SyncResponse(token(head != null ? head : 0), true, readUpTo);
+      reset.setBroadcastsReadUpTo(broadcastReadUpTo);
+      return reset;
+    }
+
+    List<Change> page =
+        jdbcTemplate.query(
+            "SELECT id, entity_type, entity_id, deleted FROM change_log "
+                + "WHERE user_id IN (?, ?) AND id > ? ORDER BY id LIMIT ?",
+            (rs, rowNum) ->
+                new Change(
+                    rs.getLong(1),
+                    SyncEntityType.valueOf(rs.getString(2)),
+                    rs.getLong(3),
+                    rs.getBoolean(4)),
+            userId,
+            ChangeLogService.EVERYONE,
+            token[0],
+            pageSize + 1);
+
+    // Latest state per entity, in the order the entities first changed
+    Map<SyncEntityType, Map<Long, Boolean>> latest = new EnumMap<>(SyncEntityType.class);
+    long seq = token[0];
+    boolean hasMore = false;
+    for (int i = 0; i < page.size(); i++) {
+      Change change = page.get(i);
+      if (i == pageSize) {
+        hasMore = true;
+        break;
+      }
+      latest
+          .computeIfAbsent(change.type, type -> new LinkedHashMap<>())
+          .put(change.entityId, change.deleted);
+      seq = change.seq;
+    }
+
+    SyncResponse response = new SyncResponse(token(seq), false, readUpTo);
+    response.setBroadcastsReadUpTo(broadcastReadUpTo);
+    response.setHasMore(hasMore);
+    latest.forEach(
+        (type, entities) -> {
+          List<Long> changed = new ArrayList<>();
+          List<Long> deleted = new ArrayList<>();
+          entities.forEach((id, gone) -> (gone ? deleted : changed).add(id));
+          if (!changed.isEmpty() && type == SyncEntityType.BROADCAST) {
+            // Broadcasts are never deleted for everyone, so one the user cannot see is a tombstone
+            response.setBroadcasts(notificationService.getUserBroadcastsByIds(userId, changed));
+            Set<Long> visible = new HashSet<>();
+            response.getBroadcasts().forEach(broadcast -> visible.add(broadcast.getId()));
+            changed.stream().filter(id -> !visible.contains(id)).forEach(deleted::add);
+            changed.clear();
+          }
+          if (!deleted.isEmpty()) {
+            response.getDeleted().put(type, deleted);
+          }
+          if (changed.isEmpty()) {
+            return;
+          }
+          // Entities deleted since, or not the user's, are skipped; their tombstones follow
+          switch (type) {
+            case NOTIFICATION:
+              response.setNotifications(
+                  notificationService.getUserNotificationsByIds(userId, changed));
+              break;
+            case BOOKING:
+              response.setBookings(bookingService.getUserBookingsByIds(userId, changed));
+              break;
+            case REWARD_TRANSACTION:
+              response.setRewardTransactions(
+                  rewardService.getRewardTransactionsByIds(userId, changed));
+              break;
+            default:
+              break;
+          }
+        });
+    return response;
+  }
+
+  /** Deletes change log entries that no valid token can reach any more; returns how many. */
+  @Scheduled(cron = "${app.sync.prune-cron:0 0 5 * * *}")
+  public int prune() {
+    Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minusDays(retentionDays + 1L));
+    Long last =
+        jdbcTemplate.queryForObject(
+            "SELECT MAX(id) FROM change_log WHERE changed_at < ?", Long.class, cutoff);
+    if (last == null) {
+      return 0;
+    }
+    Long first = jdbcTemplate.queryForObject("SELECT MIN(id) FROM change_log", Long.class);
+    int removed = 0;
+    // Short id ranges, each its own statement, so pruning never holds long locks
+    for (long from = first; from <= last; from += pruneBatchSize) {
+      removed +=
+          jdbcTemplate.update(
+              "DELETE FROM change_log WHERE id >= ? AND id < ? AND id <= ?",
+              from,
+              from + pruneBatchSize,
+              last);
+    }
+    logger.info("Pruned {} change log entries", removed);
+    return removed;
+  }
+
+  private static String token(long seq) {
+    String value = seq + ":" + System.currentTimeMillis();
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(value.getBytes(StandardCharsets.US_ASCII));
+  }
+
+  // [sequence, issued at millis], or null if it is not a token this service issued
+  private static long[] parse(String token) {
+    if (token == null || token.isEmpty()) {
+      return null;
+    }
+    try {
+      String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.US_ASCII);
+      int colon = value.indexOf(':');
+      return new long[] {
+        Long.parseLong(value.substring(0, colon)), Long.parseLong(value.substring(colon + 1))
+      };
+    } catch (IllegalArgumentException | StringIndexOutOfBoundsException e) {
+      return null;
+    }
+  }
+}
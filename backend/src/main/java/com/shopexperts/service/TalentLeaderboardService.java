@@ -0,0 +1,237 @@
+package com.shopexperts.service;
+
+import com.shopexperts.payload.TalentRankingResponse;
+import com.shopexperts.repository.ReviewRepository;
+import com.shopexperts.util.RankedIndex;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Keeps talents ranked by a Bayesian-average rating, overall and per business category. Scores are
+ * adjusted in memory on every approved review write; the database is only aggregated when the index
+ * is (re)built.
+ */
+@Service
+public class TalentLeaderboardService {
+
+  @Autowired private ReviewRepository reviewRepository;
+
+  @Value("${app.leaderboard.prior-weight:10}")
+  private double priorWeight;
+
+  @Value("${app.leaderboard.default-prior-mean:4.0}")
+  private double defaultPriorMean;
+
+  /** A change in one talent's approved review count and rating sum. */
+  public static final class RatingChange {
+    private final Long talentId;
+    private final String talentName;
+    private final String category;
+    private int countDelta;
+    private int ratingDelta;
+
+    public RatingChange(
+        Long talentId, String talentName, String category, int countDelta, int ratingDelta) {
+      this.talentId = talentId;
+      this.talentName = talentName;
+      this.category = category;
+      this.countDelta = countDelta;
+      this.ratingDelta = ratingDelta;
+    }
+
+    public void add(int countDelta, int ratingDelta) {
+      this.countDelta += countDelta;
+      this.ratingDelta += ratingDelta;
+    }
+
+    public Long getTalentId() {
+      return talentId;
+    }
+
+    public int getCountDelta() {
+      return countDelta;
+    }
+
+    public int getRatingDelta() {
+      return ratingDelta;
+    }
+  }
+
+  private static final class TalentStats {
+    String name;
+    String category;
+    long count;
+    long sum;
+  }
+
+  // All fields below are guarded by "this"; the ranked indexes are internally synchronized.
+  private Map<Long, TalentStats> stats = new HashMap<>();
+  private volatile RankedIndex overall = new RankedIndex();
+  private volatile Map<String, RankedIndex> byCategory = new ConcurrentHashMap<>();
+  private volatile double priorMean;
+
+  /**
+   * Rebuilds every index from a single aggregate over approved reviews. Runs at startup and
+   * nightly, which also re-centres the prior mean and absorbs any drift from in-flight writes.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  @Scheduled(cron = "${app.leaderboard.rebuild-cron:0 30 3 * * *}")
+  public synchronized void rebuild() {
+    Map<Long, TalentStats> freshStats = new HashMap<>();
+    long totalCount = 0;
+    long totalSum = 0;
+    for (Object[] row : reviewRepository.aggregateApprovedRatingsByTalent()) {
+      TalentStats talentStats = new TalentStats();
+      talentStats.name = row[1] + " " + row[2];
+      talentStats.category = (String) row[3];
+      talentStats.count = ((Number) row[4]).longValue();
+      talentStats.sum = ((Number) row[5]).longValue();
+      freshStats.put((Long) row[0], talentStats);
+      totalCount += talentStats.count;
+      totalSum += talentStats.sum;
+    }
+
+    priorMean = totalCount > 0 ? (double) totalSum / totalCount : defaultPriorMean;
+    stats = freshStats;
+    RankedIndex freshOverall = new RankedIndex();
+    Map<String, RankedIndex> freshByCategory = new ConcurrentHashMap<>();
+    freshStats.forEach(
+        (talentId, talentStats) -> {
+          double score = score(talentStats);
+          freshOverall.put(talentId, score);
+          if (talentStats.category != null) {
+            freshByCategory
+                .computeIfAbsent(categoryKey(talentStats.category), key -> new RankedIndex())
+                .put(talentId, score);
+          }
+        });
+    overall = freshOverall;
+    byCategory = freshByCategory;
+  }
+
+  /** Applies a change in approved review count and rating sum for one talent. */
+  public synchronized void recordRatingChange(
+      Long talentId, String talentName, String category, int countDelta, int ratingDelta) {
+    applyChange(talentId, talentName, category, countDelta, ratingDelta);
+  }
+
+  /** Applies a batch of changes, e.g. from bulk moderation, under a single lock acquisition. */
+  public synchronized void recordRatingChanges(Collection<RatingChange> changes) {
+    for (RatingChange change : changes) {
+      applyChange(
+          change.talentId,
+          change.talentName,
+          change.category,
+          change.countDelta,
+          change.ratingDelta);
+    }
+  }
+
+  private void applyChange(
+      Long talentId, String talentName, String category, int countDelta, int ratingDelta) {
+    TalentStats talentStats = stats.computeIfAbsent(talentId, id -> new TalentStats());
+    talentStats.name = talentName;
+    talentStats.count += countDelta;
+    talentStats.sum += ratingDelta;
+
+    if (talentStats.category != null
+        && (category == null || !categoryKey(talentStats.category).equals(categoryKey(category)))) {
+      RankedIndex previous = byCategory.get(categoryKey(talentStats.category));
+      if (previous != null) {
+        previous.remove(talentId);
+      }
+    }
+    talentStats.category = category;
+
+    if (talentStats.count <= 0) {
+      stats.remove(talentId);
+      overall.remove(talentId);
+      if (category != null) {
+        RankedIndex categoryIndex = byCategory.get(categoryKey(category));
+        if (categoryIndex != null) {
+          categoryIndex.remove(talentId);
+        }
+      }
+      return;
+    }
+
+    double score = score(talentStats);
+    overall.put(talentId, score);
+    if (category != null) {
+      byCategory
+          .computeIfAbsent(categoryKey(category), key -> new RankedIndex())
+          .put(talentId, score);
+    }
+  }
+
+  public List<TalentRankingResponse> getTopTalents(String category, int limit) {
+    RankedIndex index = indexFor(category);
+    if (index == null) {
+      return new ArrayList<>();
+    }
+    List<RankedIndex.Entry> entries = index.top(limit);
+    synchronized (this) {
+      return entries.stream()
+          .map(entry -> toResponse(entry.getId(), entry.getRank(), entry.getScore()))
+          .collect(Collectors.toList());
+    }
+  }
+
+  /** The talent's position overall or within {@code category}, or null if it is not ranked. */
+  public TalentRankingResponse getTalentRanking(Long talentId, String category) {
+    RankedIndex index = indexFor(category);
+    if (index == null) {
+      return null;
+    }
+    int rank = index.rank(talentId);
+    Double score = index.score(talentId);
+    if (rank < 0 || score == null) {
+      return null;
+    }
+    synchronized (this) {
+      return toResponse(talentId, rank, score);
+    }
+  }
+
+  private TalentRankingResponse toResponse(Long talentId, int rank, double score) {
+    TalentStats talentStats = stats.get(talentId);
+    if (talentStats == null) {
+      return new TalentRankingResponse(rank, talentId, null, null, null, 0L, score);
+    }
+    return new TalentRankingResponse(
+        rank,
+        talentId,
+        talentStats.name,
+        talentStats.category,
+        (double) talentStats.sum / talentStats.count,
+        talentStats.count,
+        score);
+  }
+
+  private RankedIndex indexFor(String category) {
+    if (category == null || category.trim().isEmpty()) {
+      return overall;
+    }
+    return byCategory.get(categoryKey(category));
+  }
+
+  private double score(TalentStats talentStats) {
+    return (priorWeight * priorMean + talentStats.sum) / (priorWeight + talentStats.count);
+  }
+
+  private static String categoryKey(String category) {
+    return category.trim().toLowerCase(Locale.ROOT);
+  }
+}
@@ -0,0 +1,239 @@
+package com.shopexperts.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A minimal in-process SMTP server that accepts mail on the loopback interface and keeps it in
+ * memory, standing in for a real mail server in development and tests. It speaks enough SMTP for
+ * JavaMail (EHLO/HELO, MAIL, RCPT, DATA, RSET, NOOP, QUIT) and can be told to misbehave: reject
+ * recipients of some domains permanently (550), fail the next few recipients transiently (451), or
+ * answer slowly.
+ */
+public class LocalSmtpServer {
+
+  private static final Logger logger = LoggerFactory.getLogger(LocalSmtpServer.class);
+
+  /** One message as received. */
+  public static final class ReceivedMessage {
+    private final String from;
+    private final List<String> recipients;
+    private final String data;
+
+    ReceivedMessage(String from, List<String> recipients, String data) {
+      this.from = from;
+      this.recipients = recipients;
+      this.data = data;
+    }
+
+    public String getFrom() {
+      return from;
+    }
+
+    public List<String> getRecipients() {
+      return recipients;
+    }
+
+    /** Headers and body exactly as sent, with dot-stuffing removed. */
+    public String getData() {
+      return data;
+    }
+  }
+
+  private final int port;
+  private final List<ReceivedMessage> messages = new CopyOnWriteArrayList<>();
+  private final Set<String> rejectedDomains = ConcurrentHashMap.newKeySet();
+  private final AtomicInteger transientFailures = new AtomicInteger();
+  private final AtomicInteger connections = new AtomicInteger();
+  private volatile long replyDelayMillis;
+
+  private ServerSocket serverSocket;
+  private ExecutorService sessions;
+
+  /** Port 0 picks a free port; see {@link #getPort()}. */
+  public LocalSmtpServer(int port) {
+    this.port = port;
+  }
+
+  public synchronized void start() throws IOException {
+    serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+    sessions =
+        Executors.newCachedThreadPool(
+            task -> {
+              Thread thread = new Thread(task, "local-smtp");
+              thread.setDaemon(true);
+              return thread;
+            });
+    sessions.execute(this::acceptLoop);
+    logger.info("Local SMTP server listening on port {}", getPort());
+  }
+
+  public synchronized void stop() throws IOException {
+    if (serverSocket != null) {
+      serverSocket.close();
+      sessions.shutdownNow();
+    }
+  }
+
+  public int getPort() {
+    return serverSocket != null ? serverSocket.getLocalPort() : port;
+  }
+
+  public List<ReceivedMessage> getMessages() {
+    return new ArrayList<>(messages);
+  }
+
+  /** Number of SMTP connections accepted so far. */
+  public int getConnectionCount() {
+    return connections.get();
+  }
+
+  public void reset() {
+    messages.clear();
+    rejectedDomains.clear();
+    transientFailures.set(0);
+    connections.set(0);
+    replyDelayMillis = 0;
+  }
+
+  /** Recipients in this domain get "550 mailbox unavailable". */
+  public void rejectDomain(String domain) {
+    rejectedDomains.add(domain.toLowerCase(Locale.ROOT));
+  }
+
+  /** The next {@code count} recipients get "451 try again later". */
+  public void failNextRecipients(int count) {
+    transientFailures.set(count);
+  }
+
+  /** Delays every reply, to simulate a slow server. */
+  public void setReplyDelayMillis(long replyDelayMillis) {
+    this.replyDelayMillis = replyDelayMillis;
+  }
+
+  private void acceptLoop() {
+    while (!serverSocket.isClosed()) {
+      try {
+        Socket socket = serverSocket.accept();
+        connections.incrementAndGet();
+        sessions.execute(() -> session(socket));
+      } catch (SocketException e) {
+        return; // closed by stop()
+      } catch (IOException e) {
+        logger.warn("Local SMTP server accept failed: {}", e.getMessage());
+      }
+    }
+  }
+
+  private void session(Socket socket) {
+    try (Socket client = socket;
+        BufferedReader in =
+            new BufferedReader(
+                new InputStreamReader(client.getInputStream(), StandardCharsets.ISO_8859_1));
+        OutputStream out = client.getOutputStream()) {
+      reply(out, "220 localhost ESMTP local stand-in");
+      String from = null;
+      List<String> recipients = new ArrayList<>();
+      String line;
+      while ((line = in.readLine()) != null) {
+        String command = line.length() >= 4 ? line.substring(0, 4).toUpperCase(Locale.ROOT) : line;
+        switch (command) {
+          case "EHLO":
+            reply(out, "250-localhost\r\n250-8BITMIME\r\n250 SIZE 10485760");
+            break;
+          case "HELO":
+            reply(out, "250 localhost");
+            break;
+          case "MAIL":
+            from = address(line);
+            recipients.clear();
+            reply(out, "250 OK");
+            break;
+          case "RCPT":
+            String recipient = address(line);
+            String domain = recipient.substring(recipient.indexOf('@') + 1);
+            if (rejectedDomains.contains(domain.toLowerCase(Locale.ROOT))) {
+              reply(out, "550 5.1.1 Mailbox unavailable");
+            } else if (transientFailures.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+              reply(out, "451 4.3.0 Try again later");
+            } else {
+              recipients.add(recipient);
+              reply(out, "250 OK");
+            }
+            break;
+          case "DATA":
+            if (from == null || recipients.isEmpty()) {
+              reply(out, "503 5.5.1 Need MAIL and RCPT first");
+              break;
+            }
+            reply(out, "354 End data with <CR><LF>.<CR><LF>");
+            StringBuilder data = new StringBuilder();
+            while ((line = in.readLine()) != null && !line.equals(".")) {
+              data.append(line.startsWith(".") ? line.substring(1) : line).append("\r\n");
+            }
+            messages.add(new ReceivedMessage(from, new ArrayList<>(recipients), data.toString()));
+            from = null;
+            recipients.clear();
+            reply(out, "250 OK queued");
+            break;
+          case "RSET":
+            from = null;
+            recipients.clear();
+            reply(out, "250 OK");
+            break;
+          case "NOOP":
+            reply(out, "250 OK");
+            break;
+          case "QUIT":
+            reply(out, "221 Bye");
+            return;
+          default:
+            reply(out, "502 5.5.2 Command not implemented");
+        }
+      }
+    } catch (IOException e) {
+      // Client went away
+    }
+  }
+
+  private void reply(OutputStream out, String reply) throws IOException {
+    if (replyDelayMillis > 0) {
+      try {
+        Thread.sleep(replyDelayMillis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted", e);
+      }
+    }
+    out.write((reply + "\r\n").getBytes(StandardCharsets.US_ASCII));
+    out.flush();
+  }
+
+  // "MAIL FROM:<a@b> SIZE=1" -> "a@b"
+  private static String address(String line) {
+    int open = line.indexOf('<');
+    int close = line.indexOf('>', open + 1);
+    if (open >= 0 && close > open) {
+      return line.substring(open + 1, close);
+    }
+    return line.substring(line.indexOf(':') + 1).trim();
+  }
+}
@@ -0,0 +1,363 @@
+package com.shopexperts.util;
+
+import java.util.Arrays;
+
+/** Martin Porter's English suffix-stripping algorithm, for lowercase ASCII words. */
+public final class PorterStemmer {
+
+  private char[] b;
+  private int k; // index of the last character of the current stem
+  private int j; // general offset into the word, set by ends()
+
+  private PorterStemmer(char[] word) {
+    this.b = word;
+    this.k = word.length - 1;
+  }
+
+  public static String stem(String word) {
+    if (word.length() <= 2) {
+      return word;
+    }
+    for (int i = 0; i < word.length(); i++) {
+      char c = word.charAt(i);
+      if (c < 'a' || c > 'z') {
+        return word;
+      }
+    }
+    PorterStemmer stemmer = new PorterStemmer(word.toCharArray());
+    stemmer.step1ab();
+    if (stemmer.k > 0) {
+      stemmer.step1c();
+      stemmer.step2();
+      stemmer.step3();
+      stemmer.step4();
+      stemmer.step5();
+    }
+    return new String(stemmer.b, 0, stemmer.k + 1);
+  }
+
+  private boolean cons(int i) {
+    switch (b[i]) {
+      case 'a':
+      case 'e':
+      case 'i':
+      case 'o':
+      case 'u':
+        return false;
+      case 'y':
+        return i == 0 || !cons(i - 1);
+      default:
+        return true;
+    }
+  }
+
+  /** Number of vowel-consonant sequences in b[0..j]. */
+  private int m() {
+    int n = 0;
+    int i = 0;
+    while (true) {
+      if (i > j) {
+        return n;
+      }
+      if (!cons(i)) {
+        break;
+      }
+      i++;
+    }
+    i++;
+    while (true) {
+      while (true) {
+        if (i > j) {
+          return n;
+        }
+        if (cons(i)) {
+          break;
+        }
+        i++;
+      }
+      i++;
+      n++;
+      while (true) {
+        if (i > j) {
+          return n;
+        }
+        if (!cons(i)) {
+          break;
+        }
+        i++;
+      }
+      i++;
+    }
+  }
+
+  private boolean vowelInStem() {
+    for (int i = 0; i <= j; i++) {
+      if (!cons(i)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean doubleConsonant(int i) {
+    return i >= 1 && b[i] == b[i - 1] && cons(i);
+  }
+
+  /** True if b[i-2..i] is consonant-vowel-consonant and the last is not w, x or y. */
+  private boolean cvc(int i) {
+    if (i < 2 || !cons(i) || cons(i - 1) || !cons(i - 2)) {
+      return false;
+    }
+    char c = b[i];
+    return c != 'w' && c != 'x' && c != 'y';
+  }
+
+  private boolean ends(String suffix) {
+    int length = suffix.length();
+    int offset = k - length + 1;
+    if (offset < 0) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (b[offset + i] != suffix.charAt(i)) {
+        return false;
+      }
+    }
+    j = k - length;
+    return true;
+  }
+
+  private void setTo(String replacement) {
+    int length = replacement.length();
+    if (j + 1 + length > b.length) {
+      b = Arrays.copyOf(b, j + 1 + length);
+    }
+    for (int i = 0; i < length; i++) {
+      b[j + 1 + i] = replacement.charAt(i);
+    }
+    k = j + length;
+  }
+
+  private void replace(String replacement) {
+    if (m() > 0) {
+      setTo(replacement);
+    }
+  }
+
+  /** Plurals and -ed / -ing. */
+  private void step1ab() {
+    if (b[k] == 's') {
+      if (ends("sses")) {
+        k -= 2;
+      } else if (ends("ies")) {
+        setTo("i");
+      } else if (b[k - 1] != 's') {
+        k--;
+      }
+    }
+    if (ends("eed")) {
+      if (m() > 0) {
+        k--;
+      }
+    } else if ((ends("ed") || ends("ing")) && vowelInStem()) {
+      k = j;
+      if (ends("at")) {
+        setTo("ate");
+      } else if (ends("bl")) {
+        setTo("ble");
+      } else if (ends("iz")) {
+        setTo("ize");
+      } else if (doubleConsonant(k)) {
+        k--;
+        char c = b[k];
+        if (c == 'l' || c == 's' || c == 'z') {
+          k++;
+        }
+      } else if (m() == 1 && cvc(k)) {
+        setTo("e");
+      }
+    }
+  }
+
+  /** Terminal y to i when there is another vowel in the stem. */
+  private void step1c() {
+    if (ends("y") && vowelInStem()) {
+      b[k] = 'i';
+    }
+  }
+
+  /** Double suffixes to single ones, e.g. -ization to -ize. */
+  private void step2() {
+    if (k < 1) {
+      return;
+    }
+    switch (b[k - 1]) {
+      case 'a':
+        if (ends("ational")) {
+          replace("ate");
+        } else if (ends("tional")) {
+          replace("tion");
+        }
+        break;
+      case 'c':
+        if (ends("enci")) {
+          replace("ence");
+        } else if (ends("anci")) {
+          replace("ance");
+        }
+        break;
+      case 'e':
+        if (ends("izer")) {
+          replace("ize");
+        }
+        break;
+      case 'l':
+        if (ends("bli")) {
+          replace("ble");
+        } else if (ends("alli")) {
+          replace("al");
+        } else if (ends("entli")) {
+          replace("ent");
+        } else if (ends("eli")) {
+          replace("e");
+        } else if (ends("ousli")) {
+          replace("ous");
+        }
+        break;
+      case 'o':
+        if (ends("ization")) {
+          replace("ize");
+        } else if (ends("ation") || ends("ator")) {
+          replace("ate");
+        }
+        break;
+      case 's':
+        if (ends("alism")) {
+          replace("al");
+        } else if (ends("iveness")) {
+          replace("ive");
+        } else if (ends("fulness")) {
+          replace("ful");
+        } else if (ends("ousness")) {
+          replace("ous");
+        }
+        break;
+      case 't':
+        if (ends("aliti")) {
+          replace("al");
+        } else if (ends("iviti")) {
+          replace("ive");
+        } else if (ends("biliti")) {
+          replace("ble");
+        }
+        break;
+      case 'g':
+        if (ends("logi")) {
+          replace("log");
+        }
+        break;
+      default:
+        break;
+    }
+  }
+
+  /** -ic-, -full, -ness and similar. */
+  private void step3() {
+    switch (b[k]) {
+      case 'e':
+        if (ends("icate")) {
+          replace("ic");
+        } else if (ends("ative")) {
+          replace("");
+        } else if (ends("alize")) {
+          replace("al");
+        }
+        break;
+      case 'i':
+        if (ends("iciti")) {
+          replace("ic");
+        }
+        break;
+      case 'l':
+        if (ends("ical")) {
+          replace("ic");
+        } else if (ends("ful")) {
+          replace("");
+        }
+        break;
+      case 's':
+        if (ends("ness")) {
+          replace("");
+        }
+        break;
+      default:
+        break;
+    }
+  }
+
+  /** Drops -ant, -ence and friends when the remaining stem is long enough. */
+  private void step4() {
+    if (k < 1) {
+      return;
+    }
+    boolean matched;
+    switch (b[k - 1]) {
+      case 'a':
+        matched = ends("al");
+        break;
+      case 'c':
+        matched = ends("ance") || ends("ence");
+        break;
+      case 'e':
+        matched = ends("er");
+        break;
+      case 'i':
+        matched = ends("ic");
+        break;
+      case 'l':
+        matched = ends("able") || ends("ible");
+        break;
+      case 'n':
+        matched = ends("ant") || ends("ement") || ends("ment") || ends("ent");
+        break;
+      case 'o':
+        matched = (ends("ion") && j >= 0 && (b[j] == 's' || b[j] == 't')) || ends("ou");
+        break;
+      case 's':
+        matched = ends("ism");
+        break;
+      case 't':
+        matched = ends("ate") || ends("iti");
+        break;
+      case 'u':
+        matched = ends("ous");
+        break;
+      case 'v':
+        matched = ends("ive");
+        break;
+      case 'z':
+        matched = ends("ize");
+        break;
+      default:
+        matched = false;
+        break;
+    }
+    if (matched && m() > 1) {
+      k = j;
+    }
+  }
+
+  /** Final -e and double -ll. */
+  private void step5() {
+    j = k;
+    if (b[k] == 'e') {
+      int measure = m();
+      if (measure > 1 || (measure == 1 && !cvc(k - 1))) {
+        k--;
+      }
+    }
+    if (b[k] == 'l' && doubleConsonant(k) && m() > 1) {
+      k--;
+    }
+  }
+}
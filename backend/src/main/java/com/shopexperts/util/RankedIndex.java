@@ -0,0 +1,231 @@
+package com.shopexperts.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Order-statistic treap over (score desc, id asc). Every node carries its subtree size, so updates,
+ * rank-of-id and rank-based window reads are all O(log n) (plus the window length).
+ */
+public class RankedIndex {
+
+  private static final class Node {
+    final long id;
+    final double score;
+    final int priority;
+    int size = 1;
+    Node left;
+    Node right;
+
+    Node(long id, double score) {
+      this.id = id;
+      this.score = score;
+      this.priority = ThreadLocalRandom.current().nextInt();
+    }
+  }
+
+  public static final class Entry {
+    private final long id;
+    private final double score;
+    private final int rank;
+
+    Entry(long id, double score, int rank) {
+      this.id = id;
+      this.score = score;
+      this.rank = rank;
+    }
+
+    public long getId() {
+      return id;
+    }
+
+    public double getScore() {
+      return score;
+    }
+
+    public int getRank() {
+      return rank;
+    }
+  }
+
+  private final Map<Long, Double> scores = new HashMap<>();
+  private Node root;
+
+  public synchronized void put(long id, double score) {
+    Double previous = scores.put(id, score);
+    if (previous != null) {
+      root = delete(root, previous, id);
+    }
+    root = insert(root, new Node(id, score));
+  }
+
+  public synchronized void adjust(long id, double delta) {
+    Double previous = scores.get(id);
+    put(id, previous == null ? delta : previous + delta);
+  }
+
+  public synchronized boolean remove(long id) {
+    Double previous = scores.remove(id);
+    if (previous == null) {
+      return false;
+    }
+    root = delete(root, previous, id);
+    return true;
+  }
+
+  public synchronized Double score(long id) {
+    return scores.get(id);
+  }
+
+  /** 1-based rank of {@code id}, or -1 if it is not indexed. */
+  public synchronized int rank(long id) {
+    Double score = scores.get(id);
+    if (score == null) {
+      return -1;
+    }
+    int before = 0;
+    Node node = root;
+    while (node != null) {
+      int cmp = compare(score, id, node.score, node.id);
+      if (cmp < 0) {
+        node = node.left;
+      } else if (cmp > 0) {
+        before += size(node.left) + 1;
+        node = node.right;
+      } else {
+        return before + size(node.left) + 1;
+      }
+    }
+    return -1;
+  }
+
+  public synchronized List<Entry> top(int limit) {
+    return range(1, limit);
+  }
+
+  /** Up to {@code count} entries starting at the 1-based rank {@code fromRank}. */
+  public synchronized List<Entry> range(int fromRank, int count) {
+    List<Entry> result = new ArrayList<>(Math.max(0, Math.min(count, size(root))));
+    if (count > 0) {
+      int from = Math.max(fromRank, 1) - 1;
+      collect(root, from, from + count, 0, result);
+    }
+    return result;
+  }
+
+  /** The entry at {@code id} and up to {@code radius} neighbours on each side of it. */
+  public synchronized List<Entry> around(long id, int radius) {
+    int rank = rank(id);
+    if (rank < 0) {
+      return new ArrayList<>();
+    }
+    int from = Math.max(1, rank - radius);
+    return range(from, rank - from + radius + 1);
+  }
+
+  public synchronized int size() {
+    return size(root);
+  }
+
+  public synchronized void clear() {
+    scores.clear();
+    root = null;
+  }
+
+  private void collect(Node node, int from, int to, int offset, List<Entry> out) {
+    if (node == null || from >= to) {
+      return;
+    }
+    int nodeIndex = offset + size(node.left);
+    if (from < nodeIndex) {
+      collect(node.left, from, to, offset, out);
+    }
+    if (nodeIndex >= from && nodeIndex < to) {
+      out.add(new Entry(node.id, node.score, nodeIndex + 1));
+    }
+    if (to > nodeIndex + 1) {
+      collect(node.right, from, to, nodeIndex + 1, out);
+    }
+  }
+
+  private static Node insert(Node node, Node fresh) {
+    if (node == null) {
+      return fresh;
+    }
+    if (fresh.priority > node.priority) {
+      Node[] parts = split(node, fresh.score, fresh.id);
+      fresh.left = parts[0];
+      fresh.right = parts[1];
+      return update(fresh);
+    }
+    if (compare(fresh.score, fresh.id, node.score, node.id) < 0) {
+      node.left = insert(node.left, fresh);
+    } else {
+      node.right = insert(node.right, fresh);
+    }
+    return update(node);
+  }
+
+  private static Node delete(Node node, double score, long id) {
+    if (node == null) {
+      return null;
+    }
+    int cmp = compare(score, id, node.score, node.id);
+    if (cmp < 0) {
+      node.left = delete(node.left, score, id);
+    } else if (cmp > 0) {
+      node.right = delete(node.right, score, id);
+    } else {
+      return merge(node.left, node.right);
+    }
+    return update(node);
+  }
+
+  /** Splits into nodes ordered before (score, id) and nodes ordered at or after it. */
+  private static Node[] split(Node node, double score, long id) {
+    if (node == null) {
+      return new Node[] {null, null};
+    }
+    if (compare(node.score, node.id, score, id) < 0) {
+      Node[] parts = split(node.right, score, id);
+      node.right = parts[0];
+      return new Node[] {update(node), parts[1]};
+    }
+    Node[] parts = split(node.left, score, id);
+    node.left = parts[1];
+    return new Node[] {parts[0], update(node)};
+  }
+
+  private static Node merge(Node left, Node right) {
+    if (left == null) {
+      return right;
+    }
+    if (right == null) {
+      return left;
+    }
+    if (left.priority > right.priority) {
+      left.right = merge(left.right, right);
+      return update(left);
+    }
+    right.left = merge(left, right.left);
+    return update(right);
+  }
+
+  private static Node update(Node node) {
+    node.size = size(node.left) + size(node.right) + 1;
+    return node;
+  }
+
+  private static int size(Node node) {
+    return node == null ? 0 : node.size;
+  }
+
+  // Higher scores rank first; ties go to the lower id so ordering is total and stable.
+  private static int compare(double scoreA, long idA, double scoreB, long idB) {
+    int cmp = Double.compare(scoreB, scoreA);
+    return cmp != 0 ? cmp : Long.compare(idA, idB);
+  }
+}
@@ -0,0 +1,49 @@
+package com.shopexperts.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/** Splits free text into lowercase, stop-word-filtered, Porter-stemmed index terms. */
+public final class TextAnalyzer {
+
+  private static final Set<String> STOP_WORDS =
+      new HashSet<>(
+          Arrays.asList(
+              "a", "an", "and", "are", "as", "at", "be", "but", "by", "for", "if", "in", "into",
+              "is", "it", "its", "of", "on", "or", "so", "such", "that", "the", "their", "then",
+              "there", "these", "they", "this", "to", "was", "were", "will", "with", "we", "i",
+              "me", "my", "you", "your", "he", "she", "him", "her", "his", "our", "us", "had",
+              "has", "have", "been", "from", "than", "very", "just"));
+
+  private TextAnalyzer() {}
+
+  public static List<String> analyze(String text) {
+    List<String> terms = new ArrayList<>();
+    if (text == null || text.isEmpty()) {
+      return terms;
+    }
+    String lower = text.toLowerCase(Locale.ROOT);
+    int start = -1;
+    for (int i = 0; i <= lower.length(); i++) {
+      boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+      if (wordChar && start < 0) {
+        start = i;
+      } else if (!wordChar && start >= 0) {
+        addTerm(lower.substring(start, i), terms);
+        start = -1;
+      }
+    }
+    return terms;
+  }
+
+  private static void addTerm(String token, List<String> terms) {
+    if (token.length() < 2 || STOP_WORDS.contains(token)) {
+      return;
+    }
+    terms.add(PorterStemmer.stem(token));
+  }
+}
@@ -30,6 +30,12 @@ class BookingServiceTest {
 
   @Mock private RewardService rewardService;
 
+  @Mock private EmailService emailService;
+
+  @Mock private NotificationPreferenceService notificationPreferenceService;
+
+  @Mock private ChangeLogService changeLogService;
+
   @InjectMocks private BookingService bookingService;
 
   private User testUser;
@@ -108,6 +114,7 @@ class BookingServiceTest {
     verify(notificationService)
         .createNotification(
             eq(testTalent), anyString(), anyString(), eq(NotificationType.BOOKING_CONFIRMED));
+    verify(emailService).queue(eq(testTalent.getEmail()), eq("booking-requested"), anyMap());
   }
 
   @Test
@@ -186,6 +193,7 @@ class BookingServiceTest {
     verify(bookingRepository).findById(1L);
     verify(paymentService).confirmPayment("payment_intent_123");
     verify(bookingRepository).save(testBooking);
+    verify(emailService).queue(eq(testUser.getEmail()), eq("booking-confirmed"), anyMap());
   }
 
   @Test
@@ -0,0 +1,102 @@
+package com.shopexperts.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.shopexperts.model.Booking;
+import com.shopexperts.model.BookingStatus;
+import com.shopexperts.model.User;
+import com.shopexperts.repository.BookingRepository;
+import com.shopexperts.repository.UserRepository;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/** Booking writes, their outbox emails and change-log rows commit together against a real DB. */
+@DataJpaTest(properties = "spring.datasource.url=jdbc:h2:mem:booking-transaction;DB_CLOSE_DELAY=-1")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({
+  BookingService.class,
+  EmailService.class,
+  EmailTemplates.class,
+  NotificationPreferenceService.class,
+  ChangeLogService.class
+})
+class BookingTransactionTest {
+
+  @Autowired private BookingService bookingService;
+
+  @Autowired private BookingRepository bookingRepository;
+
+  @Autowired private UserRepository userRepository;
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @MockBean private PaymentService paymentService;
+
+  @MockBean private NotificationService notificationService;
+
+  @MockBean private RewardService rewardService;
+
+  @AfterEach
+  void tearDown() {
+    jdbcTemplate.update("DELETE FROM email_outbox");
+    jdbcTemplate.update("DELETE FROM change_log");
+    jdbcTemplate.update("DELETE FROM bookings");
+    jdbcTemplate.update("DELETE FROM users");
+  }
+
+  @Test
+  void confirmBooking_ShouldQueueNoEmail_WhenTheTransactionRollsBack() {
+    // Arrange
+    User customer =
+        userRepository.save(new User("Casey", "Customer", "casey@example.com", "password"));
+    User talent = userRepository.save(new User("Tara", "Talent", "tara@example.com", "password"));
+    LocalDateTime start = LocalDateTime.now().plusDays(1);
+    Booking booking =
+        bookingService.createBooking(
+            customer.getId(),
+            talent.getId(),
+            "Styling",
+            start,
+            start.plusHours(1),
+            new BigDecimal("50.00"),
+            null);
+    Integer emailsBefore = countEmails();
+    Integer changesBefore =
+        jdbcTemplate.queryForObject("SELECT COUNT(*) FROM change_log", Integer.class);
+    when(paymentService.confirmPayment("pi_1")).thenReturn(true);
+    doThrow(new RuntimeException("ledger unavailable"))
+        .when(rewardService)
+        .awardBookingBonus(any(), any());
+
+    // Act
+    assertThrows(
+        RuntimeException.class, () -> bookingService.confirmBooking(booking.getId(), "pi_1"));
+
+    // Assert
+    assertEquals(1, emailsBefore);
+    assertEquals(emailsBefore, countEmails());
+    assertEquals(
+        changesBefore,
+        jdbcTemplate.queryForObject("SELECT COUNT(*) FROM change_log", Integer.class));
+    Booking stored = bookingRepository.findById(booking.getId()).orElseThrow(AssertionError::new);
+    assertEquals(BookingStatus.PENDING, stored.getStatus());
+    assertNull(stored.getPaymentIntentId());
+  }
+
+  private Integer countEmails() {
+    return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM email_outbox", Integer.class);
+  }
+}
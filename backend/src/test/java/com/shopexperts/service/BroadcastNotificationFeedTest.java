@@ -0,0 +1,213 @@
+package com.shopexperts.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.shopexperts.model.BroadcastNotification;
+import com.shopexperts.model.Notification;
+import com.shopexperts.model.NotificationType;
+import com.shopexperts.model.Role;
+import com.shopexperts.model.RoleName;
+import com.shopexperts.model.User;
+import com.shopexperts.payload.BulkNotificationRequest;
+import com.shopexperts.payload.NotificationPreferences;
+import com.shopexperts.payload.NotificationResponse;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/** Runs the broadcast feed queries and bulk sends against a real database. */
+@DataJpaTest
+@Import({
+  NotificationService.class,
+  NotificationCounterService.class,
+  NotificationPreferenceService.class,
+  ChangeLogService.class
+})
+class BroadcastNotificationFeedTest {
+
+  private static final LocalDateTime NOW = LocalDateTime.now();
+
+  @Autowired private NotificationService notificationService;
+
+  @Autowired private NotificationPreferenceService notificationPreferenceService;
+
+  @Autowired private TestEntityManager entityManager;
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @MockBean private NotificationWriter notificationWriter;
+
+  private User user;
+
+  @BeforeEach
+  void setUp() {
+    user = entityManager.persist(new User("Feed", "Reader", "feed@example.com", "password"));
+    entityManager.flush();
+    jdbcTemplate.update(
+        "UPDATE users SET created_at = ? WHERE id = ?",
+        Timestamp.valueOf(NOW.minusDays(10)),
+        user.getId());
+  }
+
+  @Test
+  void getUserNotifications_ShouldMergeBroadcastsSentSinceSignup() {
+    // Arrange
+    broadcast("Before you joined", NOW.minusDays(20));
+    BroadcastNotification sale = broadcast("Summer sale", NOW.minusDays(2));
+    notification("Booking confirmed", NOW.minusDays(1));
+    notification("Welcome", NOW.minusDays(9));
+
+    // Act
+    Page<NotificationResponse> page =
+        notificationService.getUserNotifications(user.getId(), PageRequest.of(0, 10));
+
+    // Assert
+    assertEquals(3, page.getTotalElements());
+    assertEquals("Booking confirmed", page.getContent().get(0).getTitle());
+    assertEquals(sale.getId(), page.getContent().get(1).getId());
+    assertTrue(page.getContent().get(1).getBroadcast());
+    assertEquals("Welcome", page.getContent().get(2).getTitle());
+    assertEquals(3L, notificationService.getUnreadNotificationCount(user.getId()));
+  }
+
+  @Test
+  void broadcastReceipts_ShouldTrackReadAndDismissedPerUser() {
+    // Arrange
+    BroadcastNotification sale = broadcast("Summer sale", NOW.minusDays(2));
+    BroadcastNotification tips = broadcast("Booking tips", NOW.minusDays(3));
+    BroadcastNotification launch = broadcast("New categories", NOW.minusDays(4));
+
+    // Act
+    notificationService.markBroadcastAsRead(user.getId(), sale.getId());
+    notificationService.deleteBroadcast(user.getId(), tips.getId());
+    entityManager.flush();
+
+    // Assert
+    Page<NotificationResponse> page =
+        notificationService.getUserNotifications(user.getId(), PageRequest.of(0, 10));
+    assertEquals(2, page.getTotalElements());
+    assertTrue(page.getContent().get(0).getIsRead());
+    assertEquals(launch.getId(), page.getContent().get(1).getId());
+    assertFalse(page.getContent().get(1).getIsRead());
+    assertEquals(1L, notificationService.getUnreadNotificationCount(user.getId()));
+  }
+
+  @Test
+  void markAllNotificationsAsRead_ShouldCoverBroadcastsWithoutWritingReceipts() {
+    // Arrange
+    BroadcastNotification sale = broadcast("Summer sale", NOW.minusDays(2));
+    broadcast("Booking tips", NOW.minusDays(3));
+    notificationService.markBroadcastAsRead(user.getId(), sale.getId());
+    notification("Booking confirmed", NOW.minusDays(1));
+
+    // Act
+    notificationService.markAllNotificationsAsRead(user.getId());
+    entityManager.flush();
+    entityManager.clear();
+
+    // Assert
+    assertEquals(0L, notificationService.getUnreadNotificationCount(user.getId()));
+    assertTrue(
+        notificationService.getUserNotifications(user.getId(), PageRequest.of(0, 10)).stream()
+            .allMatch(NotificationResponse::getIsRead));
+    assertEquals(
+        1,
+        jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM broadcast_receipts WHERE user_id = ?",
+            Integer.class,
+            user.getId()));
+
+    // A broadcast sent afterwards is unread again
+    broadcast("New categories", NOW);
+    assertFalse(
+        notificationService
+            .getUserNotifications(user.getId(), PageRequest.of(0, 10))
+            .getContent()
+            .get(0)
+            .getIsRead());
+  }
+
+  @Test
+  void getUserNotifications_ShouldLeaveOutBroadcastsOfMutedTypes() {
+    // Arrange
+    broadcast("Summer sale", NOW.minusDays(2));
+    BroadcastNotification maintenance = broadcast("Maintenance tonight", NOW.minusDays(1));
+    jdbcTemplate.update(
+        "UPDATE broadcast_notifications SET type = 'SYSTEM_ALERT' WHERE id = ?",
+        maintenance.getId());
+    NotificationPreferences preferences =
+        notificationPreferenceService.getPreferences(user.getId());
+    preferences.getMutedInApp().add(NotificationType.PROMOTION);
+    notificationPreferenceService.updatePreferences(user.getId(), preferences);
+    notificationPreferenceService.load(); // the cached mask follows only after a commit
+
+    // Act
+    Page<NotificationResponse> page =
+        notificationService.getUserNotifications(user.getId(), PageRequest.of(0, 10));
+
+    // Assert
+    assertEquals(1, page.getTotalElements());
+    assertEquals(maintenance.getId(), page.getContent().get(0).getId());
+    assertEquals(1L, notificationService.getUnreadNotificationCount(user.getId()));
+  }
+
+  @Test
+  void sendBulkNotification_ShouldReachEveryUserWithTheRole() {
+    // Arrange
+    Role talentRole = entityManager.persist(new Role(RoleName.ROLE_TALENT));
+    for (int i = 0; i < 3; i++) {
+      User talent = new User("Talent" + i, "Tester", "talent" + i + "@example.com", "password");
+      talent.setRoles(Collections.singleton(talentRole));
+      entityManager.persist(talent);
+    }
+    entityManager.flush();
+    BulkNotificationRequest request =
+        new BulkNotificationRequest("New feature", "Try it out", NotificationType.SYSTEM_ALERT);
+    request.setRole(RoleName.ROLE_TALENT);
+
+    // Act
+    int sent = notificationService.sendBulkNotification(request);
+
+    // Assert
+    assertEquals(3, sent);
+    assertEquals(
+        0,
+        jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM notifications WHERE user_id = ?", Integer.class, user.getId()));
+  }
+
+  private BroadcastNotification broadcast(String title, LocalDateTime sentAt) {
+    BroadcastNotification broadcast =
+        entityManager.persistAndFlush(
+            new BroadcastNotification(title, title, NotificationType.PROMOTION));
+    jdbcTemplate.update(
+        "UPDATE broadcast_notifications SET created_at = ? WHERE id = ?",
+        Timestamp.valueOf(sentAt),
+        broadcast.getId());
+    entityManager.detach(broadcast);
+    return broadcast;
+  }
+
+  private void notification(String title, LocalDateTime createdAt) {
+    Notification notification = new Notification();
+    notification.setUser(user);
+    notification.setTitle(title);
+    notification.setType(NotificationType.BOOKING_CONFIRMED);
+    entityManager.persistAndFlush(notification);
+    jdbcTemplate.update(
+        "UPDATE notifications SET created_at = ? WHERE id = ?",
+        Timestamp.valueOf(createdAt),
+        notification.getId());
+    entityManager.detach(notification);
+  }
+}
@@ -0,0 +1,182 @@
+package com.shopexperts.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.shopexperts.util.LocalSmtpServer;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/** Sends the outbox to an in-process SMTP server over a real database. */
+@DataJpaTest(
+    properties = {
+      "spring.datasource.url=jdbc:h2:mem:email-dispatcher;DB_CLOSE_DELAY=-1",
+      "app.mail.dispatcher.batch-size=3",
+      "app.mail.dispatcher.connections=1",
+      "app.mail.dispatcher.max-attempts=3",
+      "app.mail.dispatcher.backoff-ms=60000",
+      "app.mail.dispatcher.poll-interval-ms=3600000"
+    })
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({
+  EmailService.class,
+  EmailTemplates.class,
+  EmailDispatcher.class,
+  EmailDispatcherTest.SmtpConfig.class
+})
+class EmailDispatcherTest {
+
+  @TestConfiguration
+  static class SmtpConfig {
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    LocalSmtpServer localSmtpServer() {
+      return new LocalSmtpServer(0);
+    }
+
+    @Bean
+    JavaMailSender javaMailSender(LocalSmtpServer localSmtpServer) {
+      JavaMailSenderImpl sender = new JavaMailSenderImpl();
+      sender.setHost("localhost");
+      sender.setPort(localSmtpServer.getPort());
+      Properties properties = new Properties();
+      properties.put("mail.smtp.connectiontimeout", "5000");
+      properties.put("mail.smtp.timeout", "5000");
+      sender.setJavaMailProperties(properties);
+      return sender;
+    }
+  }
+
+  @Autowired private EmailService emailService;
+
+  @Autowired private EmailDispatcher emailDispatcher;
+
+  @Autowired private LocalSmtpServer localSmtpServer;
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @AfterEach
+  void tearDown() {
+    jdbcTemplate.update("DELETE FROM email_outbox");
+    localSmtpServer.reset();
+  }
+
+  @Test
+  void dispatch_ShouldSendQueuedEmailsInBatchesOverOneConnectionEach() {
+    // Arrange
+    for (int i = 0; i < 5; i++) {
+      emailService.queue(
+          "customer" + i + "@example.com", "booking-confirmed", model("Customer " + i));
+    }
+
+    // Act
+    int delivered = emailDispatcher.dispatch(LocalDateTime.now().plusSeconds(1));
+
+    // Assert: two batches of at most three emails, one connection per batch
+    assertEquals(5, delivered);
+    assertEquals(2, localSmtpServer.getConnectionCount());
+    List<LocalSmtpServer.ReceivedMessage> messages = localSmtpServer.getMessages();
+    assertEquals(5, messages.size());
+    assertEquals(List.of("customer0@example.com"), messages.get(0).getRecipients());
+    assertTrue(
+        messages.get(0).getData().contains("Subject: Your booking with Jane Smith is confirmed"));
+    assertTrue(messages.get(0).getData().contains("Hi Customer 0,"));
+    assertEquals(5, countByStatus("SENT"));
+  }
+
+  @Test
+  void dispatch_ShouldRetryTransientFailuresWithBackoff() {
+    // Arrange
+    emailService.queue("first@example.com", "booking-confirmed", model("First"));
+    emailService.queue("second@example.com", "booking-confirmed", model("Second"));
+    localSmtpServer.failNextRecipients(1);
+    LocalDateTime now = LocalDateTime.now().plusSeconds(1);
+
+    // Act
+    int delivered = emailDispatcher.dispatch(now);
+
+    // Assert
+    assertEquals(1, delivered);
+    Map<String, Object> retry =
+        jdbcTemplate.queryForMap(
+            "SELECT status, attempts, next_attempt_at, last_error FROM email_outbox "
+                + "WHERE recipient = 'first@example.com'");
+    assertEquals("PENDING", retry.get("STATUS"));
+    assertEquals(1, retry.get("ATTEMPTS"));
+    assertTrue(
+        ((Timestamp) retry.get("NEXT_ATTEMPT_AT")).toLocalDateTime().isAfter(now.plusSeconds(59)));
+    assertNotNull(retry.get("LAST_ERROR"));
+    assertEquals(0, emailDispatcher.dispatch(now.plusSeconds(30)));
+
+    // Act: once the backoff has passed
+    assertEquals(1, emailDispatcher.dispatch(now.plusHours(1)));
+
+    // Assert
+    assertEquals(2, countByStatus("SENT"));
+    assertEquals(2, localSmtpServer.getMessages().size());
+  }
+
+  @Test
+  void dispatch_ShouldFailPermanentRejectionsAtOnceAndSendTheRest() {
+    // Arrange
+    localSmtpServer.rejectDomain("nowhere.test");
+    emailService.queue("ghost@nowhere.test", "booking-confirmed", model("Ghost"));
+    emailService.queue("real@example.com", "booking-confirmed", model("Real"));
+
+    // Act
+    int delivered = emailDispatcher.dispatch(LocalDateTime.now().plusSeconds(1));
+
+    // Assert
+    assertEquals(1, delivered);
+    assertEquals(1, countByStatus("SENT"));
+    assertEquals(
+        "FAILED",
+        jdbcTemplate.queryForObject(
+            "SELECT status FROM email_outbox WHERE recipient = 'ghost@nowhere.test'",
+            String.class));
+    assertEquals(1L, emailDispatcher.getStats().get("failed"));
+  }
+
+  @Test
+  void queue_ShouldRejectAMissingTemplateVariable() {
+    // Act & Assert
+    Map<String, Object> model = model("Someone");
+    model.remove("service");
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> emailService.queue("someone@example.com", "booking-confirmed", model));
+    assertEquals(
+        0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM email_outbox", Integer.class));
+  }
+
+  private int countByStatus(String status) {
+    return jdbcTemplate.queryForObject(
+        "SELECT COUNT(*) FROM email_outbox WHERE status = ?", Integer.class, status);
+  }
+
+  private static Map<String, Object> model(String customerName) {
+    Map<String, Object> model = new HashMap<>();
+    model.put("customerName", customerName);
+    model.put("talentName", "Jane Smith");
+    model.put("startTime", "1 June 2026 10:00");
+    model.put("endTime", "1 June 2026 11:00");
+    model.put("service", "Interview coaching");
+    return model;
+  }
+}
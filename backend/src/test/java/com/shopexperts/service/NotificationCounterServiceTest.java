@@ -0,0 +1,195 @@
+package com.shopexperts.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.shopexperts.model.NotificationType;
+import com.shopexperts.model.User;
+import com.shopexperts.repository.BroadcastNotificationRepository;
+import com.shopexperts.repository.UserRepository;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/** Runs the unread counters against a real database, outside a test transaction. */
+@DataJpaTest(
+    properties = "spring.datasource.url=jdbc:h2:mem:notification-counters;DB_CLOSE_DELAY=-1")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({
+  NotificationCounterService.class,
+  NotificationPreferenceService.class,
+  ChangeLogService.class
+})
+class NotificationCounterServiceTest {
+
+  @Autowired private NotificationCounterService notificationCounterService;
+
+  @Autowired private UserRepository userRepository;
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @SpyBean private BroadcastNotificationRepository broadcastNotificationRepository;
+
+  private User user;
+
+  @BeforeEach
+  void setUp() {
+    user = userRepository.save(new User("Count", "Reader", "count@example.com", "password"));
+    jdbcTemplate.update(
+        "UPDATE users SET created_at = ? WHERE id = ?",
+        Timestamp.valueOf(LocalDateTime.now().minusDays(1)),
+        user.getId());
+  }
+
+  @AfterEach
+  void tearDown() {
+    notificationCounterService.reconcile();
+    jdbcTemplate.update("DELETE FROM notification_counters");
+    jdbcTemplate.update("DELETE FROM notifications");
+    jdbcTemplate.update("DELETE FROM broadcast_notifications");
+    jdbcTemplate.update("DELETE FROM users");
+  }
+
+  @Test
+  void getUnreadCount_ShouldCountTheTableOnceAndThenFollowAdjustments() {
+    // Arrange
+    insertNotification(false);
+    insertNotification(false);
+    insertNotification(true);
+
+    // Act
+    long first = notificationCounterService.getUnreadCount(user.getId());
+    insertNotification(false);
+    notificationCounterService.adjust(user.getId(), 1);
+    insertNotification(false); // written without telling the counters
+    long second = notificationCounterService.getUnreadCount(user.getId());
+
+    // Assert
+    assertEquals(2L, first);
+    assertEquals(3L, second);
+    assertEquals(3, storedCount());
+  }
+
+  @Test
+  void reconcile_ShouldCorrectDriftFromTheTable() {
+    // Arrange
+    insertNotification(false);
+    notificationCounterService.getUnreadCount(user.getId());
+    insertNotification(false);
+    insertNotification(false);
+
+    // Act
+    int corrected = notificationCounterService.reconcile();
+
+    // Assert
+    assertEquals(1, corrected);
+    assertEquals(3, storedCount());
+    assertEquals(3L, notificationCounterService.getUnreadCount(user.getId()));
+  }
+
+  @Test
+  void markAllRead_ShouldCoverOnlyNotificationsThatAlreadyExist() {
+    // Arrange
+    insertNotification(false);
+    insertNotification(false);
+    assertEquals(2L, notificationCounterService.getUnreadCount(user.getId()));
+
+    // Act
+    notificationCounterService.markAllRead(user.getId());
+    insertNotification(false);
+    notificationCounterService.adjust(user.getId(), 1);
+
+    // Assert
+    assertEquals(1L, notificationCounterService.getUnreadCount(user.getId()));
+    assertEquals(0, notificationCounterService.reconcile());
+    assertEquals(1L, notificationCounterService.getUnreadCount(user.getId()));
+    assertEquals(
+        0,
+        jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM notifications WHERE is_read = TRUE", Integer.class));
+  }
+
+  @Test
+  void broadcastSent_ShouldAddTheBroadcastToCachedCountsWithoutCountingAgain() {
+    // Arrange
+    notificationCounterService.markAllRead(user.getId());
+    assertEquals(0L, notificationCounterService.getUnreadCount(user.getId()));
+    long sale = insertBroadcast();
+    clearInvocations(broadcastNotificationRepository);
+
+    // Act
+    notificationCounterService.broadcastSent(sale, NotificationType.PROMOTION);
+
+    // Assert
+    assertEquals(1L, notificationCounterService.getUnreadCount(user.getId()));
+    verifyNoInteractions(broadcastNotificationRepository);
+  }
+
+  @Test
+  void broadcastSent_ShouldCountAgain_WhenANewerBroadcastWasCountedFirst() {
+    // Arrange: the later broadcast commits and is counted before the earlier one's callback runs
+    long earlier = insertBroadcast();
+    long later = insertBroadcast();
+    assertEquals(2L, notificationCounterService.getUnreadCount(user.getId()));
+
+    // Act
+    notificationCounterService.broadcastSent(later, NotificationType.PROMOTION);
+    notificationCounterService.broadcastSent(earlier, NotificationType.PROMOTION);
+
+    // Assert
+    assertEquals(2L, notificationCounterService.getUnreadCount(user.getId()));
+  }
+
+  @Test
+  void markAllRead_ShouldCoverExistingBroadcastsWithoutReceipts() {
+    // Arrange
+    notificationCounterService.broadcastSent(insertBroadcast(), NotificationType.PROMOTION);
+    assertEquals(1L, notificationCounterService.getUnreadCount(user.getId()));
+
+    // Act
+    notificationCounterService.markAllRead(user.getId());
+
+    // Assert
+    assertEquals(0L, notificationCounterService.getUnreadCount(user.getId()));
+    assertEquals(
+        jdbcTemplate.queryForObject("SELECT MAX(id) FROM broadcast_notifications", Long.class),
+        notificationCounterService.getBroadcastReadUpTo(user.getId()));
+    assertEquals(
+        0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM broadcast_receipts", Integer.class));
+  }
+
+  private long insertBroadcast() {
+    jdbcTemplate.update(
+        "INSERT INTO broadcast_notifications (title, message, type, created_at) "
+            + "VALUES ('Sale', 'Sale', 'PROMOTION', ?)",
+        Timestamp.valueOf(LocalDateTime.now()));
+    return jdbcTemplate.queryForObject("SELECT MAX(id) FROM broadcast_notifications", Long.class);
+  }
+
+  private void insertNotification(boolean read) {
+    jdbcTemplate.update(
+        "INSERT INTO notifications (user_id, title, message, type, is_read, created_at) "
+            + "VALUES (?, 'Booking', 'Booking', 'BOOKING_CONFIRMED', ?, ?)",
+        user.getId(),
+        read,
+        Timestamp.valueOf(LocalDateTime.now()));
+  }
+
+  private int storedCount() {
+    return jdbcTemplate.queryForObject(
+        "SELECT unread_count FROM notification_counters WHERE user_id = ?",
+        Integer.class,
+        user.getId());
+  }
+}
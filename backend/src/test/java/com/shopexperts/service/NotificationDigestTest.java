@@ -0,0 +1,173 @@
+package com.shopexperts.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.shopexperts.model.NotificationType;
+import com.shopexperts.model.User;
+import com.shopexperts.repository.UserRepository;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/** Coalesces notifications through the writer against a real database. */
+@DataJpaTest(
+    properties = {
+      "spring.datasource.url=jdbc:h2:mem:notification-digest;DB_CLOSE_DELAY=-1",
+      "app.notifications.digest.types=REFERRAL_BONUS,BOOKING_CONFIRMED",
+      "app.notifications.digest.window-minutes=60"
+    })
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({
+  NotificationWriter.class,
+  NotificationCounterService.class,
+  NotificationPreferenceService.class,
+  ChangeLogService.class
+})
+class NotificationDigestTest {
+
+  @Autowired private NotificationWriter notificationWriter;
+
+  @Autowired private NotificationCounterService notificationCounterService;
+
+  @Autowired private UserRepository userRepository;
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  private User talent;
+  private User other;
+
+  @BeforeEach
+  void setUp() throws InterruptedException {
+    // Keep rows queued until the test flushes them
+    notificationWriter.stop();
+    ReflectionTestUtils.setField(notificationWriter, "running", true);
+    talent = userRepository.save(new User("Busy", "Talent", "busy@example.com", "password"));
+    other = userRepository.save(new User("Quiet", "Talent", "quiet@example.com", "password"));
+  }
+
+  @AfterEach
+  void tearDown() {
+    jdbcTemplate.update("DELETE FROM notification_counters");
+    jdbcTemplate.update("DELETE FROM notifications");
+    jdbcTemplate.update("DELETE FROM users");
+  }
+
+  @Test
+  void flush_ShouldStoreOneDigestPerUserAndType() {
+    // Arrange
+    LocalDateTime now = LocalDateTime.now();
+    for (int i = 1; i <= 3; i++) {
+      notificationWriter.enqueue(
+          talent.getId(), "Points Earned!", "Bonus " + i, NotificationType.REFERRAL_BONUS, now);
+    }
+    notificationWriter.enqueue(
+        other.getId(), "Points Earned!", "Bonus", NotificationType.REFERRAL_BONUS, now);
+    notificationWriter.enqueue(talent.getId(), "Sale", "First", NotificationType.PROMOTION, now);
+    notificationWriter.enqueue(talent.getId(), "Sale", "Second", NotificationType.PROMOTION, now);
+
+    // Act
+    int written = notificationWriter.flush();
+
+    // Assert
+    assertEquals(6, written);
+    Map<String, Object> digest =
+        jdbcTemplate.queryForMap(
+            "SELECT message, item_count FROM notifications WHERE user_id = ? AND type = ?",
+            talent.getId(),
+            NotificationType.REFERRAL_BONUS.name());
+    assertEquals("3 referral bonus notifications", digest.get("MESSAGE"));
+    assertEquals(3, digest.get("ITEM_COUNT"));
+    assertEquals(
+        2,
+        jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM notifications WHERE user_id = ? AND type = 'PROMOTION'",
+            Integer.class,
+            talent.getId()));
+    assertEquals(
+        "Bonus",
+        jdbcTemplate.queryForObject(
+            "SELECT message FROM notifications WHERE user_id = ? AND item_count IS NULL",
+            String.class,
+            other.getId()));
+    assertEquals(3L, notificationCounterService.getUnreadCount(talent.getId()));
+    assertEquals(1L, notificationCounterService.getUnreadCount(other.getId()));
+  }
+
+  @Test
+  void flush_ShouldAddToTheUnreadDigestUntilItIsRead() {
+    // Arrange
+    LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+    booking(now);
+    notificationWriter.flush();
+    assertEquals(1L, notificationCounterService.getUnreadCount(talent.getId()));
+
+    // Act
+    booking(now.plusMinutes(1));
+    booking(now.plusMinutes(2));
+    notificationWriter.flush();
+
+    // Assert
+    Map<String, Object> digest =
+        jdbcTemplate.queryForMap("SELECT message, item_count, created_at FROM notifications");
+    assertEquals("3 booking confirmed notifications", digest.get("MESSAGE"));
+    assertEquals(3, digest.get("ITEM_COUNT"));
+    assertEquals(Timestamp.valueOf(now.plusMinutes(2)), digest.get("CREATED_AT"));
+    assertEquals(1L, notificationCounterService.getUnreadCount(talent.getId()));
+
+    // Act: once read, the next one starts afresh
+    jdbcTemplate.update("UPDATE notifications SET is_read = TRUE");
+    notificationCounterService.reconcile();
+    booking(now.plusMinutes(3));
+    notificationWriter.flush();
+
+    // Assert
+    List<Integer> counts =
+        jdbcTemplate.queryForList(
+            "SELECT item_count FROM notifications ORDER BY id", Integer.class);
+    assertEquals(2, counts.size());
+    assertEquals(3, counts.get(0));
+    assertNull(counts.get(1));
+    assertEquals(1L, notificationCounterService.getUnreadCount(talent.getId()));
+    assertEquals(0, notificationCounterService.reconcile());
+  }
+
+  @Test
+  void flush_ShouldNotAddToANotificationOlderThanTheWindow() {
+    // Arrange
+    LocalDateTime now = LocalDateTime.now();
+    booking(now.minusHours(2));
+    notificationWriter.flush();
+
+    // Act
+    booking(now);
+    notificationWriter.flush();
+
+    // Assert
+    assertEquals(
+        2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM notifications", Integer.class));
+    assertEquals(2L, notificationCounterService.getUnreadCount(talent.getId()));
+  }
+
+  private void booking(LocalDateTime at) {
+    notificationWriter.enqueue(
+        talent.getId(),
+        "New Booking Request",
+        "You have a new booking request",
+        NotificationType.BOOKING_CONFIRMED,
+        at);
+  }
+}
@@ -0,0 +1,108 @@
+package com.shopexperts.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.shopexperts.model.NotificationChannel;
+import com.shopexperts.model.NotificationType;
+import com.shopexperts.payload.NotificationPreferences;
+import java.util.Arrays;
+import java.util.EnumSet;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/** Stores and checks notification mutes against a real database. */
+@DataJpaTest(
+    properties = "spring.datasource.url=jdbc:h2:mem:notification-preferences;DB_CLOSE_DELAY=-1")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({NotificationPreferenceService.class, ChangeLogService.class})
+class NotificationPreferenceServiceTest {
+
+  @Autowired private NotificationPreferenceService notificationPreferenceService;
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @AfterEach
+  void tearDown() {
+    jdbcTemplate.update("DELETE FROM notification_preferences");
+  }
+
+  @Test
+  void updatePreferences_ShouldMuteEachTypeOnItsOwnChannel() {
+    // Arrange
+    NotificationPreferences preferences = new NotificationPreferences();
+    preferences.setMutedInApp(EnumSet.of(NotificationType.PROMOTION));
+    preferences.setMutedEmail(
+        EnumSet.of(NotificationType.PROMOTION, NotificationType.BOOKING_CONFIRMED));
+
+    // Act
+    notificationPreferenceService.updatePreferences(7L, preferences);
+
+    // Assert
+    assertTrue(
+        notificationPreferenceService.isMuted(
+            7L, NotificationType.PROMOTION, NotificationChannel.IN_APP));
+    assertFalse(
+        notificationPreferenceService.isMuted(
+            7L, NotificationType.BOOKING_CONFIRMED, NotificationChannel.IN_APP));
+    assertTrue(
+        notificationPreferenceService.isMuted(
+            7L, NotificationType.BOOKING_CONFIRMED, NotificationChannel.EMAIL));
+    assertFalse(
+        notificationPreferenceService.isMuted(
+            7L, NotificationType.PROMOTION, NotificationChannel.PUSH));
+    assertFalse(
+        notificationPreferenceService.isMuted(
+            8L, NotificationType.PROMOTION, NotificationChannel.IN_APP));
+    assertEquals(
+        Arrays.asList(6L, 8L),
+        notificationPreferenceService.withoutMuted(
+            Arrays.asList(6L, 7L, 8L), NotificationType.PROMOTION, NotificationChannel.IN_APP));
+  }
+
+  @Test
+  void load_ShouldRestoreStoredMasks() {
+    // Arrange
+    NotificationPreferences preferences = new NotificationPreferences();
+    preferences.setMutedPush(EnumSet.of(NotificationType.REFERRAL_BONUS));
+    notificationPreferenceService.updatePreferences(7L, preferences);
+    NotificationPreferenceService restarted = new NotificationPreferenceService();
+    ReflectionTestUtils.setField(restarted, "jdbcTemplate", jdbcTemplate);
+
+    // Act
+    restarted.load();
+
+    // Assert
+    assertEquals(
+        EnumSet.of(NotificationType.REFERRAL_BONUS), restarted.getPreferences(7L).getMutedPush());
+    assertTrue(restarted.getPreferences(7L).getMutedInApp().isEmpty());
+  }
+
+  @Test
+  void updatePreferences_ShouldForgetUsersWhoUnmuteEverything() {
+    // Arrange
+    NotificationPreferences preferences = new NotificationPreferences();
+    preferences.setMutedInApp(EnumSet.of(NotificationType.PROMOTION));
+    notificationPreferenceService.updatePreferences(7L, preferences);
+
+    // Act
+    notificationPreferenceService.updatePreferences(7L, new NotificationPreferences());
+
+    // Assert
+    assertFalse(
+        notificationPreferenceService.isMuted(
+            7L, NotificationType.PROMOTION, NotificationChannel.IN_APP));
+    assertEquals(
+        0L,
+        jdbcTemplate.queryForObject(
+            "SELECT muted FROM notification_preferences WHERE user_id = 7", Long.class));
+  }
+}
@@ -0,0 +1,178 @@
+package com.shopexperts.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.shopexperts.model.NotificationType;
+import com.shopexperts.model.User;
+import com.shopexperts.repository.UserRepository;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/** Runs the retention job against a real database, with batches of two rows. */
+@DataJpaTest(
+    properties = {
+      "spring.datasource.url=jdbc:h2:mem:notification-retention;DB_CLOSE_DELAY=-1",
+      "app.notifications.retention.read-days=90",
+      "app.notifications.retention.unread-days=365",
+      "app.notifications.retention.batch-size=2",
+      "app.notifications.retention.compact-types=REFERRAL_BONUS",
+      "app.notifications.retention.compact-after-days=7",
+      "app.notifications.retention.compact-min-count=3"
+    })
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({
+  NotificationRetentionService.class,
+  NotificationCounterService.class,
+  NotificationPreferenceService.class,
+  ChangeLogService.class
+})
+class NotificationRetentionServiceTest {
+
+  private static final LocalDateTime NOW = LocalDateTime.of(2026, 6, 1, 4, 30);
+
+  @Autowired private NotificationRetentionService notificationRetentionService;
+
+  @Autowired private NotificationCounterService notificationCounterService;
+
+  @Autowired private UserRepository userRepository;
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  private User user;
+
+  @BeforeEach
+  void setUp() {
+    user = userRepository.save(new User("Old", "Timer", "old@example.com", "password"));
+  }
+
+  @AfterEach
+  void tearDown() {
+    jdbcTemplate.update("DELETE FROM notifications_archive");
+    jdbcTemplate.update("DELETE FROM notification_counters");
+    jdbcTemplate.update("DELETE FROM notifications");
+    jdbcTemplate.update("DELETE FROM users");
+  }
+
+  @Test
+  void runRetention_ShouldArchiveOldReadAndVeryOldUnreadNotifications() {
+    // Arrange
+    long watermarked = insert(NotificationType.NEW_REVIEW, false, NOW.minusDays(100));
+    jdbcTemplate.update(
+        "INSERT INTO notification_counters (user_id, unread_count, read_up_to_id) VALUES (?, 0, ?)",
+        user.getId(),
+        watermarked);
+    long oldRead = insert(NotificationType.BOOKING_CONFIRMED, true, NOW.minusDays(120));
+    long oldUnread = insert(NotificationType.BOOKING_CONFIRMED, false, NOW.minusDays(120));
+    long ancientUnread = insert(NotificationType.PAYMENT_SUCCESS, false, NOW.minusDays(400));
+    long recentRead = insert(NotificationType.BOOKING_CONFIRMED, true, NOW.minusDays(10));
+    insert(NotificationType.BOOKING_CONFIRMED, false, NOW.minusDays(1));
+    notificationCounterService.reconcile();
+
+    // Act
+    NotificationRetentionService.RetentionRun run = notificationRetentionService.runRetention(NOW);
+
+    // Assert: read (flag or watermark) past 90 days and anything past 365 days is gone
+    assertEquals(3, run.getRemoved());
+    assertEquals(0, run.getFailedBatches());
+    List<Long> remaining =
+        jdbcTemplate.queryForList("SELECT id FROM notifications ORDER BY id", Long.class);
+    assertEquals(3, remaining.size());
+    assertTrue(remaining.contains(oldUnread));
+    assertTrue(remaining.contains(recentRead));
+    List<Long> archived =
+        jdbcTemplate.queryForList("SELECT id FROM notifications_archive ORDER BY id", Long.class);
+    assertEquals(3, archived.size());
+    assertTrue(archived.contains(oldRead));
+    assertTrue(archived.contains(ancientUnread));
+    assertTrue(archived.contains(watermarked));
+    assertEquals(
+        Boolean.TRUE,
+        jdbcTemplate.queryForObject(
+            "SELECT is_read FROM notifications_archive WHERE id = ?", Boolean.class, watermarked));
+    assertEquals(2L, notificationCounterService.getUnreadCount(user.getId()));
+    assertEquals(0, notificationCounterService.reconcile());
+  }
+
+  @Test
+  void runRetention_ShouldFoldRepeatedReferralBonusesIntoOneSummary() {
+    // Arrange
+    for (int day = 10; day < 15; day++) {
+      insert(NotificationType.REFERRAL_BONUS, day % 2 == 0, NOW.minusDays(day));
+    }
+    insert(NotificationType.REFERRAL_BONUS, false, NOW.minusDays(2));
+    insert(NotificationType.BOOKING_CONFIRMED, false, NOW.minusDays(20));
+    assertEquals(4L, notificationCounterService.getUnreadCount(user.getId()));
+
+    // Act
+    NotificationRetentionService.RetentionRun run = notificationRetentionService.runRetention(NOW);
+
+    // Assert
+    assertEquals(5, run.getCompacted());
+    assertEquals(1, run.getSummaries());
+    Map<String, Object> summary =
+        jdbcTemplate.queryForMap(
+            "SELECT message, is_read, item_count, created_at FROM notifications "
+                + "WHERE item_count IS NOT NULL");
+    assertEquals("5 referral bonus notifications", summary.get("message"));
+    assertEquals(Boolean.FALSE, summary.get("IS_READ"));
+    assertEquals(5, summary.get("ITEM_COUNT"));
+    assertEquals(Timestamp.valueOf(NOW.minusDays(10)), summary.get("CREATED_AT"));
+    assertEquals(
+        3,
+        jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM notifications WHERE user_id = ?", Integer.class, user.getId()));
+    assertEquals(3L, notificationCounterService.getUnreadCount(user.getId()));
+    assertEquals(0, notificationCounterService.reconcile());
+  }
+
+  @Test
+  void runRetention_ShouldAddToAnEarlierSummary() {
+    // Arrange
+    insertSummary(NOW.minusDays(30), 4);
+    insert(NotificationType.REFERRAL_BONUS, true, NOW.minusDays(9));
+    insert(NotificationType.REFERRAL_BONUS, true, NOW.minusDays(8));
+
+    // Act
+    notificationRetentionService.runRetention(NOW);
+
+    // Assert
+    assertEquals(
+        6,
+        jdbcTemplate.queryForObject(
+            "SELECT item_count FROM notifications WHERE user_id = ?", Integer.class, user.getId()));
+  }
+
+  private long insert(NotificationType type, boolean read, LocalDateTime createdAt) {
+    jdbcTemplate.update(
+        "INSERT INTO notifications (user_id, title, message, type, is_read, created_at) "
+            + "VALUES (?, 'Title', 'Message', ?, ?, ?)",
+        user.getId(),
+        type.name(),
+        read,
+        Timestamp.valueOf(createdAt));
+    return jdbcTemplate.queryForObject("SELECT MAX(id) FROM notifications", Long.class);
+  }
+
+  private void insertSummary(LocalDateTime createdAt, int items) {
+    jdbcTemplate.update(
+        "INSERT INTO notifications "
+            + "(user_id, title, message, type, is_read, created_at, item_count) "
+            + "VALUES (?, 'Referral bonus summary', 'Summary', 'REFERRAL_BONUS', TRUE, ?, ?)",
+        user.getId(),
+        Timestamp.valueOf(createdAt),
+        items);
+  }
+}
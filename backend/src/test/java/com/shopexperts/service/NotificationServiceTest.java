@@ -4,35 +4,73 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
+import com.shopexperts.model.BroadcastNotification;
 import com.shopexperts.model.Notification;
+import com.shopexperts.model.NotificationChannel;
 import com.shopexperts.model.NotificationType;
+import com.shopexperts.model.RoleName;
 import com.shopexperts.model.User;
+import com.shopexperts.payload.BulkNotificationRequest;
 import com.shopexperts.payload.NotificationRequest;
 import com.shopexperts.payload.NotificationResponse;
+import com.shopexperts.repository.BroadcastNotificationRepository;
+import com.shopexperts.repository.BroadcastReceiptRepository;
 import com.shopexperts.repository.NotificationRepository;
 import com.shopexperts.repository.UserRepository;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @ExtendWith(MockitoExtension.class)
 class NotificationServiceTest {
 
+  private static final List<NotificationType> ALL_TYPES = Arrays.asList(NotificationType.values());
+
   @Mock private NotificationRepository notificationRepository;
 
   @Mock private UserRepository userRepository;
 
+  @Mock private NotificationWriter notificationWriter;
+
+  @Mock private BroadcastNotificationRepository broadcastNotificationRepository;
+
+  @Mock private BroadcastReceiptRepository broadcastReceiptRepository;
+
+  @Mock private JdbcTemplate jdbcTemplate;
+
+  @Mock private ApplicationEventPublisher eventPublisher;
+
+  @Mock private NotificationCounterService notificationCounterService;
+
+  @Mock private NotificationPreferenceService notificationPreferenceService;
+
+  @Mock private ChangeLogService changeLogService;
+
+  @Mock private TransactionTemplate transactionTemplate;
+
   @InjectMocks private NotificationService notificationService;
 
   private User testUser;
@@ -61,6 +99,19 @@ class NotificationServiceTest {
     notificationRequest.setTitle("Test Notification");
     notificationRequest.setMessage("Test message");
     notificationRequest.setType(NotificationType.BOOKING_CONFIRMED);
+
+    lenient()
+        .when(transactionTemplate.execute(any()))
+        .thenAnswer(
+            invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    lenient()
+        .doAnswer(
+            invocation -> {
+              invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+              return null;
+            })
+        .when(transactionTemplate)
+        .executeWithoutResult(any());
   }
 
   @Test
@@ -101,10 +152,7 @@ class NotificationServiceTest {
   }
 
   @Test
-  void createNotification_WithUserAndDetails_ShouldReturnNotification() {
-    // Arrange
-    when(notificationRepository.save(any(Notification.class))).thenReturn(testNotification);
-
+  void createNotification_WithUserAndDetails_ShouldQueueNotificationForWriter() {
     // Act
     Notification result =
         notificationService.createNotification(
@@ -112,9 +160,16 @@ class NotificationServiceTest {
 
     // Assert
     assertNotNull(result);
-    assertEquals(testNotification.getId(), result.getId());
-    assertEquals(testNotification.getTitle(), result.getTitle());
-    verify(notificationRepository).save(any(Notification.class));
+    assertNull(result.getId());
+    assertEquals("Test Title", result.getTitle());
+    verify(notificationWriter)
+        .enqueue(
+            1L,
+            "Test Title",
+            "Test Message",
+            NotificationType.BOOKING_CONFIRMED,
+            result.getCreatedAt());
+    verifyNoInteractions(notificationRepository);
   }
 
   @Test
@@ -155,7 +210,9 @@ class NotificationServiceTest {
   void getUnreadNotifications_WithUser_ShouldReturnUnreadNotifications() {
     // Arrange
     List<Notification> unreadNotifications = Arrays.asList(testNotification);
-    when(notificationRepository.findByUserAndIsReadOrderByCreatedAtDesc(testUser, false))
+    when(notificationCounterService.getReadUpTo(1L)).thenReturn(0L);
+    when(notificationRepository.findByUserAndIsReadFalseAndIdGreaterThanOrderByCreatedAtDesc(
+            testUser, 0L))
         .thenReturn(unreadNotifications);
 
     // Act
@@ -165,47 +222,79 @@ class NotificationServiceTest {
     assertNotNull(result);
     assertEquals(1, result.size());
     assertFalse(result.get(0).getIsRead());
-    verify(notificationRepository).findByUserAndIsReadOrderByCreatedAtDesc(testUser, false);
   }
 
   @Test
   void getUnreadNotificationCount_WithUserId_ShouldReturnCount() {
     // Arrange
-    when(notificationRepository.countByUserIdAndIsRead(1L, false)).thenReturn(5L);
+    when(notificationCounterService.getUnreadCount(1L)).thenReturn(5L);
 
     // Act
     Long count = notificationService.getUnreadNotificationCount(1L);
 
     // Assert
     assertEquals(5L, count);
-    verify(notificationRepository).countByUserIdAndIsRead(1L, false);
+    verifyNoInteractions(notificationRepository);
   }
 
   @Test
   void getUnreadNotificationCount_WithUser_ShouldReturnCount() {
     // Arrange
-    when(notificationRepository.countByUserAndIsRead(testUser, false)).thenReturn(3L);
+    when(notificationCounterService.getUnreadCount(1L)).thenReturn(3L);
 
     // Act
     Long count = notificationService.getUnreadNotificationCount(testUser);
 
     // Assert
     assertEquals(3L, count);
-    verify(notificationRepository).countByUserAndIsRead(testUser, false);
+    verifyNoInteractions(notificationRepository);
   }
 
   @Test
   void markNotificationAsRead_WithValidId_ShouldMarkAsRead() {
     // Arrange
     when(notificationRepository.findById(1L)).thenReturn(Optional.of(testNotification));
-    when(notificationRepository.save(any(Notification.class))).thenReturn(testNotification);
+    when(notificationCounterService.getReadUpTo(1L)).thenReturn(0L);
+    when(notificationRepository.markRead(1L, Collections.singletonList(1L), 0L)).thenReturn(1);
 
     // Act
     notificationService.markNotificationAsRead(1L);
 
     // Assert
     verify(notificationRepository).findById(1L);
-    verify(notificationRepository).save(any(Notification.class));
+    verify(notificationRepository, never()).save(any(Notification.class));
+    verify(notificationCounterService).adjust(1L, -1);
+  }
+
+  @Test
+  void markNotificationAsRead_WhenAlreadyRead_ShouldLeaveTheCountAlone() {
+    // Arrange: already covered by the user's read watermark
+    when(notificationRepository.findById(1L)).thenReturn(Optional.of(testNotification));
+    when(notificationCounterService.getReadUpTo(1L)).thenReturn(5L);
+    when(notificationRepository.markRead(1L, Collections.singletonList(1L), 5L)).thenReturn(0);
+
+    // Act
+    notificationService.markNotificationAsRead(1L);
+
+    // Assert
+    verify(notificationCounterService, never()).adjust(anyLong(), anyInt());
+    verifyNoInteractions(eventPublisher);
+  }
+
+  @Test
+  void markNotificationsAsRead_ShouldUseOneUpdateForAllIds() {
+    // Arrange
+    List<Long> ids = Arrays.asList(1L, 2L, 3L);
+    when(notificationCounterService.getReadUpTo(1L)).thenReturn(0L);
+    when(notificationRepository.markRead(1L, ids, 0L)).thenReturn(2);
+
+    // Act
+    int marked = notificationService.markNotificationsAsRead(1L, ids);
+
+    // Assert
+    assertEquals(2, marked);
+    verify(notificationRepository, never()).findById(any());
+    verify(notificationCounterService).adjust(1L, -2);
   }
 
   @Test
@@ -219,57 +308,48 @@ class NotificationServiceTest {
 
     assertEquals("Notification not found", exception.getMessage());
     verify(notificationRepository).findById(1L);
-    verify(notificationRepository, never()).save(any(Notification.class));
+    verify(notificationRepository, never()).markRead(any(), any(), any());
   }
 
   @Test
   void markAsRead_WithValidId_ShouldCallMarkNotificationAsRead() {
     // Arrange
     when(notificationRepository.findById(1L)).thenReturn(Optional.of(testNotification));
-    when(notificationRepository.save(any(Notification.class))).thenReturn(testNotification);
+    when(notificationCounterService.getReadUpTo(1L)).thenReturn(0L);
+    when(notificationRepository.markRead(1L, Collections.singletonList(1L), 0L)).thenReturn(1);
 
     // Act
     notificationService.markAsRead(1L);
 
     // Assert
     verify(notificationRepository).findById(1L);
-    verify(notificationRepository).save(any(Notification.class));
+    verify(notificationRepository).markRead(1L, Collections.singletonList(1L), 0L);
   }
 
   @Test
-  void markAllNotificationsAsRead_WithUserId_ShouldMarkAllAsRead() {
-    // Arrange
-    List<Notification> unreadNotifications = Arrays.asList(testNotification);
-    when(notificationRepository.findByUserIdAndIsRead(1L, false)).thenReturn(unreadNotifications);
-    when(notificationRepository.saveAll(anyList())).thenReturn(unreadNotifications);
-
+  void markAllNotificationsAsRead_WithUserId_ShouldMoveTheWatermarkOnly() {
     // Act
     notificationService.markAllNotificationsAsRead(1L);
 
     // Assert
-    verify(notificationRepository).findByUserIdAndIsRead(1L, false);
-    verify(notificationRepository).saveAll(anyList());
+    verify(notificationCounterService).markAllRead(1L);
+    verifyNoInteractions(notificationRepository, broadcastReceiptRepository);
   }
 
   @Test
   void markAllAsRead_WithUser_ShouldMarkAllAsRead() {
-    // Arrange
-    List<Notification> unreadNotifications = Arrays.asList(testNotification);
-    when(notificationRepository.findByUserAndIsReadOrderByCreatedAtDesc(testUser, false))
-        .thenReturn(unreadNotifications);
-    when(notificationRepository.saveAll(anyList())).thenReturn(unreadNotifications);
-
     // Act
     notificationService.markAllAsRead(testUser);
 
     // Assert
-    verify(notificationRepository).findByUserAndIsReadOrderByCreatedAtDesc(testUser, false);
-    verify(notificationRepository).saveAll(anyList());
+    verify(notificationCounterService).markAllRead(1L);
+    verify(notificationRepository, never()).saveAll(anyList());
   }
 
   @Test
   void deleteNotification_WithValidId_ShouldDeleteNotification() {
     // Arrange
+    when(notificationRepository.findById(1L)).thenReturn(Optional.of(testNotification));
     doNothing().when(notificationRepository).deleteById(1L);
 
     // Act
@@ -277,61 +357,263 @@ class NotificationServiceTest {
 
     // Assert
     verify(notificationRepository).deleteById(1L);
+    verify(notificationCounterService).adjust(1L, -1);
   }
 
   @Test
-  void sendBulkNotification_ShouldCreateNotificationForAllUsers() {
+  void broadcastNotification_ShouldStoreOneRowWithoutLoadingUsers() {
     // Arrange
-    User user2 = new User();
-    user2.setId(2L);
-    user2.setFirstName("Jane");
-    user2.setLastName("Doe");
+    when(broadcastNotificationRepository.save(any(BroadcastNotification.class)))
+        .thenAnswer(
+            invocation -> {
+              BroadcastNotification saved = invocation.getArgument(0);
+              saved.setId(7L);
+              return saved;
+            });
 
-    List<User> users = Arrays.asList(testUser, user2);
-    when(userRepository.findAll()).thenReturn(users);
-    when(notificationRepository.save(any(Notification.class))).thenReturn(testNotification);
+    // Act
+    BroadcastNotification broadcast =
+        notificationService.broadcastNotification(
+            "Summer sale", "20% off all bookings", NotificationType.PROMOTION);
+
+    // Assert
+    assertEquals("Summer sale", broadcast.getTitle());
+    verify(broadcastNotificationRepository).save(any(BroadcastNotification.class));
+    verifyNoInteractions(userRepository, notificationRepository, notificationWriter);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void sendBulkNotification_WithRole_ShouldWalkUserIdsInChunks() {
+    // Arrange
+    List<Long> firstChunk = LongStream.rangeClosed(1, 1000).boxed().collect(Collectors.toList());
+    when(jdbcTemplate.queryForList(
+            anyString(), eq(Long.class), eq("ROLE_TALENT"), anyLong(), eq(1000)))
+        .thenReturn(firstChunk, Arrays.asList(1001L, 1002L));
+    BulkNotificationRequest request =
+        new BulkNotificationRequest("New feature", "Try it out", NotificationType.SYSTEM_ALERT);
+    request.setRole(RoleName.ROLE_TALENT);
+    nothingMuted();
 
     // Act
-    notificationService.sendBulkNotification(notificationRequest);
+    int sent = notificationService.sendBulkNotification(request);
 
     // Assert
-    verify(userRepository).findAll();
-    verify(notificationRepository, times(2)).save(any(Notification.class));
+    assertEquals(1002, sent);
+    verify(jdbcTemplate)
+        .queryForList(anyString(), eq(Long.class), eq("ROLE_TALENT"), eq(1000L), eq(1000));
+    ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+    verify(jdbcTemplate, times(2))
+        .batchUpdate(startsWith("INSERT INTO notifications"), rows.capture());
+    assertEquals(1001L, rows.getAllValues().get(1).get(0)[0]);
+    verify(userRepository, never()).findAll();
   }
 
   @Test
-  void sendPromotionNotification_ShouldCreatePromotionNotification() {
+  @SuppressWarnings("unchecked")
+  void sendBulkNotification_WithRole_ShouldSkipUsersWhoMutedTheType() {
     // Arrange
-    when(notificationRepository.save(any(Notification.class))).thenReturn(testNotification);
+    when(jdbcTemplate.queryForList(
+            anyString(), eq(Long.class), eq("ROLE_TALENT"), anyLong(), eq(1000)))
+        .thenReturn(Arrays.asList(1L, 2L, 3L));
+    when(notificationPreferenceService.withoutMuted(
+            Arrays.asList(1L, 2L, 3L), NotificationType.PROMOTION, NotificationChannel.IN_APP))
+        .thenReturn(Arrays.asList(1L, 3L));
+    BulkNotificationRequest request =
+        new BulkNotificationRequest("Sale", "Half price this week", NotificationType.PROMOTION);
+    request.setRole(RoleName.ROLE_TALENT);
 
     // Act
-    notificationService.sendPromotionNotification(testUser, "Promotion Title", "Promotion Message");
+    int sent = notificationService.sendBulkNotification(request);
+
+    // Assert
+    assertEquals(2, sent);
+    ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+    verify(jdbcTemplate).batchUpdate(startsWith("INSERT INTO notifications"), rows.capture());
+    assertEquals(2, rows.getValue().size());
+    assertEquals(3L, rows.getValue().get(1)[0]);
+  }
+
+  @Test
+  void createNotification_ShouldNotQueueAnything_WhenTheUserMutedTheType() {
+    // Arrange
+    when(notificationPreferenceService.isMuted(
+            testUser.getId(), NotificationType.PROMOTION, NotificationChannel.IN_APP))
+        .thenReturn(true);
+
+    // Act
+    Notification notification =
+        notificationService.createNotification(
+            testUser, "Sale", "Half price this week", NotificationType.PROMOTION);
+
+    // Assert
+    assertNull(notification);
+    verifyNoInteractions(notificationWriter);
+  }
+
+  @Test
+  void sendBulkNotification_WithUserIds_ShouldInsertDistinctExistingUsersOnly() {
+    // Arrange
+    BulkNotificationRequest request =
+        new BulkNotificationRequest("Reminder", "Finish your profile", NotificationType.PROMOTION);
+    request.setUserIds(Arrays.asList(1L, 2L, 2L, 99L));
+    nothingMuted();
+    when(jdbcTemplate.update(startsWith("INSERT INTO notifications"), (Object[]) any()))
+        .thenReturn(2);
+
+    // Act
+    int sent = notificationService.sendBulkNotification(request);
 
     // Assert
-    verify(notificationRepository)
+    assertEquals(2, sent);
+    ArgumentCaptor<Object> args = ArgumentCaptor.forClass(Object.class);
+    verify(jdbcTemplate).update(contains("FROM users WHERE id IN (?,?,?)"), args.capture());
+    assertEquals(Arrays.asList(1L, 2L, 99L), args.getAllValues().subList(4, 7));
+  }
+
+  @Test
+  void getUserNotifications_ShouldMergeBroadcastsByCreatedAt() {
+    // Arrange
+    LocalDateTime now = LocalDateTime.now();
+    Notification newer = notification(10L, "Booking confirmed", now);
+    Notification older = notification(11L, "Payment received", now.minusHours(2));
+    BroadcastNotification broadcast =
+        new BroadcastNotification("Summer sale", "20% off", NotificationType.PROMOTION);
+    broadcast.setId(5L);
+    broadcast.setCreatedAt(now.minusHours(1));
+    Pageable pageable = PageRequest.of(0, 2);
+    when(notificationPreferenceService.unmutedTypes(1L, NotificationChannel.IN_APP))
+        .thenReturn(ALL_TYPES);
+    when(broadcastNotificationRepository.findVisible(1L, ALL_TYPES, PageRequest.of(0, 2)))
+        .thenReturn(Collections.singletonList(new Object[] {broadcast, null}));
+    when(notificationRepository.findByUserIdOrderByCreatedAtDesc(1L, PageRequest.of(0, 2)))
+        .thenReturn(new PageImpl<>(Arrays.asList(newer, older), PageRequest.of(0, 2), 3));
+
+    // Act
+    Page<NotificationResponse> page = notificationService.getUserNotifications(1L, pageable);
+
+    // Assert
+    assertEquals(4, page.getTotalElements());
+    assertEquals(2, page.getContent().size());
+    assertEquals("Booking confirmed", page.getContent().get(0).getTitle());
+    assertFalse(page.getContent().get(0).getBroadcast());
+    assertEquals("Summer sale", page.getContent().get(1).getTitle());
+    assertTrue(page.getContent().get(1).getBroadcast());
+    assertFalse(page.getContent().get(1).getIsRead());
+    verify(broadcastNotificationRepository, never()).countVisible(anyLong(), anyCollection());
+  }
+
+  @Test
+  void markBroadcastAsRead_ShouldCreateReceiptOnFirstRead() {
+    // Arrange
+    BroadcastNotification broadcast =
+        new BroadcastNotification("Summer sale", "20% off", NotificationType.PROMOTION);
+    when(notificationPreferenceService.unmutedTypes(1L, NotificationChannel.IN_APP))
+        .thenReturn(ALL_TYPES);
+    when(broadcastNotificationRepository.findVisibleByIds(1L, ALL_TYPES, List.of(5L)))
+        .thenReturn(Collections.singletonList(new Object[] {broadcast, null}));
+    when(broadcastReceiptRepository.findByBroadcastIdAndUserId(5L, 1L))
+        .thenReturn(Optional.empty());
+    when(userRepository.getReferenceById(1L)).thenReturn(testUser);
+
+    // Act
+    notificationService.markBroadcastAsRead(1L, 5L);
+
+    // Assert
+    verify(broadcastReceiptRepository)
         .save(
             argThat(
-                notification ->
-                    notification.getType() == NotificationType.PROMOTION
-                        && notification.getTitle().equals("Promotion Title")
-                        && notification.getMessage().equals("Promotion Message")));
+                receipt ->
+                    receipt.getIsRead()
+                        && !receipt.getDeleted()
+                        && receipt.getBroadcast() == broadcast
+                        && receipt.getUser() == testUser));
+  }
+
+  @Test
+  void markBroadcastAsRead_ShouldRejectABroadcastTheUserCannotSee() {
+    // Arrange: sent before the user signed up, muted or hidden, so not among their visible ones
+    when(notificationPreferenceService.unmutedTypes(1L, NotificationChannel.IN_APP))
+        .thenReturn(ALL_TYPES);
+    when(broadcastNotificationRepository.findVisibleByIds(1L, ALL_TYPES, List.of(5L)))
+        .thenReturn(Collections.emptyList());
+
+    // Act & Assert
+    RuntimeException error =
+        assertThrows(RuntimeException.class, () -> notificationService.markBroadcastAsRead(1L, 5L));
+    assertEquals("Notification not found", error.getMessage());
+    assertThrows(RuntimeException.class, () -> notificationService.deleteBroadcast(1L, 5L));
+    verify(broadcastReceiptRepository, never()).save(any());
+  }
+
+  @Test
+  void sendPromotionNotification_ShouldCreatePromotionNotification() {
+    // Act
+    notificationService.sendPromotionNotification(testUser, "Promotion Title", "Promotion Message");
+
+    // Assert
+    verify(notificationWriter)
+        .enqueue(
+            eq(1L),
+            eq("Promotion Title"),
+            eq("Promotion Message"),
+            eq(NotificationType.PROMOTION),
+            any(LocalDateTime.class));
   }
 
   @Test
   void sendSystemAlert_ShouldCreateSystemAlertNotification() {
+    // Act
+    notificationService.sendSystemAlert(testUser, "Alert Title", "Alert Message");
+
+    // Assert
+    verify(notificationWriter)
+        .enqueue(
+            eq(1L),
+            eq("Alert Title"),
+            eq("Alert Message"),
+            eq(NotificationType.SYSTEM_ALERT),
+            any(LocalDateTime.class));
+  }
+
+  @Test
+  void createNotifications_ShouldQueueOneNotificationPerUser() {
     // Arrange
-    when(notificationRepository.save(any(Notification.class))).thenReturn(testNotification);
+    nothingMuted();
 
     // Act
-    notificationService.sendSystemAlert(testUser, "Alert Title", "Alert Message");
+    int created =
+        notificationService.createNotifications(
+            Arrays.asList(1L, 2L, 3L),
+            "Points Earned!",
+            "You earned 20 points",
+            NotificationType.PROMOTION);
 
     // Assert
-    verify(notificationRepository)
-        .save(
-            argThat(
-                notification ->
-                    notification.getType() == NotificationType.SYSTEM_ALERT
-                        && notification.getTitle().equals("Alert Title")
-                        && notification.getMessage().equals("Alert Message")));
+    assertEquals(3, created);
+    verify(notificationWriter)
+        .enqueueAll(
+            eq(Arrays.asList(1L, 2L, 3L)),
+            eq("Points Earned!"),
+            eq("You earned 20 points"),
+            eq(NotificationType.PROMOTION),
+            any(LocalDateTime.class));
+    verifyNoInteractions(notificationRepository);
+  }
+
+  private Notification notification(Long id, String title, LocalDateTime createdAt) {
+    Notification notification = new Notification();
+    notification.setId(id);
+    notification.setUser(testUser);
+    notification.setTitle(title);
+    notification.setType(NotificationType.BOOKING_CONFIRMED);
+    notification.setIsRead(false);
+    notification.setCreatedAt(createdAt);
+    return notification;
+  }
+
+  private void nothingMuted() {
+    when(notificationPreferenceService.withoutMuted(anyCollection(), any(), any()))
+        .thenAnswer(invocation -> new ArrayList<>(invocation.<Collection<Long>>getArgument(0)));
   }
 }
@@ -0,0 +1,129 @@
+package com.shopexperts.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.shopexperts.model.NotificationChannel;
+import com.shopexperts.model.NotificationType;
+import com.shopexperts.payload.NotificationResponse;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@ExtendWith(MockitoExtension.class)
+class NotificationStreamServiceTest {
+
+  @Mock private NotificationService notificationService;
+
+  @Mock private NotificationPreferenceService notificationPreferenceService;
+
+  @InjectMocks private NotificationStreamService notificationStreamService;
+
+  @BeforeEach
+  void setUp() {
+    ReflectionTestUtils.setField(notificationStreamService, "timeoutMs", 60000L);
+    ReflectionTestUtils.setField(notificationStreamService, "maxPerUser", 2);
+    lenient().when(notificationService.getUnreadNotificationCount(anyLong())).thenReturn(3L);
+  }
+
+  @Test
+  void subscribe_ShouldRegisterStreamAndSendCurrentUnreadCount() {
+    // Act
+    SseEmitter emitter = notificationStreamService.subscribe(1L);
+
+    // Assert
+    assertNotNull(emitter);
+    assertEquals(1, notificationStreamService.getConnectionCount());
+    verify(notificationService).getUnreadNotificationCount(1L);
+  }
+
+  @Test
+  void subscribe_ShouldCloseOldestStreams_BeyondPerUserLimit() {
+    // Act
+    for (int i = 0; i < 3; i++) {
+      notificationStreamService.subscribe(1L);
+    }
+    notificationStreamService.subscribe(2L);
+
+    // Assert
+    assertEquals(3, notificationStreamService.getConnectionCount());
+  }
+
+  @Test
+  void onNotificationsChanged_ShouldOnlyPushToConnectedUsers() {
+    // Arrange
+    notificationStreamService.subscribe(1L);
+    clearInvocations(notificationService);
+    NotificationResponse notification =
+        new NotificationResponse(
+            null,
+            1L,
+            null,
+            "Booking Confirmed",
+            "See you soon",
+            NotificationType.BOOKING_CONFIRMED,
+            false,
+            LocalDateTime.now());
+
+    // Act
+    notificationStreamService.onNotificationsChanged(
+        NotificationsChangedEvent.created(
+            Collections.singletonMap(1L, Collections.singletonList(notification))));
+    notificationStreamService.onNotificationsChanged(
+        NotificationsChangedEvent.readStateChanged(2L));
+
+    // Assert
+    verify(notificationService).getUnreadNotificationCount(1L);
+    verify(notificationService, never()).getUnreadNotificationCount(2L);
+  }
+
+  @Test
+  void onNotificationsChanged_ShouldNotPushBroadcastToUsersWhoMutedItsType() {
+    // Arrange
+    notificationStreamService.subscribe(1L);
+    notificationStreamService.subscribe(2L);
+    clearInvocations(notificationService);
+    when(notificationPreferenceService.isMuted(
+            1L, NotificationType.PROMOTION, NotificationChannel.IN_APP))
+        .thenReturn(true);
+    NotificationResponse sale =
+        new NotificationResponse(
+            7L,
+            null,
+            null,
+            "Summer sale",
+            "20% off",
+            NotificationType.PROMOTION,
+            false,
+            LocalDateTime.now());
+    sale.setBroadcast(true);
+
+    // Act
+    notificationStreamService.onNotificationsChanged(NotificationsChangedEvent.broadcast(sale));
+
+    // Assert
+    verify(notificationService, never()).getUnreadNotificationCount(1L);
+    verify(notificationService).getUnreadNotificationCount(2L);
+  }
+
+  @Test
+  void heartbeat_ShouldDropStreamsThatCanNoLongerBeWritten() {
+    // Arrange
+    SseEmitter closed = notificationStreamService.subscribe(1L);
+    notificationStreamService.subscribe(2L);
+    closed.complete();
+
+    // Act
+    notificationStreamService.heartbeat();
+
+    // Assert
+    assertEquals(1, notificationStreamService.getConnectionCount());
+  }
+}
@@ -0,0 +1,146 @@
+package com.shopexperts.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.shopexperts.model.NotificationType;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@ExtendWith(MockitoExtension.class)
+class NotificationWriterTest {
+
+  private static final String INSERT_PREFIX = "INSERT INTO notifications";
+  private static final LocalDateTime NOW = LocalDateTime.of(2026, 6, 1, 12, 0);
+
+  @Mock private JdbcTemplate jdbcTemplate;
+
+  @Mock private PlatformTransactionManager transactionManager;
+
+  @Mock private ApplicationEventPublisher eventPublisher;
+
+  @Mock private NotificationCounterService notificationCounterService;
+
+  @Mock private ChangeLogService changeLogService;
+
+  @InjectMocks private NotificationWriter notificationWriter;
+
+  @BeforeEach
+  void setUp() {
+    ReflectionTestUtils.setField(notificationWriter, "capacity", 2);
+    ReflectionTestUtils.setField(notificationWriter, "batchSize", 10);
+    ReflectionTestUtils.setField(notificationWriter, "flushIntervalMs", 200L);
+  }
+
+  @AfterEach
+  void tearDown() throws InterruptedException {
+    notificationWriter.stop();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void enqueueAll_ShouldBeWrittenByTheWriterThreadAsOneBatch() {
+    // Arrange
+    notificationWriter.start();
+
+    // Act
+    notificationWriter.enqueueAll(
+        Arrays.asList(1L, 2L),
+        "Points Earned!",
+        "You earned 20 points",
+        NotificationType.PROMOTION,
+        NOW);
+
+    // Assert
+    ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+    verify(jdbcTemplate, timeout(2000)).batchUpdate(startsWith(INSERT_PREFIX), rows.capture());
+    assertEquals(2, rows.getValue().size());
+    assertEquals(2L, rows.getValue().get(1)[0]);
+    assertEquals("PROMOTION", rows.getValue().get(1)[3]);
+    assertEquals(0, notificationWriter.getQueuedCount());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void enqueue_ShouldWriteOnTheCallersThread_WhenQueueIsFull() throws InterruptedException {
+    // Arrange: the writer thread is stuck in a slow insert while the queue fills up
+    CountDownLatch writerBusy = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    Thread caller = Thread.currentThread();
+    when(jdbcTemplate.batchUpdate(startsWith(INSERT_PREFIX), anyList()))
+        .thenAnswer(
+            invocation -> {
+              if (Thread.currentThread() != caller) {
+                writerBusy.countDown();
+                release.await(5, TimeUnit.SECONDS);
+              }
+              return new int[0];
+            });
+    notificationWriter.start();
+    notificationWriter.enqueue(
+        1L, "Booking Confirmed", "First", NotificationType.BOOKING_CONFIRMED, NOW);
+    assertTrue(writerBusy.await(2, TimeUnit.SECONDS));
+
+    // Act
+    for (long userId = 2; userId <= 4; userId++) {
+      notificationWriter.enqueue(
+          userId, "Booking Confirmed", "Next", NotificationType.BOOKING_CONFIRMED, NOW);
+    }
+
+    // Assert: the third queued row did not fit, so the caller wrote it behind the two queued ones
+    ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+    verify(jdbcTemplate, times(2)).batchUpdate(startsWith(INSERT_PREFIX), rows.capture());
+    List<Object[]> callerBatch = rows.getAllValues().get(1);
+    assertEquals(3, callerBatch.size());
+    assertEquals(2L, callerBatch.get(0)[0]);
+    assertEquals(4L, callerBatch.get(2)[0]);
+    assertEquals(0, notificationWriter.getQueuedCount());
+    release.countDown();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void flush_ShouldKeepGoodRows_WhenOneRowOfABatchFails() throws InterruptedException {
+    // Arrange: the writer is stopped so rows stay queued until flushed
+    ReflectionTestUtils.setField(notificationWriter, "capacity", 10);
+    notificationWriter.start();
+    notificationWriter.stop();
+    ReflectionTestUtils.setField(notificationWriter, "running", true);
+    notificationWriter.enqueueAll(
+        Arrays.asList(1L, 2L, 3L), "Welcome", "Hello", NotificationType.SYSTEM_ALERT, NOW);
+    ReflectionTestUtils.setField(notificationWriter, "running", false);
+    when(jdbcTemplate.batchUpdate(startsWith(INSERT_PREFIX), anyList()))
+        .thenAnswer(
+            invocation -> {
+              List<Object[]> batch = invocation.getArgument(1);
+              if (batch.stream().anyMatch(row -> row[0].equals(2L))) {
+                throw new RuntimeException("User not found");
+              }
+              return new int[batch.size()];
+            });
+
+    // Act
+    int written = notificationWriter.flush();
+
+    // Assert
+    assertEquals(2, written);
+    assertEquals(0, notificationWriter.getQueuedCount());
+    verify(jdbcTemplate, times(4)).batchUpdate(startsWith(INSERT_PREFIX), anyList());
+  }
+}
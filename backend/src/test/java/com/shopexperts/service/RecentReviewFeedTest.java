@@ -0,0 +1,161 @@
+package com.shopexperts.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.shopexperts.payload.ReviewResponse;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+class RecentReviewFeedTest {
+
+  @Test
+  void snapshot_ShouldReturnNewestFirstAndDropOldestWhenFull() {
+    // Arrange
+    RecentReviewFeed feed = new RecentReviewFeed(3);
+
+    // Act
+    for (long id = 1; id <= 5; id++) {
+      feed.append(response(id), "Plumbing");
+    }
+
+    // Assert
+    assertEquals(Arrays.asList(5L, 4L, 3L), ids(feed.snapshot(10, null)));
+    assertEquals(Arrays.asList(5L, 4L), ids(feed.snapshot(2, null)));
+  }
+
+  @Test
+  void snapshot_ShouldFilterByCategoryCaseInsensitively() {
+    // Arrange
+    RecentReviewFeed feed = new RecentReviewFeed(10);
+    feed.append(response(1L), "Plumbing");
+    feed.append(response(2L), "Electrical");
+    feed.append(response(3L), null);
+    feed.append(response(4L), "plumbing ");
+
+    // Act
+    List<Long> plumbing = ids(feed.snapshot(10, "PLUMBING"));
+
+    // Assert
+    assertEquals(Arrays.asList(4L, 1L), plumbing);
+    assertEquals(4, feed.snapshot(10, " ").size());
+  }
+
+  @Test
+  void evictAndReplace_ShouldUpdateEntriesInPlace() {
+    // Arrange
+    RecentReviewFeed feed = new RecentReviewFeed(10);
+    feed.append(response(1L), "Plumbing");
+    feed.append(response(2L), "Plumbing");
+    feed.append(response(3L), "Plumbing");
+    ReviewResponse edited = response(1L);
+    edited.setComment("Edited");
+
+    // Act
+    feed.evictAll(Arrays.asList(2L, 99L));
+    feed.replace(edited, "Roofing");
+
+    // Assert
+    List<ReviewResponse> snapshot = feed.snapshot(10, null);
+    assertEquals(Arrays.asList(3L, 1L), ids(snapshot));
+    assertEquals("Edited", snapshot.get(1).getComment());
+    assertEquals(Arrays.asList(1L), ids(feed.snapshot(10, "Roofing")));
+  }
+
+  @Test
+  void append_ShouldStayConsistentUnderConcurrentWriters() throws InterruptedException {
+    // Arrange
+    RecentReviewFeed feed = new RecentReviewFeed(64);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    CountDownLatch start = new CountDownLatch(1);
+
+    // Act
+    for (int t = 0; t < 8; t++) {
+      long base = t * 1000L;
+      executor.submit(
+          () -> {
+            start.await();
+            for (long i = 0; i < 500; i++) {
+              feed.append(response(base + i), null);
+              feed.snapshot(20, null);
+            }
+            return null;
+          });
+    }
+    start.countDown();
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+    // Assert: ids raced past each other, so only the ones newer than every lost one are served
+    List<Long> ids = ids(feed.snapshot(64, null));
+    assertEquals(ids.size(), ids.stream().distinct().count());
+    assertFalse(feed.holdsEveryReview());
+
+    // Once the writers are done, the buffer fills up again in order
+    for (long id = 10_000; id < 10_064; id++) {
+      feed.append(response(id), null);
+    }
+    List<Long> refilled = ids(feed.snapshot(64, null));
+    assertEquals(64, refilled.size());
+    assertEquals(10_063L, refilled.get(0));
+    assertEquals(10_000L, refilled.get(63));
+  }
+
+  @Test
+  void snapshot_ShouldOrderByCreationTimeWhateverTheAppendOrder() {
+    // Arrange: an old review is approved after newer ones were appended
+    RecentReviewFeed feed = new RecentReviewFeed(10);
+    LocalDateTime now = LocalDateTime.now();
+    feed.append(response(2L, now.minusHours(2)), "Plumbing");
+    feed.append(response(3L, now.minusHours(1)), "Plumbing");
+    feed.append(response(1L, now.minusDays(3)), "Plumbing");
+
+    // Act
+    List<Long> ids = ids(feed.snapshot(10, null));
+
+    // Assert
+    assertEquals(Arrays.asList(3L, 2L, 1L), ids);
+    assertTrue(feed.holdsEveryReview());
+  }
+
+  @Test
+  void snapshot_ShouldServeNothingOlderThanALostReview() {
+    // Arrange
+    RecentReviewFeed feed = new RecentReviewFeed(2);
+    LocalDateTime now = LocalDateTime.now();
+    feed.append(response(1L, now.minusHours(3)), "Plumbing");
+    feed.append(response(2L, now.minusHours(2)), "Roofing");
+    feed.append(response(3L, now.minusHours(1)), "Plumbing");
+
+    // Act: review 1 was overwritten; review 0 is approved after it and cannot be placed
+    feed.append(response(0L, now.minusHours(4)), "Plumbing");
+    feed.markMissing(9L, now.minusMinutes(90));
+
+    // Assert: review 9 belongs between reviews 3 and 2, so review 2 is no longer served
+    assertEquals(Arrays.asList(3L), ids(feed.snapshot(10, null)));
+    assertTrue(feed.snapshot(10, "Roofing").isEmpty());
+    assertFalse(feed.holdsEveryReview());
+  }
+
+  private static ReviewResponse response(Long id) {
+    ReviewResponse response = new ReviewResponse();
+    response.setId(id);
+    return response;
+  }
+
+  private static ReviewResponse response(Long id, LocalDateTime createdAt) {
+    ReviewResponse response = response(id);
+    response.setCreatedAt(createdAt);
+    return response;
+  }
+
+  private static List<Long> ids(List<ReviewResponse> responses) {
+    return responses.stream().map(ReviewResponse::getId).collect(Collectors.toList());
+  }
+}
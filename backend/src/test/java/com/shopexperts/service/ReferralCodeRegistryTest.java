@@ -0,0 +1,57 @@
+package com.shopexperts.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.shopexperts.repository.RewardAccountRepository;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class ReferralCodeRegistryTest {
+
+  @Mock private RewardAccountRepository rewardAccountRepository;
+
+  @InjectMocks private ReferralCodeRegistry referralCodeRegistry;
+
+  @Test
+  void load_ShouldIndexStoredCodesCaseInsensitively() {
+    // Arrange
+    when(rewardAccountRepository.streamReferralCodes())
+        .thenReturn(Stream.of(new Object[] {"REFABC123", 1L}, new Object[] {"REFXYZ789", 2L}));
+
+    // Act
+    referralCodeRegistry.load();
+
+    // Assert
+    assertEquals(2, referralCodeRegistry.size());
+    assertEquals(1L, referralCodeRegistry.lookup(" refabc123 "));
+    assertEquals(2L, referralCodeRegistry.lookup("REFXYZ789"));
+    assertNull(referralCodeRegistry.lookup("REF000000"));
+    assertNull(referralCodeRegistry.lookup(""));
+  }
+
+  @Test
+  void newCode_ShouldReturnDistinctPrefixedCodes() {
+    // Arrange
+    Set<String> codes = new HashSet<>();
+
+    // Act
+    for (long userId = 1; userId <= 1000; userId++) {
+      String code = referralCodeRegistry.newCode();
+      referralCodeRegistry.register(code, userId);
+      codes.add(code);
+    }
+
+    // Assert
+    assertEquals(1000, codes.size());
+    assertTrue(codes.stream().allMatch(code -> code.matches("REF[A-Z0-9]{6}")));
+    assertEquals(1000, referralCodeRegistry.size());
+  }
+}
@@ -0,0 +1,194 @@
+package com.shopexperts.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.shopexperts.model.Notification;
+import com.shopexperts.model.NotificationType;
+import com.shopexperts.model.Review;
+import com.shopexperts.model.RewardAccount;
+import com.shopexperts.model.RewardTransaction;
+import com.shopexperts.model.TransactionType;
+import com.shopexperts.model.User;
+import com.shopexperts.payload.NotificationResponse;
+import com.shopexperts.payload.ReviewResponse;
+import com.shopexperts.payload.RewardTransactionResponse;
+import java.util.function.Supplier;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+/**
+ * Counts the SQL statements needed to load and map one page of each list endpoint. The budget is
+ * fixed, so a lazy association touched per row shows up as a failure rather than as N+1 queries.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({
+  ReviewService.class,
+  RecentReviewFeed.class,
+  NotificationService.class,
+  NotificationCounterService.class,
+  NotificationPreferenceService.class,
+  ChangeLogService.class,
+  RewardService.class
+})
+class ResponseMappingQueryCountTest {
+
+  private static final int PAGE_SIZE = 20;
+
+  @Autowired private TestEntityManager entityManager;
+
+  @Autowired private ReviewService reviewService;
+
+  @Autowired private NotificationService notificationService;
+
+  @Autowired private RewardService rewardService;
+
+  @MockBean private TalentLeaderboardService talentLeaderboardService;
+
+  @MockBean private ReviewHelpfulVoteService reviewHelpfulVoteService;
+
+  @MockBean private ReviewSearchIndex reviewSearchIndex;
+
+  @MockBean private ReviewDuplicateDetector reviewDuplicateDetector;
+
+  @MockBean private RewardLeaderboardService rewardLeaderboardService;
+
+  @MockBean private ReferralCodeRegistry referralCodeRegistry;
+
+  @MockBean private RewardLedgerBuffer rewardLedgerBuffer;
+
+  @MockBean private RewardCampaignService rewardCampaignService;
+
+  @MockBean private NotificationWriter notificationWriter;
+
+  private User talent;
+  private User customer;
+
+  @BeforeEach
+  void setUp() {
+    talent = persistUser("talent");
+    customer = persistUser("customer");
+    RewardAccount account = new RewardAccount();
+    account.setUser(customer);
+    entityManager.persist(account);
+
+    // Every review on either page has a different counterpart user, so per-row loads add up.
+    for (int i = 0; i < PAGE_SIZE; i++) {
+      User other = persistUser("user" + i);
+      persistReview(other, talent, i);
+      persistReview(customer, other, i);
+
+      Notification notification = new Notification();
+      notification.setUser(customer);
+      notification.setTitle("Notification " + i);
+      notification.setType(NotificationType.SYSTEM_ALERT);
+      entityManager.persist(notification);
+
+      RewardTransaction transaction = new RewardTransaction();
+      transaction.setRewardAccount(account);
+      transaction.setType(TransactionType.EARNED);
+      transaction.setPoints(10);
+      entityManager.persist(transaction);
+    }
+    entityManager.flush();
+    entityManager.clear();
+  }
+
+  @Test
+  void expertReviewsPage_ShouldUseConstantNumberOfStatements() {
+    // Act
+    long statements =
+        countStatements(
+            () -> reviewService.getExpertReviews(talent.getId(), PageRequest.of(0, PAGE_SIZE)));
+
+    // Assert
+    assertTrue(statements <= 3, "expert reviews page used " + statements + " statements");
+  }
+
+  @Test
+  void userReviewsPage_ShouldUseConstantNumberOfStatements() {
+    // Act
+    long statements =
+        countStatements(
+            () -> reviewService.getUserReviews(customer.getId(), PageRequest.of(0, PAGE_SIZE)));
+
+    // Assert
+    assertTrue(statements <= 3, "user reviews page used " + statements + " statements");
+  }
+
+  @Test
+  void notificationsPage_ShouldUseConstantNumberOfStatements() {
+    // Act
+    long statements =
+        countStatements(
+            () ->
+                notificationService.getUserNotifications(
+                    customer.getId(), PageRequest.of(0, PAGE_SIZE)));
+
+    // Assert
+    // Visible broadcasts, then the user's own page and its count
+    assertTrue(statements <= 3, "notifications page used " + statements + " statements");
+  }
+
+  @Test
+  void rewardTransactionsPage_ShouldUseConstantNumberOfStatements() {
+    // Act
+    long statements =
+        countStatements(
+            () ->
+                rewardService.getRewardTransactions(
+                    customer.getId(), PageRequest.of(0, PAGE_SIZE)));
+
+    // Assert
+    assertTrue(statements <= 4, "reward transactions page used " + statements + " statements");
+  }
+
+  private <T> long countStatements(Supplier<Page<T>> page) {
+    Statistics statistics =
+        entityManager
+            .getEntityManager()
+            .getEntityManagerFactory()
+            .unwrap(SessionFactory.class)
+            .getStatistics();
+    statistics.clear();
+    Page<T> result = page.get();
+    assertEquals(PAGE_SIZE, result.getContent().size());
+    result.getContent().forEach(this::assertMapped);
+    return statistics.getPrepareStatementCount();
+  }
+
+  private void assertMapped(Object response) {
+    if (response instanceof ReviewResponse) {
+      assertNotNull(((ReviewResponse) response).getCustomerName());
+      assertEquals(2, ((ReviewResponse) response).getPhotoUrls().size());
+    } else if (response instanceof NotificationResponse) {
+      assertNotNull(((NotificationResponse) response).getTitle());
+    } else if (response instanceof RewardTransactionResponse) {
+      assertNotNull(((RewardTransactionResponse) response).getUserName());
+    }
+  }
+
+  private void persistReview(User reviewer, User reviewed, int i) {
+    Review review = new Review();
+    review.setReviewer(reviewer);
+    review.setExpert(reviewed);
+    review.setRating(4);
+    review.setComment("Review " + i);
+    review.getPhotoUrls().add("/uploads/reviews/" + i + "-a.jpg");
+    review.getPhotoUrls().add("/uploads/reviews/" + i + "-b.jpg");
+    entityManager.persist(review);
+  }
+
+  private User persistUser(String name) {
+    User user = new User(name, "Tester", name + "@example.com", "password");
+    return entityManager.persist(user);
+  }
+}
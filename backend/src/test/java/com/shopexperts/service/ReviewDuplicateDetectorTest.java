@@ -0,0 +1,113 @@
+package com.shopexperts.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.shopexperts.repository.ReviewRepository;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@ExtendWith(MockitoExtension.class)
+class ReviewDuplicateDetectorTest {
+
+  private static final String SPAM =
+      "Best plumber in town, fixed our leaking kitchen sink in twenty minutes and charged a fair "
+          + "price. Highly recommend calling them for any emergency repair work at home.";
+
+  @Mock private ReviewRepository reviewRepository;
+
+  @InjectMocks private ReviewDuplicateDetector reviewDuplicateDetector;
+
+  @BeforeEach
+  void setUp() {
+    ReflectionTestUtils.setField(reviewDuplicateDetector, "capacity", 1000);
+    ReflectionTestUtils.setField(reviewDuplicateDetector, "minSimilarity", 0.7);
+    ReflectionTestUtils.setField(reviewDuplicateDetector, "minTerms", 5);
+    ReflectionTestUtils.setField(reviewDuplicateDetector, "bucketSize", 16);
+  }
+
+  @Test
+  void checkAndRecord_ShouldFlagLightlyEditedCopyFromAnotherAccount() {
+    // Arrange
+    reviewDuplicateDetector.checkAndRecord(1L, SPAM);
+
+    // Act
+    boolean duplicate =
+        reviewDuplicateDetector.checkAndRecord(
+            2L, SPAM.replace("Best", "BEST!!").replace("twenty", "thirty"));
+
+    // Assert
+    assertTrue(duplicate);
+  }
+
+  @Test
+  void checkAndRecord_ShouldIgnoreRepeatsFromSameAccountAndUnrelatedText() {
+    // Arrange
+    reviewDuplicateDetector.checkAndRecord(1L, SPAM);
+
+    // Act
+    boolean sameAccount = reviewDuplicateDetector.checkAndRecord(1L, SPAM);
+    boolean unrelated =
+        reviewDuplicateDetector.checkAndRecord(
+            2L,
+            "The electrician arrived late, left wires exposed in the hallway and never returned "
+                + "our calls about the flickering lights upstairs.");
+
+    // Assert
+    assertFalse(sameAccount);
+    assertFalse(unrelated);
+  }
+
+  @Test
+  void checkAndRecord_ShouldNeverFlagShortComments() {
+    // Arrange
+    reviewDuplicateDetector.checkAndRecord(1L, "Great service, thanks!");
+
+    // Act
+    boolean duplicate = reviewDuplicateDetector.checkAndRecord(2L, "Great service, thanks!");
+
+    // Assert
+    assertFalse(duplicate);
+  }
+
+  @Test
+  void checkAndRecord_ShouldForgetSignaturesBeyondCapacity() {
+    // Arrange
+    ReflectionTestUtils.setField(reviewDuplicateDetector, "capacity", 2);
+    reviewDuplicateDetector.checkAndRecord(1L, SPAM);
+    reviewDuplicateDetector.checkAndRecord(
+        3L, "completely different words about roofing tiles gutters");
+    reviewDuplicateDetector.checkAndRecord(
+        4L, "another unrelated comment regarding garden fence paint");
+
+    // Act
+    boolean duplicate = reviewDuplicateDetector.checkAndRecord(2L, SPAM);
+
+    // Assert
+    assertFalse(duplicate);
+  }
+
+  @Test
+  void warmUp_ShouldSeedTableFromRecentReviews() {
+    // Arrange
+    List<Object[]> rows = new ArrayList<>();
+    rows.add(new Object[] {1L, SPAM});
+    rows.add(new Object[] {5L, null});
+    when(reviewRepository.findRecentComments(any(Pageable.class))).thenReturn(rows);
+
+    // Act
+    reviewDuplicateDetector.warmUp();
+
+    // Assert
+    assertTrue(reviewDuplicateDetector.checkAndRecord(2L, SPAM));
+  }
+}
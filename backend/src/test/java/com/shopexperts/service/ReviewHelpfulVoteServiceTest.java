@@ -0,0 +1,196 @@
+package com.shopexperts.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.shopexperts.repository.ReviewHelpfulVoteRepository;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@ExtendWith(MockitoExtension.class)
+class ReviewHelpfulVoteServiceTest {
+
+  @Mock private ReviewHelpfulVoteRepository reviewHelpfulVoteRepository;
+
+  @Mock private JdbcTemplate jdbcTemplate;
+
+  @Mock private TransactionTemplate transactionTemplate;
+
+  @InjectMocks private ReviewHelpfulVoteService reviewHelpfulVoteService;
+
+  @BeforeEach
+  void setUp() {
+    lenient()
+        .when(transactionTemplate.execute(any()))
+        .thenAnswer(
+            invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+  }
+
+  @Test
+  void vote_ShouldCountFirstVoteAndRejectDuplicate() {
+    // Act
+    boolean first = reviewHelpfulVoteService.vote(1L, 10L);
+    boolean duplicate = reviewHelpfulVoteService.vote(1L, 10L);
+
+    // Assert
+    assertTrue(first);
+    assertFalse(duplicate);
+    assertEquals(1L, reviewHelpfulVoteService.getPendingVotes(1L));
+    verify(reviewHelpfulVoteRepository, times(1)).existsByReviewIdAndUserId(1L, 10L);
+  }
+
+  @Test
+  void vote_ShouldRejectVoteAlreadyStored() {
+    // Arrange
+    when(reviewHelpfulVoteRepository.existsByReviewIdAndUserId(1L, 10L)).thenReturn(true);
+
+    // Act & Assert
+    assertFalse(reviewHelpfulVoteService.vote(1L, 10L));
+    assertEquals(0L, reviewHelpfulVoteService.getPendingVotes(1L));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void flush_ShouldWriteVotesAndOneCounterUpdatePerReview() {
+    // Arrange
+    reviewHelpfulVoteService.vote(1L, 10L);
+    reviewHelpfulVoteService.vote(1L, 11L);
+    reviewHelpfulVoteService.vote(2L, 10L);
+
+    // Act
+    int flushed = reviewHelpfulVoteService.flush();
+
+    // Assert
+    assertEquals(3, flushed);
+    ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+    verify(jdbcTemplate, times(2)).batchUpdate(anyString(), rows.capture());
+    assertEquals(3, rows.getAllValues().get(0).size());
+    assertEquals(2, rows.getAllValues().get(1).size());
+    assertEquals(0L, reviewHelpfulVoteService.getPendingVotes(1L));
+    assertEquals(0L, reviewHelpfulVoteService.getPendingVotes(2L));
+  }
+
+  @Test
+  void flush_ShouldRetryVotesAloneAndDropOnlyTheOneThatFails() {
+    // Arrange: one of review 2's votes can never be written, which fails every batch holding it
+    reviewHelpfulVoteService.vote(1L, 10L);
+    reviewHelpfulVoteService.vote(2L, 10L);
+    reviewHelpfulVoteService.vote(2L, 11L);
+    when(jdbcTemplate.batchUpdate(startsWith("INSERT"), anyList()))
+        .thenAnswer(
+            invocation -> {
+              List<Object[]> rows = invocation.getArgument(1);
+              if (rows.stream().anyMatch(row -> row[1].equals(11L))) {
+                throw new RuntimeException("Duplicate vote");
+              }
+              return new int[rows.size()];
+            });
+    when(jdbcTemplate.update(startsWith("INSERT"), eq(2L), eq(10L), any(), eq(2L))).thenReturn(1);
+    when(jdbcTemplate.update(startsWith("INSERT"), eq(2L), eq(11L), any(), eq(2L)))
+        .thenThrow(new RuntimeException("Duplicate vote"));
+
+    // Act
+    reviewHelpfulVoteService.flush();
+
+    // Assert: review 1 is written as a batch, review 2 counts its one good vote
+    verify(jdbcTemplate)
+        .batchUpdate(startsWith("UPDATE"), argThat((List<Object[]> rows) -> rows.size() == 1));
+    verify(jdbcTemplate, times(1)).update(startsWith("UPDATE"), eq(1), eq(2L));
+    assertEquals(0L, reviewHelpfulVoteService.getPendingVotes(1L));
+    assertEquals(0L, reviewHelpfulVoteService.getPendingVotes(2L));
+  }
+
+  @Test
+  void flush_ShouldKeepVotesPending_WhenNoVoteCanBeWritten() {
+    // Arrange
+    reviewHelpfulVoteService.vote(1L, 10L);
+    reviewHelpfulVoteService.vote(2L, 10L);
+    when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+        .thenThrow(new RuntimeException("Database unavailable"));
+    when(jdbcTemplate.update(anyString(), any(Object[].class)))
+        .thenThrow(new RuntimeException("Database unavailable"));
+
+    // Act & Assert
+    assertThrows(RuntimeException.class, () -> reviewHelpfulVoteService.flush());
+    assertEquals(1L, reviewHelpfulVoteService.getPendingVotes(1L));
+    assertEquals(1L, reviewHelpfulVoteService.getPendingVotes(2L));
+  }
+
+  @Test
+  void flush_ShouldStillRejectVoteFlushedInPreviousCycle() {
+    // Arrange
+    reviewHelpfulVoteService.vote(1L, 10L);
+    reviewHelpfulVoteService.flush();
+
+    // Act & Assert
+    assertFalse(reviewHelpfulVoteService.vote(1L, 10L));
+  }
+
+  @Test
+  void flush_ShouldDoNothing_WhenNoPendingVotes() {
+    // Act
+    int flushed = reviewHelpfulVoteService.flush();
+
+    // Assert
+    assertEquals(0, flushed);
+    verifyNoInteractions(jdbcTemplate);
+  }
+
+  @Test
+  void flush_ShouldLeaveNoPendingCount_WhenRacingVotes() throws Exception {
+    // Arrange
+    ExecutorService voters = Executors.newFixedThreadPool(4);
+    List<Future<?>> votes = new ArrayList<>();
+    for (int thread = 0; thread < 4; thread++) {
+      long firstUser = thread * 1000L;
+      votes.add(
+          voters.submit(
+              () -> {
+                for (long user = firstUser; user < firstUser + 1000; user++) {
+                  reviewHelpfulVoteService.vote(1L, user);
+                }
+              }));
+    }
+
+    // Act
+    while (votes.stream().anyMatch(vote -> !vote.isDone())) {
+      reviewHelpfulVoteService.flush();
+    }
+    for (Future<?> vote : votes) {
+      vote.get();
+    }
+    reviewHelpfulVoteService.flush();
+    voters.shutdown();
+
+    // Assert
+    assertEquals(0L, reviewHelpfulVoteService.getPendingVotes(1L));
+  }
+
+  @Test
+  void discardReview_ShouldDropPendingAndStoredVotes() {
+    // Arrange
+    reviewHelpfulVoteService.vote(1L, 10L);
+
+    // Act
+    reviewHelpfulVoteService.discardReview(1L);
+
+    // Assert
+    assertEquals(0L, reviewHelpfulVoteService.getPendingVotes(1L));
+    assertEquals(0, reviewHelpfulVoteService.flush());
+    verify(reviewHelpfulVoteRepository).deleteByReviewId(1L);
+  }
+}
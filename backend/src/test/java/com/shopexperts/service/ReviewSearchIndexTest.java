@@ -0,0 +1,202 @@
+package com.shopexperts.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.shopexperts.repository.ReviewRepository;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@ExtendWith(MockitoExtension.class)
+class ReviewSearchIndexTest {
+
+  @Mock private ReviewRepository reviewRepository;
+
+  @InjectMocks private ReviewSearchIndex reviewSearchIndex;
+
+  @TempDir Path indexDir;
+
+  @BeforeEach
+  void setUp() {
+    configure(reviewSearchIndex);
+  }
+
+  @Test
+  void search_ShouldMatchStemmedTermsAndRankByRelevance() {
+    // Arrange
+    reviewSearchIndex.index(1L, 10L, "Great work, arrived on time and tidy.");
+    reviewSearchIndex.index(2L, 10L, "Overcharged me and was late. Late again the next day!");
+    reviewSearchIndex.index(3L, 20L, "A bit late but the overcharging was the real problem.");
+
+    // Act
+    List<Long> late = ids(reviewSearchIndex.search("Lateness? late", null, 10));
+    List<Long> overcharged = ids(reviewSearchIndex.search("overcharged", null, 10));
+
+    // Assert
+    assertEquals(Arrays.asList(2L, 3L), late);
+    assertEquals(2, overcharged.size());
+    assertTrue(overcharged.containsAll(Arrays.asList(2L, 3L)));
+  }
+
+  @Test
+  void search_ShouldFilterByTalentAndHonourLimit() {
+    // Arrange
+    reviewSearchIndex.index(1L, 10L, "late");
+    reviewSearchIndex.index(2L, 10L, "late late");
+    reviewSearchIndex.index(3L, 20L, "late late late");
+
+    // Act
+    List<Long> forTalent = ids(reviewSearchIndex.search("late", 10L, 10));
+    List<Long> limited = ids(reviewSearchIndex.search("late", null, 1));
+
+    // Assert
+    assertEquals(Arrays.asList(2L, 1L), forTalent);
+    assertEquals(Arrays.asList(3L), limited);
+  }
+
+  @Test
+  void indexAndRemove_ShouldKeepIndexCurrent() {
+    // Arrange
+    reviewSearchIndex.index(1L, 10L, "Plumber was late");
+
+    // Act
+    reviewSearchIndex.index(1L, 10L, "Plumber was punctual");
+    List<Long> afterUpdate = ids(reviewSearchIndex.search("late", null, 10));
+    reviewSearchIndex.remove(1L);
+
+    // Assert
+    assertTrue(afterUpdate.isEmpty());
+    assertTrue(reviewSearchIndex.search("punctual", null, 10).isEmpty());
+    assertEquals(0, reviewSearchIndex.size());
+  }
+
+  @Test
+  void load_ShouldRestoreFlushedSegmentsWithoutRebuilding() throws IOException {
+    // Arrange
+    reviewSearchIndex.index(1L, 10L, "late again");
+    reviewSearchIndex.flush();
+    reviewSearchIndex.index(2L, 10L, "overcharged");
+    reviewSearchIndex.remove(1L);
+    reviewSearchIndex.index(3L, 20L, "late start");
+    reviewSearchIndex.flush();
+    assertEquals(2, segmentCount());
+
+    ReviewSearchIndex restarted = new ReviewSearchIndex();
+    ReflectionTestUtils.setField(restarted, "reviewRepository", reviewRepository);
+    configure(restarted);
+    when(reviewRepository.count()).thenReturn(2L);
+    when(reviewRepository.findMaxId()).thenReturn(3L);
+
+    // Act
+    restarted.load();
+
+    // Assert
+    assertEquals(2, restarted.size());
+    assertEquals(Arrays.asList(3L), ids(restarted.search("late", null, 10)));
+    assertEquals(Arrays.asList(2L), ids(restarted.search("overcharge", null, 10)));
+    verify(reviewRepository, never()).findSearchDocuments(anyLong(), any(Pageable.class));
+  }
+
+  @Test
+  void load_ShouldReindexReviewsUpdatedSinceTheLastSegment() throws IOException {
+    // Arrange: an edit reached the database but the crash came before the index flushed it
+    reviewSearchIndex.index(1L, 10L, "Plumber was late");
+    reviewSearchIndex.index(2L, 10L, "Tidy work");
+    LocalDateTime beforeFlush = LocalDateTime.now();
+    reviewSearchIndex.flush();
+
+    ReviewSearchIndex restarted = new ReviewSearchIndex();
+    ReflectionTestUtils.setField(restarted, "reviewRepository", reviewRepository);
+    configure(restarted);
+    List<Object[]> edited = new ArrayList<>();
+    edited.add(new Object[] {1L, 10L, "Plumber was punctual"});
+    when(reviewRepository.findSearchDocumentsUpdatedSince(any(LocalDateTime.class)))
+        .thenReturn(edited);
+    when(reviewRepository.count()).thenReturn(2L);
+    when(reviewRepository.findMaxId()).thenReturn(2L);
+
+    // Act
+    restarted.load();
+    restarted.flush();
+
+    // Assert
+    assertTrue(restarted.search("late", null, 10).isEmpty());
+    assertEquals(Arrays.asList(1L), ids(restarted.search("punctual", null, 10)));
+    assertEquals(2, segmentCount());
+    ArgumentCaptor<LocalDateTime> since = ArgumentCaptor.forClass(LocalDateTime.class);
+    verify(reviewRepository).findSearchDocumentsUpdatedSince(since.capture());
+    assertTrue(since.getValue().isBefore(beforeFlush));
+    verify(reviewRepository, never()).findSearchDocuments(anyLong(), any(Pageable.class));
+  }
+
+  @Test
+  void load_ShouldRebuildFromDatabase_WhenSegmentsAreStale() throws IOException {
+    // Arrange
+    reviewSearchIndex.index(1L, 10L, "stale comment");
+    reviewSearchIndex.flush();
+    when(reviewRepository.count()).thenReturn(5L);
+    List<Object[]> rows = new ArrayList<>();
+    rows.add(new Object[] {4L, 10L, "Arrived late"});
+    rows.add(new Object[] {5L, 20L, null});
+    when(reviewRepository.findSearchDocuments(eq(0L), any(Pageable.class))).thenReturn(rows);
+
+    // Act
+    reviewSearchIndex.load();
+
+    // Assert
+    assertEquals(2, reviewSearchIndex.size());
+    assertTrue(reviewSearchIndex.search("stale", null, 10).isEmpty());
+    assertEquals(Arrays.asList(4L), ids(reviewSearchIndex.search("late", null, 10)));
+    assertEquals(1, segmentCount());
+  }
+
+  @Test
+  void flush_ShouldCompactSegments_WhenThresholdExceeded() throws IOException {
+    // Arrange
+    ReflectionTestUtils.setField(reviewSearchIndex, "maxSegments", 2);
+
+    // Act
+    for (long id = 1; id <= 3; id++) {
+      reviewSearchIndex.index(id, 10L, "review number " + id);
+      reviewSearchIndex.flush();
+    }
+
+    // Assert
+    assertEquals(1, segmentCount());
+  }
+
+  private void configure(ReviewSearchIndex index) {
+    ReflectionTestUtils.setField(index, "indexDir", indexDir.toString());
+    ReflectionTestUtils.setField(index, "maxSegments", 8);
+    ReflectionTestUtils.setField(index, "k1", 1.2);
+    ReflectionTestUtils.setField(index, "b", 0.75);
+  }
+
+  private long segmentCount() throws IOException {
+    try (Stream<Path> files = Files.list(indexDir)) {
+      return files.filter(path -> path.toString().endsWith(".seg")).count();
+    }
+  }
+
+  private static List<Long> ids(List<ReviewSearchIndex.Hit> hits) {
+    return hits.stream().map(ReviewSearchIndex.Hit::getReviewId).collect(Collectors.toList());
+  }
+}
@@ -6,6 +6,7 @@ import static org.mockito.Mockito.*;
 
 import com.shopexperts.model.Review;
 import com.shopexperts.model.User;
+import com.shopexperts.payload.CursorPage;
 import com.shopexperts.payload.ReviewRequest;
 import com.shopexperts.payload.ReviewResponse;
 import com.shopexperts.repository.ReviewRepository;
@@ -15,6 +16,8 @@ import java.util.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -22,6 +25,8 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @ExtendWith(MockitoExtension.class)
 class ReviewServiceTest {
@@ -30,6 +35,18 @@ class ReviewServiceTest {
 
   @Mock private UserRepository userRepository;
 
+  @Mock private TalentLeaderboardService talentLeaderboardService;
+
+  @Mock private ReviewHelpfulVoteService reviewHelpfulVoteService;
+
+  @Mock private ReviewSearchIndex reviewSearchIndex;
+
+  @Mock private RecentReviewFeed recentReviewFeed;
+
+  @Mock private ReviewDuplicateDetector reviewDuplicateDetector;
+
+  @Mock private TransactionTemplate transactionTemplate;
+
   @InjectMocks private ReviewService reviewService;
 
   private User reviewer;
@@ -40,6 +57,11 @@ class ReviewServiceTest {
 
   @BeforeEach
   void setUp() {
+    lenient()
+        .when(transactionTemplate.execute(any()))
+        .thenAnswer(
+            invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+
     reviewer = new User();
     reviewer.setId(1L);
     reviewer.setFirstName("John");
@@ -89,6 +111,45 @@ class ReviewServiceTest {
     verify(userRepository).findById(1L);
     verify(userRepository).findById(2L);
     verify(reviewRepository).save(any(Review.class));
+    verify(talentLeaderboardService).recordRatingChange(2L, "Jane Smith", null, 1, 5);
+    verify(reviewSearchIndex).index(1L, 2L, "Excellent service!");
+    verify(recentReviewFeed).append(result, null);
+  }
+
+  @Test
+  void createReview_ShouldNotRankUnapprovedReview() {
+    // Arrange
+    testReview.setApproved(false);
+    when(userRepository.findById(1L)).thenReturn(Optional.of(reviewer));
+    when(userRepository.findById(2L)).thenReturn(Optional.of(expert));
+    when(reviewRepository.save(any(Review.class))).thenReturn(testReview);
+
+    // Act
+    reviewService.createReview(reviewRequest, 1L);
+
+    // Assert
+    verifyNoInteractions(talentLeaderboardService);
+    verifyNoInteractions(recentReviewFeed);
+  }
+
+  @Test
+  void createReview_ShouldHoldNearDuplicateForModeration() {
+    // Arrange
+    when(userRepository.findById(1L)).thenReturn(Optional.of(reviewer));
+    when(userRepository.findById(2L)).thenReturn(Optional.of(expert));
+    when(reviewDuplicateDetector.checkAndRecord(1L, "Excellent service!")).thenReturn(true);
+    when(reviewRepository.save(any(Review.class)))
+        .thenAnswer(invocation -> invocation.getArgument(0));
+
+    // Act
+    reviewService.createReview(reviewRequest, 1L);
+
+    // Assert
+    ArgumentCaptor<Review> saved = ArgumentCaptor.forClass(Review.class);
+    verify(reviewRepository).save(saved.capture());
+    assertFalse(saved.getValue().getApproved());
+    verifyNoInteractions(talentLeaderboardService);
+    verifyNoInteractions(recentReviewFeed);
   }
 
   @Test
@@ -214,8 +275,11 @@ class ReviewServiceTest {
   @Test
   void getRecentReviews_ShouldReturnRecentReviews() {
     // Arrange
-    List<Review> reviews = Arrays.asList(testReview);
-    when(reviewRepository.findTop10ByOrderByCreatedAtDesc()).thenReturn(reviews);
+    ReviewResponse recent = new ReviewResponse();
+    recent.setId(1L);
+    when(recentReviewFeed.snapshot(10, null)).thenReturn(Arrays.asList(recent));
+    when(recentReviewFeed.getCapacity()).thenReturn(100);
+    when(recentReviewFeed.holdsEveryReview()).thenReturn(true);
 
     // Act
     List<ReviewResponse> result = reviewService.getRecentReviews(10);
@@ -225,7 +289,69 @@ class ReviewServiceTest {
     assertEquals(1, result.size());
     assertEquals(1L, result.get(0).getId());
 
-    verify(reviewRepository).findTop10ByOrderByCreatedAtDesc();
+    verifyNoInteractions(reviewRepository);
+  }
+
+  @Test
+  void getRecentReviews_ShouldReadOnePage_WhenTheFeedCannotFillTheRequest() {
+    // Arrange: the feed lost older reviews, and holds too few in the category
+    when(recentReviewFeed.snapshot(10, " Plumbing")).thenReturn(Collections.emptyList());
+    when(recentReviewFeed.getCapacity()).thenReturn(100);
+    when(recentReviewFeed.holdsEveryReview()).thenReturn(false);
+    when(reviewRepository.findApprovedInCategory("plumbing", PageRequest.of(0, 10)))
+        .thenReturn(Arrays.asList(testReview));
+
+    // Act
+    List<ReviewResponse> result = reviewService.getRecentReviews(10, " Plumbing");
+
+    // Assert
+    assertEquals(1, result.size());
+    assertEquals(1L, result.get(0).getId());
+  }
+
+  @Test
+  void warmRecentReviews_ShouldReportTheNewestReviewThatDoesNotFit() {
+    // Arrange
+    Review older = new Review();
+    older.setId(2L);
+    older.setCreatedAt(LocalDateTime.now().minusDays(1));
+    when(recentReviewFeed.getCapacity()).thenReturn(1);
+    when(reviewRepository.findByApprovedTrueOrderByCreatedAtDescIdDesc(PageRequest.of(0, 2)))
+        .thenReturn(Arrays.asList(testReview, older));
+
+    // Act
+    reviewService.warmRecentReviews();
+
+    // Assert
+    InOrder inOrder = inOrder(recentReviewFeed);
+    inOrder.verify(recentReviewFeed).clear();
+    inOrder.verify(recentReviewFeed).markMissing(2L, older.getCreatedAt());
+    inOrder
+        .verify(recentReviewFeed)
+        .append(argThat(response -> response.getId().equals(1L)), isNull());
+  }
+
+  @Test
+  void warmRecentReviews_ShouldAppendOldestFirst() {
+    // Arrange
+    Review older = new Review();
+    older.setId(2L);
+    older.setReviewer(reviewer);
+    older.setExpert(expert);
+    older.setRating(3);
+    when(recentReviewFeed.getCapacity()).thenReturn(50);
+    when(reviewRepository.findByApprovedTrueOrderByCreatedAtDescIdDesc(PageRequest.of(0, 51)))
+        .thenReturn(Arrays.asList(testReview, older));
+
+    // Act
+    reviewService.warmRecentReviews();
+
+    // Assert
+    ArgumentCaptor<ReviewResponse> appended = ArgumentCaptor.forClass(ReviewResponse.class);
+    verify(recentReviewFeed).clear();
+    verify(recentReviewFeed, times(2)).append(appended.capture(), isNull());
+    assertEquals(2L, appended.getAllValues().get(0).getId());
+    assertEquals(1L, appended.getAllValues().get(1).getId());
   }
 
   @Test
@@ -248,6 +374,7 @@ class ReviewServiceTest {
 
     verify(reviewRepository).findById(1L);
     verify(reviewRepository).save(testReview);
+    verify(talentLeaderboardService).recordRatingChange(2L, "Jane Smith", null, 0, -1);
   }
 
   @Test
@@ -286,7 +413,59 @@ class ReviewServiceTest {
 
     // Assert
     verify(reviewRepository).findById(1L);
+    verify(reviewHelpfulVoteService).discardReview(1L);
     verify(reviewRepository).delete(testReview);
+    verify(talentLeaderboardService).recordRatingChange(2L, "Jane Smith", null, -1, -5);
+    verify(reviewSearchIndex).remove(1L);
+    verify(recentReviewFeed).evict(1L);
+  }
+
+  @Test
+  void searchReviews_ShouldReturnApprovedReviewsInRelevanceOrder() {
+    // Arrange
+    Review unapproved = new Review();
+    unapproved.setId(3L);
+    unapproved.setReviewer(reviewer);
+    unapproved.setExpert(expert);
+    unapproved.setRating(1);
+    unapproved.setApproved(false);
+
+    Review second = new Review();
+    second.setId(2L);
+    second.setReviewer(reviewer);
+    second.setExpert(expert);
+    second.setRating(2);
+    second.setComment("Showed up late");
+
+    when(reviewSearchIndex.search("late", 2L, 4))
+        .thenReturn(
+            Arrays.asList(
+                new ReviewSearchIndex.Hit(3L, 3.0),
+                new ReviewSearchIndex.Hit(2L, 2.0),
+                new ReviewSearchIndex.Hit(1L, 1.0)));
+    when(reviewRepository.findByIdIn(Arrays.asList(3L, 2L, 1L)))
+        .thenReturn(Arrays.asList(testReview, unapproved, second));
+
+    // Act
+    List<ReviewResponse> result = reviewService.searchReviews("late", 2L, 2);
+
+    // Assert
+    assertEquals(2, result.size());
+    assertEquals(2L, result.get(0).getId());
+    assertEquals(1L, result.get(1).getId());
+  }
+
+  @Test
+  void searchReviews_ShouldSkipDatabase_WhenNothingMatches() {
+    // Arrange
+    when(reviewSearchIndex.search("late", null, 20)).thenReturn(new ArrayList<>());
+
+    // Act
+    List<ReviewResponse> result = reviewService.searchReviews("late", null, 10);
+
+    // Assert
+    assertTrue(result.isEmpty());
+    verify(reviewRepository, never()).findByIdIn(any());
   }
 
   @Test
@@ -313,6 +492,113 @@ class ReviewServiceTest {
     verify(reviewRepository, never()).delete(any(Review.class));
   }
 
+  @Test
+  void markReviewHelpful_ShouldReturnStoredPlusPendingVotes() {
+    // Arrange
+    testReview.setHelpfulVotes(3);
+    when(reviewRepository.findById(1L)).thenReturn(Optional.of(testReview));
+    when(reviewHelpfulVoteService.vote(1L, 2L)).thenReturn(true);
+    when(reviewHelpfulVoteService.getPendingVotes(1L)).thenReturn(2L);
+
+    // Act
+    long result = reviewService.markReviewHelpful(1L, 2L);
+
+    // Assert
+    assertEquals(5L, result);
+    verify(reviewHelpfulVoteService).vote(1L, 2L);
+  }
+
+  @Test
+  void markReviewHelpful_ShouldThrowException_WhenAlreadyVoted() {
+    // Arrange
+    when(reviewRepository.findById(1L)).thenReturn(Optional.of(testReview));
+    when(reviewHelpfulVoteService.vote(1L, 2L)).thenReturn(false);
+
+    // Act & Assert
+    assertThrows(RuntimeException.class, () -> reviewService.markReviewHelpful(1L, 2L));
+  }
+
+  @Test
+  void markReviewHelpful_ShouldThrowException_WhenVotingOwnReview() {
+    // Arrange
+    when(reviewRepository.findById(1L)).thenReturn(Optional.of(testReview));
+
+    // Act & Assert
+    assertThrows(RuntimeException.class, () -> reviewService.markReviewHelpful(1L, 1L));
+
+    verify(reviewHelpfulVoteService, never()).vote(anyLong(), anyLong());
+  }
+
+  @Test
+  void getModerationQueue_ShouldReturnCursorForNextPage() {
+    // Arrange
+    Review second = new Review();
+    second.setId(2L);
+    second.setReviewer(reviewer);
+    second.setExpert(expert);
+    second.setRating(1);
+    when(reviewRepository.findModerationQueue(0L, PageRequest.of(0, 2)))
+        .thenReturn(Arrays.asList(testReview, second));
+
+    // Act
+    CursorPage<ReviewResponse> result = reviewService.getModerationQueue(null, 1);
+
+    // Assert
+    assertEquals(1, result.getContent().size());
+    assertEquals(1L, result.getNextCursor());
+    assertTrue(result.isHasMore());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void approveReviews_ShouldUpdateInOneStatementAndAggregateRatingsPerTalent() {
+    // Arrange
+    List<Object[]> snapshots =
+        Arrays.asList(
+            new Object[] {1L, 2L, "Jane", "Smith", "Plumbing", 5, false},
+            new Object[] {2L, 2L, "Jane", "Smith", "Plumbing", 3, false},
+            new Object[] {3L, 2L, "Jane", "Smith", "Plumbing", 4, true});
+    when(reviewRepository.findModerationSnapshots(Arrays.asList(1L, 2L, 3L))).thenReturn(snapshots);
+    when(reviewRepository.approveAll(eq(Arrays.asList(1L, 2L, 3L)), any(LocalDateTime.class)))
+        .thenReturn(3);
+    when(recentReviewFeed.getCapacity()).thenReturn(100);
+    when(reviewRepository.findNewestByIdIn(Arrays.asList(1L, 2L), PageRequest.of(0, 101)))
+        .thenReturn(Arrays.asList(testReview));
+
+    // Act
+    int updated = reviewService.approveReviews(Arrays.asList(1L, 2L, 3L, 2L));
+
+    // Assert
+    assertEquals(3, updated);
+    ArgumentCaptor<Collection<TalentLeaderboardService.RatingChange>> changes =
+        ArgumentCaptor.forClass(Collection.class);
+    verify(talentLeaderboardService).recordRatingChanges(changes.capture());
+    TalentLeaderboardService.RatingChange change = changes.getValue().iterator().next();
+    assertEquals(1, changes.getValue().size());
+    assertEquals(2, change.getCountDelta());
+    assertEquals(8, change.getRatingDelta());
+    verify(recentReviewFeed).append(any(ReviewResponse.class), isNull());
+  }
+
+  @Test
+  void rejectReviews_ShouldSkipLeaderboard_WhenNothingWasApproved() {
+    // Arrange
+    List<Object[]> snapshots =
+        Collections.singletonList(new Object[] {1L, 2L, "Jane", "Smith", null, 5, false});
+    when(reviewRepository.findModerationSnapshots(Collections.singletonList(1L)))
+        .thenReturn(snapshots);
+    when(reviewRepository.rejectAll(eq(Collections.singletonList(1L)), any(LocalDateTime.class)))
+        .thenReturn(1);
+
+    // Act
+    int updated = reviewService.rejectReviews(Collections.singletonList(1L));
+
+    // Assert
+    assertEquals(1, updated);
+    verifyNoInteractions(talentLeaderboardService);
+    verify(recentReviewFeed).evictAll(Collections.singletonList(1L));
+  }
+
   @Test
   void hasUserReviewedExpert_ShouldReturnTrue_WhenReviewExists() {
     // Arrange
@@ -0,0 +1,176 @@
+package com.shopexperts.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.shopexperts.model.RewardCampaign;
+import com.shopexperts.model.RewardEventType;
+import com.shopexperts.payload.RewardCampaignRequest;
+import com.shopexperts.payload.RewardCampaignResponse;
+import com.shopexperts.repository.RewardCampaignRepository;
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@ExtendWith(MockitoExtension.class)
+class RewardCampaignServiceTest {
+
+  // A Saturday and the Monday after it
+  private static final LocalDateTime SATURDAY = LocalDateTime.of(2026, 5, 16, 12, 0);
+  private static final LocalDateTime MONDAY = LocalDateTime.of(2026, 5, 18, 12, 0);
+
+  @Mock private RewardCampaignRepository rewardCampaignRepository;
+
+  @InjectMocks private RewardCampaignService rewardCampaignService;
+
+  @BeforeEach
+  void setUp() {
+    ReflectionTestUtils.setField(rewardCampaignService, "bookingPoints", 10);
+    ReflectionTestUtils.setField(rewardCampaignService, "reviewPoints", 5);
+    ReflectionTestUtils.setField(rewardCampaignService, "referrerPoints", 50);
+    ReflectionTestUtils.setField(rewardCampaignService, "referredPoints", 25);
+  }
+
+  @Test
+  void evaluate_ShouldReturnBasePoints_WhenNoCampaignMatches() {
+    // Act
+    RewardCampaignService.Decision decision =
+        rewardCampaignService.evaluate(RewardEventType.BOOKING_COMPLETED, "Plumbing", MONDAY);
+
+    // Assert
+    assertEquals(10, decision.getPoints());
+    assertNull(decision.getCampaignName());
+  }
+
+  @Test
+  void evaluate_ShouldApplyWeekendCategoryCampaign_OnlyOnItsDaysAndCategory() {
+    // Arrange
+    RewardCampaign weekend =
+        campaign("Double plumbing weekend", RewardEventType.BOOKING_COMPLETED, "Plumbing", 2.0, 0);
+    weekend.setDaysOfWeek((1 << 5) | (1 << 6)); // Saturday and Sunday
+    when(rewardCampaignRepository.findByActiveTrue())
+        .thenReturn(Collections.singletonList(weekend));
+    rewardCampaignService.reload();
+
+    // Act & Assert
+    RewardCampaignService.Decision saturday =
+        rewardCampaignService.evaluate(RewardEventType.BOOKING_COMPLETED, " plumbing ", SATURDAY);
+    assertEquals(20, saturday.getPoints());
+    assertEquals("Double plumbing weekend", saturday.getCampaignName());
+    assertEquals(
+        10,
+        rewardCampaignService
+            .evaluate(RewardEventType.BOOKING_COMPLETED, "Plumbing", MONDAY)
+            .getPoints());
+    assertEquals(
+        10,
+        rewardCampaignService
+            .evaluate(RewardEventType.BOOKING_COMPLETED, "Electrical", SATURDAY)
+            .getPoints());
+    assertEquals(
+        5,
+        rewardCampaignService
+            .evaluate(RewardEventType.REVIEW_WRITTEN, "Plumbing", SATURDAY)
+            .getPoints());
+  }
+
+  @Test
+  void evaluate_ShouldPickTheMostGenerousCampaignWithinItsWindow() {
+    // Arrange
+    RewardCampaign everyone =
+        campaign("Spring bonus", RewardEventType.REFERRAL_REFERRER, null, 1.0, 15);
+    RewardCampaign expired =
+        campaign("Launch week", RewardEventType.REFERRAL_REFERRER, null, 3.0, 0);
+    expired.setStartsAt(SATURDAY.minusDays(14));
+    expired.setEndsAt(SATURDAY.minusDays(7));
+    when(rewardCampaignRepository.findByActiveTrue()).thenReturn(Arrays.asList(everyone, expired));
+    rewardCampaignService.reload();
+
+    // Act
+    RewardCampaignService.Decision decision =
+        rewardCampaignService.evaluate(RewardEventType.REFERRAL_REFERRER, null, SATURDAY);
+    RewardCampaignService.Decision duringLaunch =
+        rewardCampaignService.evaluate(
+            RewardEventType.REFERRAL_REFERRER, null, SATURDAY.minusDays(10));
+
+    // Assert
+    assertEquals(65, decision.getPoints());
+    assertEquals("Spring bonus", decision.getCampaignName());
+    assertEquals(150, duringLaunch.getPoints());
+  }
+
+  @Test
+  void createCampaign_ShouldSwapInRecompiledRules() {
+    // Arrange
+    RewardCampaignRequest request =
+        new RewardCampaignRequest(
+            "Review rush",
+            RewardEventType.REVIEW_WRITTEN,
+            null,
+            null,
+            10,
+            null,
+            null,
+            EnumSet.of(DayOfWeek.SATURDAY),
+            null);
+    when(rewardCampaignRepository.save(any(RewardCampaign.class)))
+        .thenAnswer(invocation -> invocation.getArgument(0));
+    RewardCampaign stored = campaign("Review rush", RewardEventType.REVIEW_WRITTEN, null, 1.0, 10);
+    stored.setDaysOfWeek(1 << 5);
+    when(rewardCampaignRepository.findByActiveTrue()).thenReturn(Collections.singletonList(stored));
+
+    // Act
+    RewardCampaignResponse response = rewardCampaignService.createCampaign(request);
+
+    // Assert
+    assertEquals(EnumSet.of(DayOfWeek.SATURDAY), response.getDaysOfWeek());
+    assertTrue(response.getActive());
+    assertEquals(
+        15,
+        rewardCampaignService.evaluate(RewardEventType.REVIEW_WRITTEN, null, SATURDAY).getPoints());
+  }
+
+  @Test
+  void updateCampaign_ShouldRejectWindowThatEndsBeforeItStarts() {
+    // Arrange
+    when(rewardCampaignRepository.findById(1L))
+        .thenReturn(Optional.of(campaign("Old", RewardEventType.BOOKING_COMPLETED, null, 1.0, 0)));
+    RewardCampaignRequest request =
+        new RewardCampaignRequest(
+            "Backwards",
+            RewardEventType.BOOKING_COMPLETED,
+            null,
+            2.0,
+            null,
+            MONDAY,
+            SATURDAY,
+            null,
+            true);
+
+    // Act & Assert
+    assertThrows(RuntimeException.class, () -> rewardCampaignService.updateCampaign(1L, request));
+    verify(rewardCampaignRepository, never()).save(any());
+  }
+
+  private static RewardCampaign campaign(
+      String name, RewardEventType eventType, String category, double multiplier, int bonus) {
+    RewardCampaign campaign = new RewardCampaign();
+    campaign.setName(name);
+    campaign.setEventType(eventType);
+    campaign.setCategory(category);
+    campaign.setMultiplier(multiplier);
+    campaign.setBonusPoints(bonus);
+    return campaign;
+  }
+}
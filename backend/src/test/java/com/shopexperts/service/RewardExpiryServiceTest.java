@@ -0,0 +1,218 @@
+package com.shopexperts.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.shopexperts.model.RewardAccount;
+import com.shopexperts.model.User;
+import com.shopexperts.repository.RewardAccountRepository;
+import com.shopexperts.repository.UserRepository;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Runs the expiry job against a real database, with chunks small enough that the accounts are
+ * spread over several parallel transactions.
+ */
+@DataJpaTest(
+    properties = {
+      "spring.datasource.url=jdbc:h2:mem:reward-expiry;LOCK_TIMEOUT=10000;DB_CLOSE_DELAY=-1",
+      "app.rewards.expiry.months=12",
+      "app.rewards.expiry.chunk-size=2",
+      "app.rewards.expiry.parallelism=3"
+    })
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({
+  RewardExpiryService.class,
+  NotificationCounterService.class,
+  NotificationPreferenceService.class,
+  ChangeLogService.class
+})
+class RewardExpiryServiceTest {
+
+  private static final LocalDateTime NOW = LocalDateTime.of(2026, 6, 1, 4, 0);
+  private static final LocalDateTime OLD = NOW.minusMonths(17);
+  private static final LocalDateTime RECENT = NOW.minusMonths(3);
+
+  @Autowired private RewardExpiryService rewardExpiryService;
+
+  @Autowired private UserRepository userRepository;
+
+  @Autowired private RewardAccountRepository rewardAccountRepository;
+
+  @SpyBean private JdbcTemplate jdbcTemplate;
+
+  @AfterEach
+  void tearDown() {
+    jdbcTemplate.update("DELETE FROM notifications");
+    jdbcTemplate.update("DELETE FROM reward_transactions");
+    jdbcTemplate.update("DELETE FROM reward_accounts");
+    jdbcTemplate.update("DELETE FROM users");
+  }
+
+  @Test
+  void expirePoints_ShouldExpireUnusedOldCreditsOldestFirst() {
+    // Arrange
+    // Redeeming 30 used part of the old 100-point lot, so 70 of it is left to expire
+    RewardAccount partlyUsed = account("partly-used", 30, credit(100, OLD), credit(50, RECENT));
+    // Redemptions already used up the whole old lot
+    RewardAccount usedUp = account("used-up", 60, credit(40, OLD), credit(50, RECENT));
+    RewardAccount recentOnly = account("recent-only", 0, credit(80, RECENT));
+    RewardAccount untouched = account("untouched", 0, credit(20, OLD));
+
+    // Act
+    RewardExpiryService.ExpiryRun run = rewardExpiryService.expirePoints(NOW);
+
+    // Assert
+    assertEquals(2, run.getAccountsExpired());
+    assertEquals(90, run.getPointsExpired());
+    assertEquals(0, run.getFailedChunks());
+    assertBalance(partlyUsed, 50, 70);
+    assertBalance(usedUp, 30, 0);
+    assertBalance(recentOnly, 80, 0);
+    assertBalance(untouched, 0, 20);
+    assertEquals(
+        2,
+        jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM reward_transactions WHERE type = 'EXPIRED'", Integer.class));
+    assertEquals(
+        2,
+        jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM notifications WHERE type = 'POINTS_EXPIRED'", Integer.class));
+  }
+
+  @Test
+  void expirePoints_ShouldNotExpireTheSameLotTwice() {
+    // Arrange
+    RewardAccount account = account("twice", 0, credit(100, OLD), credit(10, RECENT));
+    rewardExpiryService.expirePoints(NOW);
+
+    // Act
+    RewardExpiryService.ExpiryRun rerun = rewardExpiryService.expirePoints(NOW.plusDays(1));
+
+    // Assert
+    assertEquals(0, rerun.getAccountsExpired());
+    assertBalance(account, 10, 100);
+  }
+
+  @Test
+  void expirePoints_ShouldCheckTheAccounts_WhenTheDriverReportsNoRowCounts() {
+    // Arrange
+    RewardAccount expires = account("expires", 0, credit(100, OLD));
+    RewardAccount redeems = account("redeems", 0, credit(40, OLD), credit(50, RECENT));
+    doAnswer(
+            invocation -> {
+              // A redemption commits between the expiry's read and its guarded update
+              jdbcTemplate.update(
+                  "UPDATE reward_accounts SET redeemed_points = 10, available_points = 80 "
+                      + "WHERE id = ?",
+                  redeems.getId());
+              int[] updated = (int[]) invocation.callRealMethod();
+              Arrays.fill(updated, Statement.SUCCESS_NO_INFO);
+              return updated;
+            })
+        .when(jdbcTemplate)
+        .batchUpdate(startsWith("UPDATE reward_accounts"), anyList());
+
+    // Act
+    RewardExpiryService.ExpiryRun run = rewardExpiryService.expirePoints(NOW);
+
+    // Assert: only the account whose update applied gets a ledger row and a notification
+    assertEquals(1, run.getAccountsExpired());
+    assertBalance(expires, 0, 100);
+    assertBalance(redeems, 80, 0);
+    assertEquals(
+        1,
+        jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM reward_transactions WHERE type = 'EXPIRED'", Integer.class));
+    assertEquals(
+        1,
+        jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM notifications WHERE type = 'POINTS_EXPIRED'", Integer.class));
+  }
+
+  @Test
+  void expirePoints_ShouldCountAFailedChunkAndFinishTheOthers() {
+    // Arrange: with chunks of two ids, the first two accounts share a chunk and the third has its
+    // own
+    RewardAccount failing = account("failing", 0, credit(100, OLD));
+    account("quiet", 0, credit(10, RECENT));
+    RewardAccount expires = account("expires", 0, credit(30, OLD));
+    doThrow(new IllegalStateException("Lock timeout"))
+        .when(jdbcTemplate)
+        .batchUpdate(
+            startsWith("UPDATE reward_accounts"),
+            argThat((List<Object[]> rows) -> rows.get(0)[3].equals(failing.getId())));
+
+    // Act
+    RewardExpiryService.ExpiryRun run = rewardExpiryService.expirePoints(NOW);
+
+    // Assert
+    assertEquals(1, run.getFailedChunks());
+    assertEquals(1, run.getAccountsExpired());
+    assertEquals(30, run.getPointsExpired());
+    assertBalance(failing, 100, 0);
+    assertBalance(expires, 0, 30);
+  }
+
+  @Test
+  void expirePoints_ShouldDoNothing_WhenThereAreNoAccounts() {
+    // Act
+    RewardExpiryService.ExpiryRun run = rewardExpiryService.expirePoints(NOW);
+
+    // Assert
+    assertEquals(0, run.getAccountsExpired());
+    assertEquals(0, run.getPointsExpired());
+  }
+
+  private static Object[] credit(int points, LocalDateTime earnedAt) {
+    return new Object[] {points, earnedAt};
+  }
+
+  private RewardAccount account(String name, int redeemed, Object[]... credits) {
+    User user = userRepository.save(new User(name, "Tester", name + "@example.com", "password"));
+    int earned = 0;
+    for (Object[] credit : credits) {
+      earned += (Integer) credit[0];
+    }
+    RewardAccount account = new RewardAccount();
+    account.setUser(user);
+    account.setTotalPoints(earned);
+    account.setAvailablePoints(earned - redeemed);
+    account.setRedeemedPoints(redeemed);
+    account = rewardAccountRepository.save(account);
+
+    // Inserted directly so the rows keep their back-dated timestamps
+    for (Object[] credit : credits) {
+      jdbcTemplate.update(
+          "INSERT INTO reward_transactions (reward_account_id, type, points, description, "
+              + "created_at) VALUES (?, 'EARNED', ?, 'Booking completed', ?)",
+          account.getId(),
+          credit[0],
+          Timestamp.valueOf((LocalDateTime) credit[1]));
+    }
+    return account;
+  }
+
+  private void assertBalance(RewardAccount account, int available, int expired) {
+    RewardAccount stored =
+        rewardAccountRepository.findById(account.getId()).orElseThrow(AssertionError::new);
+    assertEquals(available, stored.getAvailablePoints().intValue());
+    assertEquals(expired, stored.getExpiredPoints().intValue());
+  }
+}
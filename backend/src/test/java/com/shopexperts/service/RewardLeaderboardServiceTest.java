@@ -0,0 +1,94 @@
+package com.shopexperts.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.shopexperts.payload.RewardRankingResponse;
+import com.shopexperts.repository.RewardAccountRepository;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class RewardLeaderboardServiceTest {
+
+  @Mock private RewardAccountRepository rewardAccountRepository;
+
+  @InjectMocks private RewardLeaderboardService rewardLeaderboardService;
+
+  @Test
+  void rebuild_ShouldRankUsersByTotalPoints() {
+    // Arrange
+    when(rewardAccountRepository.streamLeaderboardRows())
+        .thenReturn(
+            Stream.of(
+                new Object[] {1L, "Low", "Scorer", 10},
+                new Object[] {2L, "High", "Scorer", 500},
+                new Object[] {3L, "Mid", "Scorer", 120},
+                new Object[] {4L, "New", "User", null}));
+
+    // Act
+    rewardLeaderboardService.rebuild();
+    List<RewardRankingResponse> top = rewardLeaderboardService.getTopUsers(3);
+
+    // Assert
+    assertEquals(Arrays.asList(2L, 3L, 1L), userIds(top));
+    assertEquals(1, top.get(0).getRank());
+    assertEquals("High Scorer", top.get(0).getUserName());
+    assertEquals(500L, top.get(0).getTotalPoints());
+    assertEquals(4, rewardLeaderboardService.getUserRanking(4L).getRank());
+  }
+
+  @Test
+  void recordPoints_ShouldMoveUserUpTheBoard() {
+    // Arrange
+    when(rewardAccountRepository.streamLeaderboardRows()).thenReturn(Stream.empty());
+    rewardLeaderboardService.rebuild();
+    rewardLeaderboardService.recordAccount(1L, "First User", 0);
+    rewardLeaderboardService.recordAccount(2L, "Second User", 0);
+    rewardLeaderboardService.recordPoints(1L, "First User", 30);
+
+    // Act
+    rewardLeaderboardService.recordPoints(2L, "Second User", 50);
+
+    // Assert
+    RewardRankingResponse second = rewardLeaderboardService.getUserRanking(2L);
+    assertEquals(1, second.getRank());
+    assertEquals(50L, second.getTotalPoints());
+    assertEquals(2, rewardLeaderboardService.getUserRanking(1L).getRank());
+    assertNull(rewardLeaderboardService.getUserRanking(99L));
+  }
+
+  @Test
+  void getUsersAround_ShouldReturnNeighboursOnBothSides() {
+    // Arrange
+    when(rewardAccountRepository.streamLeaderboardRows())
+        .thenReturn(
+            Stream.of(
+                new Object[] {1L, "A", "User", 100},
+                new Object[] {2L, "B", "User", 90},
+                new Object[] {3L, "C", "User", 80},
+                new Object[] {4L, "D", "User", 70},
+                new Object[] {5L, "E", "User", 60}));
+    rewardLeaderboardService.rebuild();
+
+    // Act
+    List<RewardRankingResponse> middle = rewardLeaderboardService.getUsersAround(3L, 1);
+    List<RewardRankingResponse> leader = rewardLeaderboardService.getUsersAround(1L, 2);
+
+    // Assert
+    assertEquals(Arrays.asList(2L, 3L, 4L), userIds(middle));
+    assertEquals(Arrays.asList(1L, 2L, 3L), userIds(leader));
+    assertTrue(rewardLeaderboardService.getUsersAround(99L, 2).isEmpty());
+  }
+
+  private static List<Long> userIds(List<RewardRankingResponse> rankings) {
+    return rankings.stream().map(RewardRankingResponse::getUserId).collect(Collectors.toList());
+  }
+}
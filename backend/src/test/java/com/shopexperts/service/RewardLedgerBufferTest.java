@@ -0,0 +1,308 @@
+package com.shopexperts.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.shopexperts.model.TransactionType;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+@ExtendWith(MockitoExtension.class)
+class RewardLedgerBufferTest {
+
+  private static final String INSERT_PREFIX = "INSERT INTO reward_transactions";
+  private static final String UPDATE_PREFIX = "UPDATE reward_accounts";
+
+  @Mock private JdbcTemplate jdbcTemplate;
+
+  @Mock private PlatformTransactionManager transactionManager;
+
+  @Mock private ChangeLogService changeLogService;
+
+  @InjectMocks private RewardLedgerBuffer rewardLedgerBuffer;
+
+  @TempDir Path journalDir;
+
+  @BeforeEach
+  void setUp() {
+    configure(rewardLedgerBuffer);
+    when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(0L);
+    rewardLedgerBuffer.recover();
+  }
+
+  @Test
+  void flush_ShouldCoalesceBalanceDeltasPerAccount() {
+    // Arrange
+    rewardLedgerBuffer.append(1L, TransactionType.EARNED, 10, "Booking completed");
+    rewardLedgerBuffer.append(1L, TransactionType.EARNED, 5, "Bonus for writing a review");
+    rewardLedgerBuffer.append(2L, TransactionType.EARNED, 7, "Booking completed");
+    rewardLedgerBuffer.append(1L, TransactionType.REFUNDED, 3, "Refund");
+
+    // Act
+    int flushed = rewardLedgerBuffer.flush();
+
+    // Assert
+    assertEquals(4, flushed);
+    List<Object[]> transactionRows = batchRows(INSERT_PREFIX);
+    assertEquals(4, transactionRows.size());
+    assertEquals(1L, transactionRows.get(0)[5]);
+    assertEquals(4L, transactionRows.get(3)[5]);
+
+    List<Object[]> balanceRows = batchRows(UPDATE_PREFIX);
+    assertEquals(2, balanceRows.size());
+    Object[] first = balanceRows.stream().filter(row -> row[3].equals(1L)).findFirst().get();
+    assertEquals(15, first[0]); // only EARNED adds to the lifetime total
+    assertEquals(18, first[1]);
+    assertEquals(0, rewardLedgerBuffer.getPendingCount());
+  }
+
+  @Test
+  void getPendingBalance_ShouldReflectCreditsUntilFlushed() {
+    // Arrange
+    rewardLedgerBuffer.append(1L, TransactionType.EARNED, 10, "Booking completed");
+    rewardLedgerBuffer.append(1L, TransactionType.EARNED, 25, "Welcome bonus");
+
+    // Act
+    RewardLedgerBuffer.PendingBalance before = rewardLedgerBuffer.getPendingBalance(1L);
+    rewardLedgerBuffer.flush();
+    RewardLedgerBuffer.PendingBalance after = rewardLedgerBuffer.getPendingBalance(1L);
+
+    // Assert
+    assertEquals(35, before.getTotalPoints());
+    assertEquals(35, before.getAvailablePoints());
+    assertEquals(0, after.getAvailablePoints());
+    assertEquals(0, rewardLedgerBuffer.getPendingBalance(2L).getAvailablePoints());
+  }
+
+  @Test
+  void append_ShouldFlush_WhenBatchSizeReached() {
+    // Arrange
+    ReflectionTestUtils.setField(rewardLedgerBuffer, "batchSize", 3);
+
+    // Act
+    for (int i = 0; i < 3; i++) {
+      rewardLedgerBuffer.append(1L, TransactionType.EARNED, 1, "Promo");
+    }
+
+    // Assert
+    assertEquals(0, rewardLedgerBuffer.getPendingCount());
+    assertEquals(3, batchRows(INSERT_PREFIX).size());
+  }
+
+  @Test
+  void append_ShouldRejectDebits() {
+    // Act & Assert
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> rewardLedgerBuffer.append(1L, TransactionType.REDEEMED, 10, "Store credit"));
+    assertEquals(0, rewardLedgerBuffer.getPendingCount());
+  }
+
+  @Test
+  void recover_ShouldReplayOnlyCreditsNotYetStored() throws IOException {
+    // Arrange: three credits journaled, the first of which reached the database before a crash
+    rewardLedgerBuffer.append(1L, TransactionType.EARNED, 10, "First");
+    rewardLedgerBuffer.append(1L, TransactionType.EARNED, 20, "Second");
+    rewardLedgerBuffer.append(2L, TransactionType.EARNED, 30, null);
+    assertEquals(1, journalCount());
+
+    RewardLedgerBuffer restarted = new RewardLedgerBuffer();
+    JdbcTemplate restartedJdbc = mock(JdbcTemplate.class);
+    ReflectionTestUtils.setField(restarted, "jdbcTemplate", restartedJdbc);
+    ReflectionTestUtils.setField(restarted, "transactionManager", transactionManager);
+    ReflectionTestUtils.setField(restarted, "changeLogService", changeLogService);
+    configure(restarted);
+    when(restartedJdbc.queryForObject(anyString(), eq(Long.class))).thenReturn(1L);
+    when(restartedJdbc.queryForList(anyString(), eq(Long.class), eq(1L))).thenReturn(List.of(1L));
+
+    // Act
+    restarted.recover();
+
+    // Assert
+    ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+    verify(restartedJdbc).batchUpdate(startsWith(INSERT_PREFIX), rows.capture());
+    assertEquals(
+        List.of(2L, 3L),
+        rows.getValue().stream().map(row -> (Long) row[5]).collect(Collectors.toList()));
+    assertNull(rows.getValue().get(1)[3]);
+    assertEquals(0, journalCount());
+
+    // New credits continue the sequence rather than reusing a replayed number
+    restarted.append(1L, TransactionType.EARNED, 1, "After restart");
+    restarted.flush();
+    verify(restartedJdbc, times(2)).batchUpdate(startsWith(INSERT_PREFIX), rows.capture());
+    assertEquals(4L, rows.getValue().get(0)[5]);
+  }
+
+  @Test
+  void append_ShouldJournalBeforeCommitAndStageAfterIt() throws IOException {
+    // Arrange
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      rewardLedgerBuffer.append(1L, TransactionType.EARNED, 10, "Booking completed");
+      assertEquals(0, journalCount());
+
+      // Act & Assert
+      TransactionSynchronizationUtils.triggerBeforeCommit(false);
+      assertEquals(1, journalCount());
+      assertEquals(0, rewardLedgerBuffer.getPendingCount());
+
+      TransactionSynchronizationUtils.triggerAfterCommit();
+      assertEquals(1, rewardLedgerBuffer.getPendingCount());
+      assertEquals(10, rewardLedgerBuffer.getPendingBalance(1L).getAvailablePoints());
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+  }
+
+  @Test
+  void append_ShouldCancelJournaledCredit_WhenTransactionRollsBack() {
+    // Arrange
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      rewardLedgerBuffer.append(1L, TransactionType.EARNED, 10, "Booking completed");
+
+      // Act: journaled, then the commit fails
+      TransactionSynchronizationUtils.triggerBeforeCommit(false);
+      TransactionSynchronizationUtils.invokeAfterCompletion(
+          TransactionSynchronizationManager.getSynchronizations(),
+          TransactionSynchronization.STATUS_ROLLED_BACK);
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    // Assert: nothing staged now, and nothing replayed after a restart
+    assertEquals(0, rewardLedgerBuffer.getPendingCount());
+    RewardLedgerBuffer restarted = new RewardLedgerBuffer();
+    JdbcTemplate restartedJdbc = mock(JdbcTemplate.class);
+    ReflectionTestUtils.setField(restarted, "jdbcTemplate", restartedJdbc);
+    ReflectionTestUtils.setField(restarted, "transactionManager", transactionManager);
+    ReflectionTestUtils.setField(restarted, "changeLogService", changeLogService);
+    configure(restarted);
+    when(restartedJdbc.queryForObject(anyString(), eq(Long.class))).thenReturn(0L);
+    restarted.recover();
+    assertEquals(0, restarted.getPendingCount());
+    verify(restartedJdbc, never()).batchUpdate(anyString(), anyList());
+  }
+
+  @Test
+  void append_ShouldNotFailTheCommittedCaller_WhenFlushFails() {
+    // Arrange
+    ReflectionTestUtils.setField(rewardLedgerBuffer, "batchSize", 1);
+    when(jdbcTemplate.batchUpdate(startsWith(INSERT_PREFIX), anyList()))
+        .thenThrow(new RuntimeException("Database unavailable"));
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      rewardLedgerBuffer.append(1L, TransactionType.EARNED, 10, "Booking completed");
+      TransactionSynchronizationUtils.triggerBeforeCommit(false);
+
+      // Act & Assert: the full batch fails to flush, and the credit waits for the next one
+      assertDoesNotThrow(TransactionSynchronizationUtils::triggerAfterCommit);
+      assertEquals(1, rewardLedgerBuffer.getPendingCount());
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+  }
+
+  @Test
+  void flush_ShouldKeepCreditsAndJournal_WhenWriteFails() throws IOException {
+    // Arrange
+    rewardLedgerBuffer.append(1L, TransactionType.EARNED, 10, "Booking completed");
+    when(jdbcTemplate.batchUpdate(startsWith(INSERT_PREFIX), anyList()))
+        .thenThrow(new RuntimeException("Database unavailable"));
+
+    // Act & Assert
+    assertThrows(RuntimeException.class, () -> rewardLedgerBuffer.flush());
+    assertEquals(1, rewardLedgerBuffer.getPendingCount());
+    assertEquals(10, rewardLedgerBuffer.getPendingBalance(1L).getAvailablePoints());
+    assertEquals(1, journalCount());
+  }
+
+  @Test
+  void flush_ShouldRetryEachAccountAndDropOnlyCreditsThatStillFail() throws IOException {
+    // Arrange: account 2's credit can never be written, which fails the whole batch
+    rewardLedgerBuffer.append(1L, TransactionType.EARNED, 10, "Booking completed");
+    rewardLedgerBuffer.append(2L, TransactionType.EARNED, 20, "Booking completed");
+    when(jdbcTemplate.batchUpdate(startsWith(INSERT_PREFIX), anyList()))
+        .thenAnswer(
+            invocation -> {
+              List<Object[]> rows = invocation.getArgument(1);
+              if (rows.stream().anyMatch(row -> row[0].equals(2L))) {
+                throw new RuntimeException("Value too long");
+              }
+              return new int[rows.size()];
+            });
+
+    // Act
+    int flushed = rewardLedgerBuffer.flush();
+
+    // Assert: account 1 is credited on its own, account 2's credit is dead-lettered
+    assertEquals(1, flushed);
+    List<Object[]> balanceRows = batchRows(UPDATE_PREFIX);
+    assertEquals(1, balanceRows.size());
+    assertEquals(1L, balanceRows.get(0)[3]);
+    assertEquals(10, balanceRows.get(0)[1]);
+    assertEquals(0, rewardLedgerBuffer.getPendingCount());
+    assertEquals(0, journalCount());
+  }
+
+  @Test
+  void flushAccount_ShouldWriteOnlyThatAccountsCredits() {
+    // Arrange
+    rewardLedgerBuffer.append(1L, TransactionType.EARNED, 10, "Booking completed");
+    rewardLedgerBuffer.append(2L, TransactionType.EARNED, 20, "Booking completed");
+    rewardLedgerBuffer.append(1L, TransactionType.REFUNDED, 5, "Refund");
+
+    // Act
+    rewardLedgerBuffer.flushAccount(1L);
+
+    // Assert
+    List<Object[]> transactionRows = batchRows(INSERT_PREFIX);
+    assertEquals(2, transactionRows.size());
+    assertTrue(transactionRows.stream().allMatch(row -> row[0].equals(1L)));
+    List<Object[]> balanceRows = batchRows(UPDATE_PREFIX);
+    assertEquals(1, balanceRows.size());
+    assertEquals(15, balanceRows.get(0)[1]);
+    assertEquals(0, rewardLedgerBuffer.getPendingBalance(1L).getAvailablePoints());
+    assertEquals(20, rewardLedgerBuffer.getPendingBalance(2L).getAvailablePoints());
+    assertEquals(1, rewardLedgerBuffer.getPendingCount());
+  }
+
+  private void configure(RewardLedgerBuffer buffer) {
+    ReflectionTestUtils.setField(buffer, "journalDir", journalDir.toString());
+    ReflectionTestUtils.setField(buffer, "batchSize", 500);
+    ReflectionTestUtils.setField(buffer, "fsync", true);
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<Object[]> batchRows(String sqlPrefix) {
+    ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+    verify(jdbcTemplate, atLeastOnce()).batchUpdate(startsWith(sqlPrefix), rows.capture());
+    return rows.getAllValues().stream().flatMap(List::stream).collect(Collectors.toList());
+  }
+
+  private long journalCount() throws IOException {
+    try (Stream<Path> files = Files.list(journalDir)) {
+      return files.filter(path -> path.toString().endsWith(".log")).count();
+    }
+  }
+}
@@ -0,0 +1,141 @@
+package com.shopexperts.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.shopexperts.model.RewardAccount;
+import com.shopexperts.model.RewardTransaction;
+import com.shopexperts.model.TransactionType;
+import com.shopexperts.model.User;
+import com.shopexperts.repository.RewardAccountRepository;
+import com.shopexperts.repository.RewardTransactionRepository;
+import com.shopexperts.repository.UserRepository;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Hammers a single reward account from many threads, each call in its own transaction, and checks
+ * that the stored balances still add up to the transaction log. Credits go through the write-behind
+ * buffer, which flushes several times during the run.
+ */
+@DataJpaTest(
+    properties = {
+      "spring.datasource.url=jdbc:h2:mem:reward-concurrency;LOCK_TIMEOUT=10000;DB_CLOSE_DELAY=-1",
+      "app.rewards.write-behind.batch-size=64"
+    })
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({
+  RewardService.class,
+  NotificationService.class,
+  NotificationWriter.class,
+  NotificationCounterService.class,
+  NotificationPreferenceService.class,
+  ChangeLogService.class,
+  RewardLeaderboardService.class,
+  RewardLedgerBuffer.class,
+  RewardCampaignService.class,
+  ReferralCodeRegistry.class
+})
+class RewardPointsConcurrencyTest {
+
+  private static final int THREADS = 8;
+  private static final int OPERATIONS_PER_THREAD = 50;
+
+  @TempDir static Path journalDir;
+
+  @DynamicPropertySource
+  static void journalProperties(DynamicPropertyRegistry registry) {
+    registry.add("app.rewards.write-behind.journal-dir", journalDir::toString);
+  }
+
+  @Autowired private RewardService rewardService;
+
+  @Autowired private RewardLeaderboardService rewardLeaderboardService;
+
+  @Autowired private RewardLedgerBuffer rewardLedgerBuffer;
+
+  @Autowired private UserRepository userRepository;
+
+  @Autowired private RewardAccountRepository rewardAccountRepository;
+
+  @Autowired private RewardTransactionRepository rewardTransactionRepository;
+
+  @Test
+  void concurrentAwardsAndRedemptions_ShouldKeepBalancesEqualToTransactionLog()
+      throws InterruptedException {
+    // Arrange
+    User user =
+        userRepository.save(
+            new User("Concurrent", "Tester", "concurrent-rewards@example.com", "password"));
+    rewardService.createRewardAccount(user);
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    CountDownLatch start = new CountDownLatch(1);
+    AtomicInteger successfulRedemptions = new AtomicInteger();
+    AtomicInteger rejectedRedemptions = new AtomicInteger();
+
+    // Act
+    for (int t = 0; t < THREADS; t++) {
+      boolean redeemer = t % 2 == 0;
+      executor.submit(
+          () -> {
+            start.await();
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+              if (!redeemer) {
+                rewardService.awardPoints(user, 10, "Stress award");
+              } else if (rewardService.redeemPoints(user.getId(), 15, "Stress redemption")) {
+                successfulRedemptions.incrementAndGet();
+              } else {
+                rejectedRedemptions.incrementAndGet();
+              }
+            }
+            return null;
+          });
+    }
+    start.countDown();
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+    rewardLedgerBuffer.flush();
+
+    // Assert
+    RewardAccount account =
+        rewardAccountRepository.findByUser(user).orElseThrow(AssertionError::new);
+    List<RewardTransaction> transactions = rewardTransactionRepository.findAll();
+    int earned = sumPoints(transactions, TransactionType.EARNED);
+    int redeemed = sumPoints(transactions, TransactionType.REDEEMED);
+    long redemptionCount =
+        transactions.stream().filter(tx -> tx.getType() == TransactionType.REDEEMED).count();
+
+    assertEquals(THREADS / 2 * OPERATIONS_PER_THREAD * 10, earned);
+    assertEquals(earned, account.getTotalPoints().intValue());
+    assertEquals(redeemed, account.getRedeemedPoints().intValue());
+    assertEquals(earned - redeemed, account.getAvailablePoints().intValue());
+    assertTrue(account.getAvailablePoints() >= 0);
+    assertEquals(earned, rewardLeaderboardService.getUserRanking(user.getId()).getTotalPoints());
+    assertEquals(successfulRedemptions.get(), redemptionCount);
+    assertEquals(
+        THREADS / 2 * OPERATIONS_PER_THREAD,
+        successfulRedemptions.get() + rejectedRedemptions.get());
+  }
+
+  private static int sumPoints(List<RewardTransaction> transactions, TransactionType type) {
+    return transactions.stream()
+        .filter(tx -> tx.getType() == type)
+        .mapToInt(RewardTransaction::getPoints)
+        .sum();
+  }
+}
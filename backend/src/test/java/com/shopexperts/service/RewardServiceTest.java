@@ -5,17 +5,24 @@ import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 import com.shopexperts.model.*;
+import com.shopexperts.payload.CursorPage;
 import com.shopexperts.payload.RewardAccountResponse;
+import com.shopexperts.payload.RewardTransactionFilter;
 import com.shopexperts.payload.RewardTransactionResponse;
+import com.shopexperts.repository.ReferralRepository;
 import com.shopexperts.repository.RewardAccountRepository;
 import com.shopexperts.repository.RewardTransactionRepository;
 import com.shopexperts.repository.UserRepository;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -23,6 +30,8 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @ExtendWith(MockitoExtension.class)
 class RewardServiceTest {
@@ -35,6 +44,20 @@ class RewardServiceTest {
 
   @Mock private NotificationService notificationService;
 
+  @Mock private RewardLeaderboardService rewardLeaderboardService;
+
+  @Mock private RewardLedgerBuffer rewardLedgerBuffer;
+
+  @Mock private RewardCampaignService rewardCampaignService;
+
+  @Mock private ReferralRepository referralRepository;
+
+  @Mock private ReferralCodeRegistry referralCodeRegistry;
+
+  @Mock private TransactionTemplate transactionTemplate;
+
+  @Mock private ChangeLogService changeLogService;
+
   @InjectMocks private RewardService rewardService;
 
   private User testUser;
@@ -68,6 +91,30 @@ class RewardServiceTest {
     testTransaction.setCreatedAt(LocalDateTime.now());
 
     pageable = PageRequest.of(0, 10);
+
+    // Balance reads run straight through with nothing pending unless a test says otherwise
+    lenient()
+        .when(rewardLedgerBuffer.readConsistent(any()))
+        .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(0).get());
+    lenient()
+        .when(rewardLedgerBuffer.getPendingBalance(any()))
+        .thenReturn(new RewardLedgerBuffer.PendingBalance());
+    // No campaigns running: every event is worth its base points
+    lenient()
+        .when(rewardCampaignService.evaluate(any(), any(), any()))
+        .thenAnswer(
+            invocation -> {
+              switch (invocation.<RewardEventType>getArgument(0)) {
+                case BOOKING_COMPLETED:
+                  return new RewardCampaignService.Decision(10, null);
+                case REVIEW_WRITTEN:
+                  return new RewardCampaignService.Decision(5, null);
+                case REFERRAL_REFERRER:
+                  return new RewardCampaignService.Decision(50, null);
+                default:
+                  return new RewardCampaignService.Decision(25, null);
+              }
+            });
   }
 
   @Test
@@ -78,7 +125,9 @@ class RewardServiceTest {
     newAccount.setTotalPoints(0);
     newAccount.setAvailablePoints(0);
     newAccount.setRedeemedPoints(0);
+    newAccount.setReferralCode("REFABC123");
 
+    when(referralCodeRegistry.newCode()).thenReturn("REFABC123");
     when(rewardAccountRepository.save(any(RewardAccount.class))).thenReturn(newAccount);
 
     // Act
@@ -90,8 +139,10 @@ class RewardServiceTest {
     assertEquals(0, result.getTotalPoints());
     assertEquals(0, result.getAvailablePoints());
     assertEquals(0, result.getRedeemedPoints());
+    assertEquals("REFABC123", result.getReferralCode());
 
     verify(rewardAccountRepository).save(any(RewardAccount.class));
+    verify(referralCodeRegistry).register("REFABC123", 1L);
   }
 
   @Test
@@ -139,17 +190,11 @@ class RewardServiceTest {
   @Test
   void getRewardAccount_ShouldReturnRewardAccountResponse() {
     // Arrange
-    List<RewardTransaction> transactions =
-        Arrays.asList(
-            createTestTransactionWithDescription("Referral bonus for inviting John"),
-            createTestTransactionWithDescription("Booking completion bonus"));
-    Page<RewardTransaction> transactionPage = new PageImpl<>(transactions);
-
+    testRewardAccount.setReferralCode("REFABC123");
+    testRewardAccount.setReferralCount(1);
+    testRewardAccount.setReferralBonusPoints(50);
     when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
     when(rewardAccountRepository.findByUser(testUser)).thenReturn(Optional.of(testRewardAccount));
-    when(rewardTransactionRepository.findByRewardAccountOrderByCreatedAtDesc(
-            testRewardAccount, Pageable.unpaged()))
-        .thenReturn(transactionPage);
 
     // Act
     RewardAccountResponse result = rewardService.getRewardAccount(1L);
@@ -162,21 +207,57 @@ class RewardServiceTest {
     assertEquals(new BigDecimal("100"), result.getTotalPoints());
     assertEquals(new BigDecimal("80"), result.getAvailablePoints());
     assertEquals(new BigDecimal("20"), result.getUsedPoints());
+    assertEquals("REFABC123", result.getReferralCode());
+    assertEquals(1, result.getTotalReferrals());
+    assertEquals(50, result.getReferralBonusPoints());
+
+    verify(userRepository).findById(1L);
+    verify(rewardAccountRepository).findByUser(testUser);
+    verify(rewardTransactionRepository, never())
+        .findByRewardAccountOrderByCreatedAtDesc(any(RewardAccount.class), any(Pageable.class));
+  }
+
+  @Test
+  void getRewardAccount_ShouldIncludeCreditsNotYetFlushed() {
+    // Arrange
+    testRewardAccount.setReferralCode("REFABC123");
+    when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+    when(rewardAccountRepository.findByUser(testUser)).thenReturn(Optional.of(testRewardAccount));
+    when(rewardLedgerBuffer.getPendingBalance(1L))
+        .thenReturn(new RewardLedgerBuffer.PendingBalance(30, 30));
+
+    // Act
+    RewardAccountResponse result = rewardService.getRewardAccount(1L);
+
+    // Assert
+    assertEquals(new BigDecimal("130"), result.getTotalPoints());
+    assertEquals(new BigDecimal("110"), result.getAvailablePoints());
+    assertEquals(new BigDecimal("20"), result.getUsedPoints());
+    verify(rewardLedgerBuffer).readConsistent(any());
+  }
 
-    verify(userRepository, times(2))
-        .findById(1L); // Called twice: once for getRewardAccountEntity, once for countUserReferrals
-    verify(rewardAccountRepository, times(2))
-        .findByUser(
-            testUser); // Called twice: once for getRewardAccountEntity, once for countUserReferrals
+  @Test
+  void redeemPoints_ShouldWriteBufferedCreditsBeforeDeducting() {
+    // Arrange
+    when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+    when(rewardAccountRepository.findByUser(testUser)).thenReturn(Optional.of(testRewardAccount));
+    when(rewardAccountRepository.deductPoints(eq(1L), eq(100), any(LocalDateTime.class)))
+        .thenReturn(1);
+
+    // Act
+    boolean result = rewardService.redeemPoints(1L, 100, "Store credit");
+
+    // Assert
+    assertTrue(result);
+    InOrder inOrder = inOrder(rewardLedgerBuffer, rewardAccountRepository);
+    inOrder.verify(rewardLedgerBuffer).flushAccount(1L);
+    inOrder.verify(rewardAccountRepository).deductPoints(eq(1L), eq(100), any(LocalDateTime.class));
   }
 
   @Test
   void awardPoints_ShouldAwardPointsSuccessfully() {
     // Arrange
     when(rewardAccountRepository.findByUser(testUser)).thenReturn(Optional.of(testRewardAccount));
-    when(rewardAccountRepository.save(any(RewardAccount.class))).thenReturn(testRewardAccount);
-    when(rewardTransactionRepository.save(any(RewardTransaction.class)))
-        .thenReturn(testTransaction);
     when(notificationService.createNotification(
             eq(testUser), anyString(), anyString(), eq(NotificationType.REFERRAL_BONUS)))
         .thenReturn(new Notification());
@@ -185,12 +266,10 @@ class RewardServiceTest {
     rewardService.awardPoints(testUser, 50, "Booking completion bonus");
 
     // Assert
-    assertEquals(150, testRewardAccount.getTotalPoints()); // 100 + 50
-    assertEquals(130, testRewardAccount.getAvailablePoints()); // 80 + 50
-
     verify(rewardAccountRepository).findByUser(testUser);
-    verify(rewardAccountRepository).save(testRewardAccount);
-    verify(rewardTransactionRepository).save(any(RewardTransaction.class));
+    verify(rewardLedgerBuffer).append(eq(1L), eq(TransactionType.EARNED), eq(50), anyString());
+    verify(rewardAccountRepository, never()).save(any(RewardAccount.class));
+    verify(rewardTransactionRepository, never()).save(any(RewardTransaction.class));
     verify(notificationService)
         .createNotification(
             eq(testUser), anyString(), anyString(), eq(NotificationType.REFERRAL_BONUS));
@@ -205,7 +284,7 @@ class RewardServiceTest {
     assertThrows(RuntimeException.class, () -> rewardService.awardPoints(testUser, 50, "Bonus"));
 
     verify(rewardAccountRepository).findByUser(testUser);
-    verify(rewardAccountRepository, never()).save(any(RewardAccount.class));
+    verify(rewardLedgerBuffer, never()).append(any(), any(), anyInt(), any());
   }
 
   @Test
@@ -213,7 +292,8 @@ class RewardServiceTest {
     // Arrange
     when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
     when(rewardAccountRepository.findByUser(testUser)).thenReturn(Optional.of(testRewardAccount));
-    when(rewardAccountRepository.save(any(RewardAccount.class))).thenReturn(testRewardAccount);
+    when(rewardAccountRepository.deductPoints(eq(1L), eq(50), any(LocalDateTime.class)))
+        .thenReturn(1);
     when(rewardTransactionRepository.save(any(RewardTransaction.class)))
         .thenReturn(testTransaction);
 
@@ -222,12 +302,11 @@ class RewardServiceTest {
 
     // Assert
     assertTrue(result);
-    assertEquals(30, testRewardAccount.getAvailablePoints()); // 80 - 50
-    assertEquals(70, testRewardAccount.getRedeemedPoints()); // 20 + 50
 
     verify(userRepository).findById(1L);
     verify(rewardAccountRepository).findByUser(testUser);
-    verify(rewardAccountRepository).save(testRewardAccount);
+    verify(rewardAccountRepository).deductPoints(eq(1L), eq(50), any(LocalDateTime.class));
+    verify(rewardAccountRepository, never()).save(any(RewardAccount.class));
     verify(rewardTransactionRepository).save(any(RewardTransaction.class));
   }
 
@@ -236,16 +315,14 @@ class RewardServiceTest {
     // Arrange
     when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
     when(rewardAccountRepository.findByUser(testUser)).thenReturn(Optional.of(testRewardAccount));
+    when(rewardAccountRepository.deductPoints(eq(1L), eq(100), any(LocalDateTime.class)))
+        .thenReturn(0); // Trying to redeem 100 but only 80 available
 
     // Act
-    boolean result =
-        rewardService.redeemPoints(
-            1L, 100, "Store credit"); // Trying to redeem 100 but only 80 available
+    boolean result = rewardService.redeemPoints(1L, 100, "Store credit");
 
     // Assert
     assertFalse(result);
-    assertEquals(80, testRewardAccount.getAvailablePoints()); // Unchanged
-    assertEquals(20, testRewardAccount.getRedeemedPoints()); // Unchanged
 
     verify(userRepository).findById(1L);
     verify(rewardAccountRepository).findByUser(testUser);
@@ -322,20 +399,19 @@ class RewardServiceTest {
 
     when(rewardAccountRepository.findByUser(referrer)).thenReturn(Optional.of(referrerAccount));
     when(rewardAccountRepository.findByUser(referred)).thenReturn(Optional.of(referredAccount));
-    when(rewardAccountRepository.save(any(RewardAccount.class))).thenReturn(referrerAccount);
-    when(rewardTransactionRepository.save(any(RewardTransaction.class)))
-        .thenReturn(testTransaction);
     when(notificationService.createNotification(
             any(User.class), anyString(), anyString(), any(NotificationType.class)))
         .thenReturn(new Notification());
 
     // Act
-    rewardService.awardReferralBonus(referrer, referred);
+    int referrerPoints = rewardService.awardReferralBonus(referrer, referred);
 
     // Assert
+    assertEquals(50, referrerPoints);
     verify(rewardAccountRepository, times(2)).findByUser(any(User.class));
-    verify(rewardAccountRepository, times(2)).save(any(RewardAccount.class));
-    verify(rewardTransactionRepository, times(2)).save(any(RewardTransaction.class));
+    verify(rewardLedgerBuffer).append(any(), eq(TransactionType.EARNED), eq(50), anyString());
+    verify(rewardLedgerBuffer).append(any(), eq(TransactionType.EARNED), eq(25), anyString());
+    verify(rewardTransactionRepository, never()).save(any(RewardTransaction.class));
     verify(notificationService, times(2))
         .createNotification(any(User.class), anyString(), anyString(), any(NotificationType.class));
   }
@@ -344,9 +420,6 @@ class RewardServiceTest {
   void awardReviewBonus_ShouldAwardReviewPoints() {
     // Arrange
     when(rewardAccountRepository.findByUser(testUser)).thenReturn(Optional.of(testRewardAccount));
-    when(rewardAccountRepository.save(any(RewardAccount.class))).thenReturn(testRewardAccount);
-    when(rewardTransactionRepository.save(any(RewardTransaction.class)))
-        .thenReturn(testTransaction);
     when(notificationService.createNotification(
             any(User.class), anyString(), anyString(), any(NotificationType.class)))
         .thenReturn(new Notification());
@@ -356,19 +429,36 @@ class RewardServiceTest {
 
     // Assert
     verify(rewardAccountRepository).findByUser(testUser);
-    verify(rewardAccountRepository).save(testRewardAccount);
-    verify(rewardTransactionRepository).save(any(RewardTransaction.class));
+    verify(rewardLedgerBuffer).append(eq(1L), eq(TransactionType.EARNED), eq(5), anyString());
+    verify(rewardTransactionRepository, never()).save(any(RewardTransaction.class));
     verify(notificationService)
         .createNotification(any(User.class), anyString(), anyString(), any(NotificationType.class));
   }
 
+  @Test
+  void awardBookingBonus_ShouldApplyCampaignForTalentCategory() {
+    // Arrange
+    doReturn(new RewardCampaignService.Decision(20, "Double plumbing weekend"))
+        .when(rewardCampaignService)
+        .evaluate(eq(RewardEventType.BOOKING_COMPLETED), eq("Plumbing"), any(LocalDateTime.class));
+    when(rewardAccountRepository.findByUser(testUser)).thenReturn(Optional.of(testRewardAccount));
+
+    // Act
+    rewardService.awardBookingBonus(testUser, "Plumbing");
+
+    // Assert
+    verify(rewardLedgerBuffer)
+        .append(
+            eq(1L),
+            eq(TransactionType.EARNED),
+            eq(20),
+            eq("Bonus for completing a booking (Double plumbing weekend)"));
+  }
+
   @Test
   void awardBookingBonus_ShouldAwardBookingPoints() {
     // Arrange
     when(rewardAccountRepository.findByUser(testUser)).thenReturn(Optional.of(testRewardAccount));
-    when(rewardAccountRepository.save(any(RewardAccount.class))).thenReturn(testRewardAccount);
-    when(rewardTransactionRepository.save(any(RewardTransaction.class)))
-        .thenReturn(testTransaction);
     when(notificationService.createNotification(
             any(User.class), anyString(), anyString(), any(NotificationType.class)))
         .thenReturn(new Notification());
@@ -378,21 +468,43 @@ class RewardServiceTest {
 
     // Assert
     verify(rewardAccountRepository).findByUser(testUser);
-    verify(rewardAccountRepository).save(testRewardAccount);
-    verify(rewardTransactionRepository).save(any(RewardTransaction.class));
+    verify(rewardLedgerBuffer).append(eq(1L), eq(TransactionType.EARNED), eq(10), anyString());
+    verify(rewardTransactionRepository, never()).save(any(RewardTransaction.class));
     verify(notificationService)
         .createNotification(any(User.class), anyString(), anyString(), any(NotificationType.class));
   }
 
   @Test
-  void generateReferralCode_ShouldGenerateUniqueCode() {
+  void generateReferralCode_ShouldReturnStoredCode() {
+    // Arrange
+    testRewardAccount.setReferralCode("REFABC123");
+    when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+    when(rewardAccountRepository.findByUser(testUser)).thenReturn(Optional.of(testRewardAccount));
+
+    // Act
+    String first = rewardService.generateReferralCode(1L);
+    String second = rewardService.generateReferralCode(1L);
+
+    // Assert
+    assertEquals("REFABC123", first);
+    assertEquals(first, second);
+    verify(rewardAccountRepository, never()).assignReferralCode(anyLong(), anyString());
+  }
+
+  @Test
+  void generateReferralCode_ShouldAssignCode_WhenAccountHasNone() {
+    // Arrange
+    when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+    when(rewardAccountRepository.findByUser(testUser)).thenReturn(Optional.of(testRewardAccount));
+    when(referralCodeRegistry.newCode()).thenReturn("REFNEW001");
+    when(rewardAccountRepository.assignReferralCode(1L, "REFNEW001")).thenReturn(1);
+
     // Act
     String result = rewardService.generateReferralCode(1L);
 
     // Assert
-    assertNotNull(result);
-    assertTrue(result.startsWith("REF"));
-    assertTrue(result.length() >= 4); // REF + at least user ID
+    assertEquals("REFNEW001", result);
+    verify(referralCodeRegistry).register("REFNEW001", 1L);
   }
 
   @Test
@@ -413,63 +525,91 @@ class RewardServiceTest {
     RewardAccount newUserAccount = new RewardAccount();
     newUserAccount.setUser(newUser);
 
+    when(referralCodeRegistry.lookup("refabc123")).thenReturn(1L);
+    when(referralRepository.existsByReferredId(2L)).thenReturn(false);
     when(userRepository.findById(1L)).thenReturn(Optional.of(referrer));
     when(userRepository.findById(2L)).thenReturn(Optional.of(newUser));
+    doAnswer(
+            invocation -> {
+              invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+              return null;
+            })
+        .when(transactionTemplate)
+        .executeWithoutResult(any());
     when(rewardAccountRepository.findByUser(referrer)).thenReturn(Optional.of(referrerAccount));
     when(rewardAccountRepository.findByUser(newUser)).thenReturn(Optional.of(newUserAccount));
-    when(rewardAccountRepository.save(any(RewardAccount.class))).thenReturn(referrerAccount);
-    when(rewardTransactionRepository.save(any(RewardTransaction.class)))
-        .thenReturn(testTransaction);
     when(notificationService.createNotification(
             any(User.class), anyString(), anyString(), any(NotificationType.class)))
         .thenReturn(new Notification());
 
-    // Generate actual referral code for user 1 and use it
-    String referralCode = rewardService.generateReferralCode(1L);
-
     // Act
-    boolean result = rewardService.redeemReferralCode(referralCode, 2L);
+    boolean result = rewardService.redeemReferralCode("refabc123", 2L);
 
     // Assert
     assertTrue(result);
-    verify(userRepository).findById(1L);
-    verify(userRepository).findById(2L);
+    ArgumentCaptor<Referral> referral = ArgumentCaptor.forClass(Referral.class);
+    verify(referralRepository).saveAndFlush(referral.capture());
+    assertEquals(referrer, referral.getValue().getReferrer());
+    assertEquals(newUser, referral.getValue().getReferred());
+    assertEquals("REFABC123", referral.getValue().getReferralCode());
+    verify(rewardLedgerBuffer, times(2))
+        .append(any(), eq(TransactionType.EARNED), anyInt(), anyString());
   }
 
   @Test
   void redeemReferralCode_ShouldReturnFalse_WhenInvalidCode() {
+    // Arrange
+    when(referralCodeRegistry.lookup("INVALID")).thenReturn(null);
+
     // Act
     boolean result = rewardService.redeemReferralCode("INVALID", 2L);
 
     // Assert
     assertFalse(result);
+    verify(userRepository, never()).findById(anyLong());
   }
 
   @Test
-  void countUserReferrals_ShouldReturnCorrectCount() {
+  void redeemReferralCode_ShouldReturnFalse_WhenUserWasAlreadyReferred() {
     // Arrange
-    List<RewardTransaction> transactions =
-        Arrays.asList(
-            createTestTransactionWithDescription("Referral bonus for inviting John"),
-            createTestTransactionWithDescription("Booking completion bonus"),
-            createTestTransactionWithDescription("Referral bonus for inviting Jane"));
-    Page<RewardTransaction> transactionPage = new PageImpl<>(transactions);
+    when(referralCodeRegistry.lookup("REFABC123")).thenReturn(1L);
+    when(referralRepository.existsByReferredId(2L)).thenReturn(true);
+
+    // Act
+    boolean result = rewardService.redeemReferralCode("REFABC123", 2L);
 
+    // Assert
+    assertFalse(result);
+    verify(transactionTemplate, never()).executeWithoutResult(any());
+  }
+
+  @Test
+  void redeemReferralCode_ShouldReturnFalse_WhenRedeemingOwnCode() {
+    // Arrange
+    when(referralCodeRegistry.lookup("REFABC123")).thenReturn(2L);
+
+    // Act
+    boolean result = rewardService.redeemReferralCode("REFABC123", 2L);
+
+    // Assert
+    assertFalse(result);
+    verify(referralRepository, never()).saveAndFlush(any(Referral.class));
+  }
+
+  @Test
+  void countUserReferrals_ShouldReturnCorrectCount() {
+    // Arrange
+    testRewardAccount.setReferralCount(2);
     when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
     when(rewardAccountRepository.findByUser(testUser)).thenReturn(Optional.of(testRewardAccount));
-    when(rewardTransactionRepository.findByRewardAccountOrderByCreatedAtDesc(
-            testRewardAccount, Pageable.unpaged()))
-        .thenReturn(transactionPage);
 
     // Act
     long result = rewardService.countUserReferrals(1L);
 
     // Assert
-    assertEquals(2L, result); // Only the referral bonuses should be counted
-    verify(userRepository).findById(1L);
-    verify(rewardAccountRepository).findByUser(testUser);
-    verify(rewardTransactionRepository)
-        .findByRewardAccountOrderByCreatedAtDesc(testRewardAccount, Pageable.unpaged());
+    assertEquals(2L, result);
+    verify(rewardTransactionRepository, never())
+        .findByRewardAccountOrderByCreatedAtDesc(any(RewardAccount.class), any(Pageable.class));
   }
 
   @Test
@@ -477,7 +617,8 @@ class RewardServiceTest {
     // Arrange
     when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
     when(rewardAccountRepository.findByUser(testUser)).thenReturn(Optional.of(testRewardAccount));
-    when(rewardAccountRepository.save(any(RewardAccount.class))).thenReturn(testRewardAccount);
+    when(rewardAccountRepository.deductPoints(eq(1L), eq(50), any(LocalDateTime.class)))
+        .thenReturn(1);
     when(rewardTransactionRepository.save(any(RewardTransaction.class)))
         .thenReturn(testTransaction);
 
@@ -493,7 +634,7 @@ class RewardServiceTest {
 
     verify(userRepository).findById(1L);
     verify(rewardAccountRepository).findByUser(testUser);
-    verify(rewardAccountRepository).save(testRewardAccount);
+    verify(rewardAccountRepository).deductPoints(eq(1L), eq(50), any(LocalDateTime.class));
     verify(rewardTransactionRepository).save(any(RewardTransaction.class));
   }
 
@@ -502,6 +643,8 @@ class RewardServiceTest {
     // Arrange
     when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
     when(rewardAccountRepository.findByUser(testUser)).thenReturn(Optional.of(testRewardAccount));
+    when(rewardAccountRepository.deductPoints(eq(1L), eq(100), any(LocalDateTime.class)))
+        .thenReturn(0);
 
     // Act & Assert
     assertThrows(
@@ -515,14 +658,107 @@ class RewardServiceTest {
     verify(rewardAccountRepository, never()).save(any(RewardAccount.class));
   }
 
-  private RewardTransaction createTestTransactionWithDescription(String description) {
-    RewardTransaction transaction = new RewardTransaction();
-    transaction.setId(1L);
-    transaction.setRewardAccount(testRewardAccount);
-    transaction.setType(TransactionType.EARNED);
-    transaction.setPoints(50);
-    transaction.setDescription(description);
-    transaction.setCreatedAt(LocalDateTime.now());
-    return transaction;
+  @Test
+  void getAllRewardTransactions_ShouldReturnNewestFirstPageWithCursor() {
+    // Arrange
+    RewardTransactionFilter filter =
+        new RewardTransactionFilter(TransactionType.EARNED, null, null, null);
+    List<Object[]> rows =
+        Arrays.asList(
+            feedRow(30L, "Booking bonus"), feedRow(29L, "Review bonus"), feedRow(28L, "Promo"));
+    when(rewardTransactionRepository.findFeedRows(
+            eq(31L), eq(TransactionType.EARNED), isNull(), isNull(), isNull(), any()))
+        .thenReturn(rows);
+
+    // Act
+    CursorPage<RewardTransactionResponse> page =
+        rewardService.getAllRewardTransactions(filter, 31L, 2);
+
+    // Assert
+    assertEquals(2, page.getContent().size());
+    assertTrue(page.isHasMore());
+    assertEquals(29L, page.getNextCursor());
+    assertEquals("John Doe", page.getContent().get(0).getUserName());
+    assertEquals(new BigDecimal(10), page.getContent().get(0).getAmount());
+  }
+
+  @Test
+  void exportRewardTransactions_ShouldWriteQuotedCsvRows() throws Exception {
+    // Arrange
+    when(rewardTransactionRepository.streamFeedRows(
+            eq(Long.MAX_VALUE), isNull(), eq(1L), isNull(), isNull()))
+        .thenReturn(
+            java.util.stream.Stream.of(
+                feedRow(2L, "Bonus, with \"quotes\""), feedRow(1L, "=HYPERLINK(1)")));
+    java.io.StringWriter out = new java.io.StringWriter();
+
+    // Act
+    long count =
+        rewardService.exportRewardTransactions(
+            new RewardTransactionFilter(null, 1L, null, null), out);
+
+    // Assert
+    assertEquals(2, count);
+    String[] lines = out.toString().split("\n");
+    assertEquals("id,userId,userName,type,points,description,createdAt", lines[0]);
+    assertTrue(lines[1].startsWith("2,1,John Doe,EARNED,10,\"Bonus, with \"\"quotes\"\"\","));
+    assertTrue(lines[2].contains(",'=HYPERLINK(1),"));
+  }
+
+  @Test
+  void awardPointsToUsers_ShouldResolveAccountsInChunksAndBufferCreditsTogether() {
+    // Arrange
+    List<Long> userIds = new ArrayList<>();
+    for (long id = 1; id <= 2500; id++) {
+      userIds.add(id);
+    }
+    userIds.add(1L); // duplicates are awarded once
+    when(rewardAccountRepository.findAwardTargets(anyCollection()))
+        .thenAnswer(
+            invocation -> {
+              List<Object[]> rows = new ArrayList<>();
+              for (Long userId : invocation.<Collection<Long>>getArgument(0)) {
+                if (userId % 100 != 0) { // every hundredth user has no reward account
+                  rows.add(new Object[] {userId + 1000, userId, "User", "" + userId});
+                }
+              }
+              return rows;
+            });
+
+    // Act
+    int awarded = rewardService.awardPointsToUsers(userIds, 20, "Holiday promotion");
+
+    // Assert
+    assertEquals(2475, awarded);
+    verify(rewardAccountRepository, times(3)).findAwardTargets(anyCollection());
+    verify(notificationService)
+        .createNotifications(
+            argThat(ids -> ids.size() == 2475),
+            eq("Points Earned!"),
+            anyString(),
+            eq(NotificationType.REFERRAL_BONUS));
+    verify(rewardLedgerBuffer)
+        .appendAll(
+            argThat(ids -> ids.size() == 2475 && ids.contains(1001L)),
+            eq(TransactionType.EARNED),
+            eq(20),
+            eq("Holiday promotion"));
+    verify(rewardLedgerBuffer, never()).append(any(), any(), anyInt(), any());
+    verify(rewardLeaderboardService, times(2475)).recordPoints(anyLong(), anyString(), eq(20L));
+  }
+
+  @Test
+  void awardPointsToUsers_ShouldRejectNonPositivePoints() {
+    // Act & Assert
+    assertThrows(
+        RuntimeException.class,
+        () -> rewardService.awardPointsToUsers(Arrays.asList(1L, 2L), 0, "Nothing"));
+    verifyNoInteractions(rewardAccountRepository, rewardLedgerBuffer, notificationService);
+  }
+
+  private static Object[] feedRow(Long id, String description) {
+    return new Object[] {
+      id, 1L, "John", "Doe", TransactionType.EARNED, 10, description, LocalDateTime.now()
+    };
   }
 }
@@ -0,0 +1,244 @@
+package com.shopexperts.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.shopexperts.model.BroadcastNotification;
+import com.shopexperts.model.NotificationType;
+import com.shopexperts.model.SyncEntityType;
+import com.shopexperts.model.User;
+import com.shopexperts.payload.NotificationPreferences;
+import com.shopexperts.payload.NotificationRequest;
+import com.shopexperts.payload.NotificationResponse;
+import com.shopexperts.payload.SyncResponse;
+import com.shopexperts.repository.UserRepository;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/** Syncs notifications and broadcasts against a real database, in pages of two changes. */
+@DataJpaTest(
+    properties = {
+      "spring.datasource.url=jdbc:h2:mem:delta-sync;DB_CLOSE_DELAY=-1",
+      "app.sync.page-size=2"
+    })
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({
+  SyncService.class,
+  ChangeLogService.class,
+  NotificationService.class,
+  NotificationCounterService.class,
+  NotificationPreferenceService.class
+})
+class SyncServiceTest {
+
+  @Autowired private SyncService syncService;
+
+  @Autowired private NotificationService notificationService;
+
+  @Autowired private UserRepository userRepository;
+
+  @Autowired private ChangeLogService changeLogService;
+
+  @Autowired private NotificationPreferenceService notificationPreferenceService;
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @Autowired private PlatformTransactionManager transactionManager;
+
+  @MockBean private NotificationWriter notificationWriter;
+
+  @MockBean private BookingService bookingService;
+
+  @MockBean private RewardService rewardService;
+
+  private User user;
+
+  private User other;
+
+  @BeforeEach
+  void setUp() {
+    user = userRepository.save(new User("Sync", "Client", "sync@example.com", "password"));
+    other = userRepository.save(new User("Other", "Client", "other@example.com", "password"));
+  }
+
+  @AfterEach
+  void tearDown() {
+    jdbcTemplate.update("DELETE FROM change_log");
+    jdbcTemplate.update("DELETE FROM broadcast_receipts");
+    jdbcTemplate.update("DELETE FROM broadcast_notifications");
+    jdbcTemplate.update("DELETE FROM notification_preferences");
+    jdbcTemplate.update("DELETE FROM notification_counters");
+    jdbcTemplate.update("DELETE FROM notifications");
+    jdbcTemplate.update("DELETE FROM users");
+  }
+
+  @Test
+  void sync_ShouldResetWithoutAValidToken() {
+    // Act
+    SyncResponse first = syncService.sync(user.getId(), null);
+    SyncResponse garbled = syncService.sync(user.getId(), "not-a-token");
+
+    // Assert
+    assertTrue(first.getReset());
+    assertNotNull(first.getToken());
+    assertTrue(garbled.getReset());
+    assertFalse(syncService.sync(user.getId(), first.getToken()).getReset());
+  }
+
+  @Test
+  void sync_ShouldPageThroughChangesWithTombstonesForDeletes() {
+    // Arrange
+    String token = syncService.sync(user.getId(), null).getToken();
+    NotificationResponse kept = create(user);
+    NotificationResponse removed = create(user);
+    create(other);
+    notificationService.markNotificationsAsRead(
+        user.getId(), Collections.singletonList(kept.getId()));
+    notificationService.deleteNotification(removed.getId());
+
+    // Act
+    SyncResponse first = syncService.sync(user.getId(), token);
+    SyncResponse second = syncService.sync(user.getId(), first.getToken());
+    SyncResponse third = syncService.sync(user.getId(), second.getToken());
+
+    // Assert: the two creations, then the read and the delete; never the other user's
+    assertFalse(first.getReset());
+    assertTrue(first.getHasMore());
+    assertEquals(1, first.getNotifications().size());
+    assertEquals(kept.getId(), first.getNotifications().get(0).getId());
+    assertTrue(first.getDeleted().isEmpty());
+    assertFalse(second.getHasMore());
+    assertEquals(1, second.getNotifications().size());
+    assertTrue(second.getNotifications().get(0).getIsRead());
+    assertEquals(
+        Collections.singletonList(removed.getId()),
+        second.getDeleted().get(SyncEntityType.NOTIFICATION));
+    assertTrue(third.getNotifications().isEmpty());
+    assertTrue(third.getDeleted().isEmpty());
+  }
+
+  @Test
+  void sync_ShouldCollapseRepeatedChangesToOneEntry() {
+    // Arrange
+    String token = syncService.sync(user.getId(), null).getToken();
+    NotificationResponse notification = create(user);
+    notificationService.markNotificationsAsRead(
+        user.getId(), Collections.singletonList(notification.getId()));
+
+    // Act
+    SyncResponse delta = syncService.sync(user.getId(), token);
+
+    // Assert
+    assertFalse(delta.getHasMore());
+    assertEquals(1, delta.getNotifications().size());
+    assertTrue(delta.getNotifications().get(0).getIsRead());
+  }
+
+  @Test
+  void sync_ShouldNotSkipAChangeWhoseTransactionCommitsLate() throws Exception {
+    // Arrange: a slow writer records a change and holds its transaction open
+    String token = syncService.sync(user.getId(), null).getToken();
+    NotificationResponse slow = create(user);
+    NotificationResponse fast = create(user);
+    token = syncService.sync(user.getId(), token).getToken();
+    CountDownLatch recorded = new CountDownLatch(1);
+    CountDownLatch commit = new CountDownLatch(1);
+    ExecutorService writer = Executors.newSingleThreadExecutor();
+    Future<?> slowWrite =
+        writer.submit(
+            () ->
+                new TransactionTemplate(transactionManager)
+                    .executeWithoutResult(
+                        status -> {
+                          changeLogService.recordChanged(
+                              SyncEntityType.NOTIFICATION, user.getId(), slow.getId());
+                          recorded.countDown();
+                          awaitQuietly(commit);
+                        }));
+    assertTrue(recorded.await(5, TimeUnit.SECONDS));
+    changeLogService.recordChanged(SyncEntityType.NOTIFICATION, user.getId(), fast.getId());
+
+    // Act: sync while the slow change is in flight, then again once it has committed
+    SyncResponse during = syncService.sync(user.getId(), token);
+    commit.countDown();
+    slowWrite.get(5, TimeUnit.SECONDS);
+    writer.shutdown();
+    SyncResponse after = syncService.sync(user.getId(), during.getToken());
+
+    // Assert
+    assertEquals(1, during.getNotifications().size());
+    assertEquals(fast.getId(), during.getNotifications().get(0).getId());
+    assertEquals(1, after.getNotifications().size());
+    assertEquals(slow.getId(), after.getNotifications().get(0).getId());
+  }
+
+  @Test
+  void sync_ShouldDeliverBroadcastsWithTheirReadStateHidesAndMutes() {
+    // Arrange
+    String token = syncService.sync(user.getId(), null).getToken();
+    BroadcastNotification sale =
+        notificationService.broadcastNotification("Sale", "Half price", NotificationType.PROMOTION);
+    BroadcastNotification tips =
+        notificationService.broadcastNotification("Tips", "Book early", NotificationType.PROMOTION);
+
+    // Act: the broadcasts, then a read and a hide, then a mute of their type
+    SyncResponse sent = syncService.sync(user.getId(), token);
+    notificationService.markBroadcastAsRead(user.getId(), sale.getId());
+    notificationService.deleteBroadcast(user.getId(), tips.getId());
+    SyncResponse receipts = syncService.sync(user.getId(), sent.getToken());
+    notificationPreferenceService.updatePreferences(
+        user.getId(),
+        new NotificationPreferences(
+            EnumSet.of(NotificationType.PROMOTION),
+            EnumSet.noneOf(NotificationType.class),
+            EnumSet.noneOf(NotificationType.class)));
+    SyncResponse muted = syncService.sync(user.getId(), receipts.getToken());
+    SyncResponse otherUser = syncService.sync(other.getId(), token);
+
+    // Assert
+    assertEquals(2, sent.getBroadcasts().size());
+    assertTrue(sent.getBroadcasts().stream().allMatch(b -> b.getBroadcast() && !b.getIsRead()));
+    assertEquals(1, receipts.getBroadcasts().size());
+    assertEquals(sale.getId(), receipts.getBroadcasts().get(0).getId());
+    assertTrue(receipts.getBroadcasts().get(0).getIsRead());
+    assertEquals(
+        Collections.singletonList(tips.getId()),
+        receipts.getDeleted().get(SyncEntityType.BROADCAST));
+    assertTrue(muted.getBroadcasts().isEmpty());
+    assertTrue(muted.getDeleted().get(SyncEntityType.BROADCAST).contains(sale.getId()));
+    assertEquals(2, otherUser.getBroadcasts().size());
+    assertTrue(otherUser.getBroadcasts().stream().noneMatch(b -> b.getIsRead()));
+  }
+
+  private static void awaitQuietly(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private NotificationResponse create(User recipient) {
+    return notificationService.createNotification(
+        new NotificationRequest(
+            recipient.getId(), "Title", "Message", NotificationType.BOOKING_CONFIRMED));
+  }
+}
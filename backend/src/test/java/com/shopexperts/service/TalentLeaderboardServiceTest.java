@@ -0,0 +1,129 @@
+package com.shopexperts.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.shopexperts.payload.TalentRankingResponse;
+import com.shopexperts.repository.ReviewRepository;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@ExtendWith(MockitoExtension.class)
+class TalentLeaderboardServiceTest {
+
+  @Mock private ReviewRepository reviewRepository;
+
+  @InjectMocks private TalentLeaderboardService talentLeaderboardService;
+
+  @BeforeEach
+  void setUp() {
+    ReflectionTestUtils.setField(talentLeaderboardService, "priorWeight", 10.0);
+    ReflectionTestUtils.setField(talentLeaderboardService, "defaultPriorMean", 4.0);
+  }
+
+  @Test
+  void rebuild_ShouldRankManyGoodReviewsAboveSinglePerfectReview() {
+    // Arrange
+    List<Object[]> rows =
+        Arrays.asList(
+            new Object[] {1L, "Solo", "Star", "Plumbing", 1L, 5L},
+            new Object[] {2L, "Busy", "Expert", "Plumbing", 500L, 2400L},
+            new Object[] {3L, "Other", "Trade", "Electrical", 20L, 80L});
+    when(reviewRepository.aggregateApprovedRatingsByTalent()).thenReturn(rows);
+
+    // Act
+    talentLeaderboardService.rebuild();
+    List<TalentRankingResponse> top = talentLeaderboardService.getTopTalents(null, 10);
+
+    // Assert
+    assertEquals(3, top.size());
+    assertEquals(2L, top.get(0).getTalentId());
+    assertEquals(1, top.get(0).getRank());
+    assertEquals("Busy Expert", top.get(0).getTalentName());
+    assertEquals(4.8, top.get(0).getAverageRating(), 0.0001);
+    assertEquals(500L, top.get(0).getReviewCount());
+    assertEquals(1L, top.get(1).getTalentId());
+  }
+
+  @Test
+  void getTopTalents_ShouldFilterByCategoryCaseInsensitively() {
+    // Arrange
+    List<Object[]> rows =
+        Arrays.asList(
+            new Object[] {1L, "Solo", "Star", "Plumbing", 1L, 5L},
+            new Object[] {3L, "Other", "Trade", "Electrical", 20L, 80L});
+    when(reviewRepository.aggregateApprovedRatingsByTalent()).thenReturn(rows);
+    talentLeaderboardService.rebuild();
+
+    // Act
+    List<TalentRankingResponse> plumbing = talentLeaderboardService.getTopTalents("plumbing", 10);
+    List<TalentRankingResponse> unknown = talentLeaderboardService.getTopTalents("Roofing", 10);
+
+    // Assert
+    assertEquals(1, plumbing.size());
+    assertEquals(1L, plumbing.get(0).getTalentId());
+    assertTrue(unknown.isEmpty());
+  }
+
+  @Test
+  void recordRatingChange_ShouldUpdateRankIncrementally() {
+    // Arrange
+    when(reviewRepository.aggregateApprovedRatingsByTalent()).thenReturn(new ArrayList<>());
+    talentLeaderboardService.rebuild();
+
+    // Act
+    talentLeaderboardService.recordRatingChange(1L, "Jane Smith", "Plumbing", 1, 3);
+    talentLeaderboardService.recordRatingChange(2L, "John Doe", "Plumbing", 1, 5);
+
+    // Assert
+    assertEquals(1, talentLeaderboardService.getTalentRanking(2L, null).getRank());
+    assertEquals(2, talentLeaderboardService.getTalentRanking(1L, "Plumbing").getRank());
+
+    // Act
+    talentLeaderboardService.recordRatingChange(1L, "Jane Smith", "Plumbing", 3, 15);
+
+    // Assert
+    assertEquals(1, talentLeaderboardService.getTalentRanking(1L, null).getRank());
+    verify(reviewRepository, times(1)).aggregateApprovedRatingsByTalent();
+  }
+
+  @Test
+  void recordRatingChange_ShouldDropTalentWhenLastReviewRemoved() {
+    // Arrange
+    when(reviewRepository.aggregateApprovedRatingsByTalent()).thenReturn(new ArrayList<>());
+    talentLeaderboardService.rebuild();
+    talentLeaderboardService.recordRatingChange(1L, "Jane Smith", "Plumbing", 1, 4);
+
+    // Act
+    talentLeaderboardService.recordRatingChange(1L, "Jane Smith", "Plumbing", -1, -4);
+
+    // Assert
+    assertNull(talentLeaderboardService.getTalentRanking(1L, null));
+    assertTrue(talentLeaderboardService.getTopTalents("Plumbing", 10).isEmpty());
+  }
+
+  @Test
+  void recordRatingChange_ShouldMoveTalentBetweenCategories() {
+    // Arrange
+    when(reviewRepository.aggregateApprovedRatingsByTalent()).thenReturn(new ArrayList<>());
+    talentLeaderboardService.rebuild();
+    talentLeaderboardService.recordRatingChange(1L, "Jane Smith", "Plumbing", 1, 4);
+
+    // Act
+    talentLeaderboardService.recordRatingChange(1L, "Jane Smith", "Electrical", 1, 5);
+
+    // Assert
+    assertTrue(talentLeaderboardService.getTopTalents("Plumbing", 10).isEmpty());
+    TalentRankingResponse ranking = talentLeaderboardService.getTalentRanking(1L, "Electrical");
+    assertNotNull(ranking);
+    assertEquals(2L, ranking.getReviewCount());
+  }
+}